@@ -0,0 +1,54 @@
+/*_##########################################################################
+  _##
+  _##  Copyright (C) 2013  Kaito Yamada
+  _##
+  _##########################################################################
+*/
+
+package org.pcap4j.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * The main class of benchmarks.jar.
+ * This takes the same arguments as the JMH's main class
+ * (e.g. "java -jar benchmarks.jar PacketDecode -p name=TcpPacketTest")
+ * and always adds the GC profiler so that results include
+ * the allocation rate per operation (gc.alloc.rate.norm).
+ *
+ * @author Kaito Yamada
+ * @since pcap4j 1.0.1
+ */
+public final class BenchmarkRunner {
+
+  private BenchmarkRunner() { throw new AssertionError(); }
+
+  /**
+   *
+   * @param args
+   * @throws Exception
+   */
+  public static void main(String[] args) throws Exception {
+    CommandLineOptions cmdOptions = new CommandLineOptions(args);
+    if (cmdOptions.shouldHelp()) {
+      cmdOptions.showHelp();
+      return;
+    }
+    if (cmdOptions.shouldList()) {
+      new Runner(cmdOptions).list();
+      return;
+    }
+
+    Options options
+      = new OptionsBuilder()
+          .parent(cmdOptions)
+          .addProfiler(GCProfiler.class)
+          .build();
+    new Runner(options).run();
+  }
+
+}
@@ -0,0 +1,122 @@
+/*_##########################################################################
+  _##
+  _##  Copyright (C) 2013  Kaito Yamada
+  _##
+  _##########################################################################
+*/
+
+package org.pcap4j.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pcap4j.util.ByteArrays;
+
+/**
+ * Benchmarks of the primitives in {@link ByteArrays} which the packet classes
+ * use to parse and build packets.
+ *
+ * @author Kaito Yamada
+ * @since pcap4j 1.0.1
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ByteArraysBenchmark {
+
+  /**
+   * The length of the array to operate on.
+   */
+  @Param({"64", "1500"})
+  public int length;
+
+  private byte[] data;
+  private int offset;
+
+  /**
+   *
+   */
+  @Setup
+  public void setup() {
+    this.data = new byte[length];
+    new Random(0).nextBytes(data);
+    this.offset = length / 2;
+  }
+
+  /**
+   *
+   * @return a value.
+   */
+  @Benchmark
+  public short getShort() {
+    return ByteArrays.getShort(data, offset);
+  }
+
+  /**
+   *
+   * @return a value.
+   */
+  @Benchmark
+  public int getInt() {
+    return ByteArrays.getInt(data, offset);
+  }
+
+  /**
+   *
+   * @return a value.
+   */
+  @Benchmark
+  public long getLong() {
+    return ByteArrays.getLong(data, offset - 8);
+  }
+
+  /**
+   *
+   * @return a new array.
+   */
+  @Benchmark
+  public byte[] toByteArrayInt() {
+    return ByteArrays.toByteArray(offset);
+  }
+
+  /**
+   *
+   * @return a new array.
+   */
+  @Benchmark
+  public byte[] getSubArray() {
+    return ByteArrays.getSubArray(data, 0, offset);
+  }
+
+  /**
+   *
+   * @return a checksum.
+   */
+  @Benchmark
+  public short calcChecksum() {
+    return ByteArrays.calcChecksum(data);
+  }
+
+  /**
+   *
+   * @return a hex string.
+   */
+  @Benchmark
+  public String toHexString() {
+    return ByteArrays.toHexString(data, " ");
+  }
+
+}
@@ -0,0 +1,154 @@
+/*_##########################################################################
+  _##
+  _##  Copyright (C) 2013  Kaito Yamada
+  _##
+  _##########################################################################
+*/
+
+package org.pcap4j.benchmark;
+
+import java.io.IOException;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pcap4j.packet.AbstractPacket;
+import org.pcap4j.packet.IcmpV4CommonPacket;
+import org.pcap4j.packet.IcmpV6CommonPacket;
+import org.pcap4j.packet.IpV4Packet;
+import org.pcap4j.packet.IpV6Packet;
+import org.pcap4j.packet.Packet;
+import org.pcap4j.packet.TcpPacket;
+import org.pcap4j.packet.UdpPacket;
+import org.pcap4j.packet.factory.PacketFactories;
+import org.pcap4j.packet.namednumber.DataLinkType;
+
+/**
+ * Builds packets with Packet.Builder.build() or writeTo(byte[], int),
+ * correcting their checksums and length fields. The builders are made from the first packet in a pcap
+ * file of pcap4j-packettest.
+ * One operation builds one packet.
+ *
+ * @author Kaito Yamada
+ * @since pcap4j 1.0.1
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PacketBuildBenchmark {
+
+  /**
+   * The name of a pcap file in pcap4j-packettest without ".pcap".
+   */
+  @Param({
+    "IcmpV4EchoPacketTest",
+    "IcmpV6EchoRequestPacketTest",
+    "IpV4PacketTest",
+    "TcpPacketTest",
+    "UdpPacketTest"
+  })
+  public String name;
+
+  private Packet.Builder builder;
+  private byte[] buffer;
+
+  /**
+   *
+   * @throws IOException
+   */
+  @Setup
+  public void setup() throws IOException {
+    PcapFiles.Contents contents = PcapFiles.load(name);
+    Packet packet
+      = PacketFactories.getFactory(Packet.class, DataLinkType.class)
+          .newInstance(contents.packets.get(0), contents.dlt);
+    this.builder = packet.getBuilder();
+    this.buffer = new byte[packet.length()];
+
+    InetAddress srcAddr = null;
+    InetAddress dstAddr = null;
+    for (Packet.Builder b: builder) {
+      if (b instanceof IpV4Packet.Builder) {
+        IpV4Packet ip = packet.get(IpV4Packet.class);
+        srcAddr = ip.getHeader().getSrcAddr();
+        dstAddr = ip.getHeader().getDstAddr();
+        ((IpV4Packet.Builder)b)
+          .correctChecksumAtBuild(true)
+          .correctLengthAtBuild(true);
+      }
+      else if (b instanceof IpV6Packet.Builder) {
+        IpV6Packet ip = packet.get(IpV6Packet.class);
+        srcAddr = ip.getHeader().getSrcAddr();
+        dstAddr = ip.getHeader().getDstAddr();
+        ((IpV6Packet.Builder)b).correctLengthAtBuild(true);
+      }
+      else if (b instanceof TcpPacket.Builder) {
+        ((TcpPacket.Builder)b)
+          .srcAddr(srcAddr)
+          .dstAddr(dstAddr)
+          .correctChecksumAtBuild(true)
+          .correctLengthAtBuild(true);
+      }
+      else if (b instanceof UdpPacket.Builder) {
+        ((UdpPacket.Builder)b)
+          .srcAddr(srcAddr)
+          .dstAddr(dstAddr)
+          .correctChecksumAtBuild(true)
+          .correctLengthAtBuild(true);
+      }
+      else if (b instanceof IcmpV4CommonPacket.Builder) {
+        ((IcmpV4CommonPacket.Builder)b).correctChecksumAtBuild(true);
+      }
+      else if (b instanceof IcmpV6CommonPacket.Builder) {
+        ((IcmpV6CommonPacket.Builder)b)
+          .srcAddr((Inet6Address)srcAddr)
+          .dstAddr((Inet6Address)dstAddr)
+          .correctChecksumAtBuild(true);
+      }
+    }
+  }
+
+  /**
+   *
+   * @return a built packet.
+   */
+  @Benchmark
+  public Packet build() {
+    return builder.build();
+  }
+
+  /**
+   * Builds a packet and then gets its raw data,
+   * which is the usual step before sending it.
+   *
+   * @return raw data.
+   */
+  @Benchmark
+  public byte[] buildAndGetRawData() {
+    return builder.build().getRawData();
+  }
+
+  /**
+   * Writes a packet into a reused array without building it.
+   *
+   * @return the number of bytes written.
+   */
+  @Benchmark
+  public int writeTo() {
+    return AbstractPacket.AbstractBuilder.writeTo(builder, buffer, 0);
+  }
+
+}
@@ -0,0 +1,129 @@
+/*_##########################################################################
+  _##
+  _##  Copyright (C) 2013  Kaito Yamada
+  _##
+  _##########################################################################
+*/
+
+package org.pcap4j.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.pcap4j.packet.Packet;
+import org.pcap4j.packet.factory.PacketFactories;
+import org.pcap4j.packet.factory.PacketFactory;
+import org.pcap4j.packet.namednumber.DataLinkType;
+
+/**
+ * Decodes the packets in the pcap files of pcap4j-packettest.
+ * Which packet factory is used depends on the Maven profile
+ * this module is built with.
+ * One operation decodes one packet.
+ *
+ * @author Kaito Yamada
+ * @since pcap4j 1.0.1
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PacketDecodeBenchmark {
+
+  /**
+   * The name of a pcap file in pcap4j-packettest without ".pcap".
+   */
+  @Param({
+    "ArpPacketTest",
+    "Dot1qVlanTaggedPacketTest",
+    "IcmpV4EchoPacketTest",
+    "IcmpV6EchoRequestPacketTest",
+    "IpV4PacketTest",
+    "IpV6ExtFragmentPacketTest",
+    "IpV6PacketTest",
+    "TcpPacketTest",
+    "UdpPacketTest"
+  })
+  public String name;
+
+  private PacketFactory<Packet, DataLinkType> factory;
+  private DataLinkType dlt;
+  private byte[][] packets;
+  private int next;
+
+  /**
+   *
+   * @throws IOException
+   */
+  @Setup
+  public void setup() throws IOException {
+    PcapFiles.Contents contents = PcapFiles.load(name);
+    this.factory = PacketFactories.getFactory(Packet.class, DataLinkType.class);
+    this.dlt = contents.dlt;
+    this.packets = contents.packets.toArray(new byte[0][]);
+    this.next = 0;
+  }
+
+  private byte[] nextPacket() {
+    byte[] packet = packets[next];
+    next = (next + 1) % packets.length;
+    return packet;
+  }
+
+  /**
+   *
+   * @return a decoded packet.
+   */
+  @Benchmark
+  public Packet decode() {
+    return factory.newInstance(nextPacket(), dlt);
+  }
+
+  /**
+   * Decodes a packet and then visits every layer of it,
+   * which makes a difference in lazy decoding mode.
+   *
+   * @param bh
+   */
+  @Benchmark
+  public void decodeAndWalk(Blackhole bh) {
+    Packet packet = factory.newInstance(nextPacket(), dlt);
+    for (Packet p: packet) {
+      bh.consume(p.getHeader());
+    }
+  }
+
+  /**
+   * Decodes a packet and then gets the length of every layer and header of it,
+   * which builds and caches the lengths.
+   * The gc.alloc.rate.norm of this with UdpPacketTest shows the allocation
+   * per packet including the caches of AbstractPacket and AbstractHeader.
+   *
+   * @param bh
+   */
+  @Benchmark
+  public void decodeAndGetLength(Blackhole bh) {
+    Packet packet = factory.newInstance(nextPacket(), dlt);
+    for (Packet p: packet) {
+      bh.consume(p.length());
+      Packet.Header header = p.getHeader();
+      if (header != null) {
+        bh.consume(header.length());
+      }
+    }
+  }
+
+}
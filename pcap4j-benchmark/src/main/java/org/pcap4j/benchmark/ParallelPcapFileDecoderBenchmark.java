@@ -0,0 +1,119 @@
+/*_##########################################################################
+  _##
+  _##  Copyright (C) 2013  Kaito Yamada
+  _##
+  _##########################################################################
+*/
+
+package org.pcap4j.benchmark;
+
+import java.io.File;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.pcap4j.core.ParallelPcapFileDecoder;
+import org.pcap4j.core.PcapPacket;
+import org.pcap4j.core.PcapPacketListener;
+
+/**
+ * Decodes a pcap file with {@link ParallelPcapFileDecoder} on a given number
+ * of threads. The file is the same as {@link PcapFileReaderBenchmark}'s,
+ * so the results with 1 thread can be compared with its getNextPcapPacket.
+ *
+ * @author Kaito Yamada
+ * @since pcap4j 1.0.1
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParallelPcapFileDecoderBenchmark {
+
+  private static final int PACKETS_PER_FILE = PcapHandleBenchmark.PACKETS_PER_FILE;
+
+  /**
+   * The name of a pcap file in pcap4j-packettest without ".pcap".
+   */
+  @Param({
+    "IcmpV4EchoPacketTest",
+    "TcpPacketTest",
+    "UdpPacketTest"
+  })
+  public String name;
+
+  /**
+   * The number of threads to decode on.
+   */
+  @Param({
+    "1",
+    "2",
+    "4",
+    "8"
+  })
+  public int threads;
+
+  private File file;
+  private ExecutorService pool;
+
+  /**
+   *
+   * @throws Exception
+   */
+  @Setup
+  public void setup() throws Exception {
+    PcapFiles.Contents contents = PcapFiles.load(name);
+    this.file = File.createTempFile("pcap4j-benchmark-", ".pcap");
+    PcapFiles.write(file, contents.dlt, contents.packets, PACKETS_PER_FILE);
+    this.pool = Executors.newFixedThreadPool(threads);
+  }
+
+  /**
+   *
+   */
+  @TearDown
+  public void tearDown() {
+    pool.shutdownNow();
+    file.delete();
+  }
+
+  /**
+   * Decodes all packets in no particular order, splitting the file into
+   * 4 ranges per thread.
+   *
+   * @param bh
+   * @throws Exception
+   */
+  @Benchmark
+  @OperationsPerInvocation(PACKETS_PER_FILE)
+  public void decode(Blackhole bh) throws Exception {
+    final AtomicLong total = new AtomicLong();
+    new ParallelPcapFileDecoder(file).decode(
+      pool,
+      threads * 4,
+      new PcapPacketListener() {
+        public void gotPacket(PcapPacket packet) {
+          total.addAndGet(packet.getPacket().length());
+        }
+      }
+    );
+    bh.consume(total.get());
+  }
+
+}
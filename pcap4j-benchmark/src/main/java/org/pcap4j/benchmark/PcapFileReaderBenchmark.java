@@ -0,0 +1,141 @@
+/*_##########################################################################
+  _##
+  _##  Copyright (C) 2013  Kaito Yamada
+  _##
+  _##########################################################################
+*/
+
+package org.pcap4j.benchmark;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.pcap4j.core.PcapFileReader;
+import org.pcap4j.core.PcapPacket;
+import org.pcap4j.core.RawPacket;
+
+/**
+ * Reads a pcap file with {@link PcapFileReader}, which doesn't use libpcap.
+ * The file is the same as {@link PcapHandleBenchmark}'s, so the results
+ * can be compared with it.
+ *
+ * @author Kaito Yamada
+ * @since pcap4j 1.0.1
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PcapFileReaderBenchmark {
+
+  private static final int PACKETS_PER_FILE = PcapHandleBenchmark.PACKETS_PER_FILE;
+
+  /**
+   * The name of a pcap file in pcap4j-packettest without ".pcap".
+   */
+  @Param({
+    "IcmpV4EchoPacketTest",
+    "TcpPacketTest",
+    "UdpPacketTest"
+  })
+  public String name;
+
+  private File file;
+
+  /**
+   *
+   * @throws Exception
+   */
+  @Setup
+  public void setup() throws Exception {
+    PcapFiles.Contents contents = PcapFiles.load(name);
+    this.file = File.createTempFile("pcap4j-benchmark-", ".pcap");
+    PcapFiles.write(file, contents.dlt, contents.packets, PACKETS_PER_FILE);
+  }
+
+  /**
+   *
+   */
+  @TearDown
+  public void tearDown() {
+    file.delete();
+  }
+
+  /**
+   * Reads all packets with getNextRawPacket() without decoding them.
+   *
+   * @param bh
+   * @throws Exception
+   */
+  @Benchmark
+  @OperationsPerInvocation(PACKETS_PER_FILE)
+  public void getNextRawPacket(Blackhole bh) throws Exception {
+    PcapFileReader reader = new PcapFileReader(file);
+    try {
+      RawPacket packet;
+      while ((packet = reader.getNextRawPacket()) != null) {
+        bh.consume(packet.getData().get(0));
+      }
+    } finally {
+      reader.close();
+    }
+  }
+
+  /**
+   * Reads and decodes all packets with getNextPcapPacket().
+   *
+   * @param bh
+   * @throws Exception
+   */
+  @Benchmark
+  @OperationsPerInvocation(PACKETS_PER_FILE)
+  public void getNextPcapPacket(Blackhole bh) throws Exception {
+    PcapFileReader reader = new PcapFileReader(file);
+    try {
+      PcapPacket packet;
+      while ((packet = reader.getNextPcapPacket()) != null) {
+        bh.consume(packet);
+      }
+    } finally {
+      reader.close();
+    }
+  }
+
+  /**
+   * Reads and decodes all packets with getNextPcapPacket() after
+   * starting read-ahead.
+   *
+   * @param bh
+   * @throws Exception
+   */
+  @Benchmark
+  @OperationsPerInvocation(PACKETS_PER_FILE)
+  public void getNextPcapPacketWithReadAhead(Blackhole bh) throws Exception {
+    PcapFileReader reader = new PcapFileReader(file);
+    try {
+      reader.startReadAhead(1024);
+      PcapPacket packet;
+      while ((packet = reader.getNextPcapPacket()) != null) {
+        bh.consume(packet);
+      }
+    } finally {
+      reader.close();
+    }
+  }
+
+}
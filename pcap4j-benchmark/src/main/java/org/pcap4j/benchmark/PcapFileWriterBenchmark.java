@@ -0,0 +1,132 @@
+/*_##########################################################################
+  _##
+  _##  Copyright (C) 2013  Kaito Yamada
+  _##
+  _##########################################################################
+*/
+
+package org.pcap4j.benchmark;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pcap4j.core.PcapFileWriter;
+import org.pcap4j.packet.namednumber.DataLinkType;
+
+/**
+ * Writes a pcap file with {@link PcapFileWriter}, which doesn't use libpcap.
+ * Each invocation writes {@value #PACKETS_PER_FILE} packets of a pcap file of
+ * pcap4j-packettest into a temporary file,
+ * and the results are reported per packet.
+ *
+ * @author Kaito Yamada
+ * @since pcap4j 1.0.1
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PcapFileWriterBenchmark {
+
+  /**
+   * The number of packets written by each invocation.
+   */
+  public static final int PACKETS_PER_FILE = 10000;
+
+  /**
+   * The name of a pcap file in pcap4j-packettest without ".pcap".
+   */
+  @Param({
+    "IcmpV4EchoPacketTest",
+    "TcpPacketTest",
+    "UdpPacketTest"
+  })
+  public String name;
+
+  private DataLinkType dlt;
+  private List<byte[]> packets;
+  private List<ByteBuffer> buffers;
+  private File file;
+
+  /**
+   *
+   * @throws Exception
+   */
+  @Setup
+  public void setup() throws Exception {
+    PcapFiles.Contents contents = PcapFiles.load(name);
+    this.dlt = contents.dlt;
+    this.packets = contents.packets;
+    this.buffers = new ArrayList<ByteBuffer>(packets.size());
+    for (byte[] packet: packets) {
+      ByteBuffer buffer = ByteBuffer.allocateDirect(packet.length);
+      buffer.put(packet).flip();
+      buffers.add(buffer);
+    }
+    this.file = File.createTempFile("pcap4j-benchmark-", ".pcap");
+  }
+
+  /**
+   *
+   */
+  @TearDown
+  public void tearDown() {
+    file.delete();
+  }
+
+  /**
+   * Writes raw packets with write(byte[], int, int, int, long, int).
+   *
+   * @throws Exception
+   */
+  @Benchmark
+  @OperationsPerInvocation(PACKETS_PER_FILE)
+  public void write() throws Exception {
+    PcapFileWriter writer = new PcapFileWriter.Builder(file, dlt).build();
+    try {
+      for (int i = 0; i < PACKETS_PER_FILE; i++) {
+        byte[] packet = packets.get(i % packets.size());
+        writer.write(packet, 0, packet.length, packet.length, i, 0);
+      }
+    } finally {
+      writer.close();
+    }
+  }
+
+  /**
+   * Writes raw packets in direct buffers with write(ByteBuffer, int, long, int).
+   *
+   * @throws Exception
+   */
+  @Benchmark
+  @OperationsPerInvocation(PACKETS_PER_FILE)
+  public void writeByteBuffer() throws Exception {
+    PcapFileWriter writer = new PcapFileWriter.Builder(file, dlt).build();
+    try {
+      for (int i = 0; i < PACKETS_PER_FILE; i++) {
+        ByteBuffer buffer = buffers.get(i % buffers.size());
+        writer.write(buffer, buffer.remaining(), i, 0);
+      }
+    } finally {
+      writer.close();
+    }
+  }
+
+}
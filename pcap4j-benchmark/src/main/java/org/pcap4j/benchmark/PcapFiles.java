@@ -0,0 +1,142 @@
+/*_##########################################################################
+  _##
+  _##  Copyright (C) 2013  Kaito Yamada
+  _##
+  _##########################################################################
+*/
+
+package org.pcap4j.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import org.pcap4j.packet.namednumber.DataLinkType;
+
+/**
+ * Reads and writes pcap files without libpcap,
+ * so that benchmarks can prepare their data in the setup phase.
+ *
+ * @author Kaito Yamada
+ * @since pcap4j 1.0.1
+ */
+final class PcapFiles {
+
+  private static final int MAGIC = 0xA1B2C3D4;
+  private static final int MAGIC_NANO = 0xA1B23C4D;
+  private static final int GLOBAL_HEADER_SIZE = 24;
+  private static final int RECORD_HEADER_SIZE = 16;
+
+  private PcapFiles() { throw new AssertionError(); }
+
+  /**
+   * Reads the packets of a pcap file in the class path.
+   * The pcap files of pcap4j-packettest are named after their test classes,
+   * e.g. "TcpPacketTest".
+   *
+   * @param name the file name without ".pcap".
+   * @return the data link type and packets of the file.
+   * @throws IOException
+   */
+  static Contents load(String name) throws IOException {
+    InputStream in = PcapFiles.class.getResourceAsStream("/" + name + ".pcap");
+    if (in == null) {
+      throw new IOException("Not found in the class path: " + name + ".pcap");
+    }
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try {
+      byte[] buf = new byte[4096];
+      int len;
+      while ((len = in.read(buf)) != -1) {
+        out.write(buf, 0, len);
+      }
+    } finally {
+      in.close();
+    }
+
+    ByteBuffer bb = ByteBuffer.wrap(out.toByteArray());
+    bb.order(ByteOrder.BIG_ENDIAN);
+    int magic = bb.getInt(0);
+    if (magic != MAGIC && magic != MAGIC_NANO) {
+      bb.order(ByteOrder.LITTLE_ENDIAN);
+      magic = bb.getInt(0);
+      if (magic != MAGIC && magic != MAGIC_NANO) {
+        throw new IOException("Not a pcap file: " + name);
+      }
+    }
+
+    DataLinkType dlt = DataLinkType.getInstance(bb.getInt(20));
+    List<byte[]> packets = new ArrayList<byte[]>();
+    bb.position(GLOBAL_HEADER_SIZE);
+    while (bb.remaining() >= RECORD_HEADER_SIZE) {
+      bb.position(bb.position() + 8);
+      int caplen = bb.getInt();
+      bb.getInt();
+      byte[] packet = new byte[caplen];
+      bb.get(packet);
+      packets.add(packet);
+    }
+
+    return new Contents(dlt, packets);
+  }
+
+  /**
+   * Writes a pcap file which contains the given packets repeatedly.
+   *
+   * @param file
+   * @param dlt
+   * @param packets
+   * @param count the number of packets to write.
+   * @throws IOException
+   */
+  static void write(
+    File file, DataLinkType dlt, List<byte[]> packets, int count
+  ) throws IOException {
+    OutputStream out = new FileOutputStream(file);
+    try {
+      ByteBuffer header = ByteBuffer.allocate(GLOBAL_HEADER_SIZE);
+      header.putInt(MAGIC)
+            .putShort((short)2)
+            .putShort((short)4)
+            .putInt(0)
+            .putInt(0)
+            .putInt(65536)
+            .putInt(dlt.value());
+      out.write(header.array());
+
+      ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+      for (int i = 0; i < count; i++) {
+        byte[] packet = packets.get(i % packets.size());
+        record.clear();
+        record.putInt(i / 1000000)
+              .putInt(i % 1000000)
+              .putInt(packet.length)
+              .putInt(packet.length);
+        out.write(record.array());
+        out.write(packet);
+      }
+    } finally {
+      out.close();
+    }
+  }
+
+  static final class Contents {
+
+    final DataLinkType dlt;
+    final List<byte[]> packets;
+
+    private Contents(DataLinkType dlt, List<byte[]> packets) {
+      this.dlt = dlt;
+      this.packets = packets;
+    }
+
+  }
+
+}
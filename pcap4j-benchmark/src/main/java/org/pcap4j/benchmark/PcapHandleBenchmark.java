@@ -0,0 +1,206 @@
+/*_##########################################################################
+  _##
+  _##  Copyright (C) 2013  Kaito Yamada
+  _##
+  _##########################################################################
+*/
+
+package org.pcap4j.benchmark;
+
+import java.io.EOFException;
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.pcap4j.core.PacketListener;
+import org.pcap4j.core.PcapHandle;
+import org.pcap4j.core.RawPacket;
+import org.pcap4j.core.RawPacketListener;
+import org.pcap4j.core.Pcaps;
+import org.pcap4j.packet.Packet;
+
+/**
+ * Reads a pcap file with {@link PcapHandle}, which requires libpcap.
+ * In the setup phase, the packets in a pcap file of pcap4j-packettest are
+ * written repeatedly into a temporary file of {@value #PACKETS_PER_FILE}
+ * packets. Each invocation opens the file and reads all of them,
+ * and the results are reported per packet.
+ *
+ * @author Kaito Yamada
+ * @since pcap4j 1.0.1
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PcapHandleBenchmark {
+
+  /**
+   * The number of packets in the file read by each invocation.
+   */
+  public static final int PACKETS_PER_FILE = 10000;
+
+  /**
+   * The name of a pcap file in pcap4j-packettest without ".pcap".
+   */
+  @Param({
+    "IcmpV4EchoPacketTest",
+    "TcpPacketTest",
+    "UdpPacketTest"
+  })
+  public String name;
+
+  private File file;
+
+  /**
+   *
+   * @throws Exception
+   */
+  @Setup
+  public void setup() throws Exception {
+    PcapFiles.Contents contents = PcapFiles.load(name);
+    this.file = File.createTempFile("pcap4j-benchmark-", ".pcap");
+    PcapFiles.write(file, contents.dlt, contents.packets, PACKETS_PER_FILE);
+  }
+
+  /**
+   *
+   */
+  @TearDown
+  public void tearDown() {
+    file.delete();
+  }
+
+  /**
+   * Reads and decodes all packets with getNextPacketEx().
+   *
+   * @param bh
+   * @throws Exception
+   */
+  @Benchmark
+  @OperationsPerInvocation(PACKETS_PER_FILE)
+  public void getNextPacketEx(Blackhole bh) throws Exception {
+    PcapHandle handle = Pcaps.openOffline(file.getPath());
+    try {
+      while (true) {
+        try {
+          bh.consume(handle.getNextPacketEx());
+        } catch (EOFException e) {
+          break;
+        } catch (TimeoutException e) {
+          // Never happens for a file.
+        }
+      }
+    } finally {
+      handle.close();
+    }
+  }
+
+  /**
+   * Reads and decodes all packets with getNextPacket().
+   *
+   * @param bh
+   * @throws Exception
+   */
+  @Benchmark
+  @OperationsPerInvocation(PACKETS_PER_FILE)
+  public void getNextPacket(Blackhole bh) throws Exception {
+    PcapHandle handle = Pcaps.openOffline(file.getPath());
+    try {
+      Packet packet;
+      while ((packet = handle.getNextPacket()) != null) {
+        bh.consume(packet);
+      }
+    } finally {
+      handle.close();
+    }
+  }
+
+  /**
+   * Reads and decodes all packets with loop(int, PacketListener).
+   *
+   * @param bh
+   * @throws Exception
+   */
+  @Benchmark
+  @OperationsPerInvocation(PACKETS_PER_FILE)
+  public void loop(final Blackhole bh) throws Exception {
+    PcapHandle handle = Pcaps.openOffline(file.getPath());
+    try {
+      handle.loop(
+        -1,
+        new PacketListener() {
+          public void gotPacket(Packet packet) {
+            bh.consume(packet);
+          }
+        }
+      );
+    } finally {
+      handle.close();
+    }
+  }
+
+  /**
+   * Reads all packets with loop(int, RawPacketListener) without decoding them.
+   *
+   * @param bh
+   * @throws Exception
+   */
+  @Benchmark
+  @OperationsPerInvocation(PACKETS_PER_FILE)
+  public void loopRaw(final Blackhole bh) throws Exception {
+    PcapHandle handle = Pcaps.openOffline(file.getPath());
+    try {
+      handle.loop(
+        -1,
+        new RawPacketListener() {
+          public void gotPacket(RawPacket packet) {
+            bh.consume(packet.getData().get(0));
+          }
+        }
+      );
+    } finally {
+      handle.close();
+    }
+  }
+
+  /**
+   * Reads all packets with loop(int, RawPacketListener) and decodes each.
+   *
+   * @param bh
+   * @throws Exception
+   */
+  @Benchmark
+  @OperationsPerInvocation(PACKETS_PER_FILE)
+  public void loopRawAndDecode(final Blackhole bh) throws Exception {
+    PcapHandle handle = Pcaps.openOffline(file.getPath());
+    try {
+      handle.loop(
+        -1,
+        new RawPacketListener() {
+          public void gotPacket(RawPacket packet) {
+            bh.consume(packet.decode());
+          }
+        }
+      );
+    } finally {
+      handle.close();
+    }
+  }
+
+}
@@ -7,7 +7,15 @@
 
 package org.pcap4j.core;
 
+import java.nio.ByteBuffer;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.pcap4j.core.NativeMappings.PcapLibrary;
 import org.pcap4j.core.NativeMappings.bpf_program;
+import org.pcap4j.core.NativeMappings.pcap_pkthdr;
+import com.sun.jna.Memory;
+import com.sun.jna.Native;
+import com.sun.jna.Pointer;
 
 /**
  * @author Kaito Yamada
@@ -15,13 +23,34 @@ import org.pcap4j.core.NativeMappings.bpf_program;
  */
 public final class BpfProgram {
 
+  // Headers given to pcap_offline_filter(). Only the lengths are set.
+  private static final ThreadLocal<Memory> headers
+    = new ThreadLocal<Memory>() {
+        @Override
+        protected Memory initialValue() {
+          Memory header = new Memory(new pcap_pkthdr().size());
+          header.clear();
+          return header;
+        }
+      };
+
   private final bpf_program program;
   private final String expression;
+  private final BpfProgramCache.Entry entry;
+  // Filtering holds the read lock, and freeing holds the write lock
+  // so that the program isn't freed while pcap_offline_filter() uses it.
+  private final ReadWriteLock freeLock = new ReentrantReadWriteLock();
   private volatile boolean freed = false;
 
   BpfProgram(bpf_program program, String expression) {
+    this(program, expression, null);
+  }
+
+  // A reference to a program shared through a BpfProgramCache.
+  BpfProgram(bpf_program program, String expression, BpfProgramCache.Entry entry) {
     this.program = program;
     this.expression = expression;
+    this.entry = entry;
   }
 
   bpf_program getProgram() {
@@ -46,17 +75,137 @@ public final class BpfProgram {
   }
 
   /**
-   *
+   * Frees the bpf_program represented by this object.
+   * If this object was given by a {@link BpfProgramCache},
+   * this releases the reference to the shared program instead,
+   * which is freed by the cache once it's no longer used.
+   * Calling this more than once has no effect.
+   * A program not given by a BpfProgramCache is freed by the garbage collector
+   * if this isn't called, but a reference given by a cache must be released
+   * by this, or the shared program stays in use and is never evicted.
+   * This waits for {@link #matches(byte[], int, int)} running in other threads
+   * to return.
    */
   public void free() {
-    NativeMappings.pcap_freecode(program);
-    freed = true;
+    freeLock.writeLock().lock();
+    try {
+      if (freed) {
+        return;
+      }
+      freed = true;
+
+      if (entry != null) {
+        entry.release();
+      }
+      else {
+        NativeMappings.pcap_freecode(program);
+      }
+    } finally {
+      freeLock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Applies this filter to a packet with pcap_offline_filter(),
+   * which needs libpcap 1.0.0 or later.
+   * This is useful to filter packets already in memory,
+   * e.g. {@link RawPacket#getRawData()}, without decoding them.
+   * This method is thread-safe, and {@link #free()} waits for it to return.
+   *
+   * @param packet the raw data of a packet from its link layer header.
+   * @param caplen the number of bytes of the packet available in the array.
+   * @param len the original length of the packet.
+   * @return true if the packet passes this filter; false otherwise.
+   * @throws PcapNativeException if the pcap library doesn't have pcap_offline_filter().
+   * @throws IllegalStateException if this program has been freed.
+   */
+  public boolean matches(
+    byte[] packet, int caplen, int len
+  ) throws PcapNativeException {
+    if (packet == null) {
+      throw new NullPointerException("packet must not be null.");
+    }
+    if (caplen < 0 || caplen > packet.length || len < caplen) {
+      StringBuilder sb = new StringBuilder(80);
+      sb.append("packet.length: ").append(packet.length)
+        .append(" caplen: ").append(caplen)
+        .append(" len: ").append(len);
+      throw new IllegalArgumentException(sb.toString());
+    }
+
+    return offlineFilter(packet, null, caplen, len);
+  }
+
+  /**
+   * Applies this filter to the remaining bytes of data, e.g. {@link RawPacket#getData()}.
+   * See {@link #matches(byte[], int, int)}.
+   *
+   * @param data
+   * @param len the original length of the packet.
+   * @return true if the packet passes this filter; false otherwise.
+   * @throws PcapNativeException if the pcap library doesn't have pcap_offline_filter().
+   * @throws IllegalStateException if this program has been freed.
+   */
+  boolean matches(ByteBuffer data, int len) throws PcapNativeException {
+    if (data.isDirect()) {
+      return offlineFilter(
+               null,
+               Native.getDirectBufferPointer(data).share(data.position()),
+               data.remaining(),
+               len
+             );
+    }
+    else if (data.hasArray() && data.arrayOffset() + data.position() == 0) {
+      return offlineFilter(data.array(), null, data.remaining(), len);
+    }
+    else {
+      byte[] bytes = new byte[data.remaining()];
+      data.duplicate().get(bytes);
+      return offlineFilter(bytes, null, bytes.length, len);
+    }
+  }
+
+  // Calls pcap_offline_filter() with either packet or packetPointer.
+  private boolean offlineFilter(
+    byte[] packet, Pointer packetPointer, int caplen, int len
+  ) throws PcapNativeException {
+    Memory header = headers.get();
+    header.setInt(pcap_pkthdr.CAPLEN_OFFSET, caplen);
+    header.setInt(pcap_pkthdr.LEN_OFFSET, len);
+
+    int rc;
+    freeLock.readLock().lock();
+    try {
+      if (freed) {
+        throw new IllegalStateException("Already freed: " + expression);
+      }
+
+      if (packet != null) {
+        rc = PcapLibrary.INSTANCE.pcap_offline_filter(
+               program.getPointer(), header, packet
+             );
+      }
+      else {
+        rc = PcapLibrary.INSTANCE.pcap_offline_filter(
+               program.getPointer(), header, packetPointer
+             );
+      }
+    } catch (UnsatisfiedLinkError e) {
+      throw new PcapNativeException(
+              "pcap_offline_filter is not supported by the pcap library."
+            );
+    } finally {
+      freeLock.readLock().unlock();
+    }
+    return rc != 0;
   }
 
   @Override
   protected void finalize() throws Throwable {
     super.finalize();
-    free();
+    if (entry == null) {
+      free();
+    }
   }
 
   /**
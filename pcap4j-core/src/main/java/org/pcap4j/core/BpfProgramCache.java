@@ -0,0 +1,289 @@
+/*_##########################################################################
+  _##
+  _##  Copyright (C) 2013  Kaito Yamada
+  _##
+  _##########################################################################
+*/
+
+package org.pcap4j.core;
+
+import java.net.Inet4Address;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.pcap4j.core.BpfProgram.BpfCompileMode;
+import org.pcap4j.packet.namednumber.DataLinkType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A cache of compiled BPF programs keyed by expression, compile mode, netmask,
+ * Data Link Type, and snapshot length, which is shared by any number of
+ * PcapHandles and threads.
+ * Each {@link #get(String, BpfCompileMode, Inet4Address, DataLinkType, int) get}
+ * call returns a new {@link BpfProgram} object referring to the shared program,
+ * and {@link BpfProgram#free()} releases the reference.
+ * A program no longer referred to stays in the cache to be reused
+ * until it's evicted as the least recently used one beyond the capacity
+ * or by {@link #clear()}.
+ *
+ * <pre>
+ * BpfProgramCache cache = new BpfProgramCache(64);
+ * for (PcapHandle handle: handles) {
+ *   BpfProgram prog = cache.get(handle, "tcp port 80", BpfCompileMode.OPTIMIZE, mask);
+ *   try {
+ *     handle.setFilter(prog);
+ *   } finally {
+ *     prog.free();
+ *   }
+ * }
+ * </pre>
+ *
+ * @author Kaito Yamada
+ * @since pcap4j 1.0.1
+ */
+public final class BpfProgramCache {
+
+  private static final Logger logger = LoggerFactory.getLogger(BpfProgramCache.class);
+
+  private final int capacity;
+
+  // Also serializes compiling, since the BPF parser of libpcap
+  // older than 1.8.0 isn't thread-safe.
+  private final Object thisLock = new Object();
+
+  // In access order, so the first unused entry is the least recently used one.
+  private final Map<Key, Entry> entries
+    = new LinkedHashMap<Key, Entry>(16, 0.75f, true);
+
+  /**
+   *
+   * @param capacity the max number of programs kept in this cache
+   *        while they are not referred to.
+   *        Programs in use are never evicted, even beyond the capacity.
+   */
+  public BpfProgramCache(int capacity) {
+    if (capacity < 0) {
+      throw new IllegalArgumentException("capacity: " + capacity);
+    }
+    this.capacity = capacity;
+  }
+
+  /**
+   * Gets a program compiled with {@link Pcaps#compileFilter(int, DataLinkType,
+   * String, BpfCompileMode, Inet4Address)}, compiling it only on the first call.
+   * The caller must call {@link BpfProgram#free()} of the returned object
+   * when it no longer uses it.
+   *
+   * @param bpfExpression
+   * @param mode
+   * @param netmask
+   * @param dlt
+   * @param snaplen
+   * @return a new BpfProgram object referring to the cached program.
+   * @throws PcapNativeException if failed to compile the expression.
+   */
+  public BpfProgram get(
+    String bpfExpression, BpfCompileMode mode, Inet4Address netmask,
+    DataLinkType dlt, int snaplen
+  ) throws PcapNativeException {
+    if (
+         bpfExpression == null
+      || mode == null
+      || netmask == null
+      || dlt == null
+    ) {
+      StringBuilder sb = new StringBuilder();
+      sb.append("bpfExpression: ").append(bpfExpression)
+        .append(" mode: ").append(mode)
+        .append(" netmask: ").append(netmask)
+        .append(" dlt: ").append(dlt);
+      throw new NullPointerException(sb.toString());
+    }
+
+    Key key = new Key(bpfExpression, mode, netmask, dlt, snaplen);
+    synchronized (thisLock) {
+      Entry entry = entries.get(key);
+      if (entry == null) {
+        BpfProgram prog
+          = Pcaps.compileFilter(snaplen, dlt, bpfExpression, mode, netmask);
+        entry = new Entry(key, prog);
+        entries.put(key, entry);
+        if (logger.isDebugEnabled()) {
+          logger.debug("Compiled " + key);
+        }
+      }
+      entry.refCount++;
+      evict();
+      return new BpfProgram(entry.program.getProgram(), bpfExpression, entry);
+    }
+  }
+
+  /**
+   * Gets a program for the Data Link Type and snapshot length of the handle.
+   * See {@link #get(String, BpfCompileMode, Inet4Address, DataLinkType, int)}.
+   *
+   * @param handle
+   * @param bpfExpression
+   * @param mode
+   * @param netmask
+   * @return a new BpfProgram object referring to the cached program.
+   * @throws PcapNativeException if failed to compile the expression.
+   * @throws NotOpenException
+   */
+  public BpfProgram get(
+    PcapHandle handle, String bpfExpression, BpfCompileMode mode, Inet4Address netmask
+  ) throws PcapNativeException, NotOpenException {
+    if (handle == null) {
+      throw new NullPointerException("handle must not be null.");
+    }
+    return get(bpfExpression, mode, netmask, handle.getDlt(), handle.getSnapshot());
+  }
+
+  /**
+   *
+   * @return the number of programs in this cache, including ones in use.
+   */
+  public int size() {
+    synchronized (thisLock) {
+      return entries.size();
+    }
+  }
+
+  /**
+   * Removes all the programs from this cache and frees the ones not referred to.
+   * Programs in use are freed when they are released.
+   */
+  public void clear() {
+    synchronized (thisLock) {
+      for (Iterator<Entry> itr = entries.values().iterator(); itr.hasNext();) {
+        Entry entry = itr.next();
+        itr.remove();
+        if (entry.refCount == 0) {
+          entry.program.free();
+        }
+        else {
+          entry.evicted = true;
+        }
+      }
+    }
+  }
+
+  // Must be called while holding thisLock.
+  private void evict() {
+    if (entries.size() <= capacity) {
+      return;
+    }
+
+    int numToEvict = entries.size() - capacity;
+    for (Iterator<Entry> itr = entries.values().iterator(); itr.hasNext();) {
+      if (numToEvict == 0) {
+        break;
+      }
+      Entry entry = itr.next();
+      if (entry.refCount == 0) {
+        itr.remove();
+        entry.program.free();
+        numToEvict--;
+        if (logger.isDebugEnabled()) {
+          logger.debug("Evicted " + entry.key);
+        }
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder(60);
+    sb.append("Capacity: [").append(capacity)
+      .append("] Size: [").append(size())
+      .append("]");
+    return sb.toString();
+  }
+
+  final class Entry {
+
+    private final Key key;
+    private final BpfProgram program;
+    private int refCount = 0;
+    private boolean evicted = false;
+
+    private Entry(Key key, BpfProgram program) {
+      this.key = key;
+      this.program = program;
+    }
+
+    void release() {
+      synchronized (thisLock) {
+        refCount--;
+        if (evicted) {
+          if (refCount == 0) {
+            program.free();
+          }
+        }
+        else {
+          evict();
+        }
+      }
+    }
+
+  }
+
+  private static final class Key {
+
+    private final String expression;
+    private final BpfCompileMode mode;
+    private final Inet4Address netmask;
+    private final DataLinkType dlt;
+    private final int snaplen;
+
+    private Key(
+      String expression, BpfCompileMode mode, Inet4Address netmask,
+      DataLinkType dlt, int snaplen
+    ) {
+      this.expression = expression;
+      this.mode = mode;
+      this.netmask = netmask;
+      this.dlt = dlt;
+      this.snaplen = snaplen;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (obj == this) { return true; }
+      if (!(obj instanceof Key)) { return false; }
+
+      Key other = (Key)obj;
+      return expression.equals(other.expression)
+          && mode == other.mode
+          && netmask.equals(other.netmask)
+          && dlt.equals(other.dlt)
+          && snaplen == other.snaplen;
+    }
+
+    @Override
+    public int hashCode() {
+      int result = 17;
+      result = 31 * result + expression.hashCode();
+      result = 31 * result + mode.hashCode();
+      result = 31 * result + netmask.hashCode();
+      result = 31 * result + dlt.hashCode();
+      result = 31 * result + snaplen;
+      return result;
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder sb = new StringBuilder(100);
+      sb.append("expression: [").append(expression)
+        .append("] mode: [").append(mode)
+        .append("] netmask: [").append(netmask)
+        .append("] dlt: [").append(dlt)
+        .append("] snaplen: [").append(snaplen)
+        .append("]");
+      return sb.toString();
+    }
+
+  }
+
+}
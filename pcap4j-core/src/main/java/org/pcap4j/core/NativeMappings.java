@@ -47,6 +47,12 @@ final class NativeMappings {
 
   static final int SBIOCSTIME = 0x4201;
 
+  // see poll.h, which defines the same values on Linux, BSD, and Solaris.
+  static final short POLLIN = 0x0001;
+  static final short POLLNVAL = 0x0020;
+  static final int POLLFD_SIZE = 8; // struct pollfd { int fd; short events; short revents; }
+  static final int EINTR = 4;
+
   static final Pointer ERRNO_P
     = Platform.isSolaris() ? NativeLibrary.getInstance(PCAP_LIB_NAME)
                                .getGlobalVariableAddress("errno")
@@ -121,17 +127,17 @@ final class NativeMappings {
   // TODO WinPcap: int pcap_live_dump(pcap_t *p, char *filename, int maxsize, int maxpacks)
 
   // int pcap_dispatch(pcap_t *p, int cnt, pcap_handler callback, u_char *user)
-  static native int pcap_dispatch(Pointer p, int cnt, pcap_handler callback, Pointer user);
+  static native int pcap_dispatch(Pointer p, int cnt, pcap_handler_raw callback, Pointer user);
 
   // u_char *pcap_next(pcap_t *p, struct pcap_pkthdr *h)
-  static native Pointer pcap_next(Pointer p, pcap_pkthdr h);
+  static native Pointer pcap_next(Pointer p, Pointer h);
 
   // int pcap_next_ex(pcap_t *p, struct pcap_pkthdr **h, const u_char **data)
   static native int pcap_next_ex(Pointer p, PointerByReference h, PointerByReference data);
 
   // int pcap_loop(pcap_t *p, int cnt, pcap_handler callback, u_char *user)
-  static native int pcap_loop(Pointer p, int cnt, pcap_handler callback, Pointer user);
   static native int pcap_loop(Pointer p, int cnt, Function callback, Pointer user);
+  static native int pcap_loop(Pointer p, int cnt, pcap_handler_raw callback, Pointer user);
 
   // void pcap_breakloop(pcap_t *p)
   static native void pcap_breakloop(Pointer p);
@@ -161,6 +167,7 @@ final class NativeMappings {
 
   // int pcap_sendpacket(pcap_t *p, const u_char *buf, int size)
   static native int pcap_sendpacket(Pointer p, byte buf[], int size);
+  static native int pcap_sendpacket(Pointer p, Pointer buf, int size);
 
   // void pcap_close(pcap_t *p)
   static native void pcap_close(Pointer p);
@@ -198,6 +205,9 @@ final class NativeMappings {
   // int pcap_minor_version(pcap_t *p)
   static native int pcap_minor_version(Pointer p);
 
+  // FILE *pcap_file(pcap_t *p)
+  static native Pointer pcap_file(Pointer p);
+
   // int pcap_stats(pcap_t *p, struct pcap_stat *ps)
   static native int pcap_stats(Pointer p, pcap_stat ps);
 
@@ -258,18 +268,12 @@ final class NativeMappings {
     @Deprecated // Use direct mapped one instead.
     void pcap_dump_close(Pointer p);
 
-    // u_char *pcap_next(pcap_t *p, struct pcap_pkthdr *h)
-    @Deprecated // Use direct mapped one instead.
-    Pointer pcap_next(Pointer p, pcap_pkthdr h);
-
     // int pcap_next_ex(pcap_t *p, struct pcap_pkthdr **h, const u_char **data)
     @Deprecated // Use direct mapped one instead.
     int pcap_next_ex(Pointer p, PointerByReference h, PointerByReference data);
 
     // int pcap_loop(pcap_t *p, int cnt, pcap_handler callback, u_char *user)
     @Deprecated // Use direct mapped one instead.
-    int pcap_loop(Pointer p, int cnt, pcap_handler callback, Pointer user);
-    @Deprecated // Use direct mapped one instead.
     int pcap_loop(Pointer p, int cnt, Function callback, Pointer user);
 
     // void pcap_breakloop(pcap_t *p)
@@ -313,16 +317,63 @@ final class NativeMappings {
     @Deprecated // Use direct mapped one instead.
     Pointer pcap_strerror(int errno);
 
+    // pcap_t *pcap_open_offline_with_tstamp_precision(
+    //   const char *fname, u_int precision, char *errbuf
+    // )
+    Pointer pcap_open_offline_with_tstamp_precision(
+      String fname, int precision, PcapErrbuf errbuf
+    ); // Can't map directly because libpcap older than 1.5.0 doesn't have this function.
+
+    // pcap_t *pcap_create(const char *source, char *errbuf)
+    Pointer pcap_create(String source, PcapErrbuf errbuf); // Can't map directly because libpcap older than 1.0.0 doesn't have this function.
+
+    // int pcap_set_snaplen(pcap_t *p, int snaplen)
+    int pcap_set_snaplen(Pointer p, int snaplen); // Can't map directly because libpcap older than 1.0.0 doesn't have this function.
+
+    // int pcap_set_promisc(pcap_t *p, int promisc)
+    int pcap_set_promisc(Pointer p, int promisc); // Can't map directly because libpcap older than 1.0.0 doesn't have this function.
+
+    // int pcap_set_timeout(pcap_t *p, int to_ms)
+    int pcap_set_timeout(Pointer p, int to_ms); // Can't map directly because libpcap older than 1.0.0 doesn't have this function.
+
+    // int pcap_set_buffer_size(pcap_t *p, int buffer_size)
+    int pcap_set_buffer_size(Pointer p, int buffer_size); // Can't map directly because libpcap older than 1.0.0 doesn't have this function.
+
+    // int pcap_set_immediate_mode(pcap_t *p, int immediate_mode)
+    int pcap_set_immediate_mode(Pointer p, int immediate_mode); // Can't map directly because libpcap older than 1.5.0 doesn't have this function.
+
+    // int pcap_activate(pcap_t *p)
+    int pcap_activate(Pointer p); // Can't map directly because libpcap older than 1.0.0 doesn't have this function.
+
+    // int pcap_set_tstamp_precision(pcap_t *p, int tstamp_precision)
+    int pcap_set_tstamp_precision(Pointer p, int tstamp_precision); // Can't map directly because libpcap older than 1.5.0 doesn't have this function.
+
+    // int pcap_get_tstamp_precision(pcap_t *p)
+    int pcap_get_tstamp_precision(Pointer p); // Can't map directly because libpcap older than 1.5.0 doesn't have this function.
+
+    // int pcap_offline_filter(
+    //   const struct bpf_program *fp, const struct pcap_pkthdr *h, const u_char *pkt
+    // )
+    int pcap_offline_filter(Pointer fp, Pointer h, byte[] pkt); // Can't map directly because libpcap older than 1.0.0 doesn't have this function.
+    int pcap_offline_filter(Pointer fp, Pointer h, Pointer pkt); // Can't map directly because libpcap older than 1.0.0 doesn't have this function.
+
+    // int pcap_get_selectable_fd(pcap_t *p)
+    int pcap_get_selectable_fd(Pointer p); // Can't map directly because WinPcap doesn't have this function.
+
+    // int poll(struct pollfd *fds, nfds_t nfds, int timeout)
+    int poll(Pointer fds, NativeLong nfds, int timeout); // Can't map directly because not all OSes support this function.
+
     // int strioctl(int fd, int cmd, int len, char *dp)
     int strioctl(int fd, int cmd, int len, Pointer dp);  // Can't map directly because not all OSes support this function.
 
   }
 
-  static interface pcap_handler extends Callback {
+  // Receives the header as a bare pointer to avoid a Structure allocation per packet.
+  static interface pcap_handler_raw extends Callback {
     // void got_packet(
     //   u_char *args, const struct pcap_pkthdr *header, const u_char *packet
     // );
-    public void got_packet(Pointer args, pcap_pkthdr header, Pointer packet);
+    public void got_packet(Pointer args, Pointer header, Pointer packet);
   }
 
   public static class pcap_if extends Structure {
@@ -561,6 +612,11 @@ final class NativeMappings {
 
   public static class pcap_pkthdr extends Structure {
 
+    static final int TV_SEC_OFFSET = 0;
+    static final int TV_USEC_OFFSET = NativeLong.SIZE;
+    static final int CAPLEN_OFFSET = NativeLong.SIZE * 2;
+    static final int LEN_OFFSET = CAPLEN_OFFSET + 4;
+
     public timeval ts;// struct timeval
     public int caplen; // bpf_u_int32
     public int len;// bpf_u_int32
@@ -577,6 +633,22 @@ final class NativeMappings {
     class ByReference
     extends pcap_pkthdr implements Structure.ByReference {}
 
+    static long getTvSec(Pointer header) {
+      return header.getNativeLong(TV_SEC_OFFSET).longValue();
+    }
+
+    static int getTvUsec(Pointer header) {
+      return header.getNativeLong(TV_USEC_OFFSET).intValue();
+    }
+
+    static int getCaplen(Pointer header) {
+      return header.getInt(CAPLEN_OFFSET);
+    }
+
+    static int getLen(Pointer header) {
+      return header.getInt(LEN_OFFSET);
+    }
+
     @Override
     protected List<String> getFieldOrder() {
       List<String> list = new ArrayList<String>();
@@ -0,0 +1,333 @@
+/*_##########################################################################
+  _##
+  _##  Copyright (C) 2013  Kaito Yamada
+  _##
+  _##########################################################################
+*/
+
+package org.pcap4j.core;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A RawPacketListener which hands captured packets over to worker threads.
+ * On the capture thread, each packet is copied into a pooled buffer and put into
+ * a bounded queue, from which the worker threads take packets and pass them to the
+ * delegate listener. What to do when the queue is full is specified by
+ * {@link OverflowPolicy}.
+ * The RawPacket object given to the delegate listener is returned to the pool
+ * after the listener returns, so the listener must call {@link RawPacket#copy()}
+ * to retain it.
+ *
+ * <pre>
+ * PacketDispatcher dispatcher
+ *   = new PacketDispatcher(listener, 4, 1024, OverflowPolicy.DROP_OLDEST);
+ * handle.loop(-1, dispatcher);
+ * dispatcher.shutdown();
+ * </pre>
+ *
+ * @author Kaito Yamada
+ * @since pcap4j 1.0.1
+ */
+public final class PacketDispatcher implements RawPacketListener {
+
+  private static final Logger logger = LoggerFactory.getLogger(PacketDispatcher.class);
+
+  private static final RawPacket POISON = new RawPacket();
+
+  private final RawPacketListener listener;
+  private final OverflowPolicy overflowPolicy;
+  private final BlockingQueue<RawPacket> queue;
+  private final BlockingQueue<RawPacket> pool;
+  private final Thread[] workers;
+  private final AtomicLong receivedCount = new AtomicLong();
+  private final AtomicLong dispatchedCount = new AtomicLong();
+  private final AtomicLong droppedCount = new AtomicLong();
+  private final Object thisLock = new Object();
+
+  private volatile boolean shutdown = false;
+
+  /**
+   *
+   * @param listener the listener which is called by worker threads.
+   * @param numWorkers the number of worker threads.
+   * @param queueCapacity the max number of packets waiting for workers.
+   * @param overflowPolicy
+   */
+  public PacketDispatcher(
+    RawPacketListener listener,
+    int numWorkers,
+    int queueCapacity,
+    OverflowPolicy overflowPolicy
+  ) {
+    if (listener == null || overflowPolicy == null) {
+      StringBuilder sb = new StringBuilder();
+      sb.append("listener: ").append(listener)
+        .append(" overflowPolicy: ").append(overflowPolicy);
+      throw new NullPointerException(sb.toString());
+    }
+    if (numWorkers <= 0 || queueCapacity <= 0) {
+      StringBuilder sb = new StringBuilder(80);
+      sb.append("numWorkers and queueCapacity must be positive. numWorkers: ")
+        .append(numWorkers)
+        .append(" queueCapacity: ")
+        .append(queueCapacity);
+      throw new IllegalArgumentException(sb.toString());
+    }
+
+    this.listener = listener;
+    this.overflowPolicy = overflowPolicy;
+    this.queue = new ArrayBlockingQueue<RawPacket>(queueCapacity);
+
+    // Each buffer is either in the queue, in a worker's hands, or in the pool.
+    int poolSize = queueCapacity + numWorkers + 1;
+    this.pool = new ArrayBlockingQueue<RawPacket>(poolSize);
+    for (int i = 0; i < poolSize; i++) {
+      pool.add(new RawPacket());
+    }
+
+    this.workers = new Thread[numWorkers];
+    for (int i = 0; i < numWorkers; i++) {
+      Thread worker = new Thread(new Worker(), "PacketDispatcher-worker-" + i);
+      worker.setDaemon(true);
+      workers[i] = worker;
+      worker.start();
+    }
+  }
+
+  /**
+   * Called on the capture thread.
+   * Once shut down, this method drops all packets.
+   *
+   * @param packet
+   */
+  public void gotPacket(RawPacket packet) {
+    receivedCount.incrementAndGet();
+    if (shutdown) {
+      droppedCount.incrementAndGet();
+      return;
+    }
+
+    RawPacket snapshot = pool.poll();
+    if (snapshot == null) {
+      // Can happen only when the workers haven't returned buffers yet.
+      snapshot = new RawPacket();
+    }
+    snapshot.fill(packet);
+    enqueue(snapshot);
+  }
+
+  // Separated from gotPacket() so that tests can call this after shutdown(),
+  // as happens when shutdown() races with the capture thread.
+  void enqueue(RawPacket snapshot) {
+    switch (overflowPolicy) {
+      case BLOCK:
+        try {
+          queue.put(snapshot);
+        } catch (InterruptedException e) {
+          recycle(snapshot);
+          droppedCount.incrementAndGet();
+          Thread.currentThread().interrupt();
+        }
+        break;
+      case DROP_NEWEST:
+        if (!queue.offer(snapshot)) {
+          recycle(snapshot);
+          droppedCount.incrementAndGet();
+        }
+        break;
+      case DROP_OLDEST:
+        while (!queue.offer(snapshot)) {
+          RawPacket oldest = queue.poll();
+          if (oldest == POISON) {
+            // Being shut down. The marker must reach a worker,
+            // so it goes back and the packet just captured is dropped instead.
+            putPoison();
+            recycle(snapshot);
+            droppedCount.incrementAndGet();
+            break;
+          }
+          if (oldest != null) {
+            recycle(oldest);
+            droppedCount.incrementAndGet();
+          }
+        }
+        break;
+      default:
+        throw new AssertionError("Never get here.");
+    }
+  }
+
+  private void recycle(RawPacket packet) {
+    pool.offer(packet);
+  }
+
+  /**
+   *
+   * @return the number of packets given to this dispatcher.
+   */
+  public long getReceivedCount() { return receivedCount.get(); }
+
+  /**
+   *
+   * @return the number of packets passed to the delegate listener.
+   */
+  public long getDispatchedCount() { return dispatchedCount.get(); }
+
+  /**
+   *
+   * @return the number of packets dropped by this dispatcher.
+   */
+  public long getDroppedCount() { return droppedCount.get(); }
+
+  /**
+   *
+   * @return the number of packets waiting for workers.
+   */
+  public int getQueuedCount() { return queue.size(); }
+
+  /**
+   *
+   * @return true if this dispatcher has been shut down; false otherwise.
+   */
+  public boolean isShutdown() { return shutdown; }
+
+  /**
+   * Stops accepting packets. Packets already in the queue are still dispatched,
+   * after which the worker threads terminate.
+   * This method must be called after the capture loop which uses this dispatcher
+   * returns.
+   */
+  public void shutdown() {
+    synchronized (thisLock) {
+      if (shutdown) {
+        return;
+      }
+      shutdown = true;
+    }
+
+    for (int i = 0; i < workers.length; i++) {
+      putPoison();
+    }
+  }
+
+  private void putPoison() {
+    boolean interrupted = false;
+    while (true) {
+      try {
+        queue.put(POISON);
+        break;
+      } catch (InterruptedException e) {
+        logger.warn("Interrupted while shutting down. Retrying.");
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   *
+   * @param timeout
+   * @param unit
+   * @return true if all worker threads have terminated; false if the timeout elapsed.
+   * @throws InterruptedException
+   */
+  public boolean awaitTermination(
+    long timeout, TimeUnit unit
+  ) throws InterruptedException {
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    for (Thread worker: workers) {
+      long remaining = deadline - System.nanoTime();
+      if (remaining <= 0) {
+        return !isAlive();
+      }
+      TimeUnit.NANOSECONDS.timedJoin(worker, remaining);
+    }
+    return !isAlive();
+  }
+
+  private boolean isAlive() {
+    for (Thread worker: workers) {
+      if (worker.isAlive()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder(120);
+
+    sb.append("[Received: ").append(receivedCount.get())
+      .append("] [Dispatched: ").append(dispatchedCount.get())
+      .append("] [Dropped: ").append(droppedCount.get())
+      .append("] [Queued: ").append(queue.size())
+      .append("]");
+
+    return sb.toString();
+  }
+
+  private final class Worker implements Runnable {
+
+    public void run() {
+      while (true) {
+        RawPacket packet;
+        try {
+          packet = queue.take();
+        } catch (InterruptedException e) {
+          logger.warn("Interrupted. A worker terminates.");
+          return;
+        }
+
+        if (packet == POISON) {
+          return;
+        }
+
+        try {
+          listener.gotPacket(packet);
+        } catch (RuntimeException e) {
+          logger.error("The listener threw an exception.", e);
+        } finally {
+          dispatchedCount.incrementAndGet();
+          recycle(packet);
+        }
+      }
+    }
+
+  }
+
+  /**
+   * What a PacketDispatcher does with a packet when its queue is full.
+   *
+   * @author Kaito Yamada
+   * @since pcap4j 1.0.1
+   */
+  public static enum OverflowPolicy {
+
+    /**
+     * Blocks the capture thread until a worker takes a packet from the queue.
+     * Packets may then be dropped by the kernel instead.
+     */
+    BLOCK,
+
+    /**
+     * Drops the packet just captured.
+     */
+    DROP_NEWEST,
+
+    /**
+     * Drops the oldest packet in the queue to make room for the packet just captured.
+     */
+    DROP_OLDEST;
+
+  }
+
+}
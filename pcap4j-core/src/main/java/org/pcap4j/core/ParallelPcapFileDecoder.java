@@ -0,0 +1,391 @@
+/*_##########################################################################
+  _##
+  _##  Copyright (C) 2013  Kaito Yamada
+  _##
+  _##########################################################################
+*/
+
+package org.pcap4j.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Decodes a pcap file on several threads.
+ * The file is split into byte ranges, each of which starts at a record boundary
+ * found by checking the plausibility of the record headers around a nominal offset,
+ * and the ranges are decoded in parallel with their own {@link PcapFileReader}s.
+ * An object of this class is immutable, so it can be used by several threads.
+ *
+ * <pre>
+ * ParallelPcapFileDecoder decoder = new ParallelPcapFileDecoder(new File("a.pcap"));
+ * ExecutorService pool = Executors.newFixedThreadPool(8);
+ * decoder.decode(pool, 32, listener);
+ * </pre>
+ *
+ * @author Kaito Yamada
+ * @since pcap4j 1.0.1
+ */
+public final class ParallelPcapFileDecoder {
+
+  private static final Logger logger
+    = LoggerFactory.getLogger(ParallelPcapFileDecoder.class);
+
+  // The number of records whose headers are checked to find a record boundary.
+  private static final int NUM_RECORDS_TO_CHECK = 8;
+
+  private static final int MAX_BATCH_SIZE = 64;
+
+  // Put into a queue at the end of a range.
+  private static final PcapPacket[] END = new PcapPacket[0];
+
+  private final File file;
+
+  /**
+   *
+   * @param file
+   * @throws IOException if the file can't be opened or isn't a pcap file.
+   */
+  public ParallelPcapFileDecoder(File file) throws IOException {
+    if (file == null) {
+      throw new NullPointerException("file must not be null.");
+    }
+
+    // Checks the file header.
+    new PcapFileReader(file, PcapFileReader.FILE_HEADER_SIZE).close();
+    this.file = file;
+  }
+
+  /**
+   *
+   * @return the file to decode.
+   */
+  public File getFile() { return file; }
+
+  /**
+   * Splits the file into ranges of roughly the same size.
+   * Records appended to the file after this method is called aren't covered.
+   *
+   * @param numRanges the max number of ranges.
+   * @return ranges in the order of the file. Fewer ranges than numRanges are returned
+   *         if the file is too small to split into numRanges.
+   * @throws IOException
+   */
+  public List<Range> split(int numRanges) throws IOException {
+    if (numRanges <= 0) {
+      throw new IllegalArgumentException("numRanges must be positive: " + numRanges);
+    }
+
+    List<Range> ranges = new ArrayList<Range>(numRanges);
+    PcapFileReader reader = new PcapFileReader(file);
+    try {
+      long fileSize = reader.getFileSize();
+      long dataSize = fileSize - PcapFileReader.FILE_HEADER_SIZE;
+      long start = PcapFileReader.FILE_HEADER_SIZE;
+      for (int i = 1; i <= numRanges; i++) {
+        long end;
+        if (i == numRanges) {
+          end = fileSize;
+        }
+        else {
+          long nominal = PcapFileReader.FILE_HEADER_SIZE + dataSize * i / numRanges;
+          end = reader.findRecordBoundary(
+                  Math.max(nominal, start), NUM_RECORDS_TO_CHECK
+                );
+        }
+        if (end > start) {
+          ranges.add(new Range(start, end));
+          start = end;
+        }
+      }
+    } finally {
+      reader.close();
+    }
+
+    if (logger.isDebugEnabled()) {
+      logger.debug("Split " + file + " into " + ranges);
+    }
+    return ranges;
+  }
+
+  /**
+   * Decodes the records in the range on the current thread.
+   *
+   * @param range a range given by {@link #split(int)}.
+   * @param listener
+   * @throws IOException if the file can't be read, or the records in the range
+   *         don't end at the end of the range.
+   */
+  public void decode(Range range, PcapPacketListener listener) throws IOException {
+    if (range == null || listener == null) {
+      StringBuilder sb = new StringBuilder();
+      sb.append("range: ").append(range)
+        .append(" listener: ").append(listener);
+      throw new NullPointerException(sb.toString());
+    }
+
+    PcapFileReader reader = new PcapFileReader(file);
+    try {
+      reader.seek(range.start);
+      while (reader.getPosition() < range.end) {
+        PcapPacket packet = reader.getNextPcapPacket();
+        if (packet == null) {
+          break;
+        }
+        listener.gotPacket(packet);
+      }
+      checkEnd(reader, range);
+    } finally {
+      reader.close();
+    }
+  }
+
+  /**
+   * Splits the file and decodes the ranges in parallel.
+   * The listener is called by the threads of the executor concurrently
+   * and in no particular order, so it must be thread safe.
+   * This method returns when all the records are decoded.
+   *
+   * @param executor
+   * @param numRanges the max number of ranges to split the file into.
+   * @param listener
+   * @throws IOException
+   * @throws InterruptedException
+   */
+  public void decode(
+    ExecutorService executor, int numRanges, final PcapPacketListener listener
+  ) throws IOException, InterruptedException {
+    if (executor == null || listener == null) {
+      StringBuilder sb = new StringBuilder();
+      sb.append("executor: ").append(executor)
+        .append(" listener: ").append(listener);
+      throw new NullPointerException(sb.toString());
+    }
+
+    List<Future<Void>> futures = new ArrayList<Future<Void>>();
+    try {
+      for (final Range range: split(numRanges)) {
+        futures.add(
+          executor.submit(
+            new Callable<Void>() {
+              public Void call() throws Exception {
+                decode(range, listener);
+                return null;
+              }
+            }
+          )
+        );
+      }
+
+      for (Future<Void> future: futures) {
+        getResult(future);
+      }
+    } finally {
+      for (Future<Void> future: futures) {
+        future.cancel(true);
+      }
+    }
+  }
+
+  /**
+   * Splits the file and decodes the ranges in parallel, and calls the listener
+   * on the current thread in the order of the records in the file.
+   * The executor must run tasks in the order they are submitted,
+   * as executors made by {@link java.util.concurrent.Executors#newFixedThreadPool(int)} do.
+   * This method returns when all the records are decoded.
+   *
+   * @param executor
+   * @param numRanges the max number of ranges to split the file into.
+   * @param queueCapacity the max number of packets decoded ahead per range.
+   * @param listener
+   * @throws IOException
+   * @throws InterruptedException
+   */
+  public void decodeInOrder(
+    ExecutorService executor, int numRanges, int queueCapacity,
+    PcapPacketListener listener
+  ) throws IOException, InterruptedException {
+    if (executor == null || listener == null) {
+      StringBuilder sb = new StringBuilder();
+      sb.append("executor: ").append(executor)
+        .append(" listener: ").append(listener);
+      throw new NullPointerException(sb.toString());
+    }
+    if (queueCapacity <= 0) {
+      throw new IllegalArgumentException(
+              "queueCapacity must be positive: " + queueCapacity
+            );
+    }
+
+    int batchSize = Math.min(queueCapacity, MAX_BATCH_SIZE);
+    List<OrderedTask> tasks = new ArrayList<OrderedTask>();
+    List<Future<Void>> futures = new ArrayList<Future<Void>>();
+    try {
+      for (Range range: split(numRanges)) {
+        OrderedTask task = new OrderedTask(range, batchSize, queueCapacity);
+        tasks.add(task);
+        futures.add(executor.submit(task));
+      }
+
+      for (int i = 0; i < tasks.size(); i++) {
+        OrderedTask task = tasks.get(i);
+        while (true) {
+          PcapPacket[] batch = task.queue.take();
+          if (batch == END) {
+            break;
+          }
+          for (PcapPacket packet: batch) {
+            listener.gotPacket(packet);
+          }
+        }
+        getResult(futures.get(i));
+      }
+    } finally {
+      for (Future<Void> future: futures) {
+        future.cancel(true);
+      }
+    }
+  }
+
+  private void checkEnd(PcapFileReader reader, Range range) throws IOException {
+    if (reader.getPosition() > range.end) {
+      StringBuilder sb = new StringBuilder(80);
+      sb.append("A record crosses the end of the range ")
+        .append(range)
+        .append(". It was split at a wrong position. The last record ends at: ")
+        .append(reader.getPosition());
+      throw new IOException(sb.toString());
+    }
+  }
+
+  private static void getResult(
+    Future<Void> future
+  ) throws IOException, InterruptedException {
+    try {
+      future.get();
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException)cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException)cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error)cause;
+      }
+      IOException ex = new IOException(cause.getMessage());
+      ex.initCause(cause);
+      throw ex;
+    }
+  }
+
+  private final class OrderedTask implements Callable<Void> {
+
+    private final Range range;
+    private final int batchSize;
+    private final BlockingQueue<PcapPacket[]> queue;
+
+    private OrderedTask(Range range, int batchSize, int queueCapacity) {
+      this.range = range;
+      this.batchSize = batchSize;
+      // One more for END.
+      this.queue
+        = new ArrayBlockingQueue<PcapPacket[]>(
+            Math.max(queueCapacity / batchSize, 1) + 1
+          );
+    }
+
+    public Void call() throws Exception {
+      BatchingListener listener = new BatchingListener();
+      boolean completed = false;
+      try {
+        decode(range, listener);
+        if (listener.count != 0) {
+          PcapPacket[] batch = new PcapPacket[listener.count];
+          System.arraycopy(listener.batch, 0, batch, 0, listener.count);
+          queue.put(batch);
+        }
+        queue.put(END);
+        completed = true;
+      } finally {
+        if (!completed) {
+          // Lets the consumer go on to get the error of this task.
+          queue.clear();
+          queue.offer(END);
+        }
+      }
+      return null;
+    }
+
+    private final class BatchingListener implements PcapPacketListener {
+
+      private PcapPacket[] batch = new PcapPacket[batchSize];
+      private int count = 0;
+
+      public void gotPacket(PcapPacket packet) {
+        batch[count++] = packet;
+        if (count == batch.length) {
+          try {
+            queue.put(batch);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted.", e);
+          }
+          batch = new PcapPacket[batchSize];
+          count = 0;
+        }
+      }
+
+    }
+
+  }
+
+  /**
+   * A byte range of a pcap file which starts and ends at record boundaries.
+   *
+   * @author Kaito Yamada
+   * @since pcap4j 1.0.1
+   */
+  public static final class Range {
+
+    private final long start;
+    private final long end;
+
+    private Range(long start, long end) {
+      this.start = start;
+      this.end = end;
+    }
+
+    /**
+     *
+     * @return the offset of the first record in the range.
+     */
+    public long getStart() { return start; }
+
+    /**
+     *
+     * @return the offset next to the last record in the range.
+     */
+    public long getEnd() { return end; }
+
+    @Override
+    public String toString() {
+      StringBuilder sb = new StringBuilder(40);
+      sb.append("[").append(start).append(", ").append(end).append(")");
+      return sb.toString();
+    }
+
+  }
+
+}
@@ -0,0 +1,270 @@
+/*_##########################################################################
+  _##
+  _##  Copyright (C) 2013  Kaito Yamada
+  _##
+  _##########################################################################
+*/
+
+package org.pcap4j.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import org.pcap4j.core.PcapHandle.TimestampPrecision;
+import org.pcap4j.packet.namednumber.DataLinkType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Merges pcap files into one in the order of the timestamps of the records.
+ * Records are read with {@link PcapFileReader}s and copied to a {@link PcapFileWriter}
+ * as they are without being decoded. Only the current record of each input
+ * is held in memory, so memory usage doesn't depend on the sizes of the files.
+ * Records with the same timestamp are written in the order of the inputs.
+ *
+ * <pre>
+ * long count
+ *   = new PcapFileMerger.Builder(new File("merged.pcap"))
+ *       .addInput(new File("a.pcap"))
+ *       .addInput(new File("b.pcap"))
+ *       .build()
+ *       .merge();
+ * </pre>
+ *
+ * @author Kaito Yamada
+ * @since pcap4j 1.0.1
+ */
+public final class PcapFileMerger {
+
+  private static final Logger logger = LoggerFactory.getLogger(PcapFileMerger.class);
+
+  // Inputs are mapped in smaller windows than a PcapFileReader's default
+  // since many of them are opened at once.
+  private static final int WINDOW_SIZE = 4 * 1024 * 1024;
+
+  private final File output;
+  private final List<File> inputs;
+  private final DataLinkType dlt;
+  private final BpfProgram filter;
+
+  private PcapFileMerger(Builder builder) {
+    if (
+         builder == null
+      || builder.output == null
+    ) {
+      StringBuilder sb = new StringBuilder();
+      sb.append("builder: ").append(builder)
+        .append(" builder.output: ").append(builder.output);
+      throw new NullPointerException(sb.toString());
+    }
+    if (builder.inputs.isEmpty()) {
+      throw new IllegalArgumentException("No input is given.");
+    }
+
+    this.output = builder.output;
+    this.inputs = new ArrayList<File>(builder.inputs);
+    this.dlt = builder.dlt;
+    this.filter = builder.filter;
+  }
+
+  /**
+   * Merges the inputs into the output.
+   * The output has the largest snapshot length of the inputs, and has
+   * nanosecond timestamps if any of the inputs has them.
+   *
+   * @return the number of records written.
+   * @throws IOException if an input can't be read, or an input has
+   *         a Data Link Type other than the expected one.
+   * @throws PcapNativeException if the filter can't be applied.
+   */
+  public long merge() throws IOException, PcapNativeException {
+    List<Input> opened = new ArrayList<Input>(inputs.size());
+    try {
+      DataLinkType expectedDlt = dlt;
+      int snapshot = 0;
+      TimestampPrecision precision = TimestampPrecision.MICRO;
+      for (File file: inputs) {
+        Input input = new Input(file, opened.size());
+        opened.add(input);
+
+        PcapFileReader reader = input.reader;
+        if (expectedDlt == null) {
+          expectedDlt = reader.getDlt();
+        }
+        else if (!expectedDlt.equals(reader.getDlt())) {
+          StringBuilder sb = new StringBuilder(120);
+          sb.append("The link type of ")
+            .append(file)
+            .append(" is ")
+            .append(reader.getDlt())
+            .append(" but expected ")
+            .append(expectedDlt);
+          throw new IOException(sb.toString());
+        }
+        snapshot = Math.max(snapshot, reader.getSnapshot());
+        if (reader.getTimestampPrecision() == TimestampPrecision.NANO) {
+          precision = TimestampPrecision.NANO;
+        }
+      }
+
+      PriorityQueue<Input> heap = new PriorityQueue<Input>(opened.size());
+      for (Input input: opened) {
+        if (input.next(filter)) {
+          heap.add(input);
+        }
+      }
+
+      long count = 0;
+      PcapFileWriter writer
+        = new PcapFileWriter.Builder(output, expectedDlt)
+            .snapshot(Math.max(snapshot, 1))
+            .timestampPrecision(precision)
+            .build();
+      try {
+        Input input;
+        while ((input = heap.poll()) != null) {
+          writer.write(input.current);
+          count++;
+          if (input.next(filter)) {
+            heap.add(input);
+          }
+        }
+      } finally {
+        writer.close();
+      }
+
+      logger.info("Merged " + count + " records into " + output);
+      return count;
+    } finally {
+      for (Input input: opened) {
+        try {
+          input.reader.close();
+        } catch (IOException e) {
+          logger.warn("Failed to close " + input.file, e);
+        }
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder(120);
+
+    sb.append("Output: [").append(output)
+      .append("] Inputs: ").append(inputs)
+      .append(" Link type: [").append(dlt)
+      .append("] Filter: [")
+      .append(filter != null ? filter.getExpression() : null)
+      .append("]");
+
+    return sb.toString();
+  }
+
+  private static final class Input implements Comparable<Input> {
+
+    private final File file;
+    private final int index;
+    private final PcapFileReader reader;
+    private RawPacket current;
+
+    private Input(File file, int index) throws IOException {
+      this.file = file;
+      this.index = index;
+      this.reader = new PcapFileReader(file, WINDOW_SIZE);
+    }
+
+    // Moves to the next record which passes the filter.
+    private boolean next(BpfProgram filter) throws IOException, PcapNativeException {
+      while ((current = reader.getNextRawPacket()) != null) {
+        if (
+             filter == null
+          || filter.matches(current.getData(), current.getOriginalLength())
+        ) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    public int compareTo(Input o) {
+      if (current.getTimestampSec() != o.current.getTimestampSec()) {
+        return current.getTimestampSec() < o.current.getTimestampSec() ? -1 : 1;
+      }
+      if (current.getTimestampNanos() != o.current.getTimestampNanos()) {
+        return current.getTimestampNanos() < o.current.getTimestampNanos() ? -1 : 1;
+      }
+      return index - o.index;
+    }
+
+  }
+
+  /**
+   * @author Kaito Yamada
+   * @since pcap4j 1.0.1
+   */
+  public static final class Builder {
+
+    private final File output;
+    private final List<File> inputs = new ArrayList<File>();
+    private DataLinkType dlt = null;
+    private BpfProgram filter = null;
+
+    /**
+     *
+     * @param output the file to write the merged records to.
+     */
+    public Builder(File output) {
+      this.output = output;
+    }
+
+    /**
+     *
+     * @param input a pcap file to merge.
+     * @return this Builder object for method chaining.
+     */
+    public Builder addInput(File input) {
+      if (input == null) {
+        throw new NullPointerException("input must not be null.");
+      }
+      inputs.add(input);
+      return this;
+    }
+
+    /**
+     *
+     * @param dlt the Data Link Type all the inputs must have.
+     *        If null, all the inputs must have the same one as the first input.
+     * @return this Builder object for method chaining.
+     */
+    public Builder dlt(DataLinkType dlt) {
+      this.dlt = dlt;
+      return this;
+    }
+
+    /**
+     * Filters records with pcap_offline_filter(), which needs libpcap 1.0.0 or later.
+     *
+     * @param filter a program compiled for the Data Link Type of the inputs
+     *        by {@link Pcaps#compileFilter(int, DataLinkType, String,
+     *        org.pcap4j.core.BpfProgram.BpfCompileMode, java.net.Inet4Address)}.
+     *        If null, all records are merged.
+     * @return this Builder object for method chaining.
+     */
+    public Builder filter(BpfProgram filter) {
+      this.filter = filter;
+      return this;
+    }
+
+    /**
+     *
+     * @return a new PcapFileMerger object.
+     */
+    public PcapFileMerger build() {
+      return new PcapFileMerger(this);
+    }
+
+  }
+
+}
@@ -0,0 +1,606 @@
+/*_##########################################################################
+  _##
+  _##  Copyright (C) 2013  Kaito Yamada
+  _##
+  _##########################################################################
+*/
+
+package org.pcap4j.core;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import org.pcap4j.core.PcapHandle.TimestampPrecision;
+import org.pcap4j.packet.Packet;
+import org.pcap4j.packet.factory.PacketFactories;
+import org.pcap4j.packet.namednumber.DataLinkType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A reader of pcap files (the classic format, not pcapng) which doesn't use
+ * libpcap. The file is mapped into memory with
+ * {@link FileChannel#map(FileChannel.MapMode, long, long) FileChannel.map()}
+ * window by window, and records are read in place from the mapped windows,
+ * so files larger than 2 GB can be read as well.
+ * Both byte orders and both microsecond and nanosecond precision files are supported.
+ * An object of this class is not thread safe.
+ *
+ * <pre>
+ * PcapFileReader reader = new PcapFileReader(new File("a.pcap"));
+ * try {
+ *   RawPacket packet;
+ *   while ((packet = reader.getNextRawPacket()) != null) {
+ *     ByteBuffer data = packet.getData();
+ *     ...
+ *   }
+ * } finally {
+ *   reader.close();
+ * }
+ * </pre>
+ *
+ * @author Kaito Yamada
+ * @since pcap4j 1.0.1
+ */
+public final class PcapFileReader implements Closeable {
+
+  private static final Logger logger = LoggerFactory.getLogger(PcapFileReader.class);
+
+  /**
+   * The default size of a window of the file mapped at a time. (64 MiB)
+   */
+  public static final int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+
+  static final int MAGIC_MICRO = 0xA1B2C3D4;
+  static final int MAGIC_NANO = 0xA1B23C4D;
+  static final int FILE_HEADER_SIZE = 24;
+  static final int RECORD_HEADER_SIZE = 16;
+
+  // Upper bits of the link type field may have other information. (e.g. FCS length)
+  static final int LINK_TYPE_MASK = 0x03FFFFFF;
+
+  // DLT_ values which have different LINKTYPE_ values in files (pcap-common.c).
+  private static final int DLT_ATM_RFC1483 = 11;
+  private static final int DLT_RAW = 12;
+  private static final int DLT_SLIP_BSDOS = 15;
+  private static final int DLT_PPP_BSDOS = 16;
+  private static final int DLT_ATM_CLIP = 19;
+  private static final int LINKTYPE_ATM_RFC1483 = 100;
+  private static final int LINKTYPE_RAW = 101;
+  private static final int LINKTYPE_SLIP_BSDOS = 102;
+  private static final int LINKTYPE_PPP_BSDOS = 103;
+  private static final int LINKTYPE_ATM_CLIP = 106;
+
+  // The max capture length libpcap accepts regardless of the snapshot length.
+  private static final int MAX_CAPTURE_LENGTH = 256 * 1024;
+
+  // The read-ahead thread hands packets over in batches
+  // so as not to pay for the queue per packet.
+  private static final int MAX_READ_AHEAD_BATCH_SIZE = 64;
+
+  // Put into the read-ahead queue at the end of the file.
+  private static final PcapPacket[] END = new PcapPacket[0];
+
+  private final FileInputStream in;
+  private final FileChannel channel;
+  private final int windowSize;
+  private final ByteOrder byteOrder;
+  private final TimestampPrecision timestampPrecision;
+  private final int majorVersion;
+  private final int minorVersion;
+  private final int snapshot;
+  private final DataLinkType dlt;
+  private final RawPacket rawPacket = new RawPacket();
+
+  private long fileSize;
+  private MappedByteBuffer window;
+  private long windowPosition;
+  private long position = FILE_HEADER_SIZE;
+
+  private BlockingQueue<PcapPacket[]> readAheadQueue;
+  private int readAheadBatchSize;
+  private PcapPacket[] readAheadBatch = END;
+  private int readAheadBatchIndex = 0;
+  private Thread readAheadThread;
+  private volatile Throwable readAheadError;
+  private volatile boolean closed = false;
+
+  /**
+   *
+   * @param file
+   * @throws IOException if the file can't be opened or isn't a pcap file.
+   */
+  public PcapFileReader(File file) throws IOException {
+    this(file, DEFAULT_WINDOW_SIZE);
+  }
+
+  /**
+   *
+   * @param file
+   * @param windowSize the size of a window of the file mapped at a time.
+   *        A window is enlarged if a record doesn't fit in it.
+   * @throws IOException if the file can't be opened or isn't a pcap file.
+   */
+  public PcapFileReader(File file, int windowSize) throws IOException {
+    if (file == null) {
+      StringBuilder sb = new StringBuilder();
+      sb.append("file: ").append(file);
+      throw new NullPointerException(sb.toString());
+    }
+    if (windowSize < FILE_HEADER_SIZE) {
+      throw new IllegalArgumentException(
+              "windowSize must be at least " + FILE_HEADER_SIZE + " but is: " + windowSize
+            );
+    }
+
+    this.in = new FileInputStream(file);
+    this.channel = in.getChannel();
+    this.windowSize = windowSize;
+
+    try {
+      this.fileSize = channel.size();
+      if (!map(0, FILE_HEADER_SIZE)) {
+        throw new EOFException("The file is too short to be a pcap file: " + file);
+      }
+
+      int magic = window.order(ByteOrder.BIG_ENDIAN).getInt(0);
+      if (magic == MAGIC_MICRO || magic == MAGIC_NANO) {
+        this.byteOrder = ByteOrder.BIG_ENDIAN;
+      }
+      else if (
+           magic == Integer.reverseBytes(MAGIC_MICRO)
+        || magic == Integer.reverseBytes(MAGIC_NANO)
+      ) {
+        this.byteOrder = ByteOrder.LITTLE_ENDIAN;
+        magic = Integer.reverseBytes(magic);
+      }
+      else {
+        StringBuilder sb = new StringBuilder(80);
+        sb.append("Unknown magic number: 0x")
+          .append(Integer.toHexString(magic))
+          .append(" file: ")
+          .append(file);
+        throw new IOException(sb.toString());
+      }
+      window.order(byteOrder);
+
+      this.timestampPrecision
+        = magic == MAGIC_NANO ? TimestampPrecision.NANO : TimestampPrecision.MICRO;
+      this.majorVersion = 0xFFFF & window.getShort(4);
+      this.minorVersion = 0xFFFF & window.getShort(6);
+      this.snapshot = window.getInt(16);
+      this.dlt = DataLinkType.getInstance(
+                   linkTypeToDlt(window.getInt(20) & LINK_TYPE_MASK)
+                 );
+    } catch (IOException e) {
+      in.close();
+      throw e;
+    }
+  }
+
+  /**
+   *
+   * @return the Data Link Type of the file.
+   */
+  public DataLinkType getDlt() { return dlt; }
+
+  /**
+   *
+   * @return the precision of the timestamps in the file.
+   */
+  public TimestampPrecision getTimestampPrecision() { return timestampPrecision; }
+
+  /**
+   *
+   * @return the byte order the file was written in.
+   */
+  public ByteOrder getByteOrder() { return byteOrder; }
+
+  /**
+   *
+   * @return the major version number of the file format.
+   */
+  public int getMajorVersion() { return majorVersion; }
+
+  /**
+   *
+   * @return the minor version number of the file format.
+   */
+  public int getMinorVersion() { return minorVersion; }
+
+  /**
+   *
+   * @return the snapshot length of the file.
+   */
+  public int getSnapshot() { return snapshot; }
+
+  /**
+   *
+   * @return the offset in the file of the next record.
+   */
+  public long getPosition() { return position; }
+
+  /**
+   * Reads the next record in place.
+   * The returned object and its data are reused and overwritten by the next call,
+   * so use {@link RawPacket#copy()} to retain it.
+   *
+   * @return the next packet, or null if the end of the file has been reached.
+   * @throws EOFException if the last record is truncated.
+   * @throws IOException
+   * @throws IllegalStateException if read-ahead is started.
+   */
+  public RawPacket getNextRawPacket() throws IOException {
+    if (readAheadQueue != null) {
+      throw new IllegalStateException("Read-ahead is started.");
+    }
+    return readRawPacket();
+  }
+
+  /**
+   * Reads and decodes the next record. If read-ahead is started,
+   * this takes a packet the read-ahead thread has decoded.
+   *
+   * @return the next packet, or null if the end of the file has been reached.
+   * @throws EOFException if the last record is truncated.
+   * @throws IOException
+   */
+  public PcapPacket getNextPcapPacket() throws IOException {
+    if (readAheadQueue == null) {
+      return readPcapPacket();
+    }
+
+    if (readAheadBatchIndex < readAheadBatch.length) {
+      return readAheadBatch[readAheadBatchIndex++];
+    }
+
+    PcapPacket[] batch;
+    try {
+      batch = readAheadQueue.take();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while waiting for read-ahead.");
+    }
+
+    if (batch == END) {
+      // Let following calls see the end as well.
+      readAheadQueue.offer(END);
+
+      Throwable error = readAheadError;
+      if (error instanceof IOException) {
+        throw (IOException)error;
+      }
+      if (error instanceof RuntimeException) {
+        throw (RuntimeException)error;
+      }
+      if (error instanceof Error) {
+        throw (Error)error;
+      }
+      return null;
+    }
+
+    readAheadBatch = batch;
+    readAheadBatchIndex = 1;
+    return batch[0];
+  }
+
+  /**
+   * Starts a thread which reads and decodes the following records
+   * in the background and queues them for {@link #getNextPcapPacket()}.
+   * After this method is called, {@link #getNextRawPacket()} can't be used.
+   *
+   * @param queueCapacity the max number of packets decoded ahead.
+   */
+  public void startReadAhead(int queueCapacity) {
+    if (queueCapacity <= 0) {
+      throw new IllegalArgumentException(
+              "queueCapacity must be positive but is: " + queueCapacity
+            );
+    }
+    if (readAheadQueue != null) {
+      throw new IllegalStateException("Read-ahead is already started.");
+    }
+    if (closed) {
+      throw new IllegalStateException("Already closed.");
+    }
+
+    this.readAheadBatchSize = Math.min(queueCapacity, MAX_READ_AHEAD_BATCH_SIZE);
+    this.readAheadQueue
+      = new ArrayBlockingQueue<PcapPacket[]>(
+          Math.max(queueCapacity / readAheadBatchSize, 1)
+        );
+    this.readAheadThread = new Thread(new ReadAheadTask(), "PcapFileReader-read-ahead");
+    readAheadThread.setDaemon(true);
+    readAheadThread.start();
+  }
+
+  /**
+   * Closes the file. If read-ahead is started, its thread is stopped.
+   * Buffers given by this object must not be used after this is called.
+   *
+   * @throws IOException
+   */
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+
+    if (readAheadThread != null) {
+      readAheadThread.interrupt();
+      try {
+        readAheadThread.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    // A mapped buffer is unmapped when it is garbage collected.
+    window = null;
+    in.close();
+  }
+
+  private PcapPacket readPcapPacket() throws IOException {
+    RawPacket raw = readRawPacket();
+    if (raw == null) {
+      return null;
+    }
+
+    byte[] rawData = new byte[raw.getCaptureLength()];
+    raw.getData().get(rawData);
+    Packet packet
+      = PacketFactories.getFactory(Packet.class, DataLinkType.class)
+          .newInstance(rawData, dlt);
+    return new PcapPacket(
+             packet,
+             raw.getTimestampSec(),
+             raw.getTimestampNanos(),
+             raw.getCaptureLength(),
+             raw.getOriginalLength(),
+             raw.getTimestampPrecision()
+           );
+  }
+
+  private RawPacket readRawPacket() throws IOException {
+    if (closed) {
+      throw new IOException("Already closed.");
+    }
+
+    if (!map(position, RECORD_HEADER_SIZE)) {
+      return null;
+    }
+
+    int offset = (int)(position - windowPosition);
+    long tsSec = 0xFFFFFFFFL & window.getInt(offset);
+    int tsFraction = window.getInt(offset + 4);
+    int caplen = window.getInt(offset + 8);
+    int len = window.getInt(offset + 12);
+
+    if (caplen < 0 || caplen > Math.max(snapshot, MAX_CAPTURE_LENGTH)) {
+      StringBuilder sb = new StringBuilder(80);
+      sb.append("Invalid capture length: ")
+        .append(0xFFFFFFFFL & caplen)
+        .append(" at: ")
+        .append(position);
+      throw new IOException(sb.toString());
+    }
+
+    long dataPosition = position + RECORD_HEADER_SIZE;
+    if (!map(dataPosition, caplen)) {
+      StringBuilder sb = new StringBuilder(80);
+      sb.append("The record at ")
+        .append(position)
+        .append(" is truncated. capture length: ")
+        .append(caplen)
+        .append(" file size: ")
+        .append(fileSize);
+      throw new EOFException(sb.toString());
+    }
+
+    // The window is read-only since it's mapped in READ_ONLY mode.
+    int dataOffset = (int)(dataPosition - windowPosition);
+    ByteBuffer data = window.duplicate();
+    data.limit(dataOffset + caplen).position(dataOffset);
+
+    rawPacket.set(
+      dlt,
+      data.slice(),
+      len,
+      tsSec,
+      timestampPrecision == TimestampPrecision.NANO ? tsFraction : tsFraction * 1000,
+      timestampPrecision
+    );
+    position = dataPosition + caplen;
+    return rawPacket;
+  }
+
+  /**
+   * Moves to the given offset, which must be at the start of a record.
+   *
+   * @param position
+   */
+  void seek(long position) {
+    if (position < FILE_HEADER_SIZE) {
+      throw new IllegalArgumentException("Invalid position: " + position);
+    }
+    this.position = position;
+  }
+
+  /**
+   *
+   * @return the size of the file.
+   */
+  long getFileSize() { return fileSize; }
+
+  /**
+   * Looks for the first offset at or after the given one where a record seems to start.
+   * Since any bytes can look like a record header, the headers of the records
+   * following it are checked as well.
+   *
+   * @param from
+   * @param numRecordsToCheck
+   * @return the offset, or the size of the file if no record is found.
+   * @throws IOException
+   */
+  long findRecordBoundary(long from, int numRecordsToCheck) throws IOException {
+    for (long pos = from; pos < fileSize; pos++) {
+      if (isRecordBoundary(pos, numRecordsToCheck)) {
+        return pos;
+      }
+    }
+    return fileSize;
+  }
+
+  private boolean isRecordBoundary(long pos, int numRecordsToCheck) throws IOException {
+    int fractionLimit
+      = timestampPrecision == TimestampPrecision.NANO ? 1000000000 : 1000000;
+    for (int i = 0; i < numRecordsToCheck; i++) {
+      if (pos == fileSize) {
+        return true;
+      }
+      if (!map(pos, RECORD_HEADER_SIZE)) {
+        return false;
+      }
+
+      int offset = (int)(pos - windowPosition);
+      int tsFraction = window.getInt(offset + 4);
+      int caplen = window.getInt(offset + 8);
+      int len = window.getInt(offset + 12);
+      if (
+           tsFraction < 0
+        || tsFraction >= fractionLimit
+        // A record has at least one byte of data, and no more than len.
+        || caplen <= 0
+        || caplen > Math.max(snapshot, MAX_CAPTURE_LENGTH)
+        || len < caplen
+      ) {
+        return false;
+      }
+      pos += RECORD_HEADER_SIZE + caplen;
+    }
+    return pos <= fileSize;
+  }
+
+  /**
+   * Makes the window contain the given range of the file.
+   *
+   * @return false if the file ends before the range does.
+   */
+  private boolean map(long start, int length) throws IOException {
+    long end = start + length;
+    if (
+         window != null
+      && start >= windowPosition
+      && end <= windowPosition + window.capacity()
+    ) {
+      return true;
+    }
+
+    if (end > fileSize) {
+      // The file may be still growing.
+      fileSize = channel.size();
+      if (end > fileSize) {
+        return false;
+      }
+    }
+
+    long size = Math.min(Math.max(windowSize, length), fileSize - start);
+    window = channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+    if (byteOrder != null) {
+      window.order(byteOrder);
+    }
+    windowPosition = start;
+    if (logger.isDebugEnabled()) {
+      logger.debug("Mapped " + size + " bytes at " + start);
+    }
+    return true;
+  }
+
+  // Same as dlt_to_linktype() of libpcap.
+  static int dltToLinkType(int dlt) {
+    switch (dlt) {
+      case DLT_ATM_RFC1483: return LINKTYPE_ATM_RFC1483;
+      case DLT_RAW: return LINKTYPE_RAW;
+      case DLT_SLIP_BSDOS: return LINKTYPE_SLIP_BSDOS;
+      case DLT_PPP_BSDOS: return LINKTYPE_PPP_BSDOS;
+      case DLT_ATM_CLIP: return LINKTYPE_ATM_CLIP;
+      default: return dlt;
+    }
+  }
+
+  // Same as linktype_to_dlt() of libpcap.
+  static int linkTypeToDlt(int linkType) {
+    switch (linkType) {
+      case LINKTYPE_ATM_RFC1483: return DLT_ATM_RFC1483;
+      case LINKTYPE_RAW: return DLT_RAW;
+      case LINKTYPE_SLIP_BSDOS: return DLT_SLIP_BSDOS;
+      case LINKTYPE_PPP_BSDOS: return DLT_PPP_BSDOS;
+      case LINKTYPE_ATM_CLIP: return DLT_ATM_CLIP;
+      default: return linkType;
+    }
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder(120);
+
+    sb.append("Link type: [").append(dlt)
+      .append("] Timestamp precision: [").append(timestampPrecision)
+      .append("] Byte order: [").append(byteOrder)
+      .append("] Version: [").append(majorVersion)
+      .append(".").append(minorVersion)
+      .append("] Snapshot: [").append(snapshot)
+      .append("]");
+
+    return sb.toString();
+  }
+
+  private final class ReadAheadTask implements Runnable {
+
+    public void run() {
+      PcapPacket[] batch = new PcapPacket[readAheadBatchSize];
+      int count = 0;
+      try {
+        while (true) {
+          PcapPacket packet;
+          try {
+            packet = readPcapPacket();
+          } catch (Throwable e) {
+            // Reported after the packets read so far.
+            readAheadError = e;
+            break;
+          }
+          if (packet == null) {
+            break;
+          }
+
+          batch[count++] = packet;
+          if (count == batch.length) {
+            readAheadQueue.put(batch);
+            batch = new PcapPacket[readAheadBatchSize];
+            count = 0;
+          }
+        }
+
+        if (count != 0) {
+          PcapPacket[] lastBatch = new PcapPacket[count];
+          System.arraycopy(batch, 0, lastBatch, 0, count);
+          readAheadQueue.put(lastBatch);
+        }
+        readAheadQueue.put(END);
+      } catch (InterruptedException e) {
+        // Interrupted by close().
+      }
+    }
+
+  }
+
+}
@@ -0,0 +1,563 @@
+/*_##########################################################################
+  _##
+  _##  Copyright (C) 2013  Kaito Yamada
+  _##
+  _##########################################################################
+*/
+
+package org.pcap4j.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.pcap4j.core.PcapHandle.TimestampPrecision;
+import org.pcap4j.packet.namednumber.DataLinkType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sorts the records of a pcap file by their timestamps with an external merge sort.
+ * The input is read with a {@link PcapFileReader} into run buffers,
+ * which are sorted and written to temporary pcap files by worker threads
+ * while the following records are being read.
+ * The temporary files are then merged into the output with {@link PcapFileMerger}.
+ * If there are more of them than the max merge width, every that many files
+ * are merged into a new temporary file, which is repeated until few enough
+ * files are left to be merged into the output at once.
+ * All the run buffers together are no larger than the memory budget
+ * unless a single record is larger than a run buffer,
+ * and each record costs {@value #RECORD_OVERHEAD} bytes of them
+ * in addition to its data for sorting.
+ * A run buffer enlarged for such a record is shrunk when it's reused.
+ * Records with the same timestamp keep their order in the input.
+ *
+ * <pre>
+ * new PcapFileSorter.Builder(new File("in.pcap"), new File("sorted.pcap"))
+ *   .memoryBudget(256 * 1024 * 1024)
+ *   .build()
+ *   .sort();
+ * </pre>
+ *
+ * @author Kaito Yamada
+ * @since pcap4j 1.0.1
+ */
+public final class PcapFileSorter {
+
+  private static final Logger logger = LoggerFactory.getLogger(PcapFileSorter.class);
+
+  private static final long NANOS_PER_SEC = 1000000000L;
+
+  /**
+   * The number of bytes of a run buffer used by each record
+   * besides its data. (the caplen and len fields, an index entry,
+   * and a work area entry for the merge sort)
+   */
+  public static final int RECORD_OVERHEAD
+    = Run.RECORD_HEADER_SIZE + Run.ENTRY_SIZE * 2;
+
+  private final File input;
+  private final File output;
+  private final File tempDir;
+  private final long memoryBudget;
+  private final int numThreads;
+  private final int maxMergeWidth;
+
+  private PcapFileSorter(Builder builder) {
+    if (
+         builder == null
+      || builder.input == null
+      || builder.output == null
+    ) {
+      StringBuilder sb = new StringBuilder();
+      sb.append("builder: ").append(builder)
+        .append(" builder.input: ").append(builder.input)
+        .append(" builder.output: ").append(builder.output);
+      throw new NullPointerException(sb.toString());
+    }
+    if (
+         builder.memoryBudget <= 0
+      || builder.numThreads <= 0
+      || builder.maxMergeWidth < 2
+    ) {
+      StringBuilder sb = new StringBuilder(120);
+      sb.append("builder.memoryBudget: ").append(builder.memoryBudget)
+        .append(" builder.numThreads: ").append(builder.numThreads)
+        .append(" builder.maxMergeWidth: ").append(builder.maxMergeWidth);
+      throw new IllegalArgumentException(sb.toString());
+    }
+
+    this.input = builder.input;
+    this.output = builder.output;
+    this.tempDir = builder.tempDir;
+    this.memoryBudget = builder.memoryBudget;
+    this.numThreads = builder.numThreads;
+    this.maxMergeWidth = builder.maxMergeWidth;
+  }
+
+  /**
+   * Sorts the input into the output.
+   *
+   * @return the number of records written.
+   * @throws IOException
+   */
+  public long sort() throws IOException {
+    // One more buffer than the threads is filled while all the threads are busy.
+    int numBuffers = numThreads + 1;
+    int runSize = (int)Math.min(memoryBudget / numBuffers, Integer.MAX_VALUE);
+    BlockingQueue<Run> freeRuns = new ArrayBlockingQueue<Run>(numBuffers);
+    for (int i = 0; i < numBuffers; i++) {
+      freeRuns.add(new Run(runSize));
+    }
+
+    List<File> runFiles = new ArrayList<File>();
+    List<Future<Void>> futures = new ArrayList<Future<Void>>();
+    ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+    try {
+      PcapFileReader reader = new PcapFileReader(input);
+      try {
+        Run run = take(freeRuns);
+        RawPacket packet;
+        while ((packet = reader.getNextRawPacket()) != null) {
+          if (!run.add(packet)) {
+            if (!run.isEmpty()) {
+              File file = newRunFile();
+              runFiles.add(file);
+              futures.add(
+                executor.submit(new SortTask(run, file, reader, freeRuns))
+              );
+              checkDone(futures);
+              run = take(freeRuns);
+            }
+            if (!run.add(packet)) {
+              // The record is larger than a run buffer.
+              run.grow(packet.getCaptureLength());
+              run.add(packet);
+            }
+          }
+        }
+        if (!run.isEmpty() || runFiles.isEmpty()) {
+          File file = newRunFile();
+          runFiles.add(file);
+          futures.add(executor.submit(new SortTask(run, file, reader, freeRuns)));
+        }
+
+        for (Future<Void> future: futures) {
+          getResult(future);
+        }
+      } finally {
+        reader.close();
+      }
+
+      if (logger.isDebugEnabled()) {
+        logger.debug("Wrote " + runFiles.size() + " runs of " + input);
+      }
+
+      List<File> runs = new ArrayList<File>(runFiles);
+      while (runs.size() > maxMergeWidth) {
+        runs = mergePass(runs, runFiles);
+      }
+      return merge(runs, output);
+    } finally {
+      shutdown(executor, futures);
+      for (File file: runFiles) {
+        delete(file);
+      }
+    }
+  }
+
+  // Merges every maxMergeWidth runs into a new run.
+  // Adjacent runs are merged in order, so records with the same timestamp
+  // keep their order in the input.
+  private List<File> mergePass(
+    List<File> runs, List<File> tempFiles
+  ) throws IOException {
+    List<File> merged = new ArrayList<File>();
+    for (int from = 0; from < runs.size(); from += maxMergeWidth) {
+      List<File> group
+        = runs.subList(from, Math.min(from + maxMergeWidth, runs.size()));
+      if (group.size() == 1) {
+        merged.add(group.get(0));
+        continue;
+      }
+
+      File file = newRunFile();
+      tempFiles.add(file);
+      merge(group, file);
+      for (File run: group) {
+        delete(run);
+        tempFiles.remove(run);
+      }
+      merged.add(file);
+    }
+
+    if (logger.isDebugEnabled()) {
+      logger.debug("Merged " + runs.size() + " runs into " + merged.size());
+    }
+    return merged;
+  }
+
+  private static long merge(List<File> inputs, File output) throws IOException {
+    PcapFileMerger.Builder builder = new PcapFileMerger.Builder(output);
+    for (File file: inputs) {
+      builder.addInput(file);
+    }
+    try {
+      return builder.build().merge();
+    } catch (PcapNativeException e) {
+      // Never happens since no filter is given.
+      throw new AssertionError(e);
+    }
+  }
+
+  private File newRunFile() throws IOException {
+    return File.createTempFile("pcap4j-sort-", ".pcap", tempDir);
+  }
+
+  private static void delete(File file) {
+    if (!file.delete()) {
+      logger.warn("Failed to delete " + file);
+    }
+  }
+
+  private static Run take(BlockingQueue<Run> freeRuns) throws IOException {
+    try {
+      return freeRuns.take();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while waiting for a run buffer.");
+    }
+  }
+
+  // Cancels the tasks and waits for them to end
+  // so that no run file is deleted while it's being written.
+  private static void shutdown(ExecutorService executor, List<Future<Void>> futures) {
+    for (Future<Void> future: futures) {
+      future.cancel(true);
+    }
+    executor.shutdownNow();
+
+    boolean interrupted = false;
+    while (true) {
+      try {
+        if (executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS)) {
+          break;
+        }
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  // Throws the error of a task which has already failed.
+  private static void checkDone(List<Future<Void>> futures) throws IOException {
+    for (Future<Void> future: futures) {
+      if (future.isDone()) {
+        getResult(future);
+      }
+    }
+  }
+
+  private static void getResult(Future<Void> future) throws IOException {
+    try {
+      future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while waiting for a run to be written.");
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException)cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException)cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error)cause;
+      }
+      IOException ex = new IOException(cause.getMessage());
+      ex.initCause(cause);
+      throw ex;
+    }
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder(120);
+
+    sb.append("Input: [").append(input)
+      .append("] Output: [").append(output)
+      .append("] Memory budget: [").append(memoryBudget)
+      .append("] Threads: [").append(numThreads)
+      .append("] Max merge width: [").append(maxMergeWidth)
+      .append("]");
+
+    return sb.toString();
+  }
+
+  private static final class SortTask implements Callable<Void> {
+
+    private final Run run;
+    private final File file;
+    private final DataLinkType dlt;
+    private final int snapshot;
+    private final TimestampPrecision timestampPrecision;
+    private final BlockingQueue<Run> freeRuns;
+
+    private SortTask(
+      Run run, File file, PcapFileReader reader, BlockingQueue<Run> freeRuns
+    ) {
+      this.run = run;
+      this.file = file;
+      this.dlt = reader.getDlt();
+      this.snapshot = Math.max(reader.getSnapshot(), 1);
+      this.timestampPrecision = reader.getTimestampPrecision();
+      this.freeRuns = freeRuns;
+    }
+
+    public Void call() throws Exception {
+      try {
+        int entries = run.sort();
+
+        PcapFileWriter writer
+          = new PcapFileWriter.Builder(file, dlt)
+              .snapshot(snapshot)
+              .timestampPrecision(timestampPrecision)
+              .build();
+        try {
+          ByteBuffer buf = run.buffer;
+          for (int i = 0; i < run.count; i++) {
+            int entry = entries + i * Run.ENTRY_SIZE;
+            long timestamp = buf.getLong(entry);
+            int offset = buf.getInt(entry + 8);
+            writer.write(
+              run.data,
+              offset + Run.RECORD_HEADER_SIZE,
+              buf.getInt(offset),
+              buf.getInt(offset + 4),
+              timestamp / NANOS_PER_SEC,
+              (int)(timestamp % NANOS_PER_SEC)
+            );
+          }
+        } finally {
+          writer.close();
+        }
+      } finally {
+        run.clear();
+        freeRuns.add(run);
+      }
+      return null;
+    }
+
+  }
+
+  // A run buffer holds records, each of which is the caplen and len fields
+  // followed by the data, from its end toward its start,
+  // and an index entry per record, which is the timestamp in nanoseconds
+  // and the offset of the record, from its start.
+  // The space between them is kept at least as large as the index
+  // for the merge sort to use as its work area.
+  private static final class Run {
+
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final int ENTRY_SIZE = 12;
+
+    private final int capacity;
+    private byte[] data;
+    private ByteBuffer buffer;
+    private int top;
+    private int count = 0;
+
+    private Run(int capacity) {
+      this.capacity = capacity;
+      allocate(capacity);
+    }
+
+    private void allocate(int size) {
+      data = new byte[size];
+      buffer = ByteBuffer.wrap(data);
+      top = size;
+    }
+
+    private boolean isEmpty() {
+      return count == 0;
+    }
+
+    private boolean add(RawPacket packet) {
+      int caplen = packet.getCaptureLength();
+      if (top - count * ENTRY_SIZE * 2 < RECORD_OVERHEAD + caplen) {
+        return false;
+      }
+
+      top -= RECORD_HEADER_SIZE + caplen;
+      buffer.putInt(top, caplen);
+      buffer.putInt(top + 4, packet.getOriginalLength());
+      ByteBuffer src = packet.getData().duplicate();
+      src.clear().limit(caplen);
+      src.get(data, top + RECORD_HEADER_SIZE, caplen);
+
+      int entry = count * ENTRY_SIZE;
+      buffer.putLong(
+        entry,
+        packet.getTimestampSec() * NANOS_PER_SEC + packet.getTimestampNanos()
+      );
+      buffer.putInt(entry + 8, top);
+      count++;
+      return true;
+    }
+
+    // Called only when this run is empty.
+    private void grow(int caplen) {
+      int size = RECORD_OVERHEAD + caplen;
+      if (data.length < size) {
+        allocate(size);
+      }
+    }
+
+    // Sorts the index entries by a bottom-up merge sort, which is stable,
+    // and returns the offset of the sorted entries.
+    private int sort() {
+      int src = 0;
+      int dst = count * ENTRY_SIZE;
+      for (int width = 1; width < count; width *= 2) {
+        for (int low = 0; low < count; low += width * 2) {
+          int mid = Math.min(low + width, count);
+          int high = Math.min(low + width * 2, count);
+          merge(src, dst, low, mid, high);
+        }
+        int tmp = src;
+        src = dst;
+        dst = tmp;
+      }
+      return src;
+    }
+
+    private void merge(int src, int dst, int low, int mid, int high) {
+      int i = low;
+      int j = mid;
+      for (int k = low; k < high; k++) {
+        int from;
+        if (
+          j >= high
+          || (
+               i < mid
+               && buffer.getLong(src + i * ENTRY_SIZE)
+                    <= buffer.getLong(src + j * ENTRY_SIZE)
+             )
+        ) {
+          from = src + i++ * ENTRY_SIZE;
+        }
+        else {
+          from = src + j++ * ENTRY_SIZE;
+        }
+        int to = dst + k * ENTRY_SIZE;
+        buffer.putLong(to, buffer.getLong(from));
+        buffer.putInt(to + 8, buffer.getInt(from + 8));
+      }
+    }
+
+    private void clear() {
+      count = 0;
+      if (data.length > capacity) {
+        // Enlarged by grow().
+        allocate(capacity);
+      }
+      else {
+        top = data.length;
+      }
+    }
+
+  }
+
+  /**
+   * @author Kaito Yamada
+   * @since pcap4j 1.0.1
+   */
+  public static final class Builder {
+
+    private final File input;
+    private final File output;
+    private File tempDir = null;
+    private long memoryBudget = 64L * 1024L * 1024L;
+    private int numThreads = Runtime.getRuntime().availableProcessors();
+    private int maxMergeWidth = 64;
+
+    /**
+     *
+     * @param input the pcap file to sort.
+     * @param output the file to write the sorted records to.
+     */
+    public Builder(File input, File output) {
+      this.input = input;
+      this.output = output;
+    }
+
+    /**
+     *
+     * @param tempDir the directory to make temporary files in.
+     *        If null, the default temporary-file directory is used.
+     * @return this Builder object for method chaining.
+     */
+    public Builder tempDir(File tempDir) {
+      this.tempDir = tempDir;
+      return this;
+    }
+
+    /**
+     *
+     * @param memoryBudget the total size in bytes of the buffers holding
+     *        records to sort, including {@value PcapFileSorter#RECORD_OVERHEAD}
+     *        bytes per record besides its data. (64 MiB by default)
+     * @return this Builder object for method chaining.
+     */
+    public Builder memoryBudget(long memoryBudget) {
+      this.memoryBudget = memoryBudget;
+      return this;
+    }
+
+    /**
+     *
+     * @param numThreads the number of threads to sort and write runs.
+     *        (the number of available processors by default)
+     * @return this Builder object for method chaining.
+     */
+    public Builder numThreads(int numThreads) {
+      this.numThreads = numThreads;
+      return this;
+    }
+
+    /**
+     *
+     * @param maxMergeWidth the max number of temporary files merged at once,
+     *        each of which is opened with a read buffer. Must be 2 or more.
+     *        (64 by default)
+     * @return this Builder object for method chaining.
+     */
+    public Builder maxMergeWidth(int maxMergeWidth) {
+      this.maxMergeWidth = maxMergeWidth;
+      return this;
+    }
+
+    /**
+     *
+     * @return a new PcapFileSorter object.
+     */
+    public PcapFileSorter build() {
+      return new PcapFileSorter(this);
+    }
+
+  }
+
+}
@@ -0,0 +1,636 @@
+/*_##########################################################################
+  _##
+  _##  Copyright (C) 2013  Kaito Yamada
+  _##
+  _##########################################################################
+*/
+
+package org.pcap4j.core;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import org.pcap4j.core.PcapHandle.TimestampPrecision;
+import org.pcap4j.packet.AbstractPacket;
+import org.pcap4j.packet.Packet;
+import org.pcap4j.packet.namednumber.DataLinkType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A writer of pcap files which doesn't use libpcap.
+ * Records are accumulated in a direct buffer and written to the file
+ * when the buffer gets full, so writing a packet doesn't cost
+ * a system call nor a native call.
+ * Files written by this class have the same layout as files written by pcap_dump()
+ * on the same host, unless another byte order is specified:
+ * version 2.4, zero thiszone and sigfigs, and the LINKTYPE_ value of the
+ * Data Link Type (e.g. 101 for DLT_RAW) in the link type field.
+ * Packet data longer than the snapshot length is truncated.
+ * Methods of this class are thread safe.
+ *
+ * <pre>
+ * PcapFileWriter writer
+ *   = new PcapFileWriter.Builder(new File("a.pcap"), DataLinkType.EN10MB)
+ *       .timestampPrecision(TimestampPrecision.NANO)
+ *       .build();
+ * try {
+ *   writer.write(rawData, 0, rawData.length, rawData.length, sec, nanos);
+ * } finally {
+ *   writer.close();
+ * }
+ * </pre>
+ *
+ * @author Kaito Yamada
+ * @since pcap4j 1.0.1
+ */
+public final class PcapFileWriter implements Closeable, Flushable {
+
+  private static final Logger logger = LoggerFactory.getLogger(PcapFileWriter.class);
+
+  private static final short MAJOR_VERSION = 2;
+  private static final short MINOR_VERSION = 4;
+
+  private final FileOutputStream out;
+  private final FileChannel channel;
+  private final DataLinkType dlt;
+  private final int snapshot;
+  private final TimestampPrecision timestampPrecision;
+  private final ByteOrder byteOrder;
+  private final ByteBuffer buffer;
+  private final ByteBuffer[] gatheringBuffers = new ByteBuffer[2];
+  private final int gatheringWriteThreshold;
+  private final int autoFlushInterval;
+  private final SyncPolicy syncPolicy;
+  private final Object thisLock = new Object();
+
+  private long position = 0;
+  private long count = 0;
+  private byte[] scratch = new byte[0];
+  private volatile boolean open = true;
+
+  private PcapFileWriter(Builder builder) throws IOException {
+    if (
+         builder == null
+      || builder.file == null
+      || builder.dlt == null
+      || builder.timestampPrecision == null
+      || builder.byteOrder == null
+      || builder.syncPolicy == null
+    ) {
+      StringBuilder sb = new StringBuilder();
+      sb.append("builder: ").append(builder)
+        .append(" builder.file: ").append(builder.file)
+        .append(" builder.dlt: ").append(builder.dlt)
+        .append(" builder.timestampPrecision: ").append(builder.timestampPrecision)
+        .append(" builder.byteOrder: ").append(builder.byteOrder)
+        .append(" builder.syncPolicy: ").append(builder.syncPolicy);
+      throw new NullPointerException(sb.toString());
+    }
+    if (
+         builder.snapshot <= 0
+      || builder.bufferSize < PcapFileReader.FILE_HEADER_SIZE
+      || builder.gatheringWriteThreshold < 0
+      || builder.autoFlushInterval < 0
+    ) {
+      StringBuilder sb = new StringBuilder(120);
+      sb.append("builder.snapshot: ").append(builder.snapshot)
+        .append(" builder.bufferSize: ").append(builder.bufferSize)
+        .append(" builder.gatheringWriteThreshold: ")
+        .append(builder.gatheringWriteThreshold)
+        .append(" builder.autoFlushInterval: ").append(builder.autoFlushInterval);
+      throw new IllegalArgumentException(sb.toString());
+    }
+
+    this.dlt = builder.dlt;
+    this.snapshot = builder.snapshot;
+    this.timestampPrecision = builder.timestampPrecision;
+    this.byteOrder = builder.byteOrder;
+    this.buffer = ByteBuffer.allocateDirect(builder.bufferSize).order(byteOrder);
+    this.gatheringWriteThreshold = builder.gatheringWriteThreshold;
+    this.autoFlushInterval = builder.autoFlushInterval;
+    this.syncPolicy = builder.syncPolicy;
+
+    this.out = new FileOutputStream(builder.file);
+    this.channel = out.getChannel();
+
+    buffer.putInt(
+             timestampPrecision == TimestampPrecision.NANO
+               ? PcapFileReader.MAGIC_NANO : PcapFileReader.MAGIC_MICRO
+           )
+          .putShort(MAJOR_VERSION)
+          .putShort(MINOR_VERSION)
+          .putInt(0) // thiszone
+          .putInt(0) // sigfigs
+          .putInt(snapshot)
+          .putInt(PcapFileReader.dltToLinkType(dlt.value()));
+    position = PcapFileReader.FILE_HEADER_SIZE;
+  }
+
+  /**
+   *
+   * @return the Data Link Type of the file.
+   */
+  public DataLinkType getDlt() { return dlt; }
+
+  /**
+   *
+   * @return the snapshot length of the file.
+   */
+  public int getSnapshot() { return snapshot; }
+
+  /**
+   *
+   * @return the precision of the timestamps in the file.
+   */
+  public TimestampPrecision getTimestampPrecision() { return timestampPrecision; }
+
+  /**
+   *
+   * @return the byte order of the file.
+   */
+  public ByteOrder getByteOrder() { return byteOrder; }
+
+  /**
+   *
+   * @return true if this PcapFileWriter is open; false otherwise.
+   */
+  public boolean isOpen() { return open; }
+
+  /**
+   *
+   * @return the size of the file including the buffered records.
+   */
+  public long getPosition() {
+    synchronized (thisLock) {
+      return position;
+    }
+  }
+
+  /**
+   *
+   * @param data
+   * @param offset
+   * @param length the number of bytes of the packet data.
+   * @param originalLength the length of the packet on the wire.
+   * @param timestampSec
+   * @param timestampNanos
+   * @throws IOException
+   */
+  public void write(
+    byte[] data, int offset, int length, int originalLength,
+    long timestampSec, int timestampNanos
+  ) throws IOException {
+    if (data == null) {
+      throw new NullPointerException("data must not be null.");
+    }
+    if (offset < 0 || length < 0 || offset + length > data.length) {
+      StringBuilder sb = new StringBuilder(80);
+      sb.append("data.length: ").append(data.length)
+        .append(" offset: ").append(offset)
+        .append(" length: ").append(length);
+      throw new ArrayIndexOutOfBoundsException(sb.toString());
+    }
+    checkTimestamp(timestampSec, timestampNanos);
+
+    synchronized (thisLock) {
+      writeRecord(
+        data, offset, null, length, originalLength, timestampSec, timestampNanos
+      );
+    }
+  }
+
+  /**
+   * Writes the remaining bytes of data as the packet data.
+   * The position and limit of data are changed during the call
+   * and restored before it returns, so data must not be used
+   * by other threads meanwhile.
+   *
+   * @param data
+   * @param originalLength the length of the packet on the wire.
+   * @param timestampSec
+   * @param timestampNanos
+   * @throws IOException
+   */
+  public void write(
+    ByteBuffer data, int originalLength, long timestampSec, int timestampNanos
+  ) throws IOException {
+    if (data == null) {
+      throw new NullPointerException("data must not be null.");
+    }
+    checkTimestamp(timestampSec, timestampNanos);
+
+    synchronized (thisLock) {
+      writeRecord(
+        null, data.position(), data, data.remaining(),
+        originalLength, timestampSec, timestampNanos
+      );
+    }
+  }
+
+  /**
+   * The position and limit of the packet's data are changed during the call
+   * and restored before it returns.
+   *
+   * @param packet
+   * @throws IOException
+   */
+  public void write(RawPacket packet) throws IOException {
+    if (packet == null) {
+      throw new NullPointerException("packet must not be null.");
+    }
+    checkTimestamp(packet.getTimestampSec(), packet.getTimestampNanos());
+
+    synchronized (thisLock) {
+      writeRecord(
+        null, 0, packet.getData(), packet.getCaptureLength(),
+        packet.getOriginalLength(),
+        packet.getTimestampSec(), packet.getTimestampNanos()
+      );
+    }
+  }
+
+  /**
+   *
+   * @param packet
+   * @throws IOException
+   */
+  public void write(PcapPacket packet) throws IOException {
+    if (packet == null) {
+      throw new NullPointerException("packet must not be null.");
+    }
+
+    write(
+      packet.getPacket(),
+      packet.getOriginalLength(),
+      packet.getTimestampSec(),
+      packet.getTimestampNanos()
+    );
+  }
+
+  /**
+   *
+   * @param packet
+   * @param timestampSec
+   * @param timestampNanos
+   * @throws IOException
+   */
+  public void write(
+    Packet packet, long timestampSec, int timestampNanos
+  ) throws IOException {
+    if (packet == null) {
+      throw new NullPointerException("packet must not be null.");
+    }
+    write(packet, packet.length(), timestampSec, timestampNanos);
+  }
+
+  private void write(
+    Packet packet, int originalLength, long timestampSec, int timestampNanos
+  ) throws IOException {
+    checkTimestamp(timestampSec, timestampNanos);
+
+    synchronized (thisLock) {
+      int length = packet.length();
+      if (scratch.length < length) {
+        scratch = new byte[length];
+      }
+      AbstractPacket.writeRawData(packet, scratch, 0);
+      writeRecord(
+        scratch, 0, null, length, originalLength, timestampSec, timestampNanos
+      );
+    }
+  }
+
+  private void checkTimestamp(long timestampSec, int timestampNanos) {
+    if (timestampSec < 0 || timestampSec > 0xFFFFFFFFL) {
+      throw new IllegalArgumentException(
+              "timestampSec must be between 0 and 4294967295: " + timestampSec
+            );
+    }
+    if (timestampNanos < 0 || timestampNanos >= 1000000000) {
+      throw new IllegalArgumentException(
+              "timestampNanos must be between 0 and 999999999: " + timestampNanos
+            );
+    }
+  }
+
+  // Either array or byteBuffer is given. offset is the index of the data in it.
+  // byteBuffer's position and limit are restored on return,
+  // so that no duplicate of it is made per record.
+  private void writeRecord(
+    byte[] array, int offset, ByteBuffer byteBuffer,
+    int length, int originalLength, long timestampSec, int timestampNanos
+  ) throws IOException {
+    if (!open) {
+      throw new IOException("Already closed.");
+    }
+
+    int caplen = Math.min(length, snapshot);
+    if (buffer.remaining() < PcapFileReader.RECORD_HEADER_SIZE) {
+      drain();
+    }
+    buffer.putInt((int)timestampSec)
+          .putInt(
+             timestampPrecision == TimestampPrecision.NANO
+               ? timestampNanos : timestampNanos / 1000
+           )
+          .putInt(caplen)
+          .putInt(originalLength);
+
+    if (byteBuffer == null) {
+      writeData(array, offset, null, caplen);
+    }
+    else {
+      int limit = byteBuffer.limit();
+      int pos = byteBuffer.position();
+      byteBuffer.limit(offset + caplen);
+      byteBuffer.position(offset);
+      try {
+        writeData(null, 0, byteBuffer, caplen);
+      } finally {
+        byteBuffer.limit(limit);
+        byteBuffer.position(pos);
+      }
+    }
+
+    position += PcapFileReader.RECORD_HEADER_SIZE + caplen;
+    count++;
+    if (autoFlushInterval != 0 && count % autoFlushInterval == 0) {
+      flushBuffer();
+    }
+  }
+
+  // Either array or data, whose remaining bytes are written, is given.
+  private void writeData(
+    byte[] array, int offset, ByteBuffer data, int caplen
+  ) throws IOException {
+    if (gatheringWriteThreshold != 0 && caplen >= gatheringWriteThreshold) {
+      // Writes the buffered records and the data at once without copying the data.
+      if (data == null) {
+        data = ByteBuffer.wrap(array, offset, caplen);
+      }
+      buffer.flip();
+      gatheringBuffers[0] = buffer;
+      gatheringBuffers[1] = data;
+      try {
+        while (data.hasRemaining()) {
+          channel.write(gatheringBuffers);
+        }
+      } finally {
+        gatheringBuffers[1] = null;
+        buffer.clear();
+      }
+    }
+    else if (data == null) {
+      int pos = offset;
+      int end = offset + caplen;
+      while (pos < end) {
+        if (!buffer.hasRemaining()) {
+          drain();
+        }
+        int n = Math.min(end - pos, buffer.remaining());
+        buffer.put(array, pos, n);
+        pos += n;
+      }
+    }
+    else {
+      while (data.hasRemaining()) {
+        if (!buffer.hasRemaining()) {
+          drain();
+        }
+        if (data.remaining() <= buffer.remaining()) {
+          buffer.put(data);
+        }
+        else {
+          int limit = data.limit();
+          data.limit(data.position() + buffer.remaining());
+          buffer.put(data);
+          data.limit(limit);
+        }
+      }
+    }
+  }
+
+  // Writes the buffered bytes to the file.
+  private void drain() throws IOException {
+    buffer.flip();
+    try {
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+    } finally {
+      buffer.clear();
+    }
+  }
+
+  private void flushBuffer() throws IOException {
+    drain();
+    if (syncPolicy == SyncPolicy.ON_FLUSH) {
+      channel.force(false);
+    }
+  }
+
+  /**
+   * Writes the buffered records to the file,
+   * and then syncs the file if the SyncPolicy is ON_FLUSH.
+   *
+   * @throws IOException
+   */
+  public void flush() throws IOException {
+    synchronized (thisLock) {
+      if (!open) {
+        throw new IOException("Already closed.");
+      }
+      flushBuffer();
+    }
+  }
+
+  /**
+   * Writes the buffered records to the file, syncs the file unless
+   * the SyncPolicy is NEVER, and closes it.
+   *
+   * @throws IOException
+   */
+  public void close() throws IOException {
+    synchronized (thisLock) {
+      if (!open) {
+        logger.warn("Already closed.");
+        return;
+      }
+      open = false;
+
+      try {
+        drain();
+        if (syncPolicy != SyncPolicy.NEVER) {
+          channel.force(false);
+        }
+      } finally {
+        out.close();
+      }
+    }
+
+    logger.info("Closed.");
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder(120);
+
+    sb.append("Link type: [").append(dlt)
+      .append("] Timestamp precision: [").append(timestampPrecision)
+      .append("] Byte order: [").append(byteOrder)
+      .append("] Snapshot: [").append(snapshot)
+      .append("]");
+
+    return sb.toString();
+  }
+
+  /**
+   * When a PcapFileWriter syncs the file to the storage device with
+   * {@link FileChannel#force(boolean)}.
+   *
+   * @author Kaito Yamada
+   * @since pcap4j 1.0.1
+   */
+  public static enum SyncPolicy {
+
+    /**
+     * Never syncs the file.
+     */
+    NEVER,
+
+    /**
+     * Syncs the file when it is closed.
+     */
+    ON_CLOSE,
+
+    /**
+     * Syncs the file every time the buffer is flushed,
+     * i.e. when {@link PcapFileWriter#flush()} is called,
+     * when records are flushed by the auto flush, and when it is closed.
+     */
+    ON_FLUSH;
+
+  }
+
+  /**
+   * @author Kaito Yamada
+   * @since pcap4j 1.0.1
+   */
+  public static final class Builder {
+
+    private final File file;
+    private final DataLinkType dlt;
+    private int snapshot = 65535;
+    private TimestampPrecision timestampPrecision = TimestampPrecision.MICRO;
+    private ByteOrder byteOrder = ByteOrder.nativeOrder();
+    private int bufferSize = 1024 * 1024;
+    private int gatheringWriteThreshold = 0;
+    private int autoFlushInterval = 0;
+    private SyncPolicy syncPolicy = SyncPolicy.NEVER;
+
+    /**
+     *
+     * @param file the file to write, which is overwritten if it exists.
+     * @param dlt
+     */
+    public Builder(File file, DataLinkType dlt) {
+      this.file = file;
+      this.dlt = dlt;
+    }
+
+    /**
+     *
+     * @param snapshot the snapshot length. (65535 by default)
+     * @return this Builder object for method chaining.
+     */
+    public Builder snapshot(int snapshot) {
+      this.snapshot = snapshot;
+      return this;
+    }
+
+    /**
+     *
+     * @param timestampPrecision (MICRO by default)
+     * @return this Builder object for method chaining.
+     */
+    public Builder timestampPrecision(TimestampPrecision timestampPrecision) {
+      this.timestampPrecision = timestampPrecision;
+      return this;
+    }
+
+    /**
+     *
+     * @param byteOrder the byte order of the file.
+     *        (the native byte order by default, as pcap_dump() does)
+     * @return this Builder object for method chaining.
+     */
+    public Builder byteOrder(ByteOrder byteOrder) {
+      this.byteOrder = byteOrder;
+      return this;
+    }
+
+    /**
+     *
+     * @param bufferSize the size of the direct buffer
+     *        in which records are accumulated. (1 MiB by default)
+     * @return this Builder object for method chaining.
+     */
+    public Builder bufferSize(int bufferSize) {
+      this.bufferSize = bufferSize;
+      return this;
+    }
+
+    /**
+     * Packet data of this size or larger is written to the file
+     * by a gathering write together with the buffered records
+     * instead of being copied into the buffer.
+     *
+     * @param gatheringWriteThreshold the threshold in bytes,
+     *        or 0 to disable gathering writes. (0 by default)
+     * @return this Builder object for method chaining.
+     */
+    public Builder gatheringWriteThreshold(int gatheringWriteThreshold) {
+      this.gatheringWriteThreshold = gatheringWriteThreshold;
+      return this;
+    }
+
+    /**
+     *
+     * @param autoFlushInterval the number of records after which
+     *        the buffer is flushed, or 0 to flush it only when it gets full.
+     *        (0 by default)
+     * @return this Builder object for method chaining.
+     */
+    public Builder autoFlushInterval(int autoFlushInterval) {
+      this.autoFlushInterval = autoFlushInterval;
+      return this;
+    }
+
+    /**
+     *
+     * @param syncPolicy (NEVER by default)
+     * @return this Builder object for method chaining.
+     */
+    public Builder syncPolicy(SyncPolicy syncPolicy) {
+      this.syncPolicy = syncPolicy;
+      return this;
+    }
+
+    /**
+     *
+     * @return a new PcapFileWriter object.
+     * @throws IOException if the file can't be opened.
+     */
+    public PcapFileWriter build() throws IOException {
+      return new PcapFileWriter(this);
+    }
+
+  }
+
+}
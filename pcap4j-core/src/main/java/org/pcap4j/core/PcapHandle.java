@@ -11,22 +11,31 @@ import java.io.EOFException;
 import java.net.Inet4Address;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.Executor;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import org.pcap4j.core.BpfProgram.BpfCompileMode;
 import org.pcap4j.core.NativeMappings.PcapErrbuf;
+import org.pcap4j.core.NativeMappings.PcapLibrary;
 import org.pcap4j.core.NativeMappings.bpf_program;
 import org.pcap4j.core.NativeMappings.pcap_pkthdr;
 import org.pcap4j.core.NativeMappings.pcap_stat;
 import org.pcap4j.core.NativeMappings.win_pcap_stat;
+import org.pcap4j.core.PcapNetworkInterface.PromiscuousMode;
+import org.pcap4j.packet.AbstractPacket;
 import org.pcap4j.packet.Packet;
 import org.pcap4j.packet.factory.PacketFactories;
 import org.pcap4j.packet.namednumber.DataLinkType;
 import org.pcap4j.util.ByteArrays;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import com.sun.jna.Memory;
+import com.sun.jna.Native;
 import com.sun.jna.Platform;
 import com.sun.jna.Pointer;
 import com.sun.jna.ptr.PointerByReference;
@@ -45,15 +54,40 @@ public final class PcapHandle {
 
   private volatile DataLinkType dlt;
   private final Pointer handle;
-  private final Object thisLock = new Object();
-  private final ThreadLocal<Long> timestampsInts
-    = new ThreadLocal<Long>();
-  private final ThreadLocal<Integer> timestampsMicros
-    = new ThreadLocal<Integer>();
+
+  // The native calls are made while holding the read lock of handleLock
+  // and one of the other locks below, so that control operations (e.g. getStat())
+  // and sending don't wait for capturing (e.g. loop()) to finish.
+  // close() takes the write lock, which waits for all the calls to return.
+  // These are java.util.concurrent locks rather than monitors
+  // so as not to pin virtual threads while waiting for them.
+  private final ReentrantReadWriteLock handleLock = new ReentrantReadWriteLock();
+  private final ReentrantLock captureLock = new ReentrantLock();
+  private final ReentrantLock controlLock = new ReentrantLock();
+  private final ReentrantLock sendLock = new ReentrantLock();
+
+  // Guarded by captureLock.
+  // Reused by getNextPacket() and the like instead of allocated per packet.
+  private final PointerByReference headerPP = new PointerByReference();
+  private final PointerByReference dataPP = new PointerByReference();
+  private Memory nextHeader = null;
+  private final TimestampPrecision timestampPrecision;
+  private final ActivationStatus activationStatus;
+  private final ThreadLocal<Timestamp> timestamps
+    = new ThreadLocal<Timestamp>() {
+        @Override
+        protected Timestamp initialValue() {
+          return new Timestamp();
+        }
+      };
 
   private volatile boolean open = true;
   private volatile String filteringExpression = "";
 
+  // Guarded by sendLock.
+  private byte[] sendScratch = new byte[0];
+  private ByteBuffer sendBuffer = null;
+
   private static final Inet4Address WILDCARD_MASK;
 
   static {
@@ -65,8 +99,29 @@ public final class PcapHandle {
   }
 
   PcapHandle(Pointer handle) {
+    this(handle, ActivationStatus.SUCCESS);
+  }
+
+  PcapHandle(Pointer handle, ActivationStatus activationStatus) {
     this.handle = handle;
     this.dlt = getDltByNative();
+    this.timestampPrecision = getTimestampPrecisionByNative();
+    this.activationStatus = activationStatus;
+  }
+
+  // Keeps the handle from being closed and takes the lock.
+  private void acquire(Lock lock) throws NotOpenException {
+    handleLock.readLock().lock();
+    if (!open) {
+      handleLock.readLock().unlock();
+      throw new NotOpenException();
+    }
+    lock.lock();
+  }
+
+  private void release(Lock lock) {
+    lock.unlock();
+    handleLock.readLock().unlock();
   }
 
   DataLinkType getDltByNative() {
@@ -75,6 +130,18 @@ public final class PcapHandle {
            );
   }
 
+  private TimestampPrecision getTimestampPrecisionByNative() {
+    try {
+      int precision = PcapLibrary.INSTANCE.pcap_get_tstamp_precision(handle);
+      if (precision == TimestampPrecision.NANO.getValue()) {
+        return TimestampPrecision.NANO;
+      }
+    } catch (UnsatisfiedLinkError e) {
+      // libpcap older than 1.5.0 supports only microsecond precision.
+    }
+    return TimestampPrecision.MICRO;
+  }
+
   /**
    *
    * @return the Data Link Type of this PcapHandle
@@ -92,17 +159,16 @@ public final class PcapHandle {
       throw new NullPointerException("dlt must not be null.");
     }
 
-    synchronized (thisLock) {
-      if (!open) {
-        throw new NotOpenException();
-      }
-
+    acquire(controlLock);
+    try {
       int rc = NativeMappings.pcap_set_datalink(handle, dlt.value());
       if (rc < 0) {
         throw new PcapNativeException(getError(), rc);
       }
 
       this.dlt = dlt;
+    } finally {
+      release(controlLock);
     }
   }
 
@@ -118,18 +184,52 @@ public final class PcapHandle {
    */
   public String getFilteringExpression() {return filteringExpression; }
 
+  /**
+   * The value is given by pcap_get_tstamp_precision() when this handle is opened,
+   * or {@link TimestampPrecision#MICRO} if the pcap library doesn't have it.
+   *
+   * @return the precision of timestamps of packets captured by this PcapHandle.
+   */
+  public TimestampPrecision getTimestampPrecision() { return timestampPrecision; }
+
+  /**
+   *
+   * @return the result of pcap_activate() if this handle was opened by
+   *         {@link Builder}, which may be a warning;
+   *         otherwise {@link ActivationStatus#SUCCESS}.
+   */
+  public ActivationStatus getActivationStatus() { return activationStatus; }
+
   /**
    *
    * @return an integer part of a timestamp of a packet captured in a current thread.
    */
-  public Long getTimestampInts() { return timestampsInts.get(); }
+  public Long getTimestampInts() {
+    Timestamp ts = timestamps.get();
+    return ts.isSet ? Long.valueOf(ts.sec) : null;
+  }
 
   /**
    *
    * @return a fraction part of a timestamp of a packet captured in a current thread.
    *         The value represents the number of microseconds.
    */
-  public Integer getTimestampMicros() { return timestampsMicros.get(); }
+  public Integer getTimestampMicros() {
+    Timestamp ts = timestamps.get();
+    return ts.isSet ? Integer.valueOf(ts.nanos / 1000) : null;
+  }
+
+  private void setTimestamp(long sec, int fraction) {
+    Timestamp ts = timestamps.get();
+    ts.sec = sec;
+    ts.nanos = toNanos(fraction);
+    ts.isSet = true;
+  }
+
+  private int toNanos(int fraction) {
+    return timestampPrecision == TimestampPrecision.NANO
+             ? fraction : fraction * 1000;
+  }
 
   /**
    *
@@ -137,12 +237,11 @@ public final class PcapHandle {
    * @throws NotOpenException
    */
   public int getSnapshot() throws NotOpenException {
-    synchronized (thisLock) {
-      if (!open) {
-        throw new NotOpenException();
-      }
-
+    acquire(controlLock);
+    try {
       return NativeMappings.pcap_snapshot(handle);
+    } finally {
+      release(controlLock);
     }
   }
 
@@ -189,11 +288,8 @@ public final class PcapHandle {
    * @throws NotOpenException
    */
   public SwappedType isSwapped() throws NotOpenException {
-    synchronized (thisLock) {
-      if (!open) {
-        throw new NotOpenException();
-      }
-
+    acquire(controlLock);
+    try {
       int rc = NativeMappings.pcap_is_swapped(handle);
       switch (rc) {
         case 0:
@@ -206,6 +302,8 @@ public final class PcapHandle {
           logger.warn("pcap_snapshot returned an unexpected code: " + rc);
           return SwappedType.MAYBE_SWAPPED;
       }
+    } finally {
+      release(controlLock);
     }
   }
 
@@ -215,12 +313,11 @@ public final class PcapHandle {
    * @throws NotOpenException
    */
   public int getMajorVersion() throws NotOpenException {
-    synchronized (thisLock) {
-      if (!open) {
-        throw new NotOpenException();
-      }
-
+    acquire(controlLock);
+    try {
       return NativeMappings.pcap_major_version(handle);
+    } finally {
+      release(controlLock);
     }
   }
 
@@ -230,12 +327,25 @@ public final class PcapHandle {
    * @throws NotOpenException
    */
   public int getMinorVersion() throws NotOpenException {
-    synchronized (thisLock) {
-      if (!open) {
-        throw new NotOpenException();
-      }
-
+    acquire(controlLock);
+    try {
       return NativeMappings.pcap_minor_version(handle);
+    } finally {
+      release(controlLock);
+    }
+  }
+
+  /**
+   *
+   * @return true if this handle reads a savefile; false otherwise.
+   * @throws NotOpenException
+   */
+  boolean isOffline() throws NotOpenException {
+    acquire(controlLock);
+    try {
+      return NativeMappings.pcap_file(handle) != null;
+    } finally {
+      release(controlLock);
     }
   }
 
@@ -265,19 +375,17 @@ public final class PcapHandle {
 
     bpf_program prog = new bpf_program();
     int rc;
-    synchronized (thisLock) {
-      if (!open) {
-        throw new NotOpenException();
-      }
-
+    acquire(controlLock);
+    try {
       rc = NativeMappings.pcap_compile(
              handle, prog, bpfExpression, mode.getValue(),
              ByteArrays.getInt(ByteArrays.toByteArray(netmask), 0)
            );
-    }
-
-    if (rc < 0) {
-      throw new PcapNativeException(getError(), rc);
+      if (rc < 0) {
+        throw new PcapNativeException(getError(), rc);
+      }
+    } finally {
+      release(controlLock);
     }
 
     return new BpfProgram(prog, bpfExpression);
@@ -307,11 +415,8 @@ public final class PcapHandle {
       throw new NullPointerException(sb.toString());
     }
 
-    synchronized (thisLock) {
-      if (!open) {
-        throw new NotOpenException();
-      }
-
+    acquire(controlLock);
+    try {
       int mask = ByteArrays.getInt(ByteArrays.toByteArray(netmask), 0);
 
       bpf_program prog = new bpf_program();
@@ -343,6 +448,8 @@ public final class PcapHandle {
         // PcapLibrary.INSTANCE.pcap_freecode(prog);
         NativeMappings.pcap_freecode(prog);
       }
+    } finally {
+      release(controlLock);
     }
   }
 
@@ -375,20 +482,60 @@ public final class PcapHandle {
       throw new NullPointerException(sb.toString());
     }
 
-    synchronized (thisLock) {
-      if (!open) {
-        throw new NotOpenException();
-      }
-
+    acquire(controlLock);
+    try {
       int rc = NativeMappings.pcap_setfilter(handle, prog.getProgram());
       if (rc < 0) {
         throw new PcapNativeException("Failed to set filter: " + getError(), rc);
       }
 
       this.filteringExpression = prog.getExpression();
+    } finally {
+      release(controlLock);
+    }
+  }
+
+  /**
+   * The precision of timestamps.
+   *
+   * @author Kaito Yamada
+   * @since pcap4j 1.0.1
+   */
+  public static enum TimestampPrecision {
+
+    /**
+     * use timestamps with microsecond precision, default
+     */
+    MICRO(0),
+
+    /**
+     * use timestamps with nanosecond precision
+     */
+    NANO(1);
+
+    private final int value;
+
+    private TimestampPrecision(int value) {
+      this.value = value;
+    }
+
+    /**
+     *
+     * @return value
+     */
+    public int getValue() {
+      return value;
     }
   }
 
+  private static final class Timestamp {
+
+    private long sec;
+    private int nanos;
+    private boolean isSet = false;
+
+  }
+
   /**
    *
    * @author Kaito Yamada
@@ -421,6 +568,143 @@ public final class PcapHandle {
     }
   }
 
+  /**
+   * The results of pcap_activate(). See pcap/pcap.h.
+   * Positive values are warnings, with which a handle is activated,
+   * and negative values are errors.
+   *
+   * @author Kaito Yamada
+   * @since pcap4j 1.0.1
+   */
+  public static enum ActivationStatus {
+
+    /**
+     *
+     */
+    SUCCESS(0),
+
+    /**
+     * generic warning
+     */
+    WARNING(1),
+
+    /**
+     * this device doesn't support promiscuous mode
+     */
+    WARNING_PROMISC_NOTSUP(2),
+
+    /**
+     * the requested time stamp type is not supported
+     */
+    WARNING_TSTAMP_TYPE_NOTSUP(3),
+
+    /**
+     * generic error
+     */
+    ERROR(-1),
+
+    /**
+     * loop terminated by pcap_breakloop
+     */
+    ERROR_BREAK(-2),
+
+    /**
+     * the capture needs to be activated
+     */
+    ERROR_NOT_ACTIVATED(-3),
+
+    /**
+     * the operation can't be performed on already activated captures
+     */
+    ERROR_ACTIVATED(-4),
+
+    /**
+     * no such device exists
+     */
+    ERROR_NO_SUCH_DEVICE(-5),
+
+    /**
+     * this device doesn't support rfmon (monitor) mode
+     */
+    ERROR_RFMON_NOTSUP(-6),
+
+    /**
+     * operation supported only in monitor mode
+     */
+    ERROR_NOT_RFMON(-7),
+
+    /**
+     * no permission to open the device
+     */
+    ERROR_PERM_DENIED(-8),
+
+    /**
+     * interface isn't up
+     */
+    ERROR_IFACE_NOT_UP(-9),
+
+    /**
+     * this device doesn't support setting the time stamp type
+     */
+    ERROR_CANT_SET_TSTAMP_TYPE(-10),
+
+    /**
+     * you don't have permission to capture in promiscuous mode
+     */
+    ERROR_PROMISC_PERM_DENIED(-11),
+
+    /**
+     * the requested time stamp precision is not supported
+     */
+    ERROR_TSTAMP_PRECISION_NOTSUP(-12);
+
+    private final int value;
+
+    private ActivationStatus(int value) {
+      this.value = value;
+    }
+
+    /**
+     *
+     * @return value
+     */
+    public int getValue() {
+      return value;
+    }
+
+    /**
+     *
+     * @return true if this is a warning; false otherwise.
+     */
+    public boolean isWarning() {
+      return value > 0;
+    }
+
+    /**
+     *
+     * @return true if this is an error; false otherwise.
+     */
+    public boolean isError() {
+      return value < 0;
+    }
+
+    /**
+     *
+     * @param value a value returned by pcap_activate().
+     * @return the ActivationStatus object of the value.
+     *         {@link #WARNING} or {@link #ERROR} for an unknown positive or
+     *         negative value respectively.
+     */
+    public static ActivationStatus getInstance(int value) {
+      for (ActivationStatus status: values()) {
+        if (status.value == value) {
+          return status;
+        }
+      }
+      return value > 0 ? WARNING : ERROR;
+    }
+  }
+
   /**
    *
    * @param mode
@@ -438,11 +722,11 @@ public final class PcapHandle {
 
     PcapErrbuf errbuf = new PcapErrbuf();
     int rc;
-    synchronized (thisLock) {
-      if (!open) {
-        throw new NotOpenException();
-      }
+    acquire(controlLock);
+    try {
       rc = NativeMappings.pcap_setnonblock(handle, mode.getValue(), errbuf);
+    } finally {
+      release(controlLock);
     }
 
     if (rc < 0) {
@@ -459,11 +743,11 @@ public final class PcapHandle {
   public BlockingMode getBlockingMode() throws PcapNativeException, NotOpenException {
     PcapErrbuf errbuf = new PcapErrbuf();
     int rc;
-    synchronized (thisLock) {
-      if (!open) {
-        throw new NotOpenException();
-      }
+    acquire(controlLock);
+    try {
       rc = NativeMappings.pcap_getnonblock(handle, errbuf);
+    } finally {
+      release(controlLock);
     }
 
     if (rc == 0) {
@@ -483,26 +767,31 @@ public final class PcapHandle {
    * @throws NotOpenException
    */
   public Packet getNextPacket() throws NotOpenException {
-    pcap_pkthdr header = new pcap_pkthdr();
-    Pointer packet;
+    long tvSec = 0;
+    int tvUsec = 0;
+    byte[] data = null;
 
-    synchronized (thisLock) {
-      if (!open) {
-        throw new NotOpenException();
+    acquire(captureLock);
+    try {
+      if (nextHeader == null) {
+        nextHeader = new Memory(new pcap_pkthdr().size());
+      }
+      Pointer packet = NativeMappings.pcap_next(handle, nextHeader);
+      // The data must be copied before the handle can be closed.
+      if (packet != null) {
+        tvSec = pcap_pkthdr.getTvSec(nextHeader);
+        tvUsec = pcap_pkthdr.getTvUsec(nextHeader);
+        data = packet.getByteArray(0, pcap_pkthdr.getCaplen(nextHeader));
       }
-      // packet = PcapLibrary.INSTANCE.pcap_next(handle, header);
-      packet = NativeMappings.pcap_next(handle, header);
+    } finally {
+      release(captureLock);
     }
 
-    if (packet != null) {
-      timestampsInts.set(header.ts.tv_sec.longValue());
-      timestampsMicros.set(header.ts.tv_usec.intValue());
+    if (data != null) {
+      setTimestamp(tvSec, tvUsec);
 
       return PacketFactories.getFactory(Packet.class, DataLinkType.class)
-               .newInstance(
-                  packet.getByteArray(0, header.caplen),
-                  dlt
-                );
+               .newInstance(data, dlt);
     }
     else {
       return null;
@@ -519,22 +808,77 @@ public final class PcapHandle {
    */
   public Packet getNextPacketEx()
   throws PcapNativeException, EOFException, TimeoutException, NotOpenException {
-    PointerByReference headerPP = new PointerByReference();
-    PointerByReference dataPP = new PointerByReference();
+    long tvSec = 0;
+    int tvUsec = 0;
+    byte[] data = null;
     int rc;
 
-    synchronized (thisLock) {
-      if (!open) {
-        throw new NotOpenException();
-      }
+    acquire(captureLock);
+    try {
       // rc = PcapLibrary.INSTANCE.pcap_next_ex(handle, headerPP, dataPP);
       rc = NativeMappings.pcap_next_ex(handle, headerPP, dataPP);
+      // The header and data must be copied before the handle can be closed.
+      if (rc == 1) {
+        Pointer headerP = headerPP.getValue();
+        Pointer dataP = dataPP.getValue();
+        if (headerP == null || dataP == null) {
+          throw new PcapNativeException(
+                      "Failed to get packet. *header: "
+                        + headerP + " *data: " + dataP
+                    );
+        }
+        tvSec = pcap_pkthdr.getTvSec(headerP);
+        tvUsec = pcap_pkthdr.getTvUsec(headerP);
+        data = dataP.getByteArray(0, pcap_pkthdr.getCaplen(headerP));
+      }
+    } finally {
+      release(captureLock);
     }
 
     switch (rc) {
       case 0:
         throw new TimeoutException();
       case 1:
+        setTimestamp(tvSec, tvUsec);
+
+        return PacketFactories.getFactory(Packet.class, DataLinkType.class)
+                 .newInstance(data, dlt);
+      case -1:
+        throw new PcapNativeException(
+                "Error occured in pcap_next_ex(): " + getError(), rc
+              );
+      case -2:
+        throw new EOFException();
+      default:
+        throw new PcapNativeException(
+                "Unexpected error occured: " + getError(), rc
+              );
+    }
+  }
+
+  /**
+   * The same as {@link #getNextPacketEx()} except that this returns
+   * the packet together with its timestamp and lengths.
+   *
+   * @return a captured packet.
+   * @throws PcapNativeException
+   * @throws EOFException
+   * @throws TimeoutException
+   * @throws NotOpenException
+   */
+  public PcapPacket getNextPcapPacketEx()
+  throws PcapNativeException, EOFException, TimeoutException, NotOpenException {
+    long tvSec = 0;
+    int tvUsec = 0;
+    int len = 0;
+    byte[] data = null;
+    int rc;
+
+    acquire(captureLock);
+    try {
+      rc = NativeMappings.pcap_next_ex(handle, headerPP, dataPP);
+      // The header and data must be copied before the handle can be closed.
+      if (rc == 1) {
         Pointer headerP = headerPP.getValue();
         Pointer dataP = dataPP.getValue();
         if (headerP == null || dataP == null) {
@@ -543,16 +887,25 @@ public final class PcapHandle {
                         + headerP + " *data: " + dataP
                     );
         }
+        tvSec = pcap_pkthdr.getTvSec(headerP);
+        tvUsec = pcap_pkthdr.getTvUsec(headerP);
+        len = pcap_pkthdr.getLen(headerP);
+        data = dataP.getByteArray(0, pcap_pkthdr.getCaplen(headerP));
+      }
+    } finally {
+      release(captureLock);
+    }
 
-        pcap_pkthdr header = new pcap_pkthdr(headerP);
-        timestampsInts.set(header.ts.tv_sec.longValue());
-        timestampsMicros.set(header.ts.tv_usec.intValue());
-
-        return PacketFactories.getFactory(Packet.class, DataLinkType.class)
-                 .newInstance(
-                    dataP.getByteArray(0, header.caplen),
-                    dlt
-                  );
+    switch (rc) {
+      case 0:
+        throw new TimeoutException();
+      case 1:
+        Packet packet
+          = PacketFactories.getFactory(Packet.class, DataLinkType.class)
+              .newInstance(data, dlt);
+        return new PcapPacket(
+                 packet, tvSec, toNanos(tvUsec), data.length, len, timestampPrecision
+               );
       case -1:
         throw new PcapNativeException(
                 "Error occured in pcap_next_ex(): " + getError(), rc
@@ -610,46 +963,84 @@ public final class PcapHandle {
       throw new NullPointerException(sb.toString());
     }
 
-    int rc;
-    synchronized (thisLock) {
-      if (!open) {
-        throw new NotOpenException();
-      }
+    doLoop(packetCount, new GotPacketFuncExecutor(listener, dlt, executor));
+  }
 
-      logger.info("Start loop");
-//      rc = PcapLibrary.INSTANCE.pcap_loop(
-//             handle,
-//             packetCount,
-//             new GotPacketFuncExecutor(listener, dlt, executor),
-//             null
-//           );
-      rc = NativeMappings.pcap_loop(
-             handle,
+  /**
+   *
+   * @param packetCount
+   * @param listener
+   * @return the number of captured packets.
+   * @throws PcapNativeException
+   * @throws InterruptedException
+   * @throws NotOpenException
+   */
+  public int dispatch(
+    int packetCount, PacketListener listener
+  ) throws PcapNativeException, InterruptedException, NotOpenException {
+    return dispatch(
              packetCount,
-             new GotPacketFuncExecutor(listener, dlt, executor),
-             null
+             listener,
+             SimpleExecutor.getInstance()
            );
+  }
+
+  /**
+   *
+   * @param packetCount
+   * @param listener
+   * @param executor
+   * @return the number of captured packets.
+   * @throws PcapNativeException
+   * @throws InterruptedException
+   * @throws NotOpenException
+   */
+  public int dispatch(
+    int packetCount, PacketListener listener, Executor executor
+  ) throws PcapNativeException, InterruptedException, NotOpenException {
+    if (listener == null || executor == null) {
+      StringBuilder sb = new StringBuilder();
+      sb.append("listener: ").append(listener)
+        .append(" executor: ").append(executor);
+      throw new NullPointerException(sb.toString());
     }
 
-    switch (rc) {
-      case  0:
-        logger.info("Finish loop.");
-        break;
-      case -1:
-        throw new PcapNativeException(
-                "Error occured: " + getError(), rc
-              );
-      case -2:
-        logger.info("Broken.");
-        throw new InterruptedException();
-      default:
-        throw new PcapNativeException(
-                "Unexpected error occured: " + getError(), rc
-              );
+    return doDispatch(
+             packetCount,
+             new GotPacketFuncExecutor(listener, dlt, executor)
+           );
+  }
+
+  /**
+   * A wrapper method for "int pcap_loop(pcap_t *, int, pcap_handler, u_char *)".
+   * Once a packet is captured, listener.gotPacket(RawPacket) is called in the same thread
+   * with a RawPacket object which is a view of the buffer of libpcap.
+   * The RawPacket object is reused for all packets captured by this loop,
+   * so the listener must call {@link RawPacket#copy()} to retain a packet.
+   * Its data view is reused as well while libpcap hands packets at the same address,
+   * which is the case for savefiles. Otherwise, e.g. for a capture through
+   * a memory-mapped ring buffer, a new view is created per packet.
+   *
+   * @param packetCount
+   * @param listener
+   * @throws PcapNativeException
+   * @throws InterruptedException
+   * @throws NotOpenException
+   */
+  public void loop(
+    int packetCount, RawPacketListener listener
+  ) throws PcapNativeException, InterruptedException, NotOpenException {
+    if (listener == null) {
+      throw new NullPointerException("listener must not be null.");
     }
+
+    doLoop(packetCount, new GotRawPacketFunc(listener, dlt));
   }
 
   /**
+   * A wrapper method for "int pcap_dispatch(pcap_t *, int, pcap_handler, u_char *)".
+   * The RawPacket object given to the listener is reused for all packets
+   * processed by this call. See {@link #loop(int, RawPacketListener)}.
    *
    * @param packetCount
    * @param listener
@@ -659,7 +1050,73 @@ public final class PcapHandle {
    * @throws NotOpenException
    */
   public int dispatch(
-    int packetCount, PacketListener listener
+    int packetCount, RawPacketListener listener
+  ) throws PcapNativeException, InterruptedException, NotOpenException {
+    if (listener == null) {
+      throw new NullPointerException("listener must not be null.");
+    }
+
+    return doDispatch(packetCount, new GotRawPacketFunc(listener, dlt));
+  }
+
+  /**
+   * A wrapper method for "int pcap_loop(pcap_t *, int, pcap_handler, u_char *)".
+   * Once a packet is captured, listener.gotPacket(PcapPacket) is called in the same thread.
+   * The PcapPacket object carries the timestamp of the packet,
+   * so {@link #getTimestampInts()} and {@link #getTimestampMicros()} are not needed.
+   *
+   * @param packetCount
+   * @param listener
+   * @throws PcapNativeException
+   * @throws InterruptedException
+   * @throws NotOpenException
+   */
+  public void loop(
+    int packetCount, PcapPacketListener listener
+  ) throws PcapNativeException, InterruptedException, NotOpenException {
+    loop(
+      packetCount,
+      listener,
+      SimpleExecutor.getInstance()
+    );
+  }
+
+  /**
+   * A wrapper method for "int pcap_loop(pcap_t *, int, pcap_handler, u_char *)".
+   * Once a packet is captured, it's copied in the capture thread and
+   * listener.gotPacket(PcapPacket) is called via the executor.
+   *
+   * @param packetCount
+   * @param listener
+   * @param executor
+   * @throws PcapNativeException
+   * @throws InterruptedException
+   * @throws NotOpenException
+   */
+  public void loop(
+    int packetCount, PcapPacketListener listener, Executor executor
+  ) throws PcapNativeException, InterruptedException, NotOpenException {
+    if (listener == null || executor == null) {
+      StringBuilder sb = new StringBuilder();
+      sb.append("listener: ").append(listener)
+        .append(" executor: ").append(executor);
+      throw new NullPointerException(sb.toString());
+    }
+
+    doLoop(packetCount, new GotPcapPacketFuncExecutor(listener, dlt, executor));
+  }
+
+  /**
+   *
+   * @param packetCount
+   * @param listener
+   * @return the number of captured packets.
+   * @throws PcapNativeException
+   * @throws InterruptedException
+   * @throws NotOpenException
+   */
+  public int dispatch(
+    int packetCount, PcapPacketListener listener
   ) throws PcapNativeException, InterruptedException, NotOpenException {
     return dispatch(
              packetCount,
@@ -679,7 +1136,7 @@ public final class PcapHandle {
    * @throws NotOpenException
    */
   public int dispatch(
-    int packetCount, PacketListener listener, Executor executor
+    int packetCount, PcapPacketListener listener, Executor executor
   ) throws PcapNativeException, InterruptedException, NotOpenException {
     if (listener == null || executor == null) {
       StringBuilder sb = new StringBuilder();
@@ -688,20 +1145,52 @@ public final class PcapHandle {
       throw new NullPointerException(sb.toString());
     }
 
-    int rc;
-    synchronized (thisLock) {
-      if (!open) {
-        throw new NotOpenException();
-      }
-
-      logger.info("Start dispatch");
-      rc = NativeMappings.pcap_dispatch(
-             handle,
+    return doDispatch(
              packetCount,
-             new GotPacketFuncExecutor(listener, dlt, executor),
-             null
+             new GotPcapPacketFuncExecutor(listener, dlt, executor)
            );
+  }
+
+  private void doLoop(
+    int packetCount, NativeMappings.pcap_handler_raw callback
+  ) throws PcapNativeException, InterruptedException, NotOpenException {
+    int rc;
+    acquire(captureLock);
+    try {
+      logger.info("Start loop");
+      rc = NativeMappings.pcap_loop(handle, packetCount, callback, null);
+    } finally {
+      release(captureLock);
+    }
+
+    switch (rc) {
+      case  0:
+        logger.info("Finish loop.");
+        break;
+      case -1:
+        throw new PcapNativeException(
+                "Error occured: " + getError(), rc
+              );
+      case -2:
+        logger.info("Broken.");
+        throw new InterruptedException();
+      default:
+        throw new PcapNativeException(
+                "Unexpected error occured: " + getError(), rc
+              );
+    }
+  }
 
+  private int doDispatch(
+    int packetCount, NativeMappings.pcap_handler_raw callback
+  ) throws PcapNativeException, InterruptedException, NotOpenException {
+    int rc;
+    acquire(captureLock);
+    try {
+      logger.debug("Start dispatch");
+      rc = NativeMappings.pcap_dispatch(handle, packetCount, callback, null);
+    } finally {
+      release(captureLock);
     }
 
     if (rc < 0) {
@@ -722,10 +1211,55 @@ public final class PcapHandle {
       }
     }
 
-    logger.info("Finish dispatch.");
+    logger.debug("Finish dispatch.");
     return rc;
   }
 
+  /**
+   * A wrapper method for "int pcap_get_selectable_fd(pcap_t *)".
+   * The returned file descriptor can be polled for packets to read
+   * while this handle is in non-blocking mode, as {@link PcapPoller} does.
+   * It's not supported on Windows.
+   *
+   * @return a file descriptor.
+   * @throws PcapNativeException if this handle has no selectable file descriptor.
+   * @throws NotOpenException
+   */
+  public int getSelectableFd() throws PcapNativeException, NotOpenException {
+    int fd;
+    acquire(controlLock);
+    try {
+      fd = PcapLibrary.INSTANCE.pcap_get_selectable_fd(handle);
+    } catch (UnsatisfiedLinkError e) {
+      throw new PcapNativeException(
+              "pcap_get_selectable_fd is not supported by the pcap library."
+            );
+    } finally {
+      release(controlLock);
+    }
+
+    if (fd < 0) {
+      throw new PcapNativeException("This handle has no selectable fd.", fd);
+    }
+    return fd;
+  }
+
+  NativeMappings.pcap_handler_raw newRawPacketHandler(RawPacketListener listener) {
+    return new GotRawPacketFunc(listener, dlt);
+  }
+
+  // Returns the return code of pcap_dispatch() instead of throwing an exception for it.
+  int dispatchRaw(
+    int packetCount, NativeMappings.pcap_handler_raw callback
+  ) throws NotOpenException {
+    acquire(captureLock);
+    try {
+      return NativeMappings.pcap_dispatch(handle, packetCount, callback, null);
+    } finally {
+      release(captureLock);
+    }
+  }
+
   private static final class SimpleExecutor implements Executor {
 
     private SimpleExecutor() {}
@@ -741,7 +1275,7 @@ public final class PcapHandle {
   }
 
   private final class GotPacketFuncExecutor
-  implements NativeMappings.pcap_handler {
+  implements NativeMappings.pcap_handler_raw {
 
     private final DataLinkType dlt;
     private final PacketListener listener;
@@ -755,21 +1289,99 @@ public final class PcapHandle {
       this.executor = executor;
     }
 
-    public void got_packet(
-      Pointer args, final pcap_pkthdr header, final Pointer packet
-    ) {
+    public void got_packet(Pointer args, Pointer header, Pointer packet) {
+      // libpcap may reuse header and packet once this method returns,
+      // so take a snapshot of them before handing them to the executor.
+      final long tsInt = pcap_pkthdr.getTvSec(header);
+      final int tsFraction = pcap_pkthdr.getTvUsec(header);
+      final byte[] rawData = packet.getByteArray(0, pcap_pkthdr.getCaplen(header));
+
       executor.execute(
         new Runnable() {
           public void run() {
-            timestampsInts.set(header.ts.tv_sec.longValue());
-            timestampsMicros.set(header.ts.tv_usec.intValue());
+            setTimestamp(tsInt, tsFraction);
 
             listener.gotPacket(
               PacketFactories.getFactory(Packet.class, DataLinkType.class)
-                .newInstance(
-                   packet.getByteArray(0, header.caplen),
-                   dlt
-                 )
+                .newInstance(rawData, dlt)
+            );
+          }
+        }
+      );
+    }
+
+  }
+
+  private final class GotRawPacketFunc
+  implements NativeMappings.pcap_handler_raw {
+
+    private final DataLinkType dlt;
+    private final RawPacketListener listener;
+    private final RawPacket rawPacket = new RawPacket();
+
+    // The view given last, which is re-pointed while libpcap passes packets
+    // at the same address, e.g. records of a savefile read into one buffer.
+    private ByteBuffer view = null;
+    private long viewAddress = 0;
+
+    public GotRawPacketFunc(RawPacketListener listener, DataLinkType dlt) {
+      this.dlt = dlt;
+      this.listener = listener;
+    }
+
+    public void got_packet(Pointer args, Pointer header, Pointer packet) {
+      int caplen = pcap_pkthdr.getCaplen(header);
+      long address = Pointer.nativeValue(packet);
+      if (view == null || address != viewAddress || view.capacity() < caplen) {
+        view = packet.getByteBuffer(0, caplen).asReadOnlyBuffer();
+        viewAddress = address;
+      }
+      view.clear();
+      view.limit(caplen);
+      rawPacket.set(
+        dlt,
+        view,
+        pcap_pkthdr.getLen(header),
+        pcap_pkthdr.getTvSec(header),
+        toNanos(pcap_pkthdr.getTvUsec(header)),
+        timestampPrecision
+      );
+      listener.gotPacket(rawPacket);
+    }
+
+  }
+
+  private final class GotPcapPacketFuncExecutor
+  implements NativeMappings.pcap_handler_raw {
+
+    private final DataLinkType dlt;
+    private final PcapPacketListener listener;
+    private final Executor executor;
+
+    public GotPcapPacketFuncExecutor(
+      PcapPacketListener listener, DataLinkType dlt, Executor executor
+    ) {
+      this.dlt = dlt;
+      this.listener = listener;
+      this.executor = executor;
+    }
+
+    public void got_packet(Pointer args, Pointer header, Pointer packet) {
+      final long tsSec = pcap_pkthdr.getTvSec(header);
+      final int tsNanos = toNanos(pcap_pkthdr.getTvUsec(header));
+      final int len = pcap_pkthdr.getLen(header);
+      final byte[] rawData
+        = packet.getByteArray(0, pcap_pkthdr.getCaplen(header));
+
+      executor.execute(
+        new Runnable() {
+          public void run() {
+            Packet p = PacketFactories.getFactory(Packet.class, DataLinkType.class)
+                         .newInstance(rawData, dlt);
+            listener.gotPacket(
+              new PcapPacket(
+                p, tsSec, tsNanos, rawData.length, len, timestampPrecision
+              )
             );
           }
         }
@@ -792,12 +1404,19 @@ public final class PcapHandle {
     }
 
     Pointer dumper;
-    synchronized (thisLock) {
+    try {
+      acquire(controlLock);
+    } catch (NotOpenException e) {
+      throw new PcapNativeException("Not open.", e);
+    }
+    try {
       // dumper = PcapLibrary.INSTANCE.pcap_dump_open(handle, filePath);
       dumper = NativeMappings.pcap_dump_open(handle, filePath);
       if (dumper == null) {
         throw new PcapNativeException(getError());
       }
+    } finally {
+      release(controlLock);
     }
 
     return new PcapDumper(dumper);
@@ -819,11 +1438,8 @@ public final class PcapHandle {
     }
 
     int rc;
-    synchronized (thisLock) {
-      if (!open) {
-        throw new NotOpenException();
-      }
-
+    acquire(captureLock);
+    try {
       logger.info("Start dump loop");
 //      rc = PcapLibrary.INSTANCE.pcap_loop(
 //             handle,
@@ -837,6 +1453,8 @@ public final class PcapHandle {
              NativeMappings.PCAP_DUMP,
              dumper.getDumper()
            );
+    } finally {
+      release(captureLock);
     }
 
     switch (rc) {
@@ -867,8 +1485,19 @@ public final class PcapHandle {
    */
   public void breakLoop() {
     logger.info("Break loop.");
-    // PcapLibrary.INSTANCE.pcap_breakloop(handle);
-    NativeMappings.pcap_breakloop(handle);
+
+    // Doesn't wait for close() waiting for the loop.
+    if (!handleLock.readLock().tryLock()) {
+      return;
+    }
+    try {
+      if (open) {
+        // PcapLibrary.INSTANCE.pcap_breakloop(handle);
+        NativeMappings.pcap_breakloop(handle);
+      }
+    } finally {
+      handleLock.readLock().unlock();
+    }
   }
 
   /**
@@ -884,16 +1513,54 @@ public final class PcapHandle {
     }
 
     int rc;
-    synchronized (thisLock) {
-      if (!open) {
-        throw new NotOpenException();
+    acquire(sendLock);
+    try {
+      int length = packet.length();
+      if (sendScratch.length < length) {
+        sendScratch = new byte[length];
       }
-//      rc = PcapLibrary.INSTANCE.pcap_sendpacket(
-//             handle, packet.getRawData(), packet.length()
-//           );
-      rc = NativeMappings.pcap_sendpacket(
-             handle, packet.getRawData(), packet.length()
-           );
+      AbstractPacket.writeRawData(packet, sendScratch, 0);
+      rc = send(sendScratch, 0, length);
+    } finally {
+      release(sendLock);
+    }
+
+    if (rc < 0) {
+      throw new PcapNativeException(
+              "Error occured in pcap_sendpacket(): " + getError(),
+              rc
+            );
+    }
+  }
+
+  /**
+   *
+   * @param bytes
+   * @param offset
+   * @param length
+   * @throws PcapNativeException
+   * @throws NotOpenException
+   */
+  public void sendPacket(
+    byte[] bytes, int offset, int length
+  ) throws PcapNativeException, NotOpenException {
+    if (bytes == null) {
+      throw new NullPointerException("bytes may not be null");
+    }
+    if (offset < 0 || length < 0 || offset + length > bytes.length) {
+      StringBuilder sb = new StringBuilder(80);
+      sb.append("bytes.length: ").append(bytes.length)
+        .append(" offset: ").append(offset)
+        .append(" length: ").append(length);
+      throw new ArrayIndexOutOfBoundsException(sb.toString());
+    }
+
+    int rc;
+    acquire(sendLock);
+    try {
+      rc = send(bytes, offset, length);
+    } finally {
+      release(sendLock);
     }
 
     if (rc < 0) {
@@ -905,10 +1572,178 @@ public final class PcapHandle {
   }
 
   /**
+   * Sends the remaining bytes of the buffer as a packet.
+   * A direct buffer is passed to pcap_sendpacket() without being copied.
+   * The position of the buffer isn't changed.
+   *
+   * @param buffer
+   * @throws PcapNativeException
+   * @throws NotOpenException
+   */
+  public void sendPacket(ByteBuffer buffer) throws PcapNativeException, NotOpenException {
+    if (buffer == null) {
+      throw new NullPointerException("buffer may not be null");
+    }
+
+    int rc;
+    acquire(sendLock);
+    try {
+      rc = send(buffer);
+    } finally {
+      release(sendLock);
+    }
+
+    if (rc < 0) {
+      throw new PcapNativeException(
+              "Error occured in pcap_sendpacket(): " + getError(),
+              rc
+            );
+    }
+  }
+
+  /**
+   * Sends the remaining bytes of each buffer as a packet.
+   * Failing to send a packet doesn't stop sending the following ones.
+   * Direct buffers are passed to pcap_sendpacket() without being copied.
+   * The positions of the buffers aren't changed.
+   *
+   * @param buffers
+   * @param offset the index of the first buffer to send.
+   * @param length the number of buffers to send.
+   * @return the numbers of packets sent and failed.
+   * @throws NotOpenException
+   * @throws NullPointerException if buffers or a buffer to send is null,
+   *         in which case no packet is sent.
+   */
+  public SendResult sendPackets(
+    ByteBuffer[] buffers, int offset, int length
+  ) throws NotOpenException {
+    if (buffers == null) {
+      throw new NullPointerException("buffers may not be null");
+    }
+    if (offset < 0 || length < 0 || offset + length > buffers.length) {
+      StringBuilder sb = new StringBuilder(80);
+      sb.append("buffers.length: ").append(buffers.length)
+        .append(" offset: ").append(offset)
+        .append(" length: ").append(length);
+      throw new ArrayIndexOutOfBoundsException(sb.toString());
+    }
+    // Checked before sending any packet so as not to lose the counts.
+    for (int i = offset; i < offset + length; i++) {
+      if (buffers[i] == null) {
+        StringBuilder sb = new StringBuilder(30);
+        sb.append("buffers[").append(i).append("] is null.");
+        throw new NullPointerException(sb.toString());
+      }
+    }
+
+    int numSent = 0;
+    int numFailed = 0;
+    String lastError = null;
+    acquire(sendLock);
+    try {
+      for (int i = offset; i < offset + length; i++) {
+        if (send(buffers[i]) < 0) {
+          numFailed++;
+          lastError = getError();
+        }
+        else {
+          numSent++;
+        }
+      }
+    } finally {
+      release(sendLock);
+    }
+
+    return new SendResult(numSent, numFailed, lastError);
+  }
+
+  /**
+   * Sends the remaining bytes of each buffer as a packet.
+   *
+   * @param buffers
+   * @return the numbers of packets sent and failed.
+   * @throws NotOpenException
+   * @see #sendPackets(ByteBuffer[], int, int)
+   */
+  public SendResult sendPackets(ByteBuffer[] buffers) throws NotOpenException {
+    if (buffers == null) {
+      throw new NullPointerException("buffers may not be null");
+    }
+    return sendPackets(buffers, 0, buffers.length);
+  }
+
+  // Must be called while holding sendLock.
+  private int send(ByteBuffer buffer) {
+    if (buffer.isDirect()) {
+      return NativeMappings.pcap_sendpacket(
+               handle,
+               Native.getDirectBufferPointer(buffer).share(buffer.position()),
+               buffer.remaining()
+             );
+    }
+    else if (buffer.hasArray()) {
+      return send(
+               buffer.array(),
+               buffer.arrayOffset() + buffer.position(),
+               buffer.remaining()
+             );
+    }
+    else {
+      // A read-only heap buffer.
+      int length = buffer.remaining();
+      if (sendScratch.length < length) {
+        sendScratch = new byte[length];
+      }
+      buffer.duplicate().get(sendScratch, 0, length);
+      return send(sendScratch, 0, length);
+    }
+  }
+
+  // Must be called while holding sendLock.
+  // Copies the bytes into a direct buffer,
+  // since JNA would copy a whole array into native memory.
+  private int send(byte[] bytes, int offset, int length) {
+    if (sendBuffer == null || sendBuffer.capacity() < length) {
+      sendBuffer = ByteBuffer.allocateDirect(Math.max(length, 2048));
+    }
+    sendBuffer.clear();
+    sendBuffer.put(bytes, offset, length);
+    return NativeMappings.pcap_sendpacket(
+             handle, Native.getDirectBufferPointer(sendBuffer), length
+           );
+  }
+
+  /**
+   * Closes this handle.
+   * If a loop is running in another thread, this breaks it as
+   * {@link #breakLoop()} does and waits for it to return,
+   * so that this may not return immediately on some OSes.
    *
+   * @throws IllegalStateException if called in a listener of a loop
+   *         running on this handle in the same thread.
    */
   public void close() {
-    synchronized (thisLock) {
+    if (handleLock.getReadHoldCount() != 0) {
+      throw new IllegalStateException(
+              "Can't close the handle while the current thread is using it,"
+                + " e.g. in a listener of loop()."
+            );
+    }
+
+    // Makes loop() and dispatch() running in other threads return.
+    if (handleLock.readLock().tryLock()) {
+      try {
+        if (open) {
+          NativeMappings.pcap_breakloop(handle);
+        }
+      } finally {
+        handleLock.readLock().unlock();
+      }
+    }
+
+    handleLock.writeLock().lock();
+    try {
       if (!open) {
         logger.warn("Already closed.");
         return;
@@ -916,6 +1751,8 @@ public final class PcapHandle {
       // PcapLibrary.INSTANCE.pcap_close(handle);
       NativeMappings.pcap_close(handle);
       open = false;
+    } finally {
+      handleLock.writeLock().unlock();
     }
 
     logger.info("Closed.");
@@ -936,15 +1773,14 @@ public final class PcapHandle {
     }
 
     int rc;
-    synchronized (thisLock) {
-      if (!open) {
-        throw new NotOpenException();
-      }
+    acquire(controlLock);
+    try {
       rc = NativeMappings.pcap_stats(handle, ps);
-    }
-
-    if (rc < 0) {
-      throw new PcapNativeException(getError(), rc);
+      if (rc < 0) {
+        throw new PcapNativeException(getError(), rc);
+      }
+    } finally {
+      release(controlLock);
     }
 
     return new PcapStat(ps);
@@ -959,15 +1795,14 @@ public final class PcapHandle {
   throws PcapNativeException, NotOpenException {
     PointerByReference dltBufPP = new PointerByReference();
     int rc;
-    synchronized (thisLock) {
-      if (!open) {
-        throw new NotOpenException();
-      }
+    acquire(controlLock);
+    try {
       rc = NativeMappings.pcap_list_datalinks(handle, dltBufPP);
-    }
-
-    if (rc < 0) {
-      throw new PcapNativeException(getError(), rc);
+      if (rc < 0) {
+        throw new PcapNativeException(getError(), rc);
+      }
+    } finally {
+      release(controlLock);
     }
 
     Pointer dltBufP = dltBufPP.getValue();
@@ -985,8 +1820,16 @@ public final class PcapHandle {
    * @return an error message.
    */
   public String getError() {
-    // return PcapLibrary.INSTANCE.pcap_geterr(handle).getString(0);
-    return NativeMappings.pcap_geterr(handle).getString(0);
+    handleLock.readLock().lock();
+    try {
+      if (!open) {
+        return "Closed.";
+      }
+      // return PcapLibrary.INSTANCE.pcap_geterr(handle).getString(0);
+      return NativeMappings.pcap_geterr(handle).getString(0);
+    } finally {
+      handleLock.readLock().unlock();
+    }
   }
 
   @Override
@@ -1002,4 +1845,300 @@ public final class PcapHandle {
     return sb.toString();
   }
 
+  /**
+   * Opens a live capture with pcap_create() and pcap_activate(),
+   * which are available in libpcap 1.0.0 or later.
+   * Unlike {@link PcapNetworkInterface#openLive(int, PromiscuousMode, int)},
+   * this can set the size of the kernel buffer and immediate mode.
+   * Parameters not set are left to the defaults of libpcap.
+   *
+   * <pre>
+   * PcapHandle handle
+   *   = new PcapHandle.Builder(nif.getName())
+   *       .snaplen(65536)
+   *       .promiscuousMode(PromiscuousMode.PROMISCUOUS)
+   *       .timeoutMillis(10)
+   *       .bufferSize(16 * 1024 * 1024)
+   *       .build();
+   * </pre>
+   *
+   * @author Kaito Yamada
+   * @since pcap4j 1.0.1
+   */
+  public static final class Builder {
+
+    private final String deviceName;
+    private Integer snaplen = null;
+    private PromiscuousMode promiscuousMode = null;
+    private Integer timeoutMillis = null;
+    private Integer bufferSize = null;
+    private Boolean immediateMode = null;
+    private TimestampPrecision timestampPrecision = null;
+
+    /**
+     *
+     * @param deviceName the name of a network interface,
+     *        e.g. {@link PcapNetworkInterface#getName()}.
+     */
+    public Builder(String deviceName) {
+      this.deviceName = deviceName;
+    }
+
+    /**
+     *
+     * @param snaplen the max number of bytes captured per packet,
+     *        which must be positive.
+     * @return this Builder object for method chaining.
+     */
+    public Builder snaplen(int snaplen) {
+      this.snaplen = snaplen;
+      return this;
+    }
+
+    /**
+     *
+     * @param promiscuousMode
+     * @return this Builder object for method chaining.
+     */
+    public Builder promiscuousMode(PromiscuousMode promiscuousMode) {
+      this.promiscuousMode = promiscuousMode;
+      return this;
+    }
+
+    /**
+     *
+     * @param timeoutMillis the read timeout in milliseconds,
+     *        which must not be negative.
+     * @return this Builder object for method chaining.
+     */
+    public Builder timeoutMillis(int timeoutMillis) {
+      this.timeoutMillis = timeoutMillis;
+      return this;
+    }
+
+    /**
+     *
+     * @param bufferSize the size in bytes of the buffer in which
+     *        the kernel holds packets until they are read.
+     *        A larger buffer drops fewer packets in bursts.
+     *        This must be positive.
+     * @return this Builder object for method chaining.
+     */
+    public Builder bufferSize(int bufferSize) {
+      this.bufferSize = bufferSize;
+      return this;
+    }
+
+    /**
+     * Immediate mode delivers packets as soon as they arrive
+     * instead of when the buffer is filled or the timeout expires.
+     * This requires libpcap 1.5.0 or later.
+     *
+     * @param immediateMode
+     * @return this Builder object for method chaining.
+     */
+    public Builder immediateMode(boolean immediateMode) {
+      this.immediateMode = immediateMode;
+      return this;
+    }
+
+    /**
+     * This requires libpcap 1.5.0 or later.
+     *
+     * @param timestampPrecision
+     * @return this Builder object for method chaining.
+     */
+    public Builder timestampPrecision(TimestampPrecision timestampPrecision) {
+      this.timestampPrecision = timestampPrecision;
+      return this;
+    }
+
+    /**
+     * Creates and activates a handle.
+     * If pcap_activate() returns a warning, it's logged and
+     * available from {@link PcapHandle#getActivationStatus()}.
+     *
+     * @return a new activated PcapHandle object.
+     * @throws PcapNativeException if failed to create or activate a handle.
+     *         If pcap_activate() failed, its return code is available from
+     *         {@link PcapNativeException#getReturnCode()} and
+     *         {@link ActivationStatus#getInstance(int)} gives its type.
+     * @throws IllegalArgumentException if any of the parameters is out of range.
+     */
+    public PcapHandle build() throws PcapNativeException {
+      if (deviceName == null) {
+        throw new NullPointerException("deviceName must not be null.");
+      }
+      if (
+           (snaplen != null && snaplen <= 0)
+        || (timeoutMillis != null && timeoutMillis < 0)
+        || (bufferSize != null && bufferSize <= 0)
+      ) {
+        StringBuilder sb = new StringBuilder(100);
+        sb.append("snaplen: ").append(snaplen)
+          .append(" timeoutMillis: ").append(timeoutMillis)
+          .append(" bufferSize: ").append(bufferSize);
+        throw new IllegalArgumentException(sb.toString());
+      }
+
+      PcapErrbuf errbuf = new PcapErrbuf();
+      Pointer handle;
+      try {
+        handle = PcapLibrary.INSTANCE.pcap_create(deviceName, errbuf);
+      } catch (UnsatisfiedLinkError e) {
+        throw new PcapNativeException(
+                "pcap_create is not supported by the pcap library."
+              );
+      }
+      if (handle == null) {
+        throw new PcapNativeException(errbuf.toString());
+      }
+
+      boolean activated = false;
+      try {
+        if (snaplen != null) {
+          check(
+            PcapLibrary.INSTANCE.pcap_set_snaplen(handle, snaplen),
+            "pcap_set_snaplen"
+          );
+        }
+        if (promiscuousMode != null) {
+          check(
+            PcapLibrary.INSTANCE.pcap_set_promisc(handle, promiscuousMode.getValue()),
+            "pcap_set_promisc"
+          );
+        }
+        if (timeoutMillis != null) {
+          check(
+            PcapLibrary.INSTANCE.pcap_set_timeout(handle, timeoutMillis),
+            "pcap_set_timeout"
+          );
+        }
+        if (bufferSize != null) {
+          check(
+            PcapLibrary.INSTANCE.pcap_set_buffer_size(handle, bufferSize),
+            "pcap_set_buffer_size"
+          );
+        }
+        if (immediateMode != null) {
+          try {
+            check(
+              PcapLibrary.INSTANCE.pcap_set_immediate_mode(
+                handle, immediateMode ? 1 : 0
+              ),
+              "pcap_set_immediate_mode"
+            );
+          } catch (UnsatisfiedLinkError e) {
+            throw new PcapNativeException(
+                    "pcap_set_immediate_mode is not supported by the pcap library."
+                  );
+          }
+        }
+        if (timestampPrecision != null) {
+          try {
+            check(
+              PcapLibrary.INSTANCE.pcap_set_tstamp_precision(
+                handle, timestampPrecision.getValue()
+              ),
+              "pcap_set_tstamp_precision"
+            );
+          } catch (UnsatisfiedLinkError e) {
+            throw new PcapNativeException(
+                    "pcap_set_tstamp_precision is not supported by the pcap library."
+                  );
+          }
+        }
+
+        int rc = PcapLibrary.INSTANCE.pcap_activate(handle);
+        ActivationStatus status = ActivationStatus.getInstance(rc);
+        if (status.isError()) {
+          StringBuilder sb = new StringBuilder(100);
+          sb.append("Failed to activate ").append(deviceName)
+            .append(": ").append(status);
+          String message = NativeMappings.pcap_geterr(handle).getString(0);
+          if (message.length() != 0) {
+            sb.append(" (").append(message).append(")");
+          }
+          throw new PcapNativeException(sb.toString(), rc);
+        }
+        if (status.isWarning()) {
+          logger.warn(
+            "Activated " + deviceName + " with a warning: " + status
+              + " (" + NativeMappings.pcap_geterr(handle).getString(0) + ")"
+          );
+        }
+
+        PcapHandle ph = new PcapHandle(handle, status);
+        activated = true;
+        return ph;
+      } finally {
+        if (!activated) {
+          NativeMappings.pcap_close(handle);
+        }
+      }
+    }
+
+    // pcap_set_*() fail only when the handle has been activated.
+    private void check(int rc, String function) throws PcapNativeException {
+      if (rc != 0) {
+        throw new PcapNativeException(
+                "Error occured in " + function + "(): "
+                  + ActivationStatus.getInstance(rc),
+                rc
+              );
+      }
+    }
+
+  }
+
+  /**
+   * The result of {@link PcapHandle#sendPackets(ByteBuffer[], int, int)}.
+   *
+   * @author Kaito Yamada
+   * @since pcap4j 1.0.1
+   */
+  public static final class SendResult {
+
+    private final int numSent;
+    private final int numFailed;
+    private final String lastError;
+
+    private SendResult(int numSent, int numFailed, String lastError) {
+      this.numSent = numSent;
+      this.numFailed = numFailed;
+      this.lastError = lastError;
+    }
+
+    /**
+     *
+     * @return the number of packets sent.
+     */
+    public int getNumSent() { return numSent; }
+
+    /**
+     *
+     * @return the number of packets failed to send.
+     */
+    public int getNumFailed() { return numFailed; }
+
+    /**
+     *
+     * @return the error message of the last failure, or null if no packet failed.
+     */
+    public String getLastError() { return lastError; }
+
+    @Override
+    public String toString() {
+      StringBuilder sb = new StringBuilder(60);
+
+      sb.append("Sent: [").append(numSent)
+        .append("] Failed: [").append(numFailed)
+        .append("] Last error: [").append(lastError)
+        .append("]");
+
+      return sb.toString();
+    }
+
+  }
+
 }
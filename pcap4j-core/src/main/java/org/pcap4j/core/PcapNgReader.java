@@ -0,0 +1,742 @@
+/*_##########################################################################
+  _##
+  _##  Copyright (C) 2013  Kaito Yamada
+  _##
+  _##########################################################################
+*/
+
+package org.pcap4j.core;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.pcap4j.core.PcapHandle.TimestampPrecision;
+import org.pcap4j.packet.Packet;
+import org.pcap4j.packet.factory.PacketFactories;
+import org.pcap4j.packet.namednumber.DataLinkType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A streaming reader of pcapng files which doesn't use libpcap.
+ * Blocks are read one by one through a buffer which holds only the current block,
+ * so memory usage is bounded regardless of the size of the file.
+ * Section Header, Interface Description, Enhanced Packet, Simple Packet,
+ * and Interface Statistics blocks are interpreted, and the other blocks are skipped.
+ * Each packet is given with the Data Link Type of the interface it was captured on.
+ * An object of this class is not thread safe.
+ *
+ * <pre>
+ * PcapNgReader reader = new PcapNgReader(new File("a.pcapng"));
+ * try {
+ *   PcapPacket packet;
+ *   while ((packet = reader.getNextPcapPacket()) != null) {
+ *     int interfaceId = reader.getInterfaceId();
+ *     ...
+ *   }
+ * } finally {
+ *   reader.close();
+ * }
+ * </pre>
+ *
+ * @author Kaito Yamada
+ * @since pcap4j 1.0.1
+ */
+public final class PcapNgReader implements Closeable {
+
+  private static final Logger logger = LoggerFactory.getLogger(PcapNgReader.class);
+
+  static final int SECTION_HEADER_BLOCK = 0x0A0D0D0A;
+  static final int INTERFACE_DESCRIPTION_BLOCK = 0x00000001;
+  static final int SIMPLE_PACKET_BLOCK = 0x00000003;
+  static final int INTERFACE_STATISTICS_BLOCK = 0x00000005;
+  static final int ENHANCED_PACKET_BLOCK = 0x00000006;
+  static final int BYTE_ORDER_MAGIC = 0x1A2B3C4D;
+
+  static final int OPT_ENDOFOPT = 0;
+  static final int IF_NAME = 2;
+  static final int IF_TSRESOL = 9;
+  static final int IF_TSOFFSET = 14;
+  static final int ISB_IFRECV = 4;
+  static final int ISB_IFDROP = 5;
+  static final int ISB_OSDROP = 7;
+
+  // Blocks larger than this are regarded as corrupted.
+  private static final int MAX_BLOCK_SIZE = 16 * 1024 * 1024;
+
+  private final ReadableByteChannel channel;
+  private final RawPacket rawPacket = new RawPacket();
+  private final List<InterfaceDescription> interfaces
+    = new ArrayList<InterfaceDescription>();
+  private final Map<Integer, InterfaceStatistics> statistics
+    = new HashMap<Integer, InterfaceStatistics>();
+
+  // In read mode. Its position is at the start of the current block.
+  private ByteBuffer buffer;
+  private boolean eof = false;
+  private boolean inSection = false;
+  private int majorVersion;
+  private int minorVersion;
+  private int interfaceId = -1;
+  private long timestampSec;
+  private int timestampNanos;
+  private boolean closed = false;
+
+  /**
+   *
+   * @param file
+   * @throws IOException
+   */
+  public PcapNgReader(File file) throws IOException {
+    this(new FileInputStream(file).getChannel());
+  }
+
+  /**
+   *
+   * @param channel the channel to read a pcapng stream from,
+   *        which is closed by {@link #close()}.
+   */
+  public PcapNgReader(ReadableByteChannel channel) {
+    this(channel, 64 * 1024);
+  }
+
+  /**
+   *
+   * @param channel
+   * @param bufferSize the initial size of the buffer,
+   *        which grows to hold a block larger than it.
+   */
+  PcapNgReader(ReadableByteChannel channel, int bufferSize) {
+    if (channel == null) {
+      throw new NullPointerException("channel must not be null.");
+    }
+    if (bufferSize <= 0) {
+      throw new IllegalArgumentException("bufferSize: " + bufferSize);
+    }
+    this.channel = channel;
+    this.buffer = ByteBuffer.allocate(bufferSize);
+    buffer.limit(0);
+  }
+
+  /**
+   *
+   * @return the major version of the current section.
+   */
+  public int getMajorVersion() { return majorVersion; }
+
+  /**
+   *
+   * @return the minor version of the current section.
+   */
+  public int getMinorVersion() { return minorVersion; }
+
+  /**
+   *
+   * @return the byte order of the current section.
+   */
+  public ByteOrder getByteOrder() { return buffer.order(); }
+
+  /**
+   *
+   * @return the interfaces described so far in the current section,
+   *         whose indices are their interface IDs.
+   */
+  public List<InterfaceDescription> getInterfaces() {
+    return Collections.unmodifiableList(interfaces);
+  }
+
+  /**
+   *
+   * @param interfaceId
+   * @return the statistics of the interface read last in the current section,
+   *         or null if no statistics of the interface have been read.
+   */
+  public InterfaceStatistics getStatistics(int interfaceId) {
+    return statistics.get(interfaceId);
+  }
+
+  /**
+   *
+   * @return the ID of the interface the packet read last was captured on.
+   */
+  public int getInterfaceId() { return interfaceId; }
+
+  /**
+   * Reads the next packet in place.
+   * The returned object and its data are reused and overwritten by the next call,
+   * so use {@link RawPacket#copy()} to retain it.
+   *
+   * @return the next packet, or null if the end of the stream has been reached.
+   * @throws EOFException if the last block is truncated.
+   * @throws IOException
+   */
+  public RawPacket getNextRawPacket() throws IOException {
+    if (closed) {
+      throw new IOException("Already closed.");
+    }
+
+    while (true) {
+      if (!readBlock()) {
+        return null;
+      }
+
+      int start = buffer.position();
+      int type = buffer.getInt(start);
+      int length = buffer.getInt(start + 4);
+      try {
+        switch (type) {
+          case ENHANCED_PACKET_BLOCK:
+            readEnhancedPacketBlock(start, length);
+            return rawPacket;
+          case SIMPLE_PACKET_BLOCK:
+            readSimplePacketBlock(start, length);
+            return rawPacket;
+          case SECTION_HEADER_BLOCK:
+            readSectionHeaderBlock(start, length);
+            break;
+          case INTERFACE_DESCRIPTION_BLOCK:
+            readInterfaceDescriptionBlock(start, length);
+            break;
+          case INTERFACE_STATISTICS_BLOCK:
+            readInterfaceStatisticsBlock(start, length);
+            break;
+          default:
+            if (logger.isDebugEnabled()) {
+              logger.debug("Skipped a block of type 0x" + Integer.toHexString(type));
+            }
+            break;
+        }
+      } finally {
+        buffer.position(start + length);
+      }
+    }
+  }
+
+  /**
+   * Reads and decodes the next packet.
+   *
+   * @return the next packet, or null if the end of the stream has been reached.
+   * @throws EOFException if the last block is truncated.
+   * @throws IOException
+   */
+  public PcapPacket getNextPcapPacket() throws IOException {
+    RawPacket raw = getNextRawPacket();
+    if (raw == null) {
+      return null;
+    }
+
+    byte[] rawData = new byte[raw.getCaptureLength()];
+    raw.getData().get(rawData);
+    Packet packet
+      = PacketFactories.getFactory(Packet.class, DataLinkType.class)
+          .newInstance(rawData, raw.getDlt());
+    return new PcapPacket(
+             packet,
+             raw.getTimestampSec(),
+             raw.getTimestampNanos(),
+             raw.getCaptureLength(),
+             raw.getOriginalLength(),
+             raw.getTimestampPrecision()
+           );
+  }
+
+  /**
+   *
+   * @throws IOException
+   */
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    channel.close();
+  }
+
+  /**
+   * Reads the whole next block into the buffer.
+   *
+   * @return false if the end of the stream has been reached.
+   */
+  private boolean readBlock() throws IOException {
+    if (!fill(8)) {
+      if (buffer.hasRemaining()) {
+        throw new EOFException("The stream ends in the middle of a block.");
+      }
+      return false;
+    }
+
+    int start = buffer.position();
+    if (buffer.getInt(start) == SECTION_HEADER_BLOCK) {
+      // The byte order of a section is known from its header.
+      if (!fill(12)) {
+        throw new EOFException("The stream ends in the middle of a block.");
+      }
+      // fill() may have moved the block to the start of the buffer.
+      start = buffer.position();
+      int bom = buffer.getInt(start + 8);
+      if (bom == Integer.reverseBytes(BYTE_ORDER_MAGIC)) {
+        buffer.order(
+          buffer.order() == ByteOrder.BIG_ENDIAN
+            ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN
+        );
+      }
+      else if (bom != BYTE_ORDER_MAGIC) {
+        throw new IOException(
+                "Invalid byte-order magic: 0x" + Integer.toHexString(bom)
+              );
+      }
+    }
+    else if (!inSection) {
+      throw new IOException("Not a pcapng stream.");
+    }
+
+    int length = buffer.getInt(start + 4);
+    if (length < 12 || length % 4 != 0 || length > MAX_BLOCK_SIZE) {
+      StringBuilder sb = new StringBuilder(80);
+      sb.append("Invalid block length: ")
+        .append(0xFFFFFFFFL & length)
+        .append(" type: 0x")
+        .append(Integer.toHexString(buffer.getInt(start)));
+      throw new IOException(sb.toString());
+    }
+    if (!fill(length)) {
+      throw new EOFException("The stream ends in the middle of a block.");
+    }
+    start = buffer.position();
+    if (buffer.getInt(start + length - 4) != length) {
+      throw new IOException(
+              "The block total lengths at the start and the end don't match."
+            );
+    }
+    return true;
+  }
+
+  /**
+   * Makes the buffer have at least the given number of bytes from its position.
+   *
+   * @return false if the end of the stream has been reached.
+   */
+  private boolean fill(int length) throws IOException {
+    if (buffer.remaining() >= length) {
+      return true;
+    }
+    if (eof) {
+      return false;
+    }
+
+    if (buffer.capacity() < length) {
+      ByteBuffer newBuffer
+        = ByteBuffer.allocate(Math.max(length, buffer.capacity() * 2))
+            .order(buffer.order());
+      newBuffer.put(buffer);
+      buffer = newBuffer;
+    }
+    else {
+      buffer.compact();
+    }
+
+    while (buffer.position() < length) {
+      if (channel.read(buffer) < 0) {
+        eof = true;
+        break;
+      }
+    }
+    buffer.flip();
+    return buffer.remaining() >= length;
+  }
+
+  private void readSectionHeaderBlock(int start, int length) throws IOException {
+    if (length < 28) {
+      throw new IOException("Too short Section Header Block: " + length);
+    }
+
+    this.majorVersion = 0xFFFF & buffer.getShort(start + 12);
+    this.minorVersion = 0xFFFF & buffer.getShort(start + 14);
+    if (majorVersion != 1) {
+      throw new IOException("Unsupported version: " + majorVersion + "." + minorVersion);
+    }
+
+    // Interface IDs are numbered per section.
+    interfaces.clear();
+    statistics.clear();
+    inSection = true;
+  }
+
+  private void readInterfaceDescriptionBlock(int start, int length) throws IOException {
+    if (length < 20) {
+      throw new IOException("Too short Interface Description Block: " + length);
+    }
+
+    DataLinkType dlt
+      = DataLinkType.getInstance(0xFFFF & buffer.getShort(start + 8));
+    int snapshot = buffer.getInt(start + 12);
+    String name = null;
+    byte tsresol = 6;
+    long tsoffset = 0;
+
+    int pos = start + 16;
+    int end = start + length - 4;
+    while (pos + 4 <= end) {
+      int code = 0xFFFF & buffer.getShort(pos);
+      int optLength = 0xFFFF & buffer.getShort(pos + 2);
+      int valuePos = pos + 4;
+      if (code == OPT_ENDOFOPT || valuePos + optLength > end) {
+        break;
+      }
+
+      switch (code) {
+        case IF_NAME:
+          name = getString(valuePos, optLength);
+          break;
+        case IF_TSRESOL:
+          if (optLength >= 1) {
+            tsresol = buffer.get(valuePos);
+          }
+          break;
+        case IF_TSOFFSET:
+          if (optLength >= 8) {
+            tsoffset = buffer.getLong(valuePos);
+          }
+          break;
+        default:
+          break;
+      }
+      pos = valuePos + ((optLength + 3) & ~3);
+    }
+
+    interfaces.add(new InterfaceDescription(dlt, snapshot, name, tsresol, tsoffset));
+  }
+
+  private void readEnhancedPacketBlock(int start, int length) throws IOException {
+    if (length < 32) {
+      throw new IOException("Too short Enhanced Packet Block: " + length);
+    }
+
+    int id = buffer.getInt(start + 8);
+    InterfaceDescription desc = getInterface(id);
+    long ts = ((long)buffer.getInt(start + 12) << 32)
+                | (0xFFFFFFFFL & buffer.getInt(start + 16));
+    int caplen = buffer.getInt(start + 20);
+    int len = buffer.getInt(start + 24);
+    if (caplen < 0 || caplen > length - 32) {
+      StringBuilder sb = new StringBuilder(80);
+      sb.append("Invalid capture length: ")
+        .append(0xFFFFFFFFL & caplen)
+        .append(" block length: ")
+        .append(length);
+      throw new IOException(sb.toString());
+    }
+
+    desc.convert(ts, this);
+    this.interfaceId = id;
+    setRawPacket(desc, start + 28, caplen, len);
+  }
+
+  private void readSimplePacketBlock(int start, int length) throws IOException {
+    if (length < 16) {
+      throw new IOException("Too short Simple Packet Block: " + length);
+    }
+
+    InterfaceDescription desc = getInterface(0);
+    int len = buffer.getInt(start + 8);
+    int caplen = Math.min(len, length - 16);
+    if (desc.snapshot > 0) {
+      caplen = Math.min(caplen, desc.snapshot);
+    }
+    if (caplen < 0) {
+      throw new IOException("Invalid original length: " + (0xFFFFFFFFL & len));
+    }
+
+    // A Simple Packet Block has no timestamp.
+    this.timestampSec = 0;
+    this.timestampNanos = 0;
+    this.interfaceId = 0;
+    setRawPacket(desc, start + 12, caplen, len);
+  }
+
+  private void readInterfaceStatisticsBlock(int start, int length) throws IOException {
+    if (length < 24) {
+      throw new IOException("Too short Interface Statistics Block: " + length);
+    }
+
+    int id = buffer.getInt(start + 8);
+    InterfaceDescription desc = getInterface(id);
+    long ts = ((long)buffer.getInt(start + 12) << 32)
+                | (0xFFFFFFFFL & buffer.getInt(start + 16));
+    long received = -1;
+    long droppedByIf = -1;
+    long droppedByOs = -1;
+
+    int pos = start + 20;
+    int end = start + length - 4;
+    while (pos + 4 <= end) {
+      int code = 0xFFFF & buffer.getShort(pos);
+      int optLength = 0xFFFF & buffer.getShort(pos + 2);
+      int valuePos = pos + 4;
+      if (code == OPT_ENDOFOPT || valuePos + optLength > end) {
+        break;
+      }
+
+      if (optLength >= 8) {
+        switch (code) {
+          case ISB_IFRECV:
+            received = buffer.getLong(valuePos);
+            break;
+          case ISB_IFDROP:
+            droppedByIf = buffer.getLong(valuePos);
+            break;
+          case ISB_OSDROP:
+            droppedByOs = buffer.getLong(valuePos);
+            break;
+          default:
+            break;
+        }
+      }
+      pos = valuePos + ((optLength + 3) & ~3);
+    }
+
+    desc.convert(ts, this);
+    statistics.put(
+      id,
+      new InterfaceStatistics(
+        id, timestampSec, timestampNanos, received, droppedByIf, droppedByOs
+      )
+    );
+  }
+
+  private InterfaceDescription getInterface(int id) throws IOException {
+    if (id < 0 || id >= interfaces.size()) {
+      throw new IOException("Unknown interface ID: " + id);
+    }
+    return interfaces.get(id);
+  }
+
+  private void setRawPacket(
+    InterfaceDescription desc, int dataPos, int caplen, int len
+  ) {
+    ByteBuffer data = buffer.duplicate();
+    data.limit(dataPos + caplen).position(dataPos);
+    rawPacket.set(
+      desc.dlt, data.slice().asReadOnlyBuffer(), len, timestampSec, timestampNanos,
+      desc.getTimestampPrecision()
+    );
+  }
+
+  private String getString(int pos, int length) {
+    byte[] bytes = new byte[length];
+    ByteBuffer src = buffer.duplicate();
+    src.position(pos);
+    src.get(bytes);
+    try {
+      return new String(bytes, "UTF-8");
+    } catch (UnsupportedEncodingException e) {
+      throw new AssertionError(e);
+    }
+  }
+
+  /**
+   * An interface described by an Interface Description Block.
+   *
+   * @author Kaito Yamada
+   * @since pcap4j 1.0.1
+   */
+  public static final class InterfaceDescription {
+
+    private static final long[] POWERS_OF_TEN = {
+      1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L, 100000000L,
+      1000000000L, 10000000000L, 100000000000L, 1000000000000L,
+      10000000000000L, 100000000000000L, 1000000000000000L,
+      10000000000000000L, 100000000000000000L, 1000000000000000000L
+    };
+
+    private final DataLinkType dlt;
+    private final int snapshot;
+    private final String name;
+    private final byte timestampResolution;
+    private final long timestampOffset;
+
+    private InterfaceDescription(
+      DataLinkType dlt, int snapshot, String name,
+      byte timestampResolution, long timestampOffset
+    ) {
+      this.dlt = dlt;
+      this.snapshot = snapshot;
+      this.name = name;
+      this.timestampResolution = timestampResolution;
+      this.timestampOffset = timestampOffset;
+    }
+
+    /**
+     *
+     * @return the Data Link Type of the interface.
+     */
+    public DataLinkType getDlt() { return dlt; }
+
+    /**
+     *
+     * @return the snapshot length, or 0 if it's not limited.
+     */
+    public int getSnapshot() { return snapshot; }
+
+    /**
+     *
+     * @return the value of the if_name option, or null if it's not given.
+     */
+    public String getName() { return name; }
+
+    /**
+     *
+     * @return the value of the if_tsresol option. (6 if it's not given)
+     */
+    public byte getTimestampResolution() { return timestampResolution; }
+
+    /**
+     *
+     * @return the value of the if_tsoffset option in seconds.
+     */
+    public long getTimestampOffset() { return timestampOffset; }
+
+    // Resolutions finer than microseconds are reported as nanoseconds.
+    TimestampPrecision getTimestampPrecision() {
+      return (timestampResolution & 0x80) == 0 && timestampResolution <= 6
+               ? TimestampPrecision.MICRO : TimestampPrecision.NANO;
+    }
+
+    // Converts a timestamp in the units of the interface
+    // into the reader's timestampSec and timestampNanos.
+    private void convert(long ts, PcapNgReader reader) throws IOException {
+      long sec;
+      long nanos;
+      int exp = timestampResolution & 0x7F;
+      if ((timestampResolution & 0x80) == 0) {
+        if (exp >= POWERS_OF_TEN.length) {
+          throw new IOException("Unsupported if_tsresol: " + timestampResolution);
+        }
+        long unitsPerSec = POWERS_OF_TEN[exp];
+        sec = ts / unitsPerSec;
+        long rem = ts % unitsPerSec;
+        nanos = exp <= 9 ? rem * POWERS_OF_TEN[9 - exp] : rem / POWERS_OF_TEN[exp - 9];
+      }
+      else {
+        if (exp >= 63) {
+          throw new IOException("Unsupported if_tsresol: " + timestampResolution);
+        }
+        sec = ts >>> exp;
+        long rem = ts & ((1L << exp) - 1);
+        nanos = exp <= 33
+                  ? (rem * 1000000000L) >>> exp
+                  : (long)(rem * 1e9 / (1L << exp));
+      }
+
+      reader.timestampSec = sec + timestampOffset;
+      reader.timestampNanos = (int)nanos;
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder sb = new StringBuilder(120);
+
+      sb.append("Link type: [").append(dlt)
+        .append("] Snapshot: [").append(snapshot)
+        .append("] Name: [").append(name)
+        .append("] if_tsresol: [").append(timestampResolution)
+        .append("] if_tsoffset: [").append(timestampOffset)
+        .append("]");
+
+      return sb.toString();
+    }
+
+  }
+
+  /**
+   * Statistics of an interface given by an Interface Statistics Block.
+   *
+   * @author Kaito Yamada
+   * @since pcap4j 1.0.1
+   */
+  public static final class InterfaceStatistics {
+
+    private final int interfaceId;
+    private final long timestampSec;
+    private final int timestampNanos;
+    private final long numPacketsReceived;
+    private final long numPacketsDroppedByIf;
+    private final long numPacketsDroppedByOs;
+
+    private InterfaceStatistics(
+      int interfaceId, long timestampSec, int timestampNanos,
+      long numPacketsReceived, long numPacketsDroppedByIf, long numPacketsDroppedByOs
+    ) {
+      this.interfaceId = interfaceId;
+      this.timestampSec = timestampSec;
+      this.timestampNanos = timestampNanos;
+      this.numPacketsReceived = numPacketsReceived;
+      this.numPacketsDroppedByIf = numPacketsDroppedByIf;
+      this.numPacketsDroppedByOs = numPacketsDroppedByOs;
+    }
+
+    /**
+     *
+     * @return the ID of the interface.
+     */
+    public int getInterfaceId() { return interfaceId; }
+
+    /**
+     *
+     * @return an integer part of the timestamp of the statistics.
+     */
+    public long getTimestampSec() { return timestampSec; }
+
+    /**
+     *
+     * @return a fraction part of the timestamp of the statistics in nanoseconds.
+     */
+    public int getTimestampNanos() { return timestampNanos; }
+
+    /**
+     *
+     * @return isb_ifrecv, or -1 if it's not given.
+     */
+    public long getNumPacketsReceived() { return numPacketsReceived; }
+
+    /**
+     *
+     * @return isb_ifdrop, or -1 if it's not given.
+     */
+    public long getNumPacketsDroppedByIf() { return numPacketsDroppedByIf; }
+
+    /**
+     *
+     * @return isb_osdrop, or -1 if it's not given.
+     */
+    public long getNumPacketsDroppedByOs() { return numPacketsDroppedByOs; }
+
+    @Override
+    public String toString() {
+      StringBuilder sb = new StringBuilder(120);
+
+      sb.append("Interface ID: [").append(interfaceId)
+        .append("] Timestamp: [").append(timestampSec)
+        .append(".").append(timestampNanos)
+        .append("] Received: [").append(numPacketsReceived)
+        .append("] Dropped by interface: [").append(numPacketsDroppedByIf)
+        .append("] Dropped by OS: [").append(numPacketsDroppedByOs)
+        .append("]");
+
+      return sb.toString();
+    }
+
+  }
+
+}
@@ -0,0 +1,602 @@
+/*_##########################################################################
+  _##
+  _##  Copyright (C) 2013  Kaito Yamada
+  _##
+  _##########################################################################
+*/
+
+package org.pcap4j.core;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import org.pcap4j.core.PcapHandle.TimestampPrecision;
+import org.pcap4j.packet.AbstractPacket;
+import org.pcap4j.packet.Packet;
+import org.pcap4j.packet.namednumber.DataLinkType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A writer of pcapng files which doesn't use libpcap.
+ * A file written by this class has a single section in the native byte order.
+ * Interfaces can be added at any time, so packets captured by several
+ * {@link PcapHandle}s can be written into one file as they arrive
+ * without merging files afterward.
+ * Blocks are accumulated in a direct buffer and written to the file
+ * when the buffer gets full.
+ * Packet data longer than the snapshot length of the interface is truncated.
+ * Methods of this class are thread safe.
+ *
+ * <pre>
+ * PcapNgWriter writer = new PcapNgWriter(new File("a.pcapng"));
+ * try {
+ *   int eth0 = writer.addInterface(handle0, "eth0");
+ *   int eth1 = writer.addInterface(handle1, "eth1");
+ *   writer.write(eth0, packet0);
+ *   writer.write(eth1, packet1);
+ * } finally {
+ *   writer.close();
+ * }
+ * </pre>
+ *
+ * @author Kaito Yamada
+ * @since pcap4j 1.0.1
+ */
+public final class PcapNgWriter implements Closeable, Flushable {
+
+  private static final Logger logger = LoggerFactory.getLogger(PcapNgWriter.class);
+
+  private static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
+
+  // The headers of the blocks written by this class are up to this size.
+  private static final int MIN_BUFFER_SIZE = 64;
+
+  private final FileOutputStream out;
+  private final FileChannel channel;
+  private final ByteBuffer buffer;
+  private final List<Interface> interfaces = new ArrayList<Interface>();
+  private final Object thisLock = new Object();
+
+  private long position = 0;
+  private byte[] scratch = new byte[0];
+  private volatile boolean open = true;
+
+  /**
+   *
+   * @param file
+   * @throws IOException
+   */
+  public PcapNgWriter(File file) throws IOException {
+    this(file, DEFAULT_BUFFER_SIZE);
+  }
+
+  /**
+   *
+   * @param file
+   * @param bufferSize the size of the buffer to accumulate blocks in.
+   * @throws IOException
+   */
+  public PcapNgWriter(File file, int bufferSize) throws IOException {
+    if (file == null) {
+      throw new NullPointerException("file must not be null.");
+    }
+    if (bufferSize < MIN_BUFFER_SIZE) {
+      throw new IllegalArgumentException(
+              "bufferSize must be equal or greater than " + MIN_BUFFER_SIZE
+                + ": " + bufferSize
+            );
+    }
+
+    this.buffer
+      = ByteBuffer.allocateDirect(bufferSize).order(ByteOrder.nativeOrder());
+    this.out = new FileOutputStream(file);
+    this.channel = out.getChannel();
+
+    buffer.putInt(PcapNgReader.SECTION_HEADER_BLOCK)
+          .putInt(28)
+          .putInt(PcapNgReader.BYTE_ORDER_MAGIC)
+          .putShort((short)1) // major version
+          .putShort((short)0) // minor version
+          .putLong(-1L) // section length, which isn't specified.
+          .putInt(28);
+    position = 28;
+  }
+
+  /**
+   *
+   * @return true if this PcapNgWriter is open; false otherwise.
+   */
+  public boolean isOpen() { return open; }
+
+  /**
+   *
+   * @return the size of the file including the buffered blocks.
+   */
+  public long getPosition() {
+    synchronized (thisLock) {
+      return position;
+    }
+  }
+
+  /**
+   * Writes an Interface Description Block.
+   *
+   * @param dlt
+   * @param snapshot
+   * @param timestampPrecision
+   * @param name the value of the if_name option. May be null.
+   * @return the ID of the interface.
+   * @throws IOException
+   */
+  public int addInterface(
+    DataLinkType dlt, int snapshot, TimestampPrecision timestampPrecision, String name
+  ) throws IOException {
+    if (dlt == null || timestampPrecision == null) {
+      StringBuilder sb = new StringBuilder();
+      sb.append("dlt: ").append(dlt)
+        .append(" timestampPrecision: ").append(timestampPrecision);
+      throw new NullPointerException(sb.toString());
+    }
+    if (snapshot <= 0) {
+      throw new IllegalArgumentException("Invalid snapshot: " + snapshot);
+    }
+
+    byte[] nameBytes;
+    if (name != null) {
+      try {
+        nameBytes = name.getBytes("UTF-8");
+      } catch (UnsupportedEncodingException e) {
+        throw new AssertionError(e);
+      }
+      if (nameBytes.length > 0xFFFF) {
+        throw new IllegalArgumentException("Too long name: " + name);
+      }
+    }
+    else {
+      nameBytes = null;
+    }
+
+    int length = 20;
+    if (nameBytes != null) {
+      length += 4 + pad(nameBytes.length);
+    }
+    boolean nano = timestampPrecision == TimestampPrecision.NANO;
+    if (nano) {
+      length += 8;
+    }
+    if (length != 20) {
+      length += 4; // opt_endofopt
+    }
+
+    synchronized (thisLock) {
+      ensureOpen();
+
+      ensureRemaining(20);
+      buffer.putInt(PcapNgReader.INTERFACE_DESCRIPTION_BLOCK)
+            .putInt(length)
+            .putShort((short)dlt.value().intValue())
+            .putShort((short)0) // reserved
+            .putInt(snapshot);
+      if (nameBytes != null) {
+        ensureRemaining(4);
+        buffer.putShort((short)PcapNgReader.IF_NAME)
+              .putShort((short)nameBytes.length);
+        put(nameBytes, 0, nameBytes.length);
+        putPadding(nameBytes.length);
+      }
+      if (nano) {
+        ensureRemaining(8);
+        buffer.putShort((short)PcapNgReader.IF_TSRESOL)
+              .putShort((short)1)
+              .put((byte)9)
+              .put((byte)0)
+              .putShort((short)0);
+      }
+      ensureRemaining(8);
+      if (length != 20) {
+        buffer.putInt(PcapNgReader.OPT_ENDOFOPT);
+      }
+      buffer.putInt(length);
+      position += length;
+
+      interfaces.add(new Interface(snapshot, nano));
+      return interfaces.size() - 1;
+    }
+  }
+
+  /**
+   * Writes an Interface Description Block of the Data Link Type,
+   * snapshot length, and timestamp precision of the handle.
+   *
+   * @param handle
+   * @param name the value of the if_name option. May be null.
+   * @return the ID of the interface.
+   * @throws NotOpenException if the handle is not open.
+   * @throws IOException
+   */
+  public int addInterface(
+    PcapHandle handle, String name
+  ) throws NotOpenException, IOException {
+    if (handle == null) {
+      throw new NullPointerException("handle must not be null.");
+    }
+
+    return addInterface(
+             handle.getDlt(),
+             handle.getSnapshot(),
+             handle.getTimestampPrecision(),
+             name
+           );
+  }
+
+  /**
+   *
+   * @param interfaceId
+   * @param data
+   * @param offset
+   * @param length the number of bytes of the packet data.
+   * @param originalLength the length of the packet on the wire.
+   * @param timestampSec
+   * @param timestampNanos
+   * @throws IOException
+   */
+  public void write(
+    int interfaceId, byte[] data, int offset, int length, int originalLength,
+    long timestampSec, int timestampNanos
+  ) throws IOException {
+    if (data == null) {
+      throw new NullPointerException("data must not be null.");
+    }
+    if (offset < 0 || length < 0 || offset + length > data.length) {
+      StringBuilder sb = new StringBuilder(80);
+      sb.append("data.length: ").append(data.length)
+        .append(" offset: ").append(offset)
+        .append(" length: ").append(length);
+      throw new ArrayIndexOutOfBoundsException(sb.toString());
+    }
+    checkTimestamp(timestampSec, timestampNanos);
+
+    synchronized (thisLock) {
+      writeEnhancedPacketBlock(
+        interfaceId, data, offset, null, length, originalLength,
+        timestampSec, timestampNanos
+      );
+    }
+  }
+
+  /**
+   * Writes the remaining bytes of data as the packet data.
+   * The position of data isn't changed.
+   *
+   * @param interfaceId
+   * @param data
+   * @param originalLength the length of the packet on the wire.
+   * @param timestampSec
+   * @param timestampNanos
+   * @throws IOException
+   */
+  public void write(
+    int interfaceId, ByteBuffer data, int originalLength,
+    long timestampSec, int timestampNanos
+  ) throws IOException {
+    if (data == null) {
+      throw new NullPointerException("data must not be null.");
+    }
+    checkTimestamp(timestampSec, timestampNanos);
+
+    synchronized (thisLock) {
+      writeEnhancedPacketBlock(
+        interfaceId, null, 0, data, data.remaining(), originalLength,
+        timestampSec, timestampNanos
+      );
+    }
+  }
+
+  /**
+   *
+   * @param interfaceId
+   * @param packet
+   * @throws IOException
+   */
+  public void write(int interfaceId, RawPacket packet) throws IOException {
+    if (packet == null) {
+      throw new NullPointerException("packet must not be null.");
+    }
+
+    ByteBuffer data = packet.getData().duplicate();
+    data.clear().limit(packet.getCaptureLength());
+    write(
+      interfaceId,
+      data,
+      packet.getOriginalLength(),
+      packet.getTimestampSec(),
+      packet.getTimestampNanos()
+    );
+  }
+
+  /**
+   *
+   * @param interfaceId
+   * @param packet
+   * @throws IOException
+   */
+  public void write(int interfaceId, PcapPacket packet) throws IOException {
+    if (packet == null) {
+      throw new NullPointerException("packet must not be null.");
+    }
+
+    write(
+      interfaceId,
+      packet.getPacket(),
+      packet.getOriginalLength(),
+      packet.getTimestampSec(),
+      packet.getTimestampNanos()
+    );
+  }
+
+  /**
+   *
+   * @param interfaceId
+   * @param packet
+   * @param timestampSec
+   * @param timestampNanos
+   * @throws IOException
+   */
+  public void write(
+    int interfaceId, Packet packet, long timestampSec, int timestampNanos
+  ) throws IOException {
+    if (packet == null) {
+      throw new NullPointerException("packet must not be null.");
+    }
+    write(interfaceId, packet, packet.length(), timestampSec, timestampNanos);
+  }
+
+  private void write(
+    int interfaceId, Packet packet, int originalLength,
+    long timestampSec, int timestampNanos
+  ) throws IOException {
+    checkTimestamp(timestampSec, timestampNanos);
+
+    synchronized (thisLock) {
+      int length = packet.length();
+      if (scratch.length < length) {
+        scratch = new byte[length];
+      }
+      AbstractPacket.writeRawData(packet, scratch, 0);
+      writeEnhancedPacketBlock(
+        interfaceId, scratch, 0, null, length, originalLength,
+        timestampSec, timestampNanos
+      );
+    }
+  }
+
+  /**
+   * Writes an Interface Statistics Block which has isb_ifrecv, isb_ifdrop,
+   * and isb_osdrop options.
+   *
+   * @param interfaceId
+   * @param stat statistics got by {@link PcapHandle#getStat()}.
+   * @param timestampSec
+   * @param timestampNanos
+   * @throws IOException
+   */
+  public void writeStatistics(
+    int interfaceId, PcapStat stat, long timestampSec, int timestampNanos
+  ) throws IOException {
+    if (stat == null) {
+      throw new NullPointerException("stat must not be null.");
+    }
+    checkTimestamp(timestampSec, timestampNanos);
+
+    int length = 24 + 12 * 3 + 4;
+    synchronized (thisLock) {
+      ensureOpen();
+      Interface iface = getInterface(interfaceId);
+
+      ensureRemaining(length);
+      long ts = iface.toTimestamp(timestampSec, timestampNanos);
+      buffer.putInt(PcapNgReader.INTERFACE_STATISTICS_BLOCK)
+            .putInt(length)
+            .putInt(interfaceId)
+            .putInt((int)(ts >>> 32))
+            .putInt((int)ts);
+      buffer.putShort((short)PcapNgReader.ISB_IFRECV)
+            .putShort((short)8)
+            .putLong(stat.getNumPacketsReceived());
+      buffer.putShort((short)PcapNgReader.ISB_IFDROP)
+            .putShort((short)8)
+            .putLong(stat.getNumPacketsDroppedByIf());
+      buffer.putShort((short)PcapNgReader.ISB_OSDROP)
+            .putShort((short)8)
+            .putLong(stat.getNumPacketsDropped());
+      buffer.putInt(PcapNgReader.OPT_ENDOFOPT)
+            .putInt(length);
+      position += length;
+    }
+  }
+
+  private void checkTimestamp(long timestampSec, int timestampNanos) {
+    if (timestampSec < 0) {
+      throw new IllegalArgumentException(
+              "timestampSec must not be negative: " + timestampSec
+            );
+    }
+    if (timestampNanos < 0 || timestampNanos >= 1000000000) {
+      throw new IllegalArgumentException(
+              "timestampNanos must be between 0 and 999999999: " + timestampNanos
+            );
+    }
+  }
+
+  private void ensureOpen() throws IOException {
+    if (!open) {
+      throw new IOException("Already closed.");
+    }
+  }
+
+  private Interface getInterface(int interfaceId) {
+    if (interfaceId < 0 || interfaceId >= interfaces.size()) {
+      throw new IllegalArgumentException("Unknown interface ID: " + interfaceId);
+    }
+    return interfaces.get(interfaceId);
+  }
+
+  // Either array or byteBuffer is given.
+  private void writeEnhancedPacketBlock(
+    int interfaceId, byte[] array, int offset, ByteBuffer byteBuffer,
+    int length, int originalLength, long timestampSec, int timestampNanos
+  ) throws IOException {
+    ensureOpen();
+    Interface iface = getInterface(interfaceId);
+
+    int caplen = Math.min(length, iface.snapshot);
+    int blockLength = 32 + pad(caplen);
+    long ts = iface.toTimestamp(timestampSec, timestampNanos);
+
+    ensureRemaining(28);
+    buffer.putInt(PcapNgReader.ENHANCED_PACKET_BLOCK)
+          .putInt(blockLength)
+          .putInt(interfaceId)
+          .putInt((int)(ts >>> 32))
+          .putInt((int)ts)
+          .putInt(caplen)
+          .putInt(originalLength);
+
+    if (byteBuffer == null) {
+      put(array, offset, caplen);
+    }
+    else {
+      ByteBuffer data = byteBuffer.duplicate();
+      data.limit(data.position() + caplen);
+      while (data.hasRemaining()) {
+        if (!buffer.hasRemaining()) {
+          drain();
+        }
+        if (data.remaining() <= buffer.remaining()) {
+          buffer.put(data);
+        }
+        else {
+          int limit = data.limit();
+          data.limit(data.position() + buffer.remaining());
+          buffer.put(data);
+          data.limit(limit);
+        }
+      }
+    }
+    putPadding(caplen);
+
+    ensureRemaining(4);
+    buffer.putInt(blockLength);
+    position += blockLength;
+  }
+
+  private void put(byte[] array, int offset, int length) throws IOException {
+    int pos = offset;
+    int end = offset + length;
+    while (pos < end) {
+      if (!buffer.hasRemaining()) {
+        drain();
+      }
+      int n = Math.min(end - pos, buffer.remaining());
+      buffer.put(array, pos, n);
+      pos += n;
+    }
+  }
+
+  private void putPadding(int length) throws IOException {
+    int paddingLength = pad(length) - length;
+    ensureRemaining(paddingLength);
+    for (int i = 0; i < paddingLength; i++) {
+      buffer.put((byte)0);
+    }
+  }
+
+  private static int pad(int length) {
+    return (length + 3) & ~3;
+  }
+
+  private void ensureRemaining(int length) throws IOException {
+    if (buffer.remaining() < length) {
+      drain();
+    }
+  }
+
+  // Writes the buffered bytes to the file.
+  private void drain() throws IOException {
+    buffer.flip();
+    try {
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+    } finally {
+      buffer.clear();
+    }
+  }
+
+  /**
+   * Writes the buffered blocks to the file.
+   *
+   * @throws IOException
+   */
+  public void flush() throws IOException {
+    synchronized (thisLock) {
+      ensureOpen();
+      drain();
+    }
+  }
+
+  /**
+   * Writes the buffered blocks to the file and closes it.
+   *
+   * @throws IOException
+   */
+  public void close() throws IOException {
+    synchronized (thisLock) {
+      if (!open) {
+        logger.warn("Already closed.");
+        return;
+      }
+      open = false;
+
+      try {
+        drain();
+      } finally {
+        out.close();
+      }
+    }
+
+    logger.info("Closed.");
+  }
+
+  private static final class Interface {
+
+    private final int snapshot;
+    private final boolean nano;
+
+    private Interface(int snapshot, boolean nano) {
+      this.snapshot = snapshot;
+      this.nano = nano;
+    }
+
+    // Converts a timestamp into the units given by if_tsresol.
+    private long toTimestamp(long timestampSec, int timestampNanos) {
+      if (nano) {
+        return timestampSec * 1000000000L + timestampNanos;
+      }
+      else {
+        return timestampSec * 1000000L + timestampNanos / 1000;
+      }
+    }
+
+  }
+
+}
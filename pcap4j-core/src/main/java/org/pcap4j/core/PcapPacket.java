@@ -0,0 +1,138 @@
+/*_##########################################################################
+  _##
+  _##  Copyright (C) 2013  Kaito Yamada
+  _##
+  _##########################################################################
+*/
+
+package org.pcap4j.core;
+
+import org.pcap4j.core.PcapHandle.TimestampPrecision;
+import org.pcap4j.packet.Packet;
+
+/**
+ * A captured packet with its pcap header.
+ * Unlike {@link PcapHandle#getTimestampInts()}, which depends on
+ * the thread which captured the packet, an object of this class carries
+ * the timestamp along with the packet, so it can be passed to other threads.
+ *
+ * @author Kaito Yamada
+ * @since pcap4j 1.0.1
+ */
+public final class PcapPacket {
+
+  private final Packet packet;
+  private final long timestampSec;
+  private final int timestampNanos;
+  private final int captureLength;
+  private final int originalLength;
+  private final TimestampPrecision timestampPrecision;
+
+  /**
+   * The timestamp is regarded as having nanosecond precision.
+   *
+   * @param packet
+   * @param timestampSec
+   * @param timestampNanos
+   * @param captureLength
+   * @param originalLength
+   */
+  public PcapPacket(
+    Packet packet, long timestampSec, int timestampNanos,
+    int captureLength, int originalLength
+  ) {
+    this(
+      packet, timestampSec, timestampNanos,
+      captureLength, originalLength, TimestampPrecision.NANO
+    );
+  }
+
+  /**
+   *
+   * @param packet
+   * @param timestampSec
+   * @param timestampNanos
+   * @param captureLength
+   * @param originalLength
+   * @param timestampPrecision
+   */
+  public PcapPacket(
+    Packet packet, long timestampSec, int timestampNanos,
+    int captureLength, int originalLength, TimestampPrecision timestampPrecision
+  ) {
+    if (packet == null || timestampPrecision == null) {
+      StringBuilder sb = new StringBuilder();
+      sb.append("packet: ").append(packet)
+        .append(" timestampPrecision: ").append(timestampPrecision);
+      throw new NullPointerException(sb.toString());
+    }
+
+    this.packet = packet;
+    this.timestampSec = timestampSec;
+    this.timestampNanos = timestampNanos;
+    this.captureLength = captureLength;
+    this.originalLength = originalLength;
+    this.timestampPrecision = timestampPrecision;
+  }
+
+  /**
+   *
+   * @return the packet.
+   */
+  public Packet getPacket() { return packet; }
+
+  /**
+   *
+   * @return an integer part of the timestamp of the packet.
+   */
+  public long getTimestampSec() { return timestampSec; }
+
+  /**
+   *
+   * @return a fraction part of the timestamp of the packet.
+   *         The value represents the number of nanoseconds.
+   *         Its precision is given by {@link #getTimestampPrecision()}.
+   */
+  public int getTimestampNanos() { return timestampNanos; }
+
+  /**
+   *
+   * @return the precision of the timestamp of the packet.
+   */
+  public TimestampPrecision getTimestampPrecision() { return timestampPrecision; }
+
+  /**
+   *
+   * @return a fraction part of the timestamp of the packet.
+   *         The value represents the number of microseconds.
+   */
+  public int getTimestampMicros() { return timestampNanos / 1000; }
+
+  /**
+   *
+   * @return the number of bytes of the packet data actually captured.
+   */
+  public int getCaptureLength() { return captureLength; }
+
+  /**
+   *
+   * @return the length of the packet on the wire.
+   */
+  public int getOriginalLength() { return originalLength; }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder(200);
+
+    sb.append("Timestamp: [");
+    RawPacket.appendTimestamp(sb, timestampSec, timestampNanos, timestampPrecision);
+    sb.append("] Captured length: [").append(captureLength)
+      .append("] Original length: [").append(originalLength)
+      .append("]")
+      .append(System.getProperty("line.separator"))
+      .append(packet);
+
+    return sb.toString();
+  }
+
+}
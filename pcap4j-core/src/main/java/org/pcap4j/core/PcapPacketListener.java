@@ -0,0 +1,22 @@
+/*_##########################################################################
+  _##
+  _##  Copyright (C) 2013  Kaito Yamada
+  _##
+  _##########################################################################
+*/
+
+package org.pcap4j.core;
+
+/**
+ * @author Kaito Yamada
+ * @since pcap4j 1.0.1
+ */
+public interface PcapPacketListener {
+
+  /**
+   *
+   * @param packet
+   */
+  public void gotPacket(PcapPacket packet);
+
+}
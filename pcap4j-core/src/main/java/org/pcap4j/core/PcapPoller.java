@@ -0,0 +1,341 @@
+/*_##########################################################################
+  _##
+  _##  Copyright (C) 2013  Kaito Yamada
+  _##
+  _##########################################################################
+*/
+
+package org.pcap4j.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import org.pcap4j.core.NativeMappings.PcapLibrary;
+import org.pcap4j.core.PcapHandle.BlockingMode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import com.sun.jna.Memory;
+import com.sun.jna.Native;
+import com.sun.jna.NativeLong;
+
+/**
+ * Captures packets from many PcapHandles in one thread.
+ * Each registered handle is put into non-blocking mode unless it reads a savefile,
+ * which is always readable and is unregistered at its end, and {@link #poll(int, int)}
+ * waits for any of their selectable file descriptors to become readable
+ * with poll(2) and drains the ready handles with pcap_dispatch().
+ * The result of pcap_dispatch() for each handle is kept in its {@link Registration}
+ * as a status code instead of being thrown as an exception,
+ * and a handle whose status is negative is unregistered.
+ *
+ * <pre>
+ * PcapPoller poller = new PcapPoller();
+ * for (PcapHandle handle: handles) {
+ *   poller.register(handle, listener);
+ * }
+ * while (running) {
+ *   poller.poll(100, 256);
+ * }
+ * </pre>
+ *
+ * Handles must support {@link PcapHandle#getSelectableFd()}, which excludes Windows.
+ * This class is not thread-safe except for {@link Registration#cancel()}.
+ *
+ * @author Kaito Yamada
+ * @since pcap4j 1.0.1
+ */
+public final class PcapPoller {
+
+  private static final Logger logger = LoggerFactory.getLogger(PcapPoller.class);
+
+  /**
+   * The status of a registration whose handle got an error in pcap_dispatch().
+   */
+  public static final int ERROR = -1;
+
+  /**
+   * The status of a registration whose handle was broken by
+   * {@link PcapHandle#breakLoop()}.
+   */
+  public static final int BROKEN = -2;
+
+  /**
+   * The status of a registration whose handle was closed.
+   */
+  public static final int CLOSED = -3;
+
+  /**
+   * The status of a registration cancelled by {@link Registration#cancel()}.
+   */
+  public static final int CANCELLED = -4;
+
+  /**
+   * The status of a registration whose handle reads a savefile
+   * and reached its end.
+   */
+  public static final int EOF = -5;
+
+  private final List<Registration> registrations = new ArrayList<Registration>();
+  private Memory pollfds = null;
+  private volatile boolean changed = false;
+
+  /**
+   * Puts the handle into non-blocking mode and registers it.
+   * A handle reading a savefile is registered as it is,
+   * since a savefile can't be put into non-blocking mode.
+   *
+   * @param handle
+   * @param listener the listener to which packets captured by the handle are given
+   *        in the thread calling {@link #poll(int, int)}.
+   *        See {@link PcapHandle#loop(int, RawPacketListener)}.
+   * @return a new Registration object.
+   * @throws PcapNativeException if the handle has no selectable file descriptor.
+   * @throws NotOpenException
+   */
+  public Registration register(
+    PcapHandle handle, RawPacketListener listener
+  ) throws PcapNativeException, NotOpenException {
+    if (handle == null || listener == null) {
+      StringBuilder sb = new StringBuilder();
+      sb.append("handle: ").append(handle)
+        .append(" listener: ").append(listener);
+      throw new NullPointerException(sb.toString());
+    }
+
+    int fd = handle.getSelectableFd();
+    boolean offline = handle.isOffline();
+    if (!offline) {
+      handle.setBlockingMode(BlockingMode.NONBLOCKING);
+    }
+
+    Registration reg = new Registration(handle, fd, offline, listener);
+    registrations.add(reg);
+    changed = true;
+    return reg;
+  }
+
+  /**
+   *
+   * @return the registrations which haven't been unregistered yet.
+   */
+  public List<Registration> getRegistrations() {
+    return Collections.unmodifiableList(new ArrayList<Registration>(registrations));
+  }
+
+  /**
+   * Waits for any of the registered handles to become readable
+   * and calls pcap_dispatch() for each of the ready handles.
+   * The result of pcap_dispatch() is set to the status of the registration.
+   * Registrations whose status is negative are unregistered before this returns.
+   *
+   * @param timeoutMillis the max time to wait in milliseconds.
+   *        0 doesn't wait, and a negative value waits indefinitely.
+   * @param packetCount the max number of packets to process per handle.
+   *        -1 processes all the packets in a buffer of each handle.
+   *        A handle which processed packetCount packets may have more packets
+   *        left in the buffer of libpcap, which don't make its file descriptor
+   *        readable, so the next call dispatches it again without waiting.
+   * @return the number of packets processed,
+   *         which is 0 if the timeout expired or the wait was interrupted by a signal.
+   * @throws PcapNativeException if poll(2) failed.
+   */
+  public int poll(int timeoutMillis, int packetCount) throws PcapNativeException {
+    if (changed) {
+      changed = false;
+      removeUnregistered();
+      prepare();
+    }
+    int numFds = registrations.size();
+    if (numFds == 0) {
+      return 0;
+    }
+
+    boolean anyPending = false;
+    for (Registration reg: registrations) {
+      if (reg.pending) {
+        anyPending = true;
+        break;
+      }
+    }
+
+    int rc;
+    try {
+      rc = PcapLibrary.INSTANCE.poll(
+             pollfds, new NativeLong(numFds), anyPending ? 0 : timeoutMillis
+           );
+    } catch (UnsatisfiedLinkError e) {
+      throw new PcapNativeException("poll is not supported on this platform.");
+    }
+    if (rc < 0) {
+      int errno = Native.getLastError();
+      if (errno == NativeMappings.EINTR) {
+        return 0;
+      }
+      throw new PcapNativeException(
+              "Error occured in poll(): "
+                + NativeMappings.pcap_strerror(errno).getString(0),
+              rc
+            );
+    }
+    if (rc == 0 && !anyPending) {
+      return 0;
+    }
+
+    int numPackets = 0;
+    for (int i = 0; i < numFds; i++) {
+      long offset = (long)i * NativeMappings.POLLFD_SIZE;
+      short revents = pollfds.getShort(offset + 6);
+      Registration reg = registrations.get(i);
+      if (revents == 0 && !reg.pending) {
+        continue;
+      }
+      pollfds.setShort(offset + 6, (short)0);
+
+      if (reg.status == CANCELLED) {
+        changed = true;
+        continue;
+      }
+      if ((revents & NativeMappings.POLLNVAL) != 0) {
+        reg.status = CLOSED;
+      }
+      else {
+        // On POLLERR or POLLHUP, pcap_dispatch() returns the error.
+        reg.dispatch(packetCount);
+      }
+
+      if (reg.status >= 0) {
+        numPackets += reg.status;
+      }
+      else {
+        changed = true;
+      }
+    }
+
+    if (changed) {
+      removeUnregistered();
+    }
+    return numPackets;
+  }
+
+  private void removeUnregistered() {
+    for (Iterator<Registration> itr = registrations.iterator(); itr.hasNext();) {
+      Registration reg = itr.next();
+      if (reg.status < 0) {
+        itr.remove();
+        if (logger.isDebugEnabled()) {
+          logger.debug("Unregistered " + reg);
+        }
+      }
+    }
+  }
+
+  private void prepare() {
+    int numFds = registrations.size();
+    long size = (long)Math.max(numFds, 1) * NativeMappings.POLLFD_SIZE;
+    if (pollfds == null || pollfds.size() < size) {
+      pollfds = new Memory(size);
+    }
+    for (int i = 0; i < numFds; i++) {
+      long offset = (long)i * NativeMappings.POLLFD_SIZE;
+      pollfds.setInt(offset, registrations.get(i).fd);
+      pollfds.setShort(offset + 4, NativeMappings.POLLIN);
+      pollfds.setShort(offset + 6, (short)0);
+    }
+  }
+
+  /**
+   * A handle registered with a PcapPoller.
+   *
+   * @author Kaito Yamada
+   * @since pcap4j 1.0.1
+   */
+  public final class Registration {
+
+    private final PcapHandle handle;
+    private final int fd;
+    private final boolean offline;
+    private final NativeMappings.pcap_handler_raw callback;
+    private volatile int status = 0;
+    private volatile String error = null;
+    // True if the last pcap_dispatch() may have left packets in the buffer.
+    private boolean pending = false;
+
+    private Registration(
+      PcapHandle handle, int fd, boolean offline, RawPacketListener listener
+    ) {
+      this.handle = handle;
+      this.fd = fd;
+      this.offline = offline;
+      this.callback = handle.newRawPacketHandler(listener);
+    }
+
+    /**
+     *
+     * @return handle
+     */
+    public PcapHandle getHandle() { return handle; }
+
+    /**
+     *
+     * @return the number of packets processed by the last pcap_dispatch() call
+     *         for this handle, or {@link PcapPoller#ERROR},
+     *         {@link PcapPoller#BROKEN}, {@link PcapPoller#CLOSED},
+     *         {@link PcapPoller#CANCELLED}, or {@link PcapPoller#EOF}.
+     */
+    public int getStatus() { return status; }
+
+    /**
+     *
+     * @return the error message of the handle if the status is
+     *         {@link PcapPoller#ERROR}; otherwise null.
+     */
+    public String getError() { return error; }
+
+    /**
+     * Unregisters this handle. The handle is not closed
+     * and keeps its blocking mode.
+     * This can be called from any thread, including in the listener.
+     */
+    public void cancel() {
+      status = CANCELLED;
+      changed = true;
+    }
+
+    private void dispatch(int packetCount) {
+      int rc;
+      try {
+        rc = handle.dispatchRaw(packetCount, callback);
+      } catch (NotOpenException e) {
+        rc = CLOSED;
+      }
+      if (status == CANCELLED) {
+        return;
+      }
+      pending = packetCount > 0 && rc >= packetCount;
+      if (rc == ERROR) {
+        error = handle.getError();
+      }
+      else if (rc == 0 && offline) {
+        // A savefile is always readable, and 0 means no more packets.
+        rc = EOF;
+      }
+      status = rc;
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder sb = new StringBuilder(100);
+      sb.append("handle: [").append(handle)
+        .append("] fd: [").append(fd)
+        .append("] status: [").append(status)
+        .append("]");
+      if (error != null) {
+        sb.append(" error: [").append(error).append("]");
+      }
+      return sb.toString();
+    }
+
+  }
+
+}
@@ -13,7 +13,9 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import org.pcap4j.core.BpfProgram.BpfCompileMode;
+import org.pcap4j.core.PcapHandle.TimestampPrecision;
 import org.pcap4j.core.NativeMappings.PcapErrbuf;
+import org.pcap4j.core.NativeMappings.PcapLibrary;
 import org.pcap4j.core.NativeMappings.bpf_program;
 import org.pcap4j.core.NativeMappings.pcap_if;
 import org.pcap4j.packet.namednumber.DataLinkType;
@@ -221,6 +223,45 @@ public final class Pcaps {
     return new PcapHandle(handle);
   }
 
+  /**
+   * A wrapper method for pcap_open_offline_with_tstamp_precision(),
+   * which is available in libpcap 1.5.0 or later.
+   *
+   * @param filePath "-" means stdin
+   * @param precision the precision of timestamps of packets read from the file.
+   *        If the file has timestamps with lower precision, they are scaled.
+   * @return a PcapHandle
+   * @throws PcapNativeException
+   */
+  public static PcapHandle openOffline(
+    String filePath, TimestampPrecision precision
+  ) throws PcapNativeException {
+    if (filePath == null || precision == null) {
+      StringBuilder sb = new StringBuilder();
+      sb.append("filePath: ").append(filePath)
+        .append(" precision: ").append(precision);
+      throw new NullPointerException(sb.toString());
+    }
+
+    PcapErrbuf errbuf = new PcapErrbuf();
+    Pointer handle;
+    try {
+      handle = PcapLibrary.INSTANCE.pcap_open_offline_with_tstamp_precision(
+                 filePath, precision.getValue(), errbuf
+               );
+    } catch (UnsatisfiedLinkError e) {
+      throw new PcapNativeException(
+              "pcap_open_offline_with_tstamp_precision is not supported by the pcap library."
+            );
+    }
+
+    if (handle == null || errbuf.length() != 0) {
+      throw new PcapNativeException(errbuf.toString());
+    }
+
+    return new PcapHandle(handle);
+  }
+
   /**
    *
    * @param dlt
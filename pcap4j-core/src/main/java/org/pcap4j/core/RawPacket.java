@@ -0,0 +1,229 @@
+/*_##########################################################################
+  _##
+  _##  Copyright (C) 2013  Kaito Yamada
+  _##
+  _##########################################################################
+*/
+
+package org.pcap4j.core;
+
+import java.nio.ByteBuffer;
+import org.pcap4j.core.PcapHandle.TimestampPrecision;
+import org.pcap4j.packet.Packet;
+import org.pcap4j.packet.factory.PacketFactories;
+import org.pcap4j.packet.namednumber.DataLinkType;
+
+/**
+ * A captured packet which is not decoded.
+ * An object of this class which is given to a
+ * {@link org.pcap4j.core.RawPacketListener RawPacketListener}
+ * is reused for every packet captured by the loop and
+ * its data is a read-only view of a buffer owned by libpcap,
+ * which means the data is valid only until the listener returns.
+ * Use {@link #copy()} to retain it.
+ * The view object is reused while libpcap hands packets at the same address,
+ * e.g. when reading a savefile; otherwise a new one is created per packet,
+ * though the packet data itself is never copied.
+ *
+ * @author Kaito Yamada
+ * @since pcap4j 1.0.1
+ */
+public final class RawPacket {
+
+  private final boolean detached;
+  private DataLinkType dlt;
+  private ByteBuffer data;
+  private int captureLength;
+  private int originalLength;
+  private long timestampSec;
+  private int timestampNanos;
+  private TimestampPrecision timestampPrecision;
+
+  // for a pooled packet, which owns a buffer reused for each fill().
+  private byte[] buffer;
+
+  RawPacket() {
+    this.detached = false;
+  }
+
+  private RawPacket(RawPacket packet) {
+    byte[] rawData = packet.getRawData();
+
+    this.detached = true;
+    this.dlt = packet.dlt;
+    this.data = ByteBuffer.wrap(rawData).asReadOnlyBuffer();
+    this.captureLength = rawData.length;
+    this.originalLength = packet.originalLength;
+    this.timestampSec = packet.timestampSec;
+    this.timestampNanos = packet.timestampNanos;
+    this.timestampPrecision = packet.timestampPrecision;
+  }
+
+  void set(
+    DataLinkType dlt, ByteBuffer data, int originalLength,
+    long timestampSec, int timestampNanos, TimestampPrecision timestampPrecision
+  ) {
+    this.dlt = dlt;
+    this.data = data;
+    this.captureLength = data.limit();
+    this.originalLength = originalLength;
+    this.timestampSec = timestampSec;
+    this.timestampNanos = timestampNanos;
+    this.timestampPrecision = timestampPrecision;
+  }
+
+  /**
+   * Copies the given packet into the buffer this object owns,
+   * which is grown if it is too small.
+   *
+   * @param packet
+   */
+  void fill(RawPacket packet) {
+    int caplen = packet.captureLength;
+    if (buffer == null || buffer.length < caplen) {
+      buffer = new byte[caplen];
+      data = ByteBuffer.wrap(buffer).asReadOnlyBuffer();
+    }
+
+    ByteBuffer src = packet.data.duplicate();
+    src.clear().limit(caplen);
+    src.get(buffer, 0, caplen);
+    data.clear();
+    data.limit(caplen);
+
+    this.dlt = packet.dlt;
+    this.captureLength = caplen;
+    this.originalLength = packet.originalLength;
+    this.timestampSec = packet.timestampSec;
+    this.timestampNanos = packet.timestampNanos;
+    this.timestampPrecision = packet.timestampPrecision;
+  }
+
+  /**
+   *
+   * @return the Data Link Type of the packet.
+   */
+  public DataLinkType getDlt() { return dlt; }
+
+  /**
+   * The returned buffer's position is 0 and its limit is the capture length
+   * when this object is given to a listener.
+   *
+   * @return a read-only view of the packet data.
+   */
+  public ByteBuffer getData() { return data; }
+
+  /**
+   *
+   * @return the number of bytes of the packet data actually captured.
+   */
+  public int getCaptureLength() { return captureLength; }
+
+  /**
+   *
+   * @return the length of the packet on the wire.
+   */
+  public int getOriginalLength() { return originalLength; }
+
+  /**
+   *
+   * @return an integer part of the timestamp of the packet.
+   */
+  public long getTimestampSec() { return timestampSec; }
+
+  /**
+   *
+   * @return a fraction part of the timestamp of the packet.
+   *         The value represents the number of nanoseconds.
+   *         Its precision is given by {@link #getTimestampPrecision()}.
+   */
+  public int getTimestampNanos() { return timestampNanos; }
+
+  /**
+   *
+   * @return the precision of the timestamp of the packet,
+   *         which is that of the PcapHandle or the file the packet was read from.
+   */
+  public TimestampPrecision getTimestampPrecision() { return timestampPrecision; }
+
+  /**
+   *
+   * @return a fraction part of the timestamp of the packet.
+   *         The value represents the number of microseconds.
+   */
+  public int getTimestampMicros() { return timestampNanos / 1000; }
+
+  /**
+   *
+   * @return true if this object owns its data and
+   *         so can be retained; false otherwise.
+   */
+  public boolean isDetached() { return detached; }
+
+  /**
+   *
+   * @return a new byte array containing the packet data.
+   */
+  public byte[] getRawData() {
+    ByteBuffer src = data.duplicate();
+    src.clear().limit(captureLength);
+    byte[] rawData = new byte[captureLength];
+    src.get(rawData);
+    return rawData;
+  }
+
+  /**
+   *
+   * @return a new RawPacket object which owns a copy of the packet data.
+   */
+  public RawPacket copy() {
+    return new RawPacket(this);
+  }
+
+  /**
+   * Decodes the packet data.
+   *
+   * @return a new Packet object.
+   */
+  public Packet decode() {
+    return PacketFactories.getFactory(Packet.class, DataLinkType.class)
+             .newInstance(getRawData(), dlt);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder(120);
+
+    sb.append("Link type: [").append(dlt)
+      .append("] Timestamp: [");
+    appendTimestamp(sb, timestampSec, timestampNanos, timestampPrecision);
+    sb.append("] Captured length: [").append(getCaptureLength())
+      .append("] Original length: [").append(originalLength)
+      .append("]");
+
+    return sb.toString();
+  }
+
+  // Appends a timestamp as seconds with a fraction part zero-padded to
+  // 6 digits in microsecond precision, or 9 digits in nanosecond precision.
+  static void appendTimestamp(
+    StringBuilder sb, long sec, int nanos, TimestampPrecision precision
+  ) {
+    sb.append(sec).append(".");
+    String fraction;
+    int numDigits;
+    if (precision == TimestampPrecision.MICRO) {
+      fraction = String.valueOf(nanos / 1000);
+      numDigits = 6;
+    }
+    else {
+      fraction = String.valueOf(nanos);
+      numDigits = 9;
+    }
+    for (int i = fraction.length(); i < numDigits; i++) {
+      sb.append('0');
+    }
+    sb.append(fraction);
+  }
+
+}
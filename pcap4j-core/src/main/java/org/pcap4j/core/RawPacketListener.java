@@ -0,0 +1,26 @@
+/*_##########################################################################
+  _##
+  _##  Copyright (C) 2013  Kaito Yamada
+  _##
+  _##########################################################################
+*/
+
+package org.pcap4j.core;
+
+/**
+ * @author Kaito Yamada
+ * @since pcap4j 1.0.1
+ */
+public interface RawPacketListener {
+
+  /**
+   * The packet object and its data are reused by the loop
+   * after this method returns.
+   * Call {@link org.pcap4j.core.RawPacket#copy() packet.copy()}
+   * to retain the packet.
+   *
+   * @param packet
+   */
+  public void gotPacket(RawPacket packet);
+
+}
@@ -7,10 +7,17 @@
 
 package org.pcap4j.packet;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import org.pcap4j.util.ByteArrays;
+import org.pcap4j.util.ChecksumAccumulator;
 import org.pcap4j.util.LazyValue;
 import org.pcap4j.util.LazyValue.BuildValueCommand;
 
@@ -25,57 +32,24 @@ public abstract class AbstractPacket implements Packet {
    */
   private static final long serialVersionUID = -3016622134481071576L;
 
-  private final LazyValue<Integer> lengthCache;
-  private final LazyValue<byte[]> rawDataCache;
-  private final LazyValue<String> hexStringCache;
-  private final LazyValue<String> stringCache;
-  private final LazyValue<Integer> hashCodeCache;
+  // The serialized form of older versions, in which the caches were LazyValues.
+  // Kept so that packets can be exchanged with them in both directions.
+  private static final ObjectStreamField[] serialPersistentFields
+    = newSerialPersistentFields();
+
+  // Caches of values built on demand. They are built without locking
+  // since they are immutable and so it doesn't matter
+  // if racing threads build them more than once.
+  private transient int cachedLength;
+  private transient volatile byte[] cachedRawData;
+  private transient volatile String cachedHexString;
+  private transient volatile String cachedString;
+  private transient int cachedHashCode;
 
   /**
    *
    */
-  public AbstractPacket() {
-    this.lengthCache
-    = new LazyValue<Integer>(
-        new BuildValueCommand<Integer>() {
-          public Integer buildValue() {
-            return calcLength();
-          }
-        }
-      );
-    this.rawDataCache
-      = new LazyValue<byte[]>(
-          new BuildValueCommand<byte[]>() {
-            public byte[] buildValue() {
-              return buildRawData();
-            }
-          }
-        );
-    this.hexStringCache
-      = new LazyValue<String>(
-          new BuildValueCommand<String>() {
-            public String buildValue() {
-              return buildHexString();
-            }
-          }
-        );
-    this.stringCache
-      = new LazyValue<String>(
-          new BuildValueCommand<String>() {
-            public String buildValue() {
-              return buildString();
-            }
-          }
-        );
-    this.hashCodeCache
-      = new LazyValue<Integer>(
-          new BuildValueCommand<Integer>() {
-            public Integer buildValue() {
-              return calcHashCode();
-            }
-          }
-        );
-  }
+  public AbstractPacket() {}
 
   // /* must implement if use PropertiesBasedPacketFactory */
   // public static Packet newPacket(byte[] rawData);
@@ -102,7 +76,12 @@ public abstract class AbstractPacket implements Packet {
   }
 
   public int length() {
-    return lengthCache.getValue();
+    int length = cachedLength;
+    if (length == 0) {
+      length = calcLength();
+      cachedLength = length;
+    }
+    return length;
   }
 
   /**
@@ -116,29 +95,104 @@ public abstract class AbstractPacket implements Packet {
 
     int dstPos = 0;
     if (header != null) {
-      System.arraycopy(
-        getHeader().getRawData(), 0, rd, 0, header.length()
-      );
+      writeRawData(header, rd, dstPos);
       dstPos += header.length();
     }
     if (payload != null) {
-      System.arraycopy(
-        getPayload().getRawData(), 0, rd, dstPos, payload.length()
-      );
+      writeRawData(payload, rd, dstPos);
       dstPos += payload.length();
     }
 
     return rd;
   }
 
+  // Returns the cached raw data itself, which must not be modified.
+  byte[] getRawDataRef() {
+    byte[] rawData = cachedRawData;
+    if (rawData == null) {
+      rawData = buildRawData();
+      cachedRawData = rawData;
+    }
+    return rawData;
+  }
+
   public byte[] getRawData() {
-    byte[] rawData = rawDataCache.getValue();
+    byte[] rawData = getRawDataRef();
 
     byte[] copy = new byte[rawData.length];
     System.arraycopy(rawData, 0, copy, 0, copy.length);
     return copy;
   }
 
+  /**
+   * Copies the raw data into the given array without making
+   * an intermediate copy.
+   *
+   * @param dst the array to write to.
+   *            Its length must be at least offset + {@link #length()}.
+   * @param offset the position in dst to write the first byte.
+   */
+  public void writeTo(byte[] dst, int offset) {
+    byte[] rawData = getRawDataRef();
+    System.arraycopy(rawData, 0, dst, offset, rawData.length);
+  }
+
+  /**
+   * Copies the raw data of the packet into the given array.
+   * The raw data of an AbstractPacket is written by {@link #writeTo(byte[], int)}
+   * without an intermediate copy, and that of the other packets is copied
+   * from {@link Packet#getRawData()}.
+   *
+   * @param packet
+   * @param dst the array to write to.
+   *            Its length must be at least offset + the length of the raw data.
+   * @param offset the position in dst to write the first byte.
+   */
+  public static void writeRawData(Packet packet, byte[] dst, int offset) {
+    if (packet instanceof AbstractPacket) {
+      ((AbstractPacket)packet).writeTo(dst, offset);
+    }
+    else {
+      byte[] rawData = packet.getRawData();
+      System.arraycopy(rawData, 0, dst, offset, rawData.length);
+    }
+  }
+
+  /**
+   * Copies the raw data of the header into the given array.
+   * See {@link #writeRawData(Packet, byte[], int)}.
+   *
+   * @param header
+   * @param dst the array to write to.
+   *            Its length must be at least offset + the length of the raw data.
+   * @param offset the position in dst to write the first byte.
+   */
+  public static void writeRawData(Header header, byte[] dst, int offset) {
+    if (header instanceof AbstractHeader) {
+      ((AbstractHeader)header).writeTo(dst, offset);
+    }
+    else {
+      byte[] rawData = header.getRawData();
+      System.arraycopy(rawData, 0, dst, offset, rawData.length);
+    }
+  }
+
+  /**
+   * Adds the raw data of the packet to the accumulator.
+   * The raw data of an AbstractPacket is read in place without being copied.
+   *
+   * @param acc
+   * @param packet
+   */
+  static void updateChecksum(ChecksumAccumulator acc, Packet packet) {
+    if (packet instanceof AbstractPacket) {
+      acc.update(((AbstractPacket)packet).getRawDataRef());
+    }
+    else {
+      acc.update(packet.getRawData());
+    }
+  }
+
   public Iterator<Packet> iterator() {
     return new PacketIterator(this);
   }
@@ -172,7 +226,7 @@ public abstract class AbstractPacket implements Packet {
    * @return a hex string representation of the object.
    */
   protected String buildHexString() {
-    return ByteArrays.toHexString(getRawData(), " ");
+    return ByteArrays.toHexString(getRawDataRef(), " ");
   }
 
   /**
@@ -180,7 +234,12 @@ public abstract class AbstractPacket implements Packet {
    * @return a hex string representation of the object.
    */
  public String toHexString() {
-   return hexStringCache.getValue();
+   String hexString = cachedHexString;
+   if (hexString == null) {
+     hexString = buildHexString();
+     cachedHexString = hexString;
+   }
+   return hexString;
  }
 
  /**
@@ -202,7 +261,12 @@ public abstract class AbstractPacket implements Packet {
 
   @Override
   public String toString() {
-    return stringCache.getValue();
+    String string = cachedString;
+    if (string == null) {
+      string = buildString();
+      cachedString = string;
+    }
+    return string;
   }
 
   @Override
@@ -239,12 +303,63 @@ public abstract class AbstractPacket implements Packet {
    * @return a hash code value for the object.
    */
   protected int calcHashCode() {
-    return Arrays.hashCode(getRawData());
+    return Arrays.hashCode(getRawDataRef());
   }
 
   @Override
   public int hashCode() {
-    return hashCodeCache.getValue();
+    int hashCode = cachedHashCode;
+    if (hashCode == 0) {
+      hashCode = calcHashCode();
+      cachedHashCode = hashCode;
+    }
+    return hashCode;
+  }
+
+  private void writeObject(ObjectOutputStream out) throws IOException {
+    writeCaches(
+      out, length(), getRawDataRef(), toHexString(), toString(), hashCode()
+    );
+  }
+
+  private void readObject(
+    ObjectInputStream in
+  ) throws IOException, ClassNotFoundException {
+    // The caches are built again on demand.
+    in.readFields();
+  }
+
+  private static ObjectStreamField[] newSerialPersistentFields() {
+    return new ObjectStreamField[] {
+             new ObjectStreamField("lengthCache", LazyValue.class),
+             new ObjectStreamField("rawDataCache", LazyValue.class),
+             new ObjectStreamField("hexStringCache", LazyValue.class),
+             new ObjectStreamField("stringCache", LazyValue.class),
+             new ObjectStreamField("hashCodeCache", LazyValue.class)
+           };
+  }
+
+  private static void writeCaches(
+    ObjectOutputStream out,
+    int length, byte[] rawData, String hexString, String string, int hashCode
+  ) throws IOException {
+    ObjectOutputStream.PutField fields = out.putFields();
+    fields.put("lengthCache", newLazyValue(Integer.valueOf(length)));
+    fields.put("rawDataCache", newLazyValue(rawData));
+    fields.put("hexStringCache", newLazyValue(hexString));
+    fields.put("stringCache", newLazyValue(string));
+    fields.put("hashCodeCache", newLazyValue(Integer.valueOf(hashCode)));
+    out.writeFields();
+  }
+
+  private static <T> LazyValue<T> newLazyValue(final T value) {
+    return new LazyValue<T>(
+             new BuildValueCommand<T>() {
+               public T buildValue() {
+                 return value;
+               }
+             }
+           );
   }
 
   /**
@@ -284,6 +399,136 @@ public abstract class AbstractPacket implements Packet {
 
     public abstract Packet build();
 
+    /**
+     * Writes the raw data of the packet which {@link #build()} would build
+     * into the given array, correcting lengths and checksums as build() does.
+     * Builders of frequently generated packets write it directly
+     * without building the Packet objects.
+     *
+     * @param dst the array to write to.
+     * @param offset the position in dst to write the first byte.
+     * @return the number of bytes written.
+     * @throws ArrayIndexOutOfBoundsException if dst is too short.
+     */
+    public int writeTo(byte[] dst, int offset) {
+      Packet packet = build();
+      writeRawData(packet, dst, offset);
+      return packet.length();
+    }
+
+    /**
+     * Writes the raw data of the packet which {@link #build()} would build
+     * into the given buffer at its current position,
+     * and then advances the position by the number of bytes written.
+     *
+     * @param buffer
+     * @return the number of bytes written.
+     * @throws BufferOverflowException if the packet doesn't fit in the
+     *         remaining space of buffer. In that case, buffer is left untouched.
+     */
+    public int buildInto(ByteBuffer buffer) {
+      if (!buffer.hasArray()) {
+        Packet packet = build();
+        if (packet instanceof AbstractPacket) {
+          buffer.put(((AbstractPacket)packet).getRawDataRef());
+        }
+        else {
+          buffer.put(packet.getRawData());
+        }
+        return packet.length();
+      }
+
+      int length = calcLength();
+      if (length > buffer.remaining()) {
+        throw new BufferOverflowException();
+      }
+      int position = buffer.position();
+      int written = writeTo(buffer.array(), buffer.arrayOffset() + position);
+      if (written != length) {
+        StringBuilder sb = new StringBuilder(100);
+        sb.append("calcLength() returned ").append(length)
+          .append(" but writeTo() wrote ").append(written)
+          .append(" bytes. builder: ").append(getClass().getName());
+        throw new IllegalStateException(sb.toString());
+      }
+      buffer.position(position + length);
+      return length;
+    }
+
+    /**
+     * Calculates the length of the packet which {@link #build()} would build,
+     * i.e. the number of bytes {@link #writeTo(byte[], int)} writes.
+     * Builders overriding writeTo(byte[], int) override this as well
+     * to calculate it without building the packet.
+     *
+     * @return the length of the packet.
+     */
+    protected int calcLength() {
+      return build().length();
+    }
+
+    /**
+     * Calculates the length of the packet which the builder would build.
+     * See {@link #calcLength()}.
+     *
+     * @param builder
+     * @return the length of the packet.
+     */
+    protected static int calcLength(Builder builder) {
+      if (builder instanceof AbstractBuilder) {
+        return ((AbstractBuilder)builder).calcLength();
+      }
+      else {
+        return builder.build().length();
+      }
+    }
+
+    /**
+     * Writes the raw data of the packet which the builder would build
+     * into the given array. An AbstractBuilder writes it by
+     * {@link #writeTo(byte[], int)}, and the other builders build the packet
+     * and copy {@link Packet#getRawData()}.
+     *
+     * @param builder
+     * @param dst the array to write to.
+     * @param offset the position in dst to write the first byte.
+     * @return the number of bytes written.
+     * @throws ArrayIndexOutOfBoundsException if dst is too short.
+     */
+    public static int writeTo(Builder builder, byte[] dst, int offset) {
+      if (builder instanceof AbstractBuilder) {
+        return ((AbstractBuilder)builder).writeTo(dst, offset);
+      }
+      else {
+        byte[] rawData = builder.build().getRawData();
+        System.arraycopy(rawData, 0, dst, offset, rawData.length);
+        return rawData.length;
+      }
+    }
+
+    /**
+     * Writes the raw data of the packet which the builder would build
+     * into the given buffer at its current position,
+     * and then advances the position by the number of bytes written.
+     * See {@link #writeTo(Builder, byte[], int)}.
+     *
+     * @param builder
+     * @param buffer
+     * @return the number of bytes written.
+     * @throws BufferOverflowException if the packet doesn't fit in the
+     *         remaining space of buffer.
+     */
+    public static int buildInto(Builder builder, ByteBuffer buffer) {
+      if (builder instanceof AbstractBuilder) {
+        return ((AbstractBuilder)builder).buildInto(buffer);
+      }
+      else {
+        byte[] rawData = builder.build().getRawData();
+        buffer.put(rawData);
+        return rawData.length;
+      }
+    }
+
   }
 
   /**
@@ -298,57 +543,21 @@ public abstract class AbstractPacket implements Packet {
      */
     private static final long serialVersionUID = -8916517326403680608L;
 
-    private final LazyValue<Integer> lengthCache;
-    private final LazyValue<byte[]> rawDataCache;
-    private final LazyValue<String> hexStringCache;
-    private final LazyValue<String> stringCache;
-    private final LazyValue<Integer> hashCodeCache;
+    // See AbstractPacket.
+    private static final ObjectStreamField[] serialPersistentFields
+      = newSerialPersistentFields();
+
+    // Caches of values built on demand. See AbstractPacket.
+    private transient int cachedLength;
+    private transient volatile byte[] cachedRawData;
+    private transient volatile String cachedHexString;
+    private transient volatile String cachedString;
+    private transient int cachedHashCode;
 
     /**
      *
      */
-    protected AbstractHeader() {
-      this.lengthCache
-        = new LazyValue<Integer>(
-            new BuildValueCommand<Integer>() {
-              public Integer buildValue() {
-                return calcLength();
-              }
-            }
-          );
-      this.rawDataCache
-        = new LazyValue<byte[]>(
-            new BuildValueCommand<byte[]>() {
-              public byte[] buildValue() {
-                return buildRawData();
-              }
-            }
-          );
-      this.hexStringCache
-        = new LazyValue<String>(
-            new BuildValueCommand<String>() {
-              public String buildValue() {
-                return buildHexString();
-              }
-            }
-          );
-      this.stringCache
-        = new LazyValue<String>(
-            new BuildValueCommand<String>() {
-              public String buildValue() {
-                return buildString();
-              }
-            }
-          );
-      this.hashCodeCache
-        = new LazyValue<Integer>(
-            new BuildValueCommand<Integer>() {
-              public Integer buildValue() {
-                return calcHashCode();
-              }
-            }
-          );
-    }
+    protected AbstractHeader() {}
 
     /**
      *
@@ -369,7 +578,12 @@ public abstract class AbstractPacket implements Packet {
     }
 
     public int length() {
-      return lengthCache.getValue();
+      int length = cachedLength;
+      if (length == 0) {
+        length = calcLength();
+        cachedLength = length;
+      }
+      return length;
     }
 
     /**
@@ -397,20 +611,54 @@ public abstract class AbstractPacket implements Packet {
       return rawData;
     }
 
+    // Returns the cached raw data itself, which must not be modified.
+    private byte[] getRawDataRef() {
+      byte[] rawData = cachedRawData;
+      if (rawData == null) {
+        rawData = buildRawData();
+        cachedRawData = rawData;
+      }
+      return rawData;
+    }
+
     public byte[] getRawData() {
-      byte[] rawData = rawDataCache.getValue();
+      byte[] rawData = getRawDataRef();
 
       byte[] copy = new byte[rawData.length];
       System.arraycopy(rawData, 0, copy, 0, copy.length);
       return copy;
     }
 
+    /**
+     * Copies the raw data into the given array without making
+     * an intermediate copy.
+     *
+     * @param dst the array to write to.
+     *            Its length must be at least offset + {@link #length()}.
+     * @param offset the position in dst to write the first byte.
+     */
+    public void writeTo(byte[] dst, int offset) {
+      byte[] rawData = getRawDataRef();
+      System.arraycopy(rawData, 0, dst, offset, rawData.length);
+    }
+
+    // Writes the raw fields without building and caching the raw data,
+    // for a header which is made by a Builder just to be written once.
+    int writeRawFieldsTo(byte[] dst, int offset) {
+      int pos = offset;
+      for (byte[] rawField: getRawFields()) {
+        System.arraycopy(rawField, 0, dst, pos, rawField.length);
+        pos += rawField.length;
+      }
+      return pos - offset;
+    }
+
     /**
      *
      * @return a hex string representation of the object.
      */
     protected String buildHexString() {
-      return ByteArrays.toHexString(getRawData(), ":");
+      return ByteArrays.toHexString(getRawDataRef(), ":");
     }
 
     /**
@@ -418,7 +666,12 @@ public abstract class AbstractPacket implements Packet {
      * @return a hex string representation of the object.
      */
     public String toHexString() {
-      return hexStringCache.getValue();
+      String hexString = cachedHexString;
+      if (hexString == null) {
+        hexString = buildHexString();
+        cachedHexString = hexString;
+      }
+      return hexString;
     }
 
     /**
@@ -431,14 +684,21 @@ public abstract class AbstractPacket implements Packet {
 
     @Override
     public String toString() {
-      return stringCache.getValue();
+      String string = cachedString;
+      if (string == null) {
+        string = buildString();
+        cachedString = string;
+      }
+      return string;
     }
 
     @Override
     public boolean equals(Object obj) {
       if (obj == this) { return true; }
       if (!this.getClass().isInstance(obj)) { return false; }
-      return Arrays.equals(getClass().cast(obj).getRawData(), getRawData());
+      return Arrays.equals(
+               ((AbstractHeader)obj).getRawDataRef(), getRawDataRef()
+             );
     }
 
     /**
@@ -446,12 +706,29 @@ public abstract class AbstractPacket implements Packet {
      * @return a hash code value for the object.
      */
     protected int calcHashCode() {
-      return Arrays.hashCode(getRawData());
+      return Arrays.hashCode(getRawDataRef());
     }
 
     @Override
     public int hashCode() {
-      return hashCodeCache.getValue();
+      int hashCode = cachedHashCode;
+      if (hashCode == 0) {
+        hashCode = calcHashCode();
+        cachedHashCode = hashCode;
+      }
+      return hashCode;
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+      writeCaches(
+        out, length(), getRawDataRef(), toHexString(), toString(), hashCode()
+      );
+    }
+
+    private void readObject(
+      ObjectInputStream in
+    ) throws IOException, ClassNotFoundException {
+      in.readFields();
     }
 
   }
@@ -8,8 +8,11 @@
 package org.pcap4j.packet;
 
 import static org.pcap4j.util.ByteArrays.*;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 import org.pcap4j.packet.factory.PacketFactories;
 import org.pcap4j.packet.namednumber.EtherType;
 import org.pcap4j.util.ByteArrays;
@@ -26,31 +29,59 @@ public final class Dot1qVlanTagPacket extends AbstractPacket {
   private static final long serialVersionUID = 1522789079803339400L;
 
   private final Dot1qVlanTagHeader header;
-  private final Packet payload;
+  private volatile Packet payload;
+
+  // Holds the array containing the raw data of the payload
+  // until it's decoded in lazy decoding mode.
+  private transient volatile byte[] rawPayload;
+  private transient int rawPayloadOffset;
+  private transient int rawPayloadLength;
+
+  private static final AtomicReferenceFieldUpdater<Dot1qVlanTagPacket, Packet> PAYLOAD_UPDATER
+    = AtomicReferenceFieldUpdater.newUpdater(
+        Dot1qVlanTagPacket.class, Packet.class, "payload"
+      );
 
   /**
+   * In lazy decoding mode, the returned packet keeps a reference to rawData,
+   * which therefore must not be modified afterward.
+   * See {@link PacketPropertiesLoader#lazyDecoding()}.
    *
    * @param rawData
    * @return a new Dot1qVlanTagPacket object.
    * @throws PacketException
    */
-  public static Dot1qVlanTagPacket newPacket(byte[] rawData){
-    return new Dot1qVlanTagPacket(rawData);
+  public static Dot1qVlanTagPacket newPacket(byte[] rawData) {
+    return newPacket(rawData, 0, rawData.length);
   }
 
-  private Dot1qVlanTagPacket(byte[] rawData) {
-    this.header = new Dot1qVlanTagHeader(rawData);
+  /**
+   * The returned packet may keep a reference to rawData,
+   * which therefore must not be modified afterward.
+   *
+   * @param rawData
+   * @param offset
+   * @param length
+   * @return a new Dot1qVlanTagPacket object.
+   */
+  public static Dot1qVlanTagPacket newPacket(byte[] rawData, int offset, int length) {
+    ByteArrays.validateBounds(rawData, offset, length);
+    return new Dot1qVlanTagPacket(rawData, offset, length);
+  }
 
-    byte[] rawPayload
-      = ByteArrays.getSubArray(
-          rawData,
-          header.length(),
-          rawData.length - header.length()
-        );
+  private Dot1qVlanTagPacket(byte[] rawData, int offset, int length) {
+    this.header = new Dot1qVlanTagHeader(rawData, offset, length);
 
-    this.payload
-      = PacketFactories.getFactory(Packet.class, EtherType.class)
-          .newInstance(rawPayload, header.getType());
+    int payloadLength = length - header.length();
+    if (PacketPropertiesLoader.getInstance().lazyDecoding()) {
+      this.rawPayloadOffset = offset + header.length();
+      this.rawPayloadLength = payloadLength;
+      this.rawPayload = rawData;
+    }
+    else {
+      this.payload
+        = decodePayload(rawData, offset + header.length(), payloadLength);
+    }
   }
 
   private Dot1qVlanTagPacket(Builder builder) {
@@ -77,9 +108,38 @@ public final class Dot1qVlanTagPacket extends AbstractPacket {
 
   @Override
   public Packet getPayload() {
+    Packet result = payload;
+    if (result != null) {
+      return result;
+    }
+
+    byte[] rp = rawPayload;
+    if (rp == null) {
+      // Decoded by another thread in the meantime.
+      return payload;
+    }
+
+    PAYLOAD_UPDATER.compareAndSet(
+      this, null, decodePayload(rp, rawPayloadOffset, rawPayloadLength)
+    );
+    rawPayload = null;
     return payload;
   }
 
+  private Packet decodePayload(
+    byte[] rawData, int payloadOffset, int payloadLength
+  ) {
+    return PacketFactories.newInstance(
+             PacketFactories.getFactory(Packet.class, EtherType.class),
+             rawData, payloadOffset, payloadLength, header.getType()
+           );
+  }
+
+  private void writeObject(ObjectOutputStream out) throws IOException {
+    getPayload();
+    out.defaultWriteObject();
+  }
+
   @Override
   public Builder getBuilder() {
     return new Builder(this);
@@ -107,7 +167,7 @@ public final class Dot1qVlanTagPacket extends AbstractPacket {
       this.cfi = packet.header.cfi;
       this.vid = packet.header.vid;
       this.type = packet.header.type;
-      this.payloadBuilder = packet.payload.getBuilder();
+      this.payloadBuilder = packet.getPayload().getBuilder();
     }
 
     /**
@@ -189,15 +249,15 @@ public final class Dot1qVlanTagPacket extends AbstractPacket {
      */
     private static final long serialVersionUID = 7130569411806479522L;
 
-    private static final int PRIORITY_AND_CFI_AND_VID_OFFSET
+    static final int PRIORITY_AND_CFI_AND_VID_OFFSET
       = 0;
     private static final int PRIORITY_AND_CFI_AND_VID_SIZE
       = SHORT_SIZE_IN_BYTES;
-    private static final int TYPE_OFFSET
+    static final int TYPE_OFFSET
       = PRIORITY_AND_CFI_AND_VID_OFFSET + PRIORITY_AND_CFI_AND_VID_SIZE;
     private static final int TYPE_SIZE
       = SHORT_SIZE_IN_BYTES;
-    private static final int DOT1Q_TAG_HEADER_SIZE
+    static final int DOT1Q_TAG_HEADER_SIZE
       = TYPE_OFFSET + TYPE_SIZE;
 
     private final byte priority;
@@ -205,24 +265,24 @@ public final class Dot1qVlanTagPacket extends AbstractPacket {
     private final short vid;
     private final EtherType type;
 
-    private Dot1qVlanTagHeader(byte[] rawData) {
-      if (rawData.length < DOT1Q_TAG_HEADER_SIZE) {
+    private Dot1qVlanTagHeader(byte[] rawData, int offset, int length) {
+      if (length < DOT1Q_TAG_HEADER_SIZE) {
         StringBuilder sb = new StringBuilder(110);
         sb.append("The data is too short to build an IEEE802.1Q Tag header(")
           .append(DOT1Q_TAG_HEADER_SIZE)
           .append(" bytes). data: ")
-          .append(ByteArrays.toHexString(rawData, " "));
+          .append(ByteArrays.toHexString(rawData, " ", offset, length));
         throw new IllegalRawDataException(sb.toString());
       }
 
       short priorityAndCfiAndVid
-        = ByteArrays.getShort(rawData, PRIORITY_AND_CFI_AND_VID_OFFSET);
+        = ByteArrays.getShort(rawData, PRIORITY_AND_CFI_AND_VID_OFFSET + offset);
 
       this.priority = (byte)((priorityAndCfiAndVid & 0xE000) >> 13);
       this.cfi = ((priorityAndCfiAndVid & 0x1000) >> 12) == 1;
-      this.vid = (byte)(priorityAndCfiAndVid & 0x0FFF);
+      this.vid = (short)(priorityAndCfiAndVid & 0x0FFF);
       this.type
-        = EtherType.getInstance(ByteArrays.getShort(rawData, TYPE_OFFSET));
+        = EtherType.getInstance(ByteArrays.getShort(rawData, TYPE_OFFSET + offset));
     }
 
     private Dot1qVlanTagHeader(Builder builder) {
@@ -8,8 +8,12 @@
 package org.pcap4j.packet;
 
 import static org.pcap4j.util.ByteArrays.*;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 import org.pcap4j.packet.factory.PacketFactories;
 import org.pcap4j.packet.namednumber.EtherType;
 import org.pcap4j.util.ByteArrays;
@@ -33,49 +37,89 @@ public final class EthernetPacket extends AbstractPacket {
   //private static final int MAX_ETHERNET_PAYLOAD_LENGTH = 1500; // [bytes]
 
   private final EthernetHeader header;
-  private final Packet payload;
+  private volatile Packet payload;
+
+  // Holds the array containing the raw data of the payload
+  // until it's decoded in lazy decoding mode.
+  private transient volatile byte[] rawPayload;
+  private transient int rawPayloadOffset;
+  private transient int rawPayloadLength;
+
+  private static final AtomicReferenceFieldUpdater<EthernetPacket, Packet> PAYLOAD_UPDATER
+    = AtomicReferenceFieldUpdater.newUpdater(
+        EthernetPacket.class, Packet.class, "payload"
+      );
 
   // Ethernet frame must be at least 60 bytes except FCS.
   // If it's less than 60 bytes, it's padded with this field.
   // Although this class handles pad, it's actually responsibility of NIF.
-  private final byte[] pad;
+  private byte[] pad;
 
   /**
+   * In lazy decoding mode, the returned packet keeps a reference to rawData,
+   * which therefore must not be modified afterward.
+   * See {@link PacketPropertiesLoader#lazyDecoding()}.
    *
    * @param rawData
    * @return a new EthernetPacket object.
    * @throws PacketException
    */
   public static EthernetPacket newPacket(byte[] rawData) {
-    return new EthernetPacket(rawData);
+    return newPacket(rawData, 0, rawData.length);
   }
 
-  private EthernetPacket(byte[] rawData) {
-    this.header = new EthernetHeader(rawData);
-
-    byte[] rawPayload
-      = ByteArrays.getSubArray(
-          rawData,
-          header.length(),
-          rawData.length - header.length()
-        );
+  /**
+   * The returned packet may keep a reference to rawData,
+   * which therefore must not be modified afterward.
+   *
+   * @param rawData
+   * @param offset
+   * @param length
+   * @return a new EthernetPacket object.
+   */
+  public static EthernetPacket newPacket(byte[] rawData, int offset, int length) {
+    ByteArrays.validateBounds(rawData, offset, length);
+    return new EthernetPacket(rawData, offset, length);
+  }
 
-    this.payload
-      = PacketFactories.getFactory(Packet.class, EtherType.class)
-          .newInstance(rawPayload, header.getType());
+  private EthernetPacket(byte[] rawData, int offset, int length) {
+    this.header = new EthernetHeader(rawData, offset, length);
 
-    if (rawPayload.length > payload.length()) {
-      this.pad
-        = ByteArrays.getSubArray(
-            rawPayload, payload.length(), rawPayload.length - payload.length()
-          );
+    int payloadLength = length - header.length();
+    if (PacketPropertiesLoader.getInstance().lazyDecoding()) {
+      this.rawPayloadOffset = offset + header.length();
+      this.rawPayloadLength = payloadLength;
+      this.rawPayload = rawData;
     }
     else {
-      this.pad = new byte[0];
+      this.payload
+        = decodePayload(rawData, offset + header.length(), payloadLength);
     }
   }
 
   private EthernetPacket(Builder builder) {
+    checkBuilder(builder);
+
+    this.payload = builder.payloadBuilder.build();
+    this.header = new EthernetHeader(builder);
+
+    if (builder.paddingAtBuild) {
+      if (payload.length() < MIN_ETHERNET_PAYLOAD_LENGTH) {
+        this.pad = new byte[MIN_ETHERNET_PAYLOAD_LENGTH - payload.length()];
+      }
+      else {
+        this.pad = new byte[0];
+      }
+    }
+    else {
+      this.pad = new byte[builder.pad.length];
+      System.arraycopy(
+        builder.pad, 0, this.pad, 0, builder.pad.length
+      );
+    }
+  }
+
+  private static void checkBuilder(Builder builder) {
     if (
          builder == null
       || builder.dstAddr == null
@@ -98,24 +142,6 @@ public final class EthernetPacket extends AbstractPacket {
                     + " if builder.paddingAtBuild is false"
                 );
     }
-
-    this.payload = builder.payloadBuilder.build();
-    this.header = new EthernetHeader(builder);
-
-    if (builder.paddingAtBuild) {
-      if (payload.length() < MIN_ETHERNET_PAYLOAD_LENGTH) {
-        this.pad = new byte[MIN_ETHERNET_PAYLOAD_LENGTH - payload.length()];
-      }
-      else {
-        this.pad = new byte[0];
-      }
-    }
-    else {
-      this.pad = new byte[builder.pad.length];
-      System.arraycopy(
-        builder.pad, 0, this.pad, 0, builder.pad.length
-      );
-    }
   }
 
   @Override
@@ -125,14 +151,60 @@ public final class EthernetPacket extends AbstractPacket {
 
   @Override
   public Packet getPayload() {
+    Packet result = payload;
+    if (result != null) {
+      return result;
+    }
+
+    byte[] rp = rawPayload;
+    if (rp == null) {
+      // Decoded by another thread in the meantime.
+      return payload;
+    }
+
+    PAYLOAD_UPDATER.compareAndSet(
+      this, null, decodePayload(rp, rawPayloadOffset, rawPayloadLength)
+    );
+    rawPayload = null;
+    return payload;
+  }
+
+  private Packet decodePayload(
+    byte[] rawData, int payloadOffset, int payloadLength
+  ) {
+    Packet payload
+      = PacketFactories.newInstance(
+          PacketFactories.getFactory(Packet.class, EtherType.class),
+          rawData, payloadOffset, payloadLength, header.getType()
+        );
+
+    // The pad is determined by the payload and so is set here.
+    if (payloadLength > payload.length()) {
+      this.pad
+        = ByteArrays.getSubArray(
+            rawData,
+            payloadOffset + payload.length(),
+            payloadLength - payload.length()
+          );
+    }
+    else {
+      this.pad = new byte[0];
+    }
+
     return payload;
   }
 
+  private void writeObject(ObjectOutputStream out) throws IOException {
+    getPayload();
+    out.defaultWriteObject();
+  }
+
   /**
    *
    * @return pad
    */
   public byte[] getPad() {
+    getPayload(); // The pad is set when the payload is decoded.
     byte[] copy = new byte[pad.length];
     System.arraycopy(pad, 0, copy, 0, pad.length);
     return copy;
@@ -161,7 +233,7 @@ public final class EthernetPacket extends AbstractPacket {
     StringBuilder sb = new StringBuilder();
 
     sb.append(header.toString());
-    sb.append(payload.toString());
+    sb.append(getPayload().toString());
     if (pad.length != 0) {
       String ls = System.getProperty("line.separator");
       sb.append("[Ethernet Pad (")
@@ -203,7 +275,7 @@ public final class EthernetPacket extends AbstractPacket {
       this.dstAddr = packet.header.dstAddr;
       this.srcAddr = packet.header.srcAddr;
       this.type = packet.header.type;
-      this.payloadBuilder = packet.payload.getBuilder();
+      this.payloadBuilder = packet.getPayload().getBuilder();
       this.pad = new byte[packet.pad.length];
       System.arraycopy(
         packet.pad, 0, this.pad, 0, packet.pad.length
@@ -276,6 +348,61 @@ public final class EthernetPacket extends AbstractPacket {
       return new EthernetPacket(this);
     }
 
+    @Override
+    protected int calcLength() {
+      checkBuilder(this);
+      int payloadLength = calcLength(payloadBuilder);
+      int length = new EthernetHeader(this).length() + payloadLength;
+      if (paddingAtBuild) {
+        if (payloadLength < MIN_ETHERNET_PAYLOAD_LENGTH) {
+          length += MIN_ETHERNET_PAYLOAD_LENGTH - payloadLength;
+        }
+      }
+      else {
+        length += pad.length;
+      }
+      return length;
+    }
+
+    @Override
+    public int writeTo(byte[] dst, int offset) {
+      checkBuilder(this);
+
+      int length = new EthernetHeader(this).writeRawFieldsTo(dst, offset);
+      int payloadLength = writeTo(payloadBuilder, dst, offset + length);
+      length += payloadLength;
+
+      if (paddingAtBuild) {
+        if (payloadLength < MIN_ETHERNET_PAYLOAD_LENGTH) {
+          int padLength = MIN_ETHERNET_PAYLOAD_LENGTH - payloadLength;
+          Arrays.fill(dst, offset + length, offset + length + padLength, (byte)0);
+          length += padLength;
+        }
+      }
+      else {
+        System.arraycopy(pad, 0, dst, offset + length, pad.length);
+        length += pad.length;
+      }
+
+      return length;
+    }
+
+    /**
+     * Clears all the fields so that this object can be reused
+     * as if it were just created.
+     *
+     * @return this Builder object for method chaining.
+     */
+    public Builder reset() {
+      this.dstAddr = null;
+      this.srcAddr = null;
+      this.type = null;
+      this.payloadBuilder = null;
+      this.pad = null;
+      this.paddingAtBuild = false;
+      return this;
+    }
+
   }
 
   /**
@@ -312,28 +439,28 @@ public final class EthernetPacket extends AbstractPacket {
     private static final int DST_ADDR_SIZE = MacAddress.SIZE_IN_BYTES;
     private static final int SRC_ADDR_OFFSET = DST_ADDR_OFFSET + DST_ADDR_SIZE;
     private static final int SRC_ADDR_SIZE = MacAddress.SIZE_IN_BYTES;
-    private static final int TYPE_OFFSET = SRC_ADDR_OFFSET + SRC_ADDR_SIZE;
+    static final int TYPE_OFFSET = SRC_ADDR_OFFSET + SRC_ADDR_SIZE;
     private static final int TYPE_SIZE = SHORT_SIZE_IN_BYTES;
-    private static final int ETHERNET_HEADER_SIZE = TYPE_OFFSET + TYPE_SIZE;
+    static final int ETHERNET_HEADER_SIZE = TYPE_OFFSET + TYPE_SIZE;
 
     private final MacAddress dstAddr;
     private final MacAddress srcAddr;
     private final EtherType type;
 
-    private EthernetHeader(byte[] rawData) {
-      if (rawData.length < ETHERNET_HEADER_SIZE) {
+    private EthernetHeader(byte[] rawData, int offset, int length) {
+      if (length < ETHERNET_HEADER_SIZE) {
         StringBuilder sb = new StringBuilder(100);
         sb.append("The data is too short to build an Ethernet header(")
           .append(ETHERNET_HEADER_SIZE)
           .append(" bytes). data: ")
-          .append(ByteArrays.toHexString(rawData, " "));
+          .append(ByteArrays.toHexString(rawData, " ", offset, length));
         throw new IllegalRawDataException(sb.toString());
       }
 
-      this.dstAddr = ByteArrays.getMacAddress(rawData, DST_ADDR_OFFSET);
-      this.srcAddr = ByteArrays.getMacAddress(rawData, SRC_ADDR_OFFSET);
+      this.dstAddr = ByteArrays.getMacAddress(rawData, DST_ADDR_OFFSET + offset);
+      this.srcAddr = ByteArrays.getMacAddress(rawData, SRC_ADDR_OFFSET + offset);
       this.type
-        = EtherType.getInstance(ByteArrays.getShort(rawData, TYPE_OFFSET));
+        = EtherType.getInstance(ByteArrays.getShort(rawData, TYPE_OFFSET + offset));
     }
 
     private EthernetHeader(Builder builder) {
@@ -31,6 +31,18 @@ public final class FragmentedPacket extends AbstractPacket {
     return new FragmentedPacket(rawData);
   }
 
+  /**
+   *
+   * @param rawData
+   * @param offset
+   * @param length
+   * @return a new FragmentedPacket object.
+   */
+  public static FragmentedPacket newPacket(byte[] rawData, int offset, int length) {
+    ByteArrays.validateBounds(rawData, offset, length);
+    return new FragmentedPacket(rawData, offset, length);
+  }
+
   private FragmentedPacket(byte[] rawData) {
     if (rawData == null) {
       throw new NullPointerException("rawData may not be null");
@@ -39,6 +51,11 @@ public final class FragmentedPacket extends AbstractPacket {
     System.arraycopy(rawData, 0, this.rawData, 0, rawData.length);
   }
 
+  private FragmentedPacket(byte[] rawData, int offset, int length) {
+    this.rawData = new byte[length];
+    System.arraycopy(rawData, offset, this.rawData, 0, length);
+  }
+
   private FragmentedPacket(Builder builder) {
     if (
          builder == null
@@ -66,6 +83,9 @@ public final class FragmentedPacket extends AbstractPacket {
     return copy;
   }
 
+  @Override
+  protected byte[] buildRawData() { return rawData; }
+
   @Override
   public Builder getBuilder() {
     return new Builder(this);
@@ -14,6 +14,7 @@ import org.pcap4j.packet.factory.PacketFactories;
 import org.pcap4j.packet.namednumber.IcmpV4Code;
 import org.pcap4j.packet.namednumber.IcmpV4Type;
 import org.pcap4j.util.ByteArrays;
+import org.pcap4j.util.ChecksumAccumulator;
 
 /**
  * @author Kaito Yamada
@@ -54,6 +55,16 @@ public final class IcmpV4CommonPacket extends AbstractPacket {
   }
 
   private IcmpV4CommonPacket(Builder builder) {
+    checkBuilder(builder);
+
+    this.payload = builder.payloadBuilder.build();
+    this.header = new IcmpV4CommonHeader(
+                    builder,
+                    payload
+                  );
+  }
+
+  private static void checkBuilder(Builder builder) {
     if (
          builder == null
       || builder.type == null
@@ -67,12 +78,6 @@ public final class IcmpV4CommonPacket extends AbstractPacket {
         .append(" builder.payloadBuilder: ").append(builder.payloadBuilder);
       throw new NullPointerException(sb.toString());
     }
-
-    this.payload = builder.payloadBuilder.build();
-    this.header = new IcmpV4CommonHeader(
-                    builder,
-                    payload.getRawData()
-                  );
   }
 
   @Override
@@ -101,7 +106,7 @@ public final class IcmpV4CommonPacket extends AbstractPacket {
       if (acceptZero) { return true; }
       else { return false; }
     }
-    return header.calcChecksum(payload.getRawData()) == header.checksum;
+    return header.calcChecksum(payload) == header.checksum;
   }
 
   /**
@@ -181,6 +186,52 @@ public final class IcmpV4CommonPacket extends AbstractPacket {
       return new IcmpV4CommonPacket(this);
     }
 
+    @Override
+    protected int calcLength() {
+      checkBuilder(this);
+      return new IcmpV4CommonHeader(this, null).length() + calcLength(payloadBuilder);
+    }
+
+    @Override
+    public int writeTo(byte[] dst, int offset) {
+      checkBuilder(this);
+
+      // The checksum field is corrected after the payload is written.
+      IcmpV4CommonHeader header = new IcmpV4CommonHeader(this, null);
+      int headerLength = header.writeRawFieldsTo(dst, offset);
+      int length
+        = headerLength + writeTo(payloadBuilder, dst, offset + headerLength);
+
+      if (
+        correctChecksumAtBuild
+          && PacketPropertiesLoader.getInstance().icmpV4CalcChecksum()
+      ) {
+        System.arraycopy(
+          ByteArrays.toByteArray(
+            IcmpV4CommonHeader.calcChecksum(dst, offset, length)
+          ), 0,
+          dst, offset + IcmpV4CommonHeader.CHECKSUM_OFFSET, SHORT_SIZE_IN_BYTES
+        );
+      }
+
+      return length;
+    }
+
+    /**
+     * Clears all the fields so that this object can be reused
+     * as if it were just created.
+     *
+     * @return this Builder object for method chaining.
+     */
+    public Builder reset() {
+      this.type = null;
+      this.code = null;
+      this.checksum = 0;
+      this.payloadBuilder = null;
+      this.correctChecksumAtBuild = false;
+      return this;
+    }
+
   }
 
   /**
@@ -243,15 +294,19 @@ public final class IcmpV4CommonPacket extends AbstractPacket {
         = ByteArrays.getShort(rawData, CHECKSUM_OFFSET);
     }
 
-    private IcmpV4CommonHeader(Builder builder, byte[] payload) {
+    private IcmpV4CommonHeader(Builder builder, Packet payload) {
       this.type = builder.type;
       this.code = builder.code;
 
       if (builder.correctChecksumAtBuild) {
-        if (PacketPropertiesLoader.getInstance().icmpV4CalcChecksum()) {
+        if (
+          payload != null
+            && PacketPropertiesLoader.getInstance().icmpV4CalcChecksum()
+        ) {
           this.checksum = calcChecksum(payload);
         }
         else {
+          // If payload is null, Builder.writeTo() corrects it later.
           this.checksum = (short)0;
         }
       }
@@ -260,31 +315,33 @@ public final class IcmpV4CommonPacket extends AbstractPacket {
       }
     }
 
-    private short calcChecksum(byte[] payload) {
-      byte[] data;
-      int packetLength = payload.length + length();
-
-      if ((packetLength % 2) != 0) {
-        data = new byte[packetLength + 1];
-      }
-      else {
-        data = new byte[packetLength];
-      }
+    private short calcChecksum(Packet payload) {
+      ChecksumAccumulator acc = new ChecksumAccumulator();
 
       // If call getRawData() here, rawData will be cached with
       // an invalid checksum in some cases.
       // To avoid it, use buildRawData() instead.
-      System.arraycopy(buildRawData(), 0, data, 0, length());
-
-      System.arraycopy(
-        payload, 0, data, length(), payload.length
+      byte[] rawHeader = buildRawData();
+      acc.update(rawHeader, 0, CHECKSUM_OFFSET);
+      acc.update(
+        rawHeader,
+        CHECKSUM_OFFSET + CHECKSUM_SIZE,
+        rawHeader.length - CHECKSUM_OFFSET - CHECKSUM_SIZE
       );
 
-      for (int i = 0; i < CHECKSUM_SIZE; i++) {
-        data[CHECKSUM_OFFSET + i] = (byte)0;
-      }
+      AbstractPacket.updateChecksum(acc, payload);
+      return acc.getChecksum();
+    }
 
-      return ByteArrays.calcChecksum(data);
+    private static short calcChecksum(byte[] rawData, int offset, int length) {
+      ChecksumAccumulator acc = new ChecksumAccumulator();
+      acc.update(rawData, offset, CHECKSUM_OFFSET);
+      acc.update(
+        rawData,
+        offset + CHECKSUM_OFFSET + CHECKSUM_SIZE,
+        length - CHECKSUM_OFFSET - CHECKSUM_SIZE
+      );
+      return acc.getChecksum();
     }
 
     /**
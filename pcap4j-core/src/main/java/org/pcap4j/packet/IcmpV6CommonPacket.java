@@ -18,6 +18,7 @@ import org.pcap4j.packet.namednumber.IcmpV6Type;
 import org.pcap4j.packet.namednumber.IpNumber;
 import org.pcap4j.packet.namednumber.IpV6NeighborDiscoveryOptionType;
 import org.pcap4j.util.ByteArrays;
+import org.pcap4j.util.ChecksumAccumulator;
 
 /**
  * @author Kaito Yamada
@@ -58,6 +59,16 @@ public final class IcmpV6CommonPacket extends AbstractPacket {
   }
 
   private IcmpV6CommonPacket(Builder builder) {
+    checkBuilder(builder);
+
+    this.payload = builder.payloadBuilder.build();
+    this.header = new IcmpV6CommonHeader(
+                    builder,
+                    payload
+                  );
+  }
+
+  private static void checkBuilder(Builder builder) {
     if (
          builder == null
       || builder.type == null
@@ -80,12 +91,6 @@ public final class IcmpV6CommonPacket extends AbstractPacket {
         throw new NullPointerException(sb.toString());
       }
     }
-
-    this.payload = builder.payloadBuilder.build();
-    this.header = new IcmpV6CommonHeader(
-                    builder,
-                    payload.getRawData()
-                  );
   }
 
   @Override
@@ -131,7 +136,7 @@ public final class IcmpV6CommonPacket extends AbstractPacket {
       if (acceptZero) { return true; }
       else { return false; }
     }
-    return header.calcChecksum(srcAddr, dstAddr, payload.getRawData())
+    return header.calcChecksum(srcAddr, dstAddr, payload)
              == header.checksum;
   }
 
@@ -238,6 +243,54 @@ public final class IcmpV6CommonPacket extends AbstractPacket {
       return new IcmpV6CommonPacket(this);
     }
 
+    @Override
+    protected int calcLength() {
+      checkBuilder(this);
+      return new IcmpV6CommonHeader(this, null).length() + calcLength(payloadBuilder);
+    }
+
+    @Override
+    public int writeTo(byte[] dst, int offset) {
+      checkBuilder(this);
+
+      // The checksum field is corrected after the payload is written.
+      IcmpV6CommonHeader header = new IcmpV6CommonHeader(this, null);
+      int headerLength = header.writeRawFieldsTo(dst, offset);
+      int length
+        = headerLength + writeTo(payloadBuilder, dst, offset + headerLength);
+
+      if (
+        correctChecksumAtBuild
+          && PacketPropertiesLoader.getInstance().icmpV6CalcChecksum()
+      ) {
+        System.arraycopy(
+          ByteArrays.toByteArray(
+            IcmpV6CommonHeader.calcChecksum(srcAddr, dstAddr, dst, offset, length)
+          ), 0,
+          dst, offset + IcmpV6CommonHeader.CHECKSUM_OFFSET, SHORT_SIZE_IN_BYTES
+        );
+      }
+
+      return length;
+    }
+
+    /**
+     * Clears all the fields so that this object can be reused
+     * as if it were just created.
+     *
+     * @return this Builder object for method chaining.
+     */
+    public Builder reset() {
+      this.type = null;
+      this.code = null;
+      this.checksum = 0;
+      this.payloadBuilder = null;
+      this.srcAddr = null;
+      this.dstAddr = null;
+      this.correctChecksumAtBuild = false;
+      return this;
+    }
+
   }
 
   /**
@@ -269,15 +322,13 @@ public final class IcmpV6CommonPacket extends AbstractPacket {
       = TYPE_OFFSET + TYPE_SIZE;
     private static final int CODE_SIZE
       = BYTE_SIZE_IN_BYTES;
-    private static final int CHECKSUM_OFFSET
+    static final int CHECKSUM_OFFSET
       = CODE_OFFSET + CODE_SIZE;
     private static final int CHECKSUM_SIZE
       = SHORT_SIZE_IN_BYTES;
-    private static final int ICMPV6_COMMON_HEADER_SIZE
+    static final int ICMPV6_COMMON_HEADER_SIZE
       = CHECKSUM_OFFSET + CHECKSUM_SIZE;
 
-    private static final int ICMPV6_PSEUDO_HEADER_SIZE = 40;
-
     private final IcmpV6Type type;
     private final IcmpV6Code code;
     private final short checksum;
@@ -302,15 +353,19 @@ public final class IcmpV6CommonPacket extends AbstractPacket {
         = ByteArrays.getShort(rawData, CHECKSUM_OFFSET);
     }
 
-    private IcmpV6CommonHeader(Builder builder, byte[] payload) {
+    private IcmpV6CommonHeader(Builder builder, Packet payload) {
       this.type = builder.type;
       this.code = builder.code;
 
       if (builder.correctChecksumAtBuild) {
-        if (PacketPropertiesLoader.getInstance().icmpV6CalcChecksum()) {
+        if (
+          payload != null
+            && PacketPropertiesLoader.getInstance().icmpV6CalcChecksum()
+        ) {
           this.checksum = calcChecksum(builder.srcAddr, builder.dstAddr, payload);
         }
         else {
+          // If payload is null, Builder.writeTo() corrects it later.
           this.checksum = (short)0;
         }
       }
@@ -320,56 +375,53 @@ public final class IcmpV6CommonPacket extends AbstractPacket {
     }
 
     private short calcChecksum(
-      Inet6Address srcAddr, Inet6Address dstAddr, byte[] payload
+      Inet6Address srcAddr, Inet6Address dstAddr, Packet payload
     ) {
-      byte[] data;
-      int destPos;
-      int totalLength = payload.length + length();
-
-      if ((totalLength % 2) != 0) {
-        data = new byte[totalLength + 1 + ICMPV6_PSEUDO_HEADER_SIZE];
-        destPos = totalLength + 1;
-      }
-      else {
-        data = new byte[totalLength + ICMPV6_PSEUDO_HEADER_SIZE];
-        destPos = totalLength;
-      }
+      ChecksumAccumulator acc
+        = newChecksumAccumulator(srcAddr, dstAddr, payload.length() + length());
 
       // If call getRawData() here, rawData will be cached with
       // an invalid checksum in some cases.
       // To avoid it, use buildRawData() instead.
-      System.arraycopy(buildRawData(), 0, data, 0, length());
-      System.arraycopy(payload, 0, data, length(), payload.length);
-
-      for (int i = 0; i < CHECKSUM_SIZE; i++) {
-        data[CHECKSUM_OFFSET + i] = (byte)0;
-      }
-
-      // pseudo header
-      System.arraycopy(
-        srcAddr.getAddress(), 0,
-        data, destPos, srcAddr.getAddress().length
-      );
-      destPos += srcAddr.getAddress().length;
-
-      System.arraycopy(
-        dstAddr.getAddress(), 0,
-        data, destPos, dstAddr.getAddress().length
+      byte[] rawHeader = buildRawData();
+      acc.update(rawHeader, 0, CHECKSUM_OFFSET);
+      acc.update(
+        rawHeader,
+        CHECKSUM_OFFSET + CHECKSUM_SIZE,
+        rawHeader.length - CHECKSUM_OFFSET - CHECKSUM_SIZE
       );
-      destPos += dstAddr.getAddress().length;
-
-      destPos += 3;
 
-      data[destPos] = IpNumber.ICMPV6.value();
-      destPos++;
+      AbstractPacket.updateChecksum(acc, payload);
+      return acc.getChecksum();
+    }
 
-      System.arraycopy(
-        ByteArrays.toByteArray((short)totalLength), 0,
-        data, destPos, SHORT_SIZE_IN_BYTES
+    private static short calcChecksum(
+      Inet6Address srcAddr, Inet6Address dstAddr,
+      byte[] rawData, int offset, int length
+    ) {
+      ChecksumAccumulator acc
+        = newChecksumAccumulator(srcAddr, dstAddr, length);
+      acc.update(rawData, offset, CHECKSUM_OFFSET);
+      acc.update(
+        rawData,
+        offset + CHECKSUM_OFFSET + CHECKSUM_SIZE,
+        length - CHECKSUM_OFFSET - CHECKSUM_SIZE
       );
-      destPos += SHORT_SIZE_IN_BYTES;
+      return acc.getChecksum();
+    }
 
-      return ByteArrays.calcChecksum(data);
+    private static ChecksumAccumulator newChecksumAccumulator(
+      Inet6Address srcAddr, Inet6Address dstAddr, int length
+    ) {
+      ChecksumAccumulator acc = new ChecksumAccumulator();
+
+      // pseudo header
+      // The zero bytes in it don't affect the checksum.
+      acc.update(srcAddr.getAddress());
+      acc.update(dstAddr.getAddress());
+      acc.update((short)(0xFF & IpNumber.ICMPV6.value()));
+      acc.update((short)length);
+      return acc;
     }
 
     /**
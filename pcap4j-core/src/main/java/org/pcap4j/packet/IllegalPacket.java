@@ -31,6 +31,18 @@ public final class IllegalPacket extends AbstractPacket {
     return new IllegalPacket(rawData);
   }
 
+  /**
+   *
+   * @param rawData
+   * @param offset
+   * @param length
+   * @return a new IllegalPacket object.
+   */
+  public static IllegalPacket newPacket(byte[] rawData, int offset, int length) {
+    ByteArrays.validateBounds(rawData, offset, length);
+    return new IllegalPacket(rawData, offset, length);
+  }
+
   private IllegalPacket(byte[] rawData) {
     if (rawData == null) {
       throw new NullPointerException();
@@ -39,6 +51,11 @@ public final class IllegalPacket extends AbstractPacket {
     System.arraycopy(rawData, 0, this.rawData, 0, rawData.length);
   }
 
+  private IllegalPacket(byte[] rawData, int offset, int length) {
+    this.rawData = new byte[length];
+    System.arraycopy(rawData, offset, this.rawData, 0, length);
+  }
+
   private IllegalPacket(Builder builder) {
     if (
          builder == null
@@ -63,6 +80,9 @@ public final class IllegalPacket extends AbstractPacket {
     return copy;
   }
 
+  @Override
+  protected byte[] buildRawData() { return rawData; }
+
   /**
    *
    */
@@ -8,16 +8,20 @@
 package org.pcap4j.packet;
 
 import static org.pcap4j.util.ByteArrays.*;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.net.Inet4Address;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 import org.pcap4j.packet.factory.PacketFactories;
 import org.pcap4j.packet.namednumber.IpNumber;
 import org.pcap4j.packet.namednumber.IpV4OptionType;
 import org.pcap4j.packet.namednumber.IpVersion;
 import org.pcap4j.packet.namednumber.NA;
 import org.pcap4j.util.ByteArrays;
+import org.pcap4j.util.ChecksumAccumulator;
 
 /**
  * @author Kaito Yamada
@@ -33,51 +37,71 @@ public final class IpV4Packet extends AbstractPacket {
   private static final long serialVersionUID = -3907669810080927342L;
 
   private final IpV4Header header;
-  private final Packet payload;
+  private volatile Packet payload;
+
+  // Holds the array containing the raw data of the payload
+  // until it's decoded in lazy decoding mode.
+  private transient volatile byte[] rawPayload;
+  private transient int rawPayloadOffset;
+  private transient int rawPayloadLength;
+
+  private static final AtomicReferenceFieldUpdater<IpV4Packet, Packet> PAYLOAD_UPDATER
+    = AtomicReferenceFieldUpdater.newUpdater(
+        IpV4Packet.class, Packet.class, "payload"
+      );
 
   /**
+   * In lazy decoding mode, the returned packet keeps a reference to rawData,
+   * which therefore must not be modified afterward.
+   * See {@link PacketPropertiesLoader#lazyDecoding()}.
    *
    * @param rawData
    * @return a new IpV4Packet object.
    */
   public static IpV4Packet newPacket(byte[] rawData) {
-    return new IpV4Packet(rawData);
+    return newPacket(rawData, 0, rawData.length);
   }
 
-  private IpV4Packet(byte[] rawData) {
-    this.header = new IpV4Header(rawData);
+  /**
+   * The returned packet may keep a reference to rawData,
+   * which therefore must not be modified afterward.
+   *
+   * @param rawData
+   * @param offset
+   * @param length
+   * @return a new IpV4Packet object.
+   */
+  public static IpV4Packet newPacket(byte[] rawData, int offset, int length) {
+    ByteArrays.validateBounds(rawData, offset, length);
+    return new IpV4Packet(rawData, offset, length);
+  }
 
-    int payloadLength = header.getTotalLengthAsInt() - header.length();
-    byte[] rawPayload;
+  private IpV4Packet(byte[] rawData, int offset, int length) {
+    this.header = new IpV4Header(rawData, offset, length);
 
-    if (payloadLength > rawData.length - header.length()) {
-      rawPayload
-        = ByteArrays.getSubArray(
-          rawData,
-          header.length(),
-          rawData.length - header.length()
-        );
-    }
-    else {
-      rawPayload
-        = ByteArrays.getSubArray(
-            rawData,
-            header.length(),
-            payloadLength
-          );
+    int payloadLength = header.getTotalLengthAsInt() - header.length();
+    if (payloadLength > length - header.length()) {
+      payloadLength = length - header.length();
     }
-
-    if (header.getMoreFragmentFlag() || header.getFlagmentOffset() != 0) {
-      this.payload = FragmentedPacket.newPacket(rawPayload);
+    if (PacketPropertiesLoader.getInstance().lazyDecoding()) {
+      this.rawPayloadOffset = offset + header.length();
+      this.rawPayloadLength = payloadLength;
+      this.rawPayload = rawData;
     }
     else {
       this.payload
-        = PacketFactories.getFactory(Packet.class, IpNumber.class)
-            .newInstance(rawPayload, header.getProtocol());
+        = decodePayload(rawData, offset + header.length(), payloadLength);
     }
   }
 
   private IpV4Packet(Builder builder) {
+    checkBuilder(builder);
+
+    this.payload = builder.payloadBuilder.build();
+    this.header = new IpV4Header(builder, payload);
+  }
+
+  private static void checkBuilder(Builder builder) {
     if (
          builder == null
       || builder.version == null
@@ -97,9 +121,6 @@ public final class IpV4Packet extends AbstractPacket {
         .append(" builder.payloadBuilder: ").append(builder.payloadBuilder);
       throw new NullPointerException(sb.toString());
     }
-
-    this.payload = builder.payloadBuilder.build();
-    this.header = new IpV4Header(builder, payload);
   }
 
   @Override
@@ -109,9 +130,43 @@ public final class IpV4Packet extends AbstractPacket {
 
   @Override
   public Packet getPayload() {
+    Packet result = payload;
+    if (result != null) {
+      return result;
+    }
+
+    byte[] rp = rawPayload;
+    if (rp == null) {
+      // Decoded by another thread in the meantime.
+      return payload;
+    }
+
+    PAYLOAD_UPDATER.compareAndSet(
+      this, null, decodePayload(rp, rawPayloadOffset, rawPayloadLength)
+    );
+    rawPayload = null;
     return payload;
   }
 
+  private Packet decodePayload(
+    byte[] rawData, int payloadOffset, int payloadLength
+  ) {
+    if (header.getMoreFragmentFlag() || header.getFlagmentOffset() != 0) {
+      return FragmentedPacket.newPacket(rawData, payloadOffset, payloadLength);
+    }
+    else {
+      return PacketFactories.newInstance(
+               PacketFactories.getFactory(Packet.class, IpNumber.class),
+               rawData, payloadOffset, payloadLength, header.getProtocol()
+             );
+    }
+  }
+
+  private void writeObject(ObjectOutputStream out) throws IOException {
+    getPayload();
+    out.defaultWriteObject();
+  }
+
   @Override
   public Builder getBuilder() {
     return new Builder(this);
@@ -172,7 +227,7 @@ public final class IpV4Packet extends AbstractPacket {
       this.dstAddr = packet.header.dstAddr;
       this.options = packet.header.options;
       this.padding = packet.header.padding;
-      this.payloadBuilder = packet.payload.getBuilder();
+      this.payloadBuilder = packet.getPayload().getBuilder();
     }
 
     /**
@@ -371,6 +426,73 @@ public final class IpV4Packet extends AbstractPacket {
       return new IpV4Packet(this);
     }
 
+    @Override
+    protected int calcLength() {
+      checkBuilder(this);
+      return new IpV4Header(this, null).length() + calcLength(payloadBuilder);
+    }
+
+    @Override
+    public int writeTo(byte[] dst, int offset) {
+      checkBuilder(this);
+
+      // The length and checksum fields are corrected after
+      // the payload is written.
+      IpV4Header header = new IpV4Header(this, null);
+      int headerLength = header.writeRawFieldsTo(dst, offset);
+      int length
+        = headerLength + writeTo(payloadBuilder, dst, offset + headerLength);
+
+      if (correctLengthAtBuild) {
+        System.arraycopy(
+          ByteArrays.toByteArray((short)length), 0,
+          dst, offset + IpV4Header.TOTAL_LENGTH_OFFSET, SHORT_SIZE_IN_BYTES
+        );
+      }
+      if (correctChecksumAtBuild) {
+        short checksum
+          = PacketPropertiesLoader.getInstance().ipV4CalcChecksum()
+              ? IpV4Header.calcHeaderChecksum(dst, offset, headerLength)
+              : (short)0;
+        System.arraycopy(
+          ByteArrays.toByteArray(checksum), 0,
+          dst, offset + IpV4Header.HEADER_CHECKSUM_OFFSET, SHORT_SIZE_IN_BYTES
+        );
+      }
+
+      return length;
+    }
+
+    /**
+     * Clears all the fields so that this object can be reused
+     * as if it were just created.
+     *
+     * @return this Builder object for method chaining.
+     */
+    public Builder reset() {
+      this.version = null;
+      this.ihl = 0;
+      this.tos = null;
+      this.totalLength = 0;
+      this.identification = 0;
+      this.reservedFlag = false;
+      this.dontFragmentFlag = false;
+      this.moreFragmentFlag = false;
+      this.flagmentOffset = 0;
+      this.ttl = 0;
+      this.protocol = null;
+      this.headerChecksum = 0;
+      this.srcAddr = null;
+      this.dstAddr = null;
+      this.options = null;
+      this.padding = null;
+      this.payloadBuilder = null;
+      this.correctChecksumAtBuild = false;
+      this.correctLengthAtBuild = false;
+      this.paddingAtBuild = false;
+      return this;
+    }
+
   }
 
   /**
@@ -400,11 +522,11 @@ public final class IpV4Packet extends AbstractPacket {
      */
     private static final long serialVersionUID = -337098234014128285L;
 
-    private static final int VERSION_AND_IHL_OFFSET
+    static final int VERSION_AND_IHL_OFFSET
       = 0;
     private static final int VERSION_AND_IHL_SIZE
       = BYTE_SIZE_IN_BYTES;
-    private static final int TOS_OFFSET
+    static final int TOS_OFFSET
       = VERSION_AND_IHL_OFFSET + VERSION_AND_IHL_SIZE;
     private static final int TOS_SIZE
       = BYTE_SIZE_IN_BYTES;
@@ -416,31 +538,31 @@ public final class IpV4Packet extends AbstractPacket {
       = TOTAL_LENGTH_OFFSET + TOTAL_LENGTH_SIZE;
     private static final int IDENTIFICATION_SIZE
       = SHORT_SIZE_IN_BYTES;
-    private static final int FLAGS_AND_FLAGMENT_OFFSET_OFFSET
+    static final int FLAGS_AND_FLAGMENT_OFFSET_OFFSET
       = IDENTIFICATION_OFFSET + IDENTIFICATION_SIZE;
     private static final int FLAGS_AND_FLAGMENT_OFFSET_SIZE
       = SHORT_SIZE_IN_BYTES;
-    private static final int TTL_OFFSET
+    static final int TTL_OFFSET
       = FLAGS_AND_FLAGMENT_OFFSET_OFFSET + FLAGS_AND_FLAGMENT_OFFSET_SIZE;
     private static final int TTL_SIZE
       = BYTE_SIZE_IN_BYTES;
-    private static final int PROTOCOL_OFFSET
+    static final int PROTOCOL_OFFSET
       = TTL_OFFSET + TTL_SIZE;
     private static final int PROTOCOL_SIZE
       = BYTE_SIZE_IN_BYTES;
-    private static final int HEADER_CHECKSUM_OFFSET
+    static final int HEADER_CHECKSUM_OFFSET
       = PROTOCOL_OFFSET + PROTOCOL_SIZE;
     private static final int HEADER_CHECKSUM_SIZE
       = SHORT_SIZE_IN_BYTES;
-    private static final int SRC_ADDR_OFFSET
+    static final int SRC_ADDR_OFFSET
       = HEADER_CHECKSUM_OFFSET + HEADER_CHECKSUM_SIZE;
     private static final int SRC_ADDR_SIZE
       = INET4_ADDRESS_SIZE_IN_BYTES;
-    private static final int DST_ADDR_OFFSET
+    static final int DST_ADDR_OFFSET
       = SRC_ADDR_OFFSET + SRC_ADDR_SIZE;
     private static final int DST_ADDR_SIZE
       = INET4_ADDRESS_SIZE_IN_BYTES;
-    private static final int OPTIONS_OFFSET
+    static final int OPTIONS_OFFSET
       = DST_ADDR_OFFSET + DST_ADDR_SIZE;
 
     private static final int MIN_IPV4_HEADER_SIZE
@@ -463,77 +585,78 @@ public final class IpV4Packet extends AbstractPacket {
     private final List<IpV4Option> options;
     private final byte[] padding;
 
-    private IpV4Header(byte[] rawData) {
-      if (rawData.length < MIN_IPV4_HEADER_SIZE) {
+    private IpV4Header(byte[] rawData, int offset, int length) {
+      if (length < MIN_IPV4_HEADER_SIZE) {
         StringBuilder sb = new StringBuilder(110);
         sb.append("The data is too short to build an IPv4 header. ")
           .append("It must be at least ")
           .append(MIN_IPV4_HEADER_SIZE)
           .append(" bytes. data: ")
-          .append(ByteArrays.toHexString(rawData, " "));
+          .append(ByteArrays.toHexString(rawData, " ", offset, length));
         throw new IllegalRawDataException(sb.toString());
       }
 
       byte versionAndIhl
-        = ByteArrays.getByte(rawData, VERSION_AND_IHL_OFFSET);
+        = ByteArrays.getByte(rawData, VERSION_AND_IHL_OFFSET + offset);
       this.version = IpVersion.getInstance(
                        (byte)((versionAndIhl & 0xF0) >> 4)
                      );
       this.ihl = (byte)(versionAndIhl & 0x0F);
 
       this.tos
-        = PacketFactories.getFactory(
-            IpV4Tos.class, NA.class
-          ).newInstance(ByteArrays.getSubArray(rawData, TOS_OFFSET, BYTE_SIZE_IN_BYTES));
+        = PacketFactories.newInstance(
+            PacketFactories.getFactory(IpV4Tos.class, NA.class),
+            rawData, TOS_OFFSET + offset, BYTE_SIZE_IN_BYTES
+          );
       this.totalLength
-        = ByteArrays.getShort(rawData, TOTAL_LENGTH_OFFSET);
+        = ByteArrays.getShort(rawData, TOTAL_LENGTH_OFFSET + offset);
       this.identification
-        = ByteArrays.getShort(rawData, IDENTIFICATION_OFFSET);
+        = ByteArrays.getShort(rawData, IDENTIFICATION_OFFSET + offset);
 
       short flagsAndFlagmentOffset
-        = ByteArrays.getShort(rawData, FLAGS_AND_FLAGMENT_OFFSET_OFFSET);
+        = ByteArrays.getShort(rawData, FLAGS_AND_FLAGMENT_OFFSET_OFFSET + offset);
       this.reservedFlag = (flagsAndFlagmentOffset & 0x8000) != 0;
       this.dontFragmentFlag = (flagsAndFlagmentOffset & 0x4000) != 0;
       this.moreFragmentFlag = (flagsAndFlagmentOffset & 0x2000) != 0;
       this.flagmentOffset = (short)(flagsAndFlagmentOffset & 0x1FFF);
 
       this.ttl
-        = ByteArrays.getByte(rawData, TTL_OFFSET);
+        = ByteArrays.getByte(rawData, TTL_OFFSET + offset);
       this.protocol
         = IpNumber
-            .getInstance(ByteArrays.getByte(rawData, PROTOCOL_OFFSET));
+            .getInstance(ByteArrays.getByte(rawData, PROTOCOL_OFFSET + offset));
       this.headerChecksum
-        = ByteArrays.getShort(rawData, HEADER_CHECKSUM_OFFSET);
+        = ByteArrays.getShort(rawData, HEADER_CHECKSUM_OFFSET + offset);
       this.srcAddr
-        = ByteArrays.getInet4Address(rawData, SRC_ADDR_OFFSET);
+        = ByteArrays.getInet4Address(rawData, SRC_ADDR_OFFSET + offset);
       this.dstAddr
-        = ByteArrays.getInet4Address(rawData, DST_ADDR_OFFSET);
+        = ByteArrays.getInet4Address(rawData, DST_ADDR_OFFSET + offset);
 
       int headerLength = ihl * 4;
-      if (rawData.length < headerLength) {
+      if (length < headerLength) {
         StringBuilder sb = new StringBuilder(110);
         sb.append("The data is too short to build an IPv4 header(")
           .append(headerLength)
           .append(" bytes). data: ")
-          .append(ByteArrays.toHexString(rawData, " "));
+          .append(ByteArrays.toHexString(rawData, " ", offset, length));
         throw new IllegalRawDataException(sb.toString());
       }
 
       this.options = new ArrayList<IpV4Option>();
-      int currentOffset = OPTIONS_OFFSET;
-      while (currentOffset < headerLength) {
-        byte[] optRawData = ByteArrays.getSubArray(
-                              rawData,
-                              currentOffset,
-                              headerLength - currentOffset
-                            );
-        IpV4OptionType type = IpV4OptionType.getInstance(optRawData[0]);
+      int currentOffsetInHeader = OPTIONS_OFFSET;
+      while (currentOffsetInHeader < headerLength) {
+        IpV4OptionType type
+          = IpV4OptionType.getInstance(rawData[currentOffsetInHeader + offset]);
         IpV4Option newOne
-          = PacketFactories
-              .getFactory(IpV4Option.class, IpV4OptionType.class)
-                 .newInstance(optRawData, type);
+          = PacketFactories.newInstance(
+              PacketFactories.getFactory(IpV4Option.class, IpV4OptionType.class),
+              rawData,
+              currentOffsetInHeader + offset,
+              headerLength - currentOffsetInHeader,
+              type
+            );
         options.add(newOne);
-        currentOffset += newOne.length();
+        currentOffsetInHeader += newOne.length();
 
         if (newOne.getType().equals(IpV4OptionType.END_OF_OPTION_LIST)) {
           break;
@@ -542,7 +665,9 @@ public final class IpV4Packet extends AbstractPacket {
 
       this.padding
         = ByteArrays.getSubArray(
-            rawData, currentOffset, headerLength - currentOffset
+            rawData,
+            currentOffsetInHeader + offset,
+            headerLength - currentOffsetInHeader
           );
     }
 
@@ -625,13 +750,21 @@ public final class IpV4Packet extends AbstractPacket {
       // If call getRawData() here, rawData will be cached with
       // an invalid checksum in some cases.
       // To avoid it, use buildRawData() instead.
-      byte[] data = buildRawData();
-
-      for (int i = 0; i < HEADER_CHECKSUM_SIZE; i++) {
-        data[HEADER_CHECKSUM_OFFSET + i] = (byte)0;
-      }
+      byte[] rawHeader = buildRawData();
+      return calcHeaderChecksum(rawHeader, 0, rawHeader.length);
+    }
 
-      return ByteArrays.calcChecksum(data);
+    private static short calcHeaderChecksum(
+      byte[] rawHeader, int offset, int length
+    ) {
+      ChecksumAccumulator acc = new ChecksumAccumulator();
+      acc.update(rawHeader, offset, HEADER_CHECKSUM_OFFSET);
+      acc.update(
+        rawHeader,
+        offset + HEADER_CHECKSUM_OFFSET + HEADER_CHECKSUM_SIZE,
+        length - HEADER_CHECKSUM_OFFSET - HEADER_CHECKSUM_SIZE
+      );
+      return acc.getChecksum();
     }
 
     /**
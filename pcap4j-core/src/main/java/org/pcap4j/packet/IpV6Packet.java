@@ -8,10 +8,13 @@
 package org.pcap4j.packet;
 
 import static org.pcap4j.util.ByteArrays.*;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.net.Inet6Address;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 import org.pcap4j.packet.factory.PacketFactories;
 import org.pcap4j.packet.namednumber.IpNumber;
 import org.pcap4j.packet.namednumber.IpVersion;
@@ -30,47 +33,71 @@ public final class IpV6Packet extends AbstractPacket {
   private static final long serialVersionUID = 1837307843939979665L;
 
   private final IpV6Header header;
-  private final Packet payload;
+  private volatile Packet payload;
+
+  // Holds the array containing the raw data of the payload
+  // until it's decoded in lazy decoding mode.
+  private transient volatile byte[] rawPayload;
+  private transient int rawPayloadOffset;
+  private transient int rawPayloadLength;
+
+  private static final AtomicReferenceFieldUpdater<IpV6Packet, Packet> PAYLOAD_UPDATER
+    = AtomicReferenceFieldUpdater.newUpdater(
+        IpV6Packet.class, Packet.class, "payload"
+      );
 
   /**
+   * In lazy decoding mode, the returned packet keeps a reference to rawData,
+   * which therefore must not be modified afterward.
+   * See {@link PacketPropertiesLoader#lazyDecoding()}.
    *
    * @param rawData
    * @return a new IpV6Packet object.
    */
   public static IpV6Packet newPacket(byte[] rawData) {
-    return new IpV6Packet(rawData);
+    return newPacket(rawData, 0, rawData.length);
   }
 
-  private IpV6Packet(byte[] rawData) {
-    this.header = new IpV6Header(rawData);
+  /**
+   * The returned packet may keep a reference to rawData,
+   * which therefore must not be modified afterward.
+   *
+   * @param rawData
+   * @param offset
+   * @param length
+   * @return a new IpV6Packet object.
+   */
+  public static IpV6Packet newPacket(byte[] rawData, int offset, int length) {
+    ByteArrays.validateBounds(rawData, offset, length);
+    return new IpV6Packet(rawData, offset, length);
+  }
 
-    byte[] rawPayload;
+  private IpV6Packet(byte[] rawData, int offset, int length) {
+    this.header = new IpV6Header(rawData, offset, length);
 
-    if (
-      header.getPayloadLengthAsInt() > rawData.length - header.length()
-    ) {
-      rawPayload
-        = ByteArrays.getSubArray(
-          rawData,
-          header.length(),
-          rawData.length - header.length()
-        );
+    int payloadLength = header.getPayloadLengthAsInt();
+    if (payloadLength > length - header.length()) {
+      payloadLength = length - header.length();
+    }
+    if (PacketPropertiesLoader.getInstance().lazyDecoding()) {
+      this.rawPayloadOffset = offset + header.length();
+      this.rawPayloadLength = payloadLength;
+      this.rawPayload = rawData;
     }
     else {
-      rawPayload
-        = ByteArrays.getSubArray(
-            rawData,
-            header.length(),
-            header.getPayloadLengthAsInt()
-          );
+      this.payload
+        = decodePayload(rawData, offset + header.length(), payloadLength);
     }
-
-    this.payload
-      = PacketFactories.getFactory(Packet.class, IpNumber.class)
-          .newInstance(rawPayload, header.getNextHeader());
   }
 
   private IpV6Packet(Builder builder) {
+    checkBuilder(builder);
+
+    this.payload = builder.payloadBuilder.build();
+    this.header = new IpV6Header(builder, payload);
+  }
+
+  private static void checkBuilder(Builder builder) {
     if (
          builder == null
       || builder.version == null
@@ -92,9 +119,6 @@ public final class IpV6Packet extends AbstractPacket {
         .append(" builder.payloadBuilder: ").append(builder.payloadBuilder);
       throw new NullPointerException(sb.toString());
     }
-
-    this.payload = builder.payloadBuilder.build();
-    this.header = new IpV6Header(builder, payload);
   }
 
   @Override
@@ -104,9 +128,38 @@ public final class IpV6Packet extends AbstractPacket {
 
   @Override
   public Packet getPayload() {
+    Packet result = payload;
+    if (result != null) {
+      return result;
+    }
+
+    byte[] rp = rawPayload;
+    if (rp == null) {
+      // Decoded by another thread in the meantime.
+      return payload;
+    }
+
+    PAYLOAD_UPDATER.compareAndSet(
+      this, null, decodePayload(rp, rawPayloadOffset, rawPayloadLength)
+    );
+    rawPayload = null;
     return payload;
   }
 
+  private Packet decodePayload(
+    byte[] rawData, int payloadOffset, int payloadLength
+  ) {
+    return PacketFactories.newInstance(
+             PacketFactories.getFactory(Packet.class, IpNumber.class),
+             rawData, payloadOffset, payloadLength, header.getNextHeader()
+           );
+  }
+
+  private void writeObject(ObjectOutputStream out) throws IOException {
+    getPayload();
+    out.defaultWriteObject();
+  }
+
   @Override
   public Builder getBuilder() {
     return new Builder(this);
@@ -148,7 +201,7 @@ public final class IpV6Packet extends AbstractPacket {
       this.hopLimit = packet.header.hopLimit;
       this.srcAddr = packet.header.srcAddr;
       this.dstAddr = packet.header.dstAddr;
-      this.payloadBuilder = packet.payload.getBuilder();
+      this.payloadBuilder = packet.getPayload().getBuilder();
     }
 
     /**
@@ -252,6 +305,51 @@ public final class IpV6Packet extends AbstractPacket {
       return new IpV6Packet(this);
     }
 
+    @Override
+    protected int calcLength() {
+      checkBuilder(this);
+      return new IpV6Header(this, null).length() + calcLength(payloadBuilder);
+    }
+
+    @Override
+    public int writeTo(byte[] dst, int offset) {
+      checkBuilder(this);
+
+      // The payload length field is corrected after the payload is written.
+      int headerLength
+        = new IpV6Header(this, null).writeRawFieldsTo(dst, offset);
+      int payloadLength = writeTo(payloadBuilder, dst, offset + headerLength);
+
+      if (correctLengthAtBuild) {
+        System.arraycopy(
+          ByteArrays.toByteArray((short)payloadLength), 0,
+          dst, offset + IpV6Header.PAYLOAD_LENGTH_OFFSET, SHORT_SIZE_IN_BYTES
+        );
+      }
+
+      return headerLength + payloadLength;
+    }
+
+    /**
+     * Clears all the fields so that this object can be reused
+     * as if it were just created.
+     *
+     * @return this Builder object for method chaining.
+     */
+    public Builder reset() {
+      this.version = null;
+      this.trafficClass = null;
+      this.flowLabel = null;
+      this.payloadLength = 0;
+      this.nextHeader = null;
+      this.hopLimit = 0;
+      this.srcAddr = null;
+      this.dstAddr = null;
+      this.payloadBuilder = null;
+      this.correctLengthAtBuild = false;
+      return this;
+    }
+
   }
 
   /**
@@ -290,7 +388,7 @@ public final class IpV6Packet extends AbstractPacket {
      */
     private static final long serialVersionUID = 6587661877529988149L;
 
-    private static final int VERSION_AND_TRAFFIC_CLASS_AND_FLOW_LABEL_OFFSET
+    static final int VERSION_AND_TRAFFIC_CLASS_AND_FLOW_LABEL_OFFSET
       = 0;
     private static final int VERSION_AND_TRAFFIC_CLASS_AND_FLOW_LABEL_SIZE
       = INT_SIZE_IN_BYTES;
@@ -299,23 +397,23 @@ public final class IpV6Packet extends AbstractPacket {
           + VERSION_AND_TRAFFIC_CLASS_AND_FLOW_LABEL_SIZE;
     private static final int PAYLOAD_LENGTH_SIZE
       = SHORT_SIZE_IN_BYTES;
-    private static final int NEXT_HEADER_OFFSET
+    static final int NEXT_HEADER_OFFSET
       = PAYLOAD_LENGTH_OFFSET + PAYLOAD_LENGTH_SIZE;
     private static final int NEXT_HEADER_SIZE
       = BYTE_SIZE_IN_BYTES;
-    private static final int HOP_LIMIT_OFFSET
+    static final int HOP_LIMIT_OFFSET
       = NEXT_HEADER_OFFSET + NEXT_HEADER_SIZE;
     private static final int HOP_LIMIT_SIZE
       = BYTE_SIZE_IN_BYTES;
-    private static final int SRC_ADDR_OFFSET
+    static final int SRC_ADDR_OFFSET
       = HOP_LIMIT_OFFSET + HOP_LIMIT_SIZE;
     private static final int SRC_ADDR_SIZE
       = INET6_ADDRESS_SIZE_IN_BYTES;
-    private static final int DST_ADDR_OFFSET
+    static final int DST_ADDR_OFFSET
       = SRC_ADDR_OFFSET + SRC_ADDR_SIZE;
     private static final int DST_ADDR_SIZE
       = INET6_ADDRESS_SIZE_IN_BYTES;
-    private static final int IPV6_HEADER_SIZE
+    static final int IPV6_HEADER_SIZE
       = DST_ADDR_OFFSET + DST_ADDR_SIZE;
 
     private final IpVersion version;
@@ -327,20 +425,20 @@ public final class IpV6Packet extends AbstractPacket {
     private final Inet6Address srcAddr;
     private final Inet6Address dstAddr;
 
-    private IpV6Header(byte[] rawData) {
-      if (rawData.length < IPV6_HEADER_SIZE) {
+    private IpV6Header(byte[] rawData, int offset, int length) {
+      if (length < IPV6_HEADER_SIZE) {
         StringBuilder sb = new StringBuilder(110);
         sb.append("The data is too short to build an IPv6 header(")
           .append(IPV6_HEADER_SIZE)
           .append(" bytes). data: ")
-          .append(ByteArrays.toHexString(rawData, " "));
+          .append(ByteArrays.toHexString(rawData, " ", offset, length));
         throw new IllegalRawDataException(sb.toString());
       }
 
       int versionAndTrafficClassAndFlowLabel
         = ByteArrays.getInt(
             rawData,
-            VERSION_AND_TRAFFIC_CLASS_AND_FLOW_LABEL_OFFSET
+            VERSION_AND_TRAFFIC_CLASS_AND_FLOW_LABEL_OFFSET + offset
           );
 
       this.version
@@ -362,16 +460,16 @@ public final class IpV6Packet extends AbstractPacket {
               ByteArrays.toByteArray(versionAndTrafficClassAndFlowLabel & 0x000FFFFF)
             );
       this.payloadLength
-        = ByteArrays.getShort(rawData, PAYLOAD_LENGTH_OFFSET);
+        = ByteArrays.getShort(rawData, PAYLOAD_LENGTH_OFFSET + offset);
       this.nextHeader
         = IpNumber
-            .getInstance(ByteArrays.getByte(rawData, NEXT_HEADER_OFFSET));
+            .getInstance(ByteArrays.getByte(rawData, NEXT_HEADER_OFFSET + offset));
       this.hopLimit
-        = ByteArrays.getByte(rawData, HOP_LIMIT_OFFSET);
+        = ByteArrays.getByte(rawData, HOP_LIMIT_OFFSET + offset);
       this.srcAddr
-        = ByteArrays.getInet6Address(rawData, SRC_ADDR_OFFSET);
+        = ByteArrays.getInet6Address(rawData, SRC_ADDR_OFFSET + offset);
       this.dstAddr
-        = ByteArrays.getInet6Address(rawData, DST_ADDR_OFFSET);
+        = ByteArrays.getInet6Address(rawData, DST_ADDR_OFFSET + offset);
     }
 
     private IpV6Header(Builder builder, Packet payload) {
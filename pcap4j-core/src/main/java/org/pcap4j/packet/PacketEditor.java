@@ -0,0 +1,441 @@
+/*_##########################################################################
+  _##
+  _##  Copyright (C) 2013  Kaito Yamada
+  _##
+  _##########################################################################
+*/
+
+package org.pcap4j.packet;
+
+import java.net.Inet4Address;
+import java.net.Inet6Address;
+import org.pcap4j.packet.Dot1qVlanTagPacket.Dot1qVlanTagHeader;
+import org.pcap4j.packet.EthernetPacket.EthernetHeader;
+import org.pcap4j.packet.IcmpV6CommonPacket.IcmpV6CommonHeader;
+import org.pcap4j.packet.IpV4Packet.IpV4Header;
+import org.pcap4j.packet.IpV6Packet.IpV6Header;
+import org.pcap4j.packet.TcpPacket.TcpHeader;
+import org.pcap4j.packet.UdpPacket.UdpHeader;
+import org.pcap4j.packet.namednumber.EtherType;
+import org.pcap4j.packet.namednumber.IpNumber;
+import org.pcap4j.util.ByteArrays;
+
+/**
+ * Rewrites fields of an Ethernet frame in place, e.g. to NAT or anonymize
+ * captured packets before sending them again.
+ * Unlike building a packet with a modified builder, only the rewritten fields
+ * and the checksums covering them are written. The IPv4 header checksum and
+ * the TCP, UDP, and ICMPv6 checksums are updated incrementally
+ * as described in RFC 1624, so the cost of a rewrite doesn't depend on
+ * the size of the payload.
+ * A frame can have one 802.1Q VLAN tag, an IPv4 or IPv6 header,
+ * and then a TCP or UDP header. IPv6 extension headers are not followed.
+ *
+ * <pre>
+ * new PacketEditor(rawData)
+ *   .srcAddr(newSrcAddr)
+ *   .srcPort((short)10000);
+ * handle.sendPacket(rawData);
+ * </pre>
+ *
+ * An object of this class is not thread safe.
+ *
+ * @author Kaito Yamada
+ * @since pcap4j 1.0.1
+ */
+public final class PacketEditor {
+
+  private final byte[] rawData;
+
+  // Offsets in rawData of each header, or -1 if the frame doesn't have it.
+  private int dot1qOffset = -1;
+  private int ipV4Offset = -1;
+  private int ipV6Offset = -1;
+  private int tcpOffset = -1;
+  private int udpOffset = -1;
+
+  // Offset in rawData of the TCP, UDP, or ICMPv6 checksum
+  // covering the pseudo header, or -1 if no such checksum is in use.
+  private int l4ChecksumOffset = -1;
+
+  /**
+   *
+   * @param rawData an Ethernet frame, which is modified by this object.
+   */
+  public PacketEditor(byte[] rawData) {
+    this(rawData, 0, rawData.length);
+  }
+
+  /**
+   *
+   * @param rawData an array containing an Ethernet frame,
+   *                which is modified by this object.
+   * @param offset the offset of the frame in rawData.
+   * @param length the length of the frame.
+   */
+  public PacketEditor(byte[] rawData, int offset, int length) {
+    ByteArrays.validateBounds(rawData, offset, length);
+    this.rawData = rawData;
+
+    int end = offset + length;
+    int pos = offset;
+    if (end - pos < EthernetHeader.ETHERNET_HEADER_SIZE) {
+      return;
+    }
+    short type = ByteArrays.getShort(rawData, pos + EthernetHeader.TYPE_OFFSET);
+    pos += EthernetHeader.ETHERNET_HEADER_SIZE;
+
+    if (type == EtherType.DOT1Q_VLAN_TAGGED_FRAMES.value()) {
+      if (end - pos < Dot1qVlanTagHeader.DOT1Q_TAG_HEADER_SIZE) {
+        return;
+      }
+      dot1qOffset = pos;
+      type = ByteArrays.getShort(rawData, pos + Dot1qVlanTagHeader.TYPE_OFFSET);
+      pos += Dot1qVlanTagHeader.DOT1Q_TAG_HEADER_SIZE;
+    }
+
+    byte protocol;
+    if (type == EtherType.IPV4.value()) {
+      if (end - pos < IpV4Header.OPTIONS_OFFSET) {
+        return;
+      }
+      int headerLength
+        = (0x0F & rawData[pos + IpV4Header.VERSION_AND_IHL_OFFSET]) * 4;
+      if (headerLength < IpV4Header.OPTIONS_OFFSET || end - pos < headerLength) {
+        return;
+      }
+      ipV4Offset = pos;
+      protocol = rawData[pos + IpV4Header.PROTOCOL_OFFSET];
+
+      short flagsAndFragmentOffset
+        = ByteArrays.getShort(
+            rawData, pos + IpV4Header.FLAGS_AND_FLAGMENT_OFFSET_OFFSET
+          );
+      if ((flagsAndFragmentOffset & 0x1FFF) != 0) {
+        // Not the first fragment, which has no upper layer header.
+        return;
+      }
+      pos += headerLength;
+    }
+    else if (type == EtherType.IPV6.value()) {
+      if (end - pos < IpV6Header.IPV6_HEADER_SIZE) {
+        return;
+      }
+      ipV6Offset = pos;
+      protocol = rawData[pos + IpV6Header.NEXT_HEADER_OFFSET];
+      pos += IpV6Header.IPV6_HEADER_SIZE;
+    }
+    else {
+      return;
+    }
+
+    if (protocol == IpNumber.TCP.value()) {
+      if (end - pos < TcpHeader.MIN_TCP_HEADER_SIZE) {
+        return;
+      }
+      tcpOffset = pos;
+      l4ChecksumOffset = pos + TcpHeader.CHECKSUM_OFFSET;
+    }
+    else if (protocol == IpNumber.UDP.value()) {
+      if (end - pos < UdpHeader.UCP_HEADER_SIZE) {
+        return;
+      }
+      udpOffset = pos;
+      // A zero UDP checksum over IPv4 means no checksum.
+      if (
+           ipV6Offset >= 0
+        || ByteArrays.getShort(rawData, pos + UdpHeader.CHECKSUM_OFFSET) != 0
+      ) {
+        l4ChecksumOffset = pos + UdpHeader.CHECKSUM_OFFSET;
+      }
+    }
+    else if (protocol == IpNumber.ICMPV6.value() && ipV6Offset >= 0) {
+      if (end - pos < IcmpV6CommonHeader.ICMPV6_COMMON_HEADER_SIZE) {
+        return;
+      }
+      l4ChecksumOffset = pos + IcmpV6CommonHeader.CHECKSUM_OFFSET;
+    }
+  }
+
+  /**
+   *
+   * @return the array this object modifies.
+   */
+  public byte[] getRawData() { return rawData; }
+
+  /**
+   *
+   * @return true if the frame has an 802.1Q VLAN tag; false otherwise.
+   */
+  public boolean hasDot1qVlanTag() { return dot1qOffset >= 0; }
+
+  /**
+   *
+   * @return true if the frame has an IPv4 header; false otherwise.
+   */
+  public boolean hasIpV4() { return ipV4Offset >= 0; }
+
+  /**
+   *
+   * @return true if the frame has an IPv6 header; false otherwise.
+   */
+  public boolean hasIpV6() { return ipV6Offset >= 0; }
+
+  /**
+   *
+   * @return true if the frame has a TCP header; false otherwise.
+   */
+  public boolean hasTcp() { return tcpOffset >= 0; }
+
+  /**
+   *
+   * @return true if the frame has a UDP header; false otherwise.
+   */
+  public boolean hasUdp() { return udpOffset >= 0; }
+
+  /**
+   *
+   * @param srcAddr
+   * @return this PacketEditor object.
+   * @throws IllegalStateException if the frame doesn't have an IPv4 header.
+   */
+  public PacketEditor srcAddr(Inet4Address srcAddr) {
+    checkLayer(ipV4Offset, "IPv4");
+    rewrite(
+      ipV4Offset + IpV4Header.SRC_ADDR_OFFSET, srcAddr.getAddress(),
+      ipV4Offset + IpV4Header.HEADER_CHECKSUM_OFFSET,
+      true
+    );
+    return this;
+  }
+
+  /**
+   *
+   * @param dstAddr
+   * @return this PacketEditor object.
+   * @throws IllegalStateException if the frame doesn't have an IPv4 header.
+   */
+  public PacketEditor dstAddr(Inet4Address dstAddr) {
+    checkLayer(ipV4Offset, "IPv4");
+    rewrite(
+      ipV4Offset + IpV4Header.DST_ADDR_OFFSET, dstAddr.getAddress(),
+      ipV4Offset + IpV4Header.HEADER_CHECKSUM_OFFSET,
+      true
+    );
+    return this;
+  }
+
+  /**
+   *
+   * @param srcAddr
+   * @return this PacketEditor object.
+   * @throws IllegalStateException if the frame doesn't have an IPv6 header.
+   */
+  public PacketEditor srcAddr(Inet6Address srcAddr) {
+    checkLayer(ipV6Offset, "IPv6");
+    rewrite(
+      ipV6Offset + IpV6Header.SRC_ADDR_OFFSET, srcAddr.getAddress(), -1, true
+    );
+    return this;
+  }
+
+  /**
+   *
+   * @param dstAddr
+   * @return this PacketEditor object.
+   * @throws IllegalStateException if the frame doesn't have an IPv6 header.
+   */
+  public PacketEditor dstAddr(Inet6Address dstAddr) {
+    checkLayer(ipV6Offset, "IPv6");
+    rewrite(
+      ipV6Offset + IpV6Header.DST_ADDR_OFFSET, dstAddr.getAddress(), -1, true
+    );
+    return this;
+  }
+
+  /**
+   *
+   * @param srcPort
+   * @return this PacketEditor object.
+   * @throws IllegalStateException if the frame has neither a TCP header nor a UDP header.
+   */
+  public PacketEditor srcPort(short srcPort) {
+    if (tcpOffset >= 0) {
+      rewriteL4(tcpOffset + TcpHeader.SRC_PORT_OFFSET, srcPort);
+    }
+    else {
+      checkLayer(udpOffset, "TCP or UDP");
+      rewriteL4(udpOffset + UdpHeader.SRC_PORT_OFFSET, srcPort);
+    }
+    return this;
+  }
+
+  /**
+   *
+   * @param dstPort
+   * @return this PacketEditor object.
+   * @throws IllegalStateException if the frame has neither a TCP header nor a UDP header.
+   */
+  public PacketEditor dstPort(short dstPort) {
+    if (tcpOffset >= 0) {
+      rewriteL4(tcpOffset + TcpHeader.DST_PORT_OFFSET, dstPort);
+    }
+    else {
+      checkLayer(udpOffset, "TCP or UDP");
+      rewriteL4(udpOffset + UdpHeader.DST_PORT_OFFSET, dstPort);
+    }
+    return this;
+  }
+
+  /**
+   *
+   * @param ttl
+   * @return this PacketEditor object.
+   * @throws IllegalStateException if the frame doesn't have an IPv4 header.
+   */
+  public PacketEditor ttl(byte ttl) {
+    checkLayer(ipV4Offset, "IPv4");
+    // TTL is the upper half of the word with Protocol.
+    int pos = ipV4Offset + IpV4Header.TTL_OFFSET;
+    short word = ByteArrays.getShort(rawData, pos);
+    rewrite(
+      pos,
+      ByteArrays.toByteArray((short)((0x00FF & word) | ((0xFF & ttl) << 8))),
+      ipV4Offset + IpV4Header.HEADER_CHECKSUM_OFFSET,
+      false
+    );
+    return this;
+  }
+
+  /**
+   *
+   * @param hopLimit
+   * @return this PacketEditor object.
+   * @throws IllegalStateException if the frame doesn't have an IPv6 header.
+   */
+  public PacketEditor hopLimit(byte hopLimit) {
+    checkLayer(ipV6Offset, "IPv6");
+    // The IPv6 header has no checksum.
+    rawData[ipV6Offset + IpV6Header.HOP_LIMIT_OFFSET] = hopLimit;
+    return this;
+  }
+
+  /**
+   *
+   * @param dscp a 6-bit DSCP value, i.e. the upper 6 bits of
+   *             the IPv4 TOS field or the IPv6 Traffic Class field.
+   * @return this PacketEditor object.
+   * @throws IllegalStateException if the frame has neither an IPv4 header nor an IPv6 header.
+   */
+  public PacketEditor dscp(byte dscp) {
+    if ((dscp & 0xC0) != 0) {
+      throw new IllegalArgumentException("Invalid dscp: " + dscp);
+    }
+
+    if (ipV4Offset >= 0) {
+      // TOS is the lower half of the word with Version and IHL.
+      int pos = ipV4Offset + IpV4Header.VERSION_AND_IHL_OFFSET;
+      short word = ByteArrays.getShort(rawData, pos);
+      rewrite(
+        pos,
+        ByteArrays.toByteArray((short)((0xFF03 & word) | (dscp << 2))),
+        ipV4Offset + IpV4Header.HEADER_CHECKSUM_OFFSET,
+        false
+      );
+    }
+    else {
+      checkLayer(ipV6Offset, "IPv4 or IPv6");
+      // Version (4 bits), Traffic Class (8 bits), and Flow Label (20 bits).
+      int pos
+        = ipV6Offset + IpV6Header.VERSION_AND_TRAFFIC_CLASS_AND_FLOW_LABEL_OFFSET;
+      short word = ByteArrays.getShort(rawData, pos);
+      System.arraycopy(
+        ByteArrays.toByteArray((short)((0xF03F & word) | (dscp << 6))), 0,
+        rawData, pos, ByteArrays.SHORT_SIZE_IN_BYTES
+      );
+    }
+    return this;
+  }
+
+  /**
+   *
+   * @param vid a 12-bit VLAN identifier.
+   * @return this PacketEditor object.
+   * @throws IllegalStateException if the frame doesn't have an 802.1Q VLAN tag.
+   */
+  public PacketEditor vid(short vid) {
+    if ((vid & 0xF000) != 0) {
+      throw new IllegalArgumentException("Invalid vid: " + vid);
+    }
+    checkLayer(dot1qOffset, "802.1Q VLAN tag");
+
+    int pos = dot1qOffset + Dot1qVlanTagHeader.PRIORITY_AND_CFI_AND_VID_OFFSET;
+    short tci = ByteArrays.getShort(rawData, pos);
+    System.arraycopy(
+      ByteArrays.toByteArray((short)((0xF000 & tci) | vid)), 0,
+      rawData, pos, ByteArrays.SHORT_SIZE_IN_BYTES
+    );
+    return this;
+  }
+
+  private void checkLayer(int layerOffset, String layerName) {
+    if (layerOffset < 0) {
+      StringBuilder sb = new StringBuilder(50);
+      sb.append("The frame doesn't have ").append(layerName).append(".");
+      throw new IllegalStateException(sb.toString());
+    }
+  }
+
+  private void rewriteL4(int pos, short value) {
+    rewrite(pos, ByteArrays.toByteArray(value), -1, true);
+  }
+
+  /**
+   * Writes value at pos and updates the checksums covering it incrementally.
+   * pos and the length of value must be even
+   * relative to the start of the data each checksum covers.
+   *
+   * @param pos
+   * @param value
+   * @param ipV4ChecksumOffset the offset of the IPv4 header checksum
+   *                           covering the field, or -1.
+   * @param coveredByL4Checksum true if the field is covered by
+   *                            the TCP/UDP/ICMPv6 checksum, which covers
+   *                            the addresses through the pseudo header.
+   */
+  private void rewrite(
+    int pos, byte[] value, int ipV4ChecksumOffset, boolean coveredByL4Checksum
+  ) {
+    // RFC 1624 Eqn. 3: HC' = ~(~HC + ~m + m')
+    int diff = 0;
+    for (int i = 0; i < value.length; i += ByteArrays.SHORT_SIZE_IN_BYTES) {
+      diff += 0xFFFF & ~ByteArrays.getShort(rawData, pos + i);
+      diff += 0xFFFF & ByteArrays.getShort(value, i);
+    }
+
+    System.arraycopy(value, 0, rawData, pos, value.length);
+
+    if (ipV4ChecksumOffset >= 0) {
+      adjustChecksum(ipV4ChecksumOffset, diff, false);
+    }
+    if (coveredByL4Checksum && l4ChecksumOffset >= 0) {
+      adjustChecksum(l4ChecksumOffset, diff, udpOffset >= 0);
+    }
+  }
+
+  private void adjustChecksum(int checksumOffset, int diff, boolean udp) {
+    int sum = (0xFFFF & ~ByteArrays.getShort(rawData, checksumOffset)) + diff;
+    sum = (0xFFFF & sum) + (sum >>> 16);
+    sum = (0xFFFF & sum) + (sum >>> 16);
+    short checksum = (short)~sum;
+    if (udp && checksum == 0) {
+      // Zero means no checksum for UDP.
+      checksum = (short)0xFFFF;
+    }
+    System.arraycopy(
+      ByteArrays.toByteArray(checksum), 0,
+      rawData, checksumOffset, ByteArrays.SHORT_SIZE_IN_BYTES
+    );
+  }
+
+}
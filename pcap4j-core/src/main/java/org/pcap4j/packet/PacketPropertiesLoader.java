@@ -71,6 +71,13 @@ public final class PacketPropertiesLoader {
     = PacketPropertiesLoader.class.getPackage().getName()
         + ".udpV6.calcChecksumAtBuild";
 
+  /**
+   *
+   */
+  public static final String LAZY_DECODING_KEY
+    = PacketPropertiesLoader.class.getPackage().getName()
+        + ".lazyDecoding";
+
   private static final PacketPropertiesLoader INSTANCE
     = new PacketPropertiesLoader();
 
@@ -85,6 +92,9 @@ public final class PacketPropertiesLoader {
         true
       );
 
+  // Read for every packet decoded, so kept out of the loader's logging path.
+  private volatile Boolean lazyDecoding = null;
+
   private PacketPropertiesLoader() {}
 
   /**
@@ -172,4 +182,22 @@ public final class PacketPropertiesLoader {
            ).booleanValue();
   }
 
+  /**
+   * If true, packets decoded from raw data don't decode their payloads
+   * until {@link Packet#getPayload()} is called.
+   * Such packets keep a reference to the array given to their newPacket method,
+   * which therefore must not be modified afterward.
+   * This value is read only once.
+   *
+   * @return a value of the property.
+   */
+  public boolean lazyDecoding() {
+    Boolean result = lazyDecoding;
+    if (result == null) {
+      result = loader.getBoolean(LAZY_DECODING_KEY, Boolean.FALSE);
+      lazyDecoding = result;
+    }
+    return result.booleanValue();
+  }
+
 }
@@ -8,17 +8,21 @@
 package org.pcap4j.packet;
 
 import static org.pcap4j.util.ByteArrays.*;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.net.Inet4Address;
 import java.net.Inet6Address;
 import java.net.InetAddress;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 import org.pcap4j.packet.factory.PacketFactories;
 import org.pcap4j.packet.namednumber.IpNumber;
 import org.pcap4j.packet.namednumber.TcpOptionKind;
 import org.pcap4j.packet.namednumber.TcpPort;
 import org.pcap4j.util.ByteArrays;
+import org.pcap4j.util.ChecksumAccumulator;
 
 /**
  * @author Kaito Yamada
@@ -34,33 +38,71 @@ public final class TcpPacket extends AbstractPacket {
   private static final long serialVersionUID = 7904566782140471299L;
 
   private final TcpHeader header;
-  private final Packet payload;
+  private volatile Packet payload;
+
+  // Holds the array containing the raw data of the payload
+  // until it's decoded in lazy decoding mode.
+  private transient volatile byte[] rawPayload;
+  private transient int rawPayloadOffset;
+  private transient int rawPayloadLength;
+
+  private static final AtomicReferenceFieldUpdater<TcpPacket, Packet> PAYLOAD_UPDATER
+    = AtomicReferenceFieldUpdater.newUpdater(
+        TcpPacket.class, Packet.class, "payload"
+      );
 
   /**
+   * In lazy decoding mode, the returned packet keeps a reference to rawData,
+   * which therefore must not be modified afterward.
+   * See {@link PacketPropertiesLoader#lazyDecoding()}.
    *
    * @param rawData
    * @return a new TcpPacket object.
    */
   public static TcpPacket newPacket(byte[] rawData) {
-    return new TcpPacket(rawData);
+    return newPacket(rawData, 0, rawData.length);
   }
 
-  private TcpPacket(byte[] rawData) {
-    this.header = new TcpHeader(rawData);
+  /**
+   * The returned packet may keep a reference to rawData,
+   * which therefore must not be modified afterward.
+   *
+   * @param rawData
+   * @param offset
+   * @param length
+   * @return a new TcpPacket object.
+   */
+  public static TcpPacket newPacket(byte[] rawData, int offset, int length) {
+    ByteArrays.validateBounds(rawData, offset, length);
+    return new TcpPacket(rawData, offset, length);
+  }
 
-    byte[] rawPayload
-      = ByteArrays.getSubArray(
-          rawData,
-          header.length(),
-          rawData.length - header.length()
-        );
+  private TcpPacket(byte[] rawData, int offset, int length) {
+    this.header = new TcpHeader(rawData, offset, length);
 
-    this.payload
-      = PacketFactories.getFactory(Packet.class, TcpPort.class)
-          .newInstance(rawPayload, header.getDstPort());
+    int payloadLength = length - header.length();
+    if (PacketPropertiesLoader.getInstance().lazyDecoding()) {
+      this.rawPayloadOffset = offset + header.length();
+      this.rawPayloadLength = payloadLength;
+      this.rawPayload = rawData;
+    }
+    else {
+      this.payload
+        = decodePayload(rawData, offset + header.length(), payloadLength);
+    }
   }
 
   private TcpPacket(Builder builder) {
+    checkBuilder(builder);
+
+    this.payload = builder.payloadBuilder.build();
+    this.header = new TcpHeader(
+                    builder,
+                    payload
+                  );
+  }
+
+  private static void checkBuilder(Builder builder) {
     if (
          builder == null
       || builder.srcPort == null
@@ -89,12 +131,6 @@ public final class TcpPacket extends AbstractPacket {
         throw new IllegalArgumentException(sb.toString());
       }
     }
-
-    this.payload = builder.payloadBuilder.build();
-    this.header = new TcpHeader(
-                    builder,
-                    payload.getRawData()
-                  );
   }
 
   @Override
@@ -104,9 +140,38 @@ public final class TcpPacket extends AbstractPacket {
 
   @Override
   public Packet getPayload() {
+    Packet result = payload;
+    if (result != null) {
+      return result;
+    }
+
+    byte[] rp = rawPayload;
+    if (rp == null) {
+      // Decoded by another thread in the meantime.
+      return payload;
+    }
+
+    PAYLOAD_UPDATER.compareAndSet(
+      this, null, decodePayload(rp, rawPayloadOffset, rawPayloadLength)
+    );
+    rawPayload = null;
     return payload;
   }
 
+  private Packet decodePayload(
+    byte[] rawData, int payloadOffset, int payloadLength
+  ) {
+    return PacketFactories.newInstance(
+             PacketFactories.getFactory(Packet.class, TcpPort.class),
+             rawData, payloadOffset, payloadLength, header.getDstPort()
+           );
+  }
+
+  private void writeObject(ObjectOutputStream out) throws IOException {
+    getPayload();
+    out.defaultWriteObject();
+  }
+
   /**
    *
    * checksum varification is necessary for IPv6(i.e. acceptZero must be false)
@@ -137,7 +202,7 @@ public final class TcpPacket extends AbstractPacket {
       if (acceptZero) { return true; }
       else { return false; }
     }
-    return header.calcChecksum(srcAddr, dstAddr, payload.getRawData())
+    return header.calcChecksum(srcAddr, dstAddr, getPayload())
              == header.checksum;
   }
 
@@ -205,7 +270,7 @@ public final class TcpPacket extends AbstractPacket {
       this.urgentPointer = packet.header.urgentPointer;
       this.options = packet.header.options;
       this.padding = packet.header.padding;
-      this.payloadBuilder = packet.payload.getBuilder();
+      this.payloadBuilder = packet.getPayload().getBuilder();
     }
 
     /**
@@ -442,6 +507,67 @@ public final class TcpPacket extends AbstractPacket {
       return new TcpPacket(this);
     }
 
+    @Override
+    protected int calcLength() {
+      checkBuilder(this);
+      return new TcpHeader(this, null).length() + calcLength(payloadBuilder);
+    }
+
+    @Override
+    public int writeTo(byte[] dst, int offset) {
+      checkBuilder(this);
+
+      // The checksum field is corrected after the payload is written.
+      TcpHeader header = new TcpHeader(this, null);
+      int headerLength = header.writeRawFieldsTo(dst, offset);
+      int length
+        = headerLength + writeTo(payloadBuilder, dst, offset + headerLength);
+
+      if (correctChecksumAtBuild && TcpHeader.calcChecksumAtBuild(srcAddr)) {
+        System.arraycopy(
+          ByteArrays.toByteArray(
+            TcpHeader.calcChecksum(srcAddr, dstAddr, dst, offset, length)
+          ), 0,
+          dst, offset + TcpHeader.CHECKSUM_OFFSET, SHORT_SIZE_IN_BYTES
+        );
+      }
+
+      return length;
+    }
+
+    /**
+     * Clears all the fields so that this object can be reused
+     * as if it were just created.
+     *
+     * @return this Builder object for method chaining.
+     */
+    public Builder reset() {
+      this.srcPort = null;
+      this.dstPort = null;
+      this.sequenceNumber = 0;
+      this.acknowledgmentNumber = 0;
+      this.dataOffset = 0;
+      this.reserved = 0;
+      this.urg = false;
+      this.ack = false;
+      this.psh = false;
+      this.rst = false;
+      this.syn = false;
+      this.fin = false;
+      this.window = 0;
+      this.checksum = 0;
+      this.urgentPointer = 0;
+      this.options = null;
+      this.padding = null;
+      this.payloadBuilder = null;
+      this.srcAddr = null;
+      this.dstAddr = null;
+      this.correctLengthAtBuild = false;
+      this.correctChecksumAtBuild = false;
+      this.paddingAtBuild = false;
+      return this;
+    }
+
   }
 
   /**
@@ -513,11 +639,11 @@ public final class TcpPacket extends AbstractPacket {
      */
     private static final long serialVersionUID = -795185420055823677L;
 
-    private static final int SRC_PORT_OFFSET
+    static final int SRC_PORT_OFFSET
       = 0;
     private static final int SRC_PORT_SIZE
       = SHORT_SIZE_IN_BYTES;
-    private static final int DST_PORT_OFFSET
+    static final int DST_PORT_OFFSET
       = SRC_PORT_OFFSET + SRC_PORT_SIZE;
     private static final int DST_PORT_SIZE
       = SHORT_SIZE_IN_BYTES;
@@ -538,7 +664,7 @@ public final class TcpPacket extends AbstractPacket {
          + DATA_OFFSET_AND_RESERVED_AND_CONTROL_BITS_SIZE;
     private static final int WINDOW_SIZE
       = SHORT_SIZE_IN_BYTES;
-    private static final int CHECKSUM_OFFSET
+    static final int CHECKSUM_OFFSET
       = WINDOW_OFFSET + WINDOW_SIZE;
     private static final int CHECKSUM_SIZE
       = SHORT_SIZE_IN_BYTES;
@@ -549,12 +675,9 @@ public final class TcpPacket extends AbstractPacket {
     private static final int OPTIONS_OFFSET
       = URGENT_POINTER_OFFSET + URGENT_POINTER_SIZE;
 
-    private static final int MIN_TCP_HEADER_SIZE
+    static final int MIN_TCP_HEADER_SIZE
       = URGENT_POINTER_OFFSET + URGENT_POINTER_SIZE;
 
-    private static final int IPV4_PSEUDO_HEADER_SIZE = 12;
-    private static final int IPV6_PSEUDO_HEADER_SIZE = 40;
-
     private final TcpPort srcPort;
     private final TcpPort dstPort;
     private final int sequenceNumber;
@@ -573,25 +696,25 @@ public final class TcpPacket extends AbstractPacket {
     private final List<TcpOption> options;
     private final byte[] padding;
 
-    private TcpHeader(byte[] rawData) {
-      if (rawData.length < MIN_TCP_HEADER_SIZE) {
+    private TcpHeader(byte[] rawData, int offset, int length) {
+      if (length < MIN_TCP_HEADER_SIZE) {
         StringBuilder sb = new StringBuilder(80);
         sb.append("The data is too short to build this header(")
           .append(MIN_TCP_HEADER_SIZE)
           .append(" bytes). data: ")
-          .append(ByteArrays.toHexString(rawData, " "));
+          .append(ByteArrays.toHexString(rawData, " ", offset, length));
         throw new IllegalRawDataException(sb.toString());
       }
 
       this.srcPort
-        = TcpPort.getInstance(ByteArrays.getShort(rawData, SRC_PORT_OFFSET));
+        = TcpPort.getInstance(ByteArrays.getShort(rawData, SRC_PORT_OFFSET + offset));
       this.dstPort
-        = TcpPort.getInstance(ByteArrays.getShort(rawData, DST_PORT_OFFSET));
-      this.sequenceNumber = ByteArrays.getInt(rawData, SEQUENCE_NUMBER_OFFSET);
-      this.acknowledgmentNumber = ByteArrays.getInt(rawData, ACKNOWLEDGMENT_NUMBER_OFFSET);
+        = TcpPort.getInstance(ByteArrays.getShort(rawData, DST_PORT_OFFSET + offset));
+      this.sequenceNumber = ByteArrays.getInt(rawData, SEQUENCE_NUMBER_OFFSET + offset);
+      this.acknowledgmentNumber = ByteArrays.getInt(rawData, ACKNOWLEDGMENT_NUMBER_OFFSET + offset);
 
       short dataOffsetAndReservedAndControlBits
-        = ByteArrays.getShort(rawData, DATA_OFFSET_AND_RESERVED_AND_CONTROL_BITS_OFFSET);
+        = ByteArrays.getShort(rawData, DATA_OFFSET_AND_RESERVED_AND_CONTROL_BITS_OFFSET + offset);
 
       this.dataOffset = (byte)((dataOffsetAndReservedAndControlBits & 0xF000) >> 12);
       this.reserved = (byte)((dataOffsetAndReservedAndControlBits & 0x0FC0) >> 6);
@@ -602,35 +725,35 @@ public final class TcpPacket extends AbstractPacket {
       this.syn = (dataOffsetAndReservedAndControlBits & 0x0002) != 0;
       this.fin = (dataOffsetAndReservedAndControlBits & 0x0001) != 0;
 
-      this.window = ByteArrays.getShort(rawData, WINDOW_OFFSET);
-      this.checksum = ByteArrays.getShort(rawData, CHECKSUM_OFFSET);
-      this.urgentPointer = ByteArrays.getShort(rawData, URGENT_POINTER_OFFSET);
+      this.window = ByteArrays.getShort(rawData, WINDOW_OFFSET + offset);
+      this.checksum = ByteArrays.getShort(rawData, CHECKSUM_OFFSET + offset);
+      this.urgentPointer = ByteArrays.getShort(rawData, URGENT_POINTER_OFFSET + offset);
 
       int headerLength = dataOffset * 4;
-      if (rawData.length < headerLength) {
+      if (length < headerLength) {
         StringBuilder sb = new StringBuilder(110);
         sb.append("The data is too short to build this header(")
           .append(headerLength)
           .append(" bytes). data: ")
-          .append(ByteArrays.toHexString(rawData, " "));
+          .append(ByteArrays.toHexString(rawData, " ", offset, length));
         throw new IllegalRawDataException(sb.toString());
       }
 
       this.options = new ArrayList<TcpOption>();
-      int currentOffset = OPTIONS_OFFSET;
-      while (currentOffset < headerLength) {
-        byte[] optRawData = ByteArrays.getSubArray(
-                              rawData,
-                              currentOffset,
-                              headerLength - currentOffset
-                            );
-        TcpOptionKind kind = TcpOptionKind.getInstance(optRawData[0]);
+      int currentOffsetInHeader = OPTIONS_OFFSET;
+      while (currentOffsetInHeader < headerLength) {
+        TcpOptionKind kind
+          = TcpOptionKind.getInstance(rawData[currentOffsetInHeader + offset]);
         TcpOption newOne
-          = PacketFactories
-              .getFactory(TcpOption.class, TcpOptionKind.class)
-                 .newInstance(optRawData, kind);
+          = PacketFactories.newInstance(
+              PacketFactories.getFactory(TcpOption.class, TcpOptionKind.class),
+              rawData,
+              currentOffsetInHeader + offset,
+              headerLength - currentOffsetInHeader,
+              kind
+            );
         options.add(newOne);
-        currentOffset += newOne.length();
+        currentOffsetInHeader += newOne.length();
 
         if (newOne.getKind().equals(TcpOptionKind.END_OF_OPTION_LIST)) {
           break;
@@ -639,11 +762,13 @@ public final class TcpPacket extends AbstractPacket {
 
       this.padding
         = ByteArrays.getSubArray(
-            rawData, currentOffset, headerLength - currentOffset
+            rawData,
+            currentOffsetInHeader + offset,
+            headerLength - currentOffsetInHeader
           );
     }
 
-    private TcpHeader(Builder builder, byte[] payload) {
+    private TcpHeader(Builder builder, Packet payload) {
       if ((builder.reserved & 0xC0) != 0) {
         throw new IllegalArgumentException(
                 "Invalid reserved: " + builder.reserved
@@ -702,20 +827,11 @@ public final class TcpPacket extends AbstractPacket {
       }
 
       if (builder.correctChecksumAtBuild) {
-        if (
-          (
-            builder.srcAddr instanceof Inet4Address
-              && PacketPropertiesLoader.getInstance().tcpV4CalcChecksum()
-          )
-          ||
-          (
-            builder.srcAddr instanceof Inet6Address
-              && PacketPropertiesLoader.getInstance().tcpV6CalcChecksum()
-          )
-        ) {
+        if (payload != null && calcChecksumAtBuild(builder.srcAddr)) {
           this.checksum = calcChecksum(builder.srcAddr, builder.dstAddr, payload);
         }
         else {
+          // If payload is null, Builder.writeTo() corrects it later.
           this.checksum = (short)0;
         }
       }
@@ -724,68 +840,66 @@ public final class TcpPacket extends AbstractPacket {
       }
     }
 
+    private static boolean calcChecksumAtBuild(InetAddress srcAddr) {
+      return (
+               srcAddr instanceof Inet4Address
+                 && PacketPropertiesLoader.getInstance().tcpV4CalcChecksum()
+             )
+             ||
+             (
+               srcAddr instanceof Inet6Address
+                 && PacketPropertiesLoader.getInstance().tcpV6CalcChecksum()
+             );
+    }
+
     private short calcChecksum(
-      InetAddress srcAddr, InetAddress dstAddr, byte[] payload
+      InetAddress srcAddr, InetAddress dstAddr, Packet payload
     ) {
-      byte[] data;
-      int destPos;
-      int totalLength = payload.length + length();
-      boolean lowerLayerIsIpV4 = srcAddr instanceof Inet4Address;
-
-      int pseudoHeaderSize
-        = lowerLayerIsIpV4 ? IPV4_PSEUDO_HEADER_SIZE
-                           : IPV6_PSEUDO_HEADER_SIZE;
-
-      if ((totalLength % 2) != 0) {
-        data = new byte[totalLength + 1 + pseudoHeaderSize];
-        destPos = totalLength + 1;
-      }
-      else {
-        data = new byte[totalLength + pseudoHeaderSize];
-        destPos = totalLength;
-      }
+      ChecksumAccumulator acc
+        = newChecksumAccumulator(srcAddr, dstAddr, payload.length() + length());
 
       // If call getRawData() here, rawData will be cached with
       // an invalid checksum in some cases.
       // To avoid it, use buildRawData() instead.
-      System.arraycopy(buildRawData(), 0, data, 0, length());
-      System.arraycopy(payload, 0, data, length(), payload.length);
-
-      for (int i = 0; i < CHECKSUM_SIZE; i++) {
-        data[CHECKSUM_OFFSET + i] = (byte)0;
-      }
-
-      // pseudo header
-      System.arraycopy(
-        srcAddr.getAddress(), 0,
-        data, destPos, srcAddr.getAddress().length
-      );
-      destPos += srcAddr.getAddress().length;
-
-      System.arraycopy(
-        dstAddr.getAddress(), 0,
-        data, destPos, dstAddr.getAddress().length
+      byte[] rawHeader = buildRawData();
+      acc.update(rawHeader, 0, CHECKSUM_OFFSET);
+      acc.update(
+        rawHeader,
+        CHECKSUM_OFFSET + CHECKSUM_SIZE,
+        rawHeader.length - CHECKSUM_OFFSET - CHECKSUM_SIZE
       );
-      destPos += dstAddr.getAddress().length;
-
-      if (lowerLayerIsIpV4) {
-        //data[destPos] = (byte)0;
-        destPos++;
-      }
-      else {
-        destPos += 3;
-      }
 
-      data[destPos] = IpNumber.TCP.value();
-      destPos++;
+      AbstractPacket.updateChecksum(acc, payload);
+      return acc.getChecksum();
+    }
 
-      System.arraycopy(
-        ByteArrays.toByteArray((short)totalLength), 0,
-        data, destPos, SHORT_SIZE_IN_BYTES
+    private static short calcChecksum(
+      InetAddress srcAddr, InetAddress dstAddr,
+      byte[] rawData, int offset, int length
+    ) {
+      ChecksumAccumulator acc
+        = newChecksumAccumulator(srcAddr, dstAddr, length);
+      acc.update(rawData, offset, CHECKSUM_OFFSET);
+      acc.update(
+        rawData,
+        offset + CHECKSUM_OFFSET + CHECKSUM_SIZE,
+        length - CHECKSUM_OFFSET - CHECKSUM_SIZE
       );
-      destPos += SHORT_SIZE_IN_BYTES;
+      return acc.getChecksum();
+    }
+
+    private static ChecksumAccumulator newChecksumAccumulator(
+      InetAddress srcAddr, InetAddress dstAddr, int length
+    ) {
+      ChecksumAccumulator acc = new ChecksumAccumulator();
 
-      return ByteArrays.calcChecksum(data);
+      // pseudo header
+      // The zero bytes in it don't affect the checksum.
+      acc.update(srcAddr.getAddress());
+      acc.update(dstAddr.getAddress());
+      acc.update((short)(0xFF & IpNumber.TCP.value()));
+      acc.update((short)length);
+      return acc;
     }
 
     /**
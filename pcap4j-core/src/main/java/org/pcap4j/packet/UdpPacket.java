@@ -8,15 +8,19 @@
 package org.pcap4j.packet;
 
 import static org.pcap4j.util.ByteArrays.*;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.net.Inet4Address;
 import java.net.Inet6Address;
 import java.net.InetAddress;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 import org.pcap4j.packet.factory.PacketFactories;
 import org.pcap4j.packet.namednumber.IpNumber;
 import org.pcap4j.packet.namednumber.UdpPort;
 import org.pcap4j.util.ByteArrays;
+import org.pcap4j.util.ChecksumAccumulator;
 
 /**
  * @author Kaito Yamada
@@ -30,45 +34,74 @@ public final class UdpPacket extends AbstractPacket {
   private static final long serialVersionUID = 4638029542367352625L;
 
   private final UdpHeader header;
-  private final Packet payload;
+  private volatile Packet payload;
+
+  // Holds the array containing the raw data of the payload
+  // until it's decoded in lazy decoding mode.
+  private transient volatile byte[] rawPayload;
+  private transient int rawPayloadOffset;
+  private transient int rawPayloadLength;
+
+  private static final AtomicReferenceFieldUpdater<UdpPacket, Packet> PAYLOAD_UPDATER
+    = AtomicReferenceFieldUpdater.newUpdater(
+        UdpPacket.class, Packet.class, "payload"
+      );
 
   /**
+   * In lazy decoding mode, the returned packet keeps a reference to rawData,
+   * which therefore must not be modified afterward.
+   * See {@link PacketPropertiesLoader#lazyDecoding()}.
+   *
    * @param rawData
    * @return a new UdpPacket object.
    */
   public static UdpPacket newPacket(byte[] rawData) {
-    return new UdpPacket(rawData);
+    return newPacket(rawData, 0, rawData.length);
+  }
+
+  /**
+   * The returned packet may keep a reference to rawData,
+   * which therefore must not be modified afterward.
+   *
+   * @param rawData
+   * @param offset
+   * @param length
+   * @return a new UdpPacket object.
+   */
+  public static UdpPacket newPacket(byte[] rawData, int offset, int length) {
+    ByteArrays.validateBounds(rawData, offset, length);
+    return new UdpPacket(rawData, offset, length);
   }
 
-  private UdpPacket(byte[] rawData) {
-    this.header = new UdpHeader(rawData);
+  private UdpPacket(byte[] rawData, int offset, int length) {
+    this.header = new UdpHeader(rawData, offset, length);
 
     int payloadLength = header.getLengthAsInt() - header.length();
-    byte[] rawPayload;
-
-    if (payloadLength > rawData.length - header.length()) {
-      rawPayload
-        = ByteArrays.getSubArray(
-          rawData,
-          header.length(),
-          rawData.length - header.length()
-        );
+    if (payloadLength > length - header.length()) {
+      payloadLength = length - header.length();
+    }
+    if (PacketPropertiesLoader.getInstance().lazyDecoding()) {
+      this.rawPayloadOffset = offset + header.length();
+      this.rawPayloadLength = payloadLength;
+      this.rawPayload = rawData;
     }
     else {
-      rawPayload
-        = ByteArrays.getSubArray(
-            rawData,
-            header.length(),
-            payloadLength
-          );
+      this.payload
+        = decodePayload(rawData, offset + header.length(), payloadLength);
     }
-
-    this.payload
-      = PacketFactories.getFactory(Packet.class, UdpPort.class)
-          .newInstance(rawPayload, header.getDstPort());
   }
 
   private UdpPacket(Builder builder) {
+    checkBuilder(builder);
+
+    this.payload = builder.payloadBuilder.build();
+    this.header = new UdpHeader(
+                    builder,
+                    payload
+                  );
+  }
+
+  private static void checkBuilder(Builder builder) {
     if (
          builder == null
       || builder.srcPort == null
@@ -97,12 +130,6 @@ public final class UdpPacket extends AbstractPacket {
         throw new IllegalArgumentException(sb.toString());
       }
     }
-
-    this.payload = builder.payloadBuilder.build();
-    this.header = new UdpHeader(
-                    builder,
-                    payload.getRawData()
-                  );
   }
 
   @Override
@@ -112,9 +139,38 @@ public final class UdpPacket extends AbstractPacket {
 
   @Override
   public Packet getPayload() {
+    Packet result = payload;
+    if (result != null) {
+      return result;
+    }
+
+    byte[] rp = rawPayload;
+    if (rp == null) {
+      // Decoded by another thread in the meantime.
+      return payload;
+    }
+
+    PAYLOAD_UPDATER.compareAndSet(
+      this, null, decodePayload(rp, rawPayloadOffset, rawPayloadLength)
+    );
+    rawPayload = null;
     return payload;
   }
 
+  private Packet decodePayload(
+    byte[] rawData, int payloadOffset, int payloadLength
+  ) {
+    return PacketFactories.newInstance(
+             PacketFactories.getFactory(Packet.class, UdpPort.class),
+             rawData, payloadOffset, payloadLength, header.getDstPort()
+           );
+  }
+
+  private void writeObject(ObjectOutputStream out) throws IOException {
+    getPayload();
+    out.defaultWriteObject();
+  }
+
   /**
    *
    * checksum varification is necessary for IPv6(i.e. acceptZero must be false)
@@ -145,7 +201,7 @@ public final class UdpPacket extends AbstractPacket {
       if (acceptZero) { return true; }
       else { return false; }
     }
-    return header.calcChecksum(srcAddr, dstAddr, payload.getRawData())
+    return header.calcChecksum(srcAddr, dstAddr, getPayload())
              == header.checksum;
   }
 
@@ -186,7 +242,7 @@ public final class UdpPacket extends AbstractPacket {
       this.dstPort = packet.header.dstPort;
       this.length = packet.header.length;
       this.checksum = packet.header.checksum;
-      this.payloadBuilder = packet.payload.getBuilder();
+      this.payloadBuilder = packet.getPayload().getBuilder();
     }
 
     /**
@@ -283,6 +339,60 @@ public final class UdpPacket extends AbstractPacket {
       return new UdpPacket(this);
     }
 
+    @Override
+    protected int calcLength() {
+      checkBuilder(this);
+      return new UdpHeader(this, null).length() + calcLength(payloadBuilder);
+    }
+
+    @Override
+    public int writeTo(byte[] dst, int offset) {
+      checkBuilder(this);
+
+      // The length and checksum fields are corrected after
+      // the payload is written.
+      UdpHeader header = new UdpHeader(this, null);
+      int headerLength = header.writeRawFieldsTo(dst, offset);
+      int length
+        = headerLength + writeTo(payloadBuilder, dst, offset + headerLength);
+
+      if (correctLengthAtBuild) {
+        System.arraycopy(
+          ByteArrays.toByteArray((short)length), 0,
+          dst, offset + UdpHeader.LENGTH_OFFSET, SHORT_SIZE_IN_BYTES
+        );
+      }
+      if (correctChecksumAtBuild && UdpHeader.calcChecksumAtBuild(srcAddr)) {
+        System.arraycopy(
+          ByteArrays.toByteArray(
+            UdpHeader.calcChecksum(srcAddr, dstAddr, dst, offset, length)
+          ), 0,
+          dst, offset + UdpHeader.CHECKSUM_OFFSET, SHORT_SIZE_IN_BYTES
+        );
+      }
+
+      return length;
+    }
+
+    /**
+     * Clears all the fields so that this object can be reused
+     * as if it were just created.
+     *
+     * @return this Builder object for method chaining.
+     */
+    public Builder reset() {
+      this.srcPort = null;
+      this.dstPort = null;
+      this.length = 0;
+      this.checksum = 0;
+      this.payloadBuilder = null;
+      this.srcAddr = null;
+      this.dstAddr = null;
+      this.correctLengthAtBuild = false;
+      this.correctChecksumAtBuild = false;
+      return this;
+    }
+
   }
 
   /**
@@ -343,11 +453,11 @@ public final class UdpPacket extends AbstractPacket {
      */
     private static final long serialVersionUID = -1746545325551976324L;
 
-    private static final int SRC_PORT_OFFSET
+    static final int SRC_PORT_OFFSET
       = 0;
     private static final int SRC_PORT_SIZE
       = SHORT_SIZE_IN_BYTES;
-    private static final int DST_PORT_OFFSET
+    static final int DST_PORT_OFFSET
       = SRC_PORT_OFFSET + SRC_PORT_SIZE;
     private static final int DST_PORT_SIZE
       = SHORT_SIZE_IN_BYTES;
@@ -355,65 +465,59 @@ public final class UdpPacket extends AbstractPacket {
       = DST_PORT_OFFSET + DST_PORT_SIZE;
     private static final int LENGTH_SIZE
       = SHORT_SIZE_IN_BYTES;
-    private static final int CHECKSUM_OFFSET
+    static final int CHECKSUM_OFFSET
       = LENGTH_OFFSET + LENGTH_SIZE;
     private static final int CHECKSUM_SIZE
       = SHORT_SIZE_IN_BYTES;
-    private static final int UCP_HEADER_SIZE
+    static final int UCP_HEADER_SIZE
       = CHECKSUM_OFFSET + CHECKSUM_SIZE;
 
-    private static final int IPV4_PSEUDO_HEADER_SIZE = 12;
-    private static final int IPV6_PSEUDO_HEADER_SIZE = 40;
-
     private final UdpPort srcPort;
     private final UdpPort dstPort;
     private final short length;
     private final short checksum;
 
-    private UdpHeader(byte[] rawData) {
-      if (rawData.length < UCP_HEADER_SIZE) {
+    private UdpHeader(byte[] rawData, int offset, int length) {
+      if (length < UCP_HEADER_SIZE) {
         StringBuilder sb = new StringBuilder(80);
         sb.append("The data is too short to build a UDP header(")
           .append(UCP_HEADER_SIZE)
           .append(" bytes). data: ")
-          .append(ByteArrays.toHexString(rawData, " "));
+          .append(ByteArrays.toHexString(rawData, " ", offset, length));
         throw new IllegalRawDataException(sb.toString());
       }
 
       this.srcPort
-        = UdpPort.getInstance(ByteArrays.getShort(rawData, SRC_PORT_OFFSET));
+        = UdpPort.getInstance(ByteArrays.getShort(rawData, SRC_PORT_OFFSET + offset));
       this.dstPort
-        = UdpPort.getInstance(ByteArrays.getShort(rawData, DST_PORT_OFFSET));
-      this.length = ByteArrays.getShort(rawData, LENGTH_OFFSET);
-      this.checksum = ByteArrays.getShort(rawData, CHECKSUM_OFFSET);
+        = UdpPort.getInstance(ByteArrays.getShort(rawData, DST_PORT_OFFSET + offset));
+      this.length = ByteArrays.getShort(rawData, LENGTH_OFFSET + offset);
+      this.checksum = ByteArrays.getShort(rawData, CHECKSUM_OFFSET + offset);
     }
 
-    private UdpHeader(Builder builder, byte[] payload) {
+    private UdpHeader(Builder builder, Packet payload) {
       this.srcPort = builder.srcPort;
       this.dstPort = builder.dstPort;
 
       if (builder.correctLengthAtBuild) {
-        this.length = (short)(payload.length + length());
+        if (payload != null) {
+          this.length = (short)(payload.length() + length());
+        }
+        else {
+          // Builder.writeTo() corrects it later.
+          this.length = (short)length();
+        }
       }
       else {
         this.length = builder.length;
       }
 
       if (builder.correctChecksumAtBuild) {
-        if (
-          (
-            builder.srcAddr instanceof Inet4Address
-              && PacketPropertiesLoader.getInstance().udpV4CalcChecksum()
-          )
-          ||
-          (
-            builder.srcAddr instanceof Inet6Address
-              && PacketPropertiesLoader.getInstance().udpV6CalcChecksum()
-          )
-        ) {
+        if (payload != null && calcChecksumAtBuild(builder.srcAddr)) {
           this.checksum = calcChecksum(builder.srcAddr, builder.dstAddr, payload);
         }
         else {
+          // If payload is null, Builder.writeTo() corrects it later.
           this.checksum = (short)0;
         }
       }
@@ -422,68 +526,66 @@ public final class UdpPacket extends AbstractPacket {
       }
     }
 
+    private static boolean calcChecksumAtBuild(InetAddress srcAddr) {
+      return (
+               srcAddr instanceof Inet4Address
+                 && PacketPropertiesLoader.getInstance().udpV4CalcChecksum()
+             )
+             ||
+             (
+               srcAddr instanceof Inet6Address
+                 && PacketPropertiesLoader.getInstance().udpV6CalcChecksum()
+             );
+    }
+
     private short calcChecksum(
-      InetAddress srcAddr, InetAddress dstAddr, byte[] payload
+      InetAddress srcAddr, InetAddress dstAddr, Packet payload
     ) {
-      byte[] data;
-      int destPos;
-      int totalLength = payload.length + length();
-      boolean lowerLayerIsIpV4 = srcAddr instanceof Inet4Address;
-
-      int pseudoHeaderSize
-        = lowerLayerIsIpV4 ? IPV4_PSEUDO_HEADER_SIZE
-                           : IPV6_PSEUDO_HEADER_SIZE;
-
-      if ((totalLength % 2) != 0) {
-        data = new byte[totalLength + 1 + pseudoHeaderSize];
-        destPos = totalLength + 1;
-      }
-      else {
-        data = new byte[totalLength + pseudoHeaderSize];
-        destPos = totalLength;
-      }
+      ChecksumAccumulator acc
+        = newChecksumAccumulator(srcAddr, dstAddr, payload.length() + length());
 
       // If call getRawData() here, rawData will be cached with
       // an invalid checksum in some cases.
       // To avoid it, use buildRawData() instead.
-      System.arraycopy(buildRawData(), 0, data, 0, length());
-      System.arraycopy(payload, 0, data, length(), payload.length);
-
-      for (int i = 0; i < CHECKSUM_SIZE; i++) {
-        data[CHECKSUM_OFFSET + i] = (byte)0;
-      }
-
-      // pseudo header
-      System.arraycopy(
-        srcAddr.getAddress(), 0,
-        data, destPos, srcAddr.getAddress().length
+      byte[] rawHeader = buildRawData();
+      acc.update(rawHeader, 0, CHECKSUM_OFFSET);
+      acc.update(
+        rawHeader,
+        CHECKSUM_OFFSET + CHECKSUM_SIZE,
+        rawHeader.length - CHECKSUM_OFFSET - CHECKSUM_SIZE
       );
-      destPos += srcAddr.getAddress().length;
 
-      System.arraycopy(
-        dstAddr.getAddress(), 0,
-        data, destPos, dstAddr.getAddress().length
-      );
-      destPos += dstAddr.getAddress().length;
-
-      if (lowerLayerIsIpV4) {
-        //data[destPos] = (byte)0;
-        destPos++;
-      }
-      else {
-        destPos += 3;
-      }
-
-      data[destPos] = IpNumber.UDP.value();
-      destPos++;
+      AbstractPacket.updateChecksum(acc, payload);
+      return acc.getChecksum();
+    }
 
-      System.arraycopy(
-        ByteArrays.toByteArray((short)totalLength), 0,
-        data, destPos, SHORT_SIZE_IN_BYTES
+    private static short calcChecksum(
+      InetAddress srcAddr, InetAddress dstAddr,
+      byte[] rawData, int offset, int length
+    ) {
+      ChecksumAccumulator acc
+        = newChecksumAccumulator(srcAddr, dstAddr, length);
+      acc.update(rawData, offset, CHECKSUM_OFFSET);
+      acc.update(
+        rawData,
+        offset + CHECKSUM_OFFSET + CHECKSUM_SIZE,
+        length - CHECKSUM_OFFSET - CHECKSUM_SIZE
       );
-      destPos += SHORT_SIZE_IN_BYTES;
+      return acc.getChecksum();
+    }
+
+    private static ChecksumAccumulator newChecksumAccumulator(
+      InetAddress srcAddr, InetAddress dstAddr, int length
+    ) {
+      ChecksumAccumulator acc = new ChecksumAccumulator();
 
-      return ByteArrays.calcChecksum(data);
+      // pseudo header
+      // The zero bytes in it don't affect the checksum.
+      acc.update(srcAddr.getAddress());
+      acc.update(dstAddr.getAddress());
+      acc.update((short)(0xFF & IpNumber.UDP.value()));
+      acc.update((short)length);
+      return acc;
     }
 
     /**
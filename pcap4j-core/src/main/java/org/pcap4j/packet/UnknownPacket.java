@@ -31,6 +31,18 @@ public final class UnknownPacket extends AbstractPacket {
     return new UnknownPacket(rawData);
   }
 
+  /**
+   *
+   * @param rawData
+   * @param offset
+   * @param length
+   * @return a new UnknownPacket object.
+   */
+  public static UnknownPacket newPacket(byte[] rawData, int offset, int length) {
+    ByteArrays.validateBounds(rawData, offset, length);
+    return new UnknownPacket(rawData, offset, length);
+  }
+
   private UnknownPacket(byte[] rawData) {
     if (rawData == null) {
       throw new NullPointerException("rawData may not be null");
@@ -39,6 +51,11 @@ public final class UnknownPacket extends AbstractPacket {
     System.arraycopy(rawData, 0, this.rawData, 0, rawData.length);
   }
 
+  private UnknownPacket(byte[] rawData, int offset, int length) {
+    this.rawData = new byte[length];
+    System.arraycopy(rawData, offset, this.rawData, 0, length);
+  }
+
   private UnknownPacket(Builder builder) {
     if (
          builder == null
@@ -66,6 +83,9 @@ public final class UnknownPacket extends AbstractPacket {
     return copy;
   }
 
+  @Override
+  protected byte[] buildRawData() { return rawData; }
+
   @Override
   public Builder getBuilder() {
     return new Builder(this);
@@ -103,6 +123,23 @@ public final class UnknownPacket extends AbstractPacket {
       return new UnknownPacket(this);
     }
 
+    @Override
+    protected int calcLength() {
+      if (rawData == null) {
+        throw new NullPointerException("rawData may not be null");
+      }
+      return rawData.length;
+    }
+
+    @Override
+    public int writeTo(byte[] dst, int offset) {
+      if (rawData == null) {
+        throw new NullPointerException("rawData may not be null");
+      }
+      System.arraycopy(rawData, 0, dst, offset, rawData.length);
+      return rawData.length;
+    }
+
   }
 
   @Override
@@ -8,6 +8,7 @@
 package org.pcap4j.packet.factory;
 
 import org.pcap4j.packet.namednumber.NamedNumber;
+import org.pcap4j.util.ByteArrays;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -61,4 +62,50 @@ public final class PacketFactories {
 
   }
 
+  /**
+   * Builds a data object from the specified range of rawData with the factory.
+   * If the factory is a {@link RangedPacketFactory}, the built object may share
+   * rawData, which therefore must not be modified afterward;
+   * otherwise the range is copied and passed to
+   * {@link PacketFactory#newInstance(byte[], NamedNumber)}.
+   *
+   * @param factory
+   * @param rawData
+   * @param offset
+   * @param length
+   * @param number
+   * @return a new data object.
+   */
+  public static <T, N extends NamedNumber<?>> T newInstance(
+    PacketFactory<T, N> factory, byte[] rawData, int offset, int length, N number
+  ) {
+    if (factory instanceof RangedPacketFactory) {
+      return ((RangedPacketFactory<T, N>)factory)
+               .newInstance(rawData, offset, length, number);
+    }
+    return factory.newInstance(
+             ByteArrays.getSubArray(rawData, offset, length), number
+           );
+  }
+
+  /**
+   * Builds a data object from the specified range of rawData with the factory.
+   * See {@link #newInstance(PacketFactory, byte[], int, int, NamedNumber)}.
+   *
+   * @param factory
+   * @param rawData
+   * @param offset
+   * @param length
+   * @return a new data object.
+   */
+  public static <T, N extends NamedNumber<?>> T newInstance(
+    PacketFactory<T, N> factory, byte[] rawData, int offset, int length
+  ) {
+    if (factory instanceof RangedPacketFactory) {
+      return ((RangedPacketFactory<T, N>)factory)
+               .newInstance(rawData, offset, length);
+    }
+    return factory.newInstance(ByteArrays.getSubArray(rawData, offset, length));
+  }
+
 }
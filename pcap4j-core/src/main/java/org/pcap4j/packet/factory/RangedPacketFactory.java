@@ -0,0 +1,52 @@
+/*_##########################################################################
+  _##
+  _##  Copyright (C) 2013  Kaito Yamada
+  _##
+  _##########################################################################
+*/
+
+package org.pcap4j.packet.factory;
+
+import org.pcap4j.packet.namednumber.NamedNumber;
+
+/**
+ * A {@link PacketFactory} which can build a data object from a part of an array
+ * without copying it.
+ * Use {@link PacketFactories#newInstance(PacketFactory, byte[], int, int, NamedNumber)}
+ * and {@link PacketFactories#newInstance(PacketFactory, byte[], int, int)}
+ * to build an object from a part of an array with any PacketFactory.
+ *
+ * @author Kaito Yamada
+ * @since pcap4j 1.0.1
+ * @param <T> target
+ * @param <N> number
+ */
+public interface RangedPacketFactory<T, N extends NamedNumber<?>>
+extends PacketFactory<T, N> {
+
+  /**
+   * Builds a data object from the specified range of rawData.
+   * The built object may share rawData with other objects built from it,
+   * so rawData must not be modified afterward.
+   *
+   * @param rawData
+   * @param offset
+   * @param length
+   * @param number
+   * @return a new data object.
+   */
+  public T newInstance(byte[] rawData, int offset, int length, N number);
+
+  /**
+   * Builds a data object from the specified range of rawData.
+   * The built object may share rawData with other objects built from it,
+   * so rawData must not be modified afterward.
+   *
+   * @param rawData
+   * @param offset
+   * @param length
+   * @return a new data object.
+   */
+  public T newInstance(byte[] rawData, int offset, int length);
+
+}
@@ -16,7 +16,7 @@ import org.pcap4j.packet.namednumber.NamedNumber;
  * @since pcap4j 0.9.14
  */
 public final class StaticUnknownPacketFactory
-implements PacketFactory<Packet, NamedNumber<?>> {
+implements RangedPacketFactory<Packet, NamedNumber<?>> {
 
   private static final StaticUnknownPacketFactory INSTANCE
     = new StaticUnknownPacketFactory();
@@ -37,4 +37,14 @@ implements PacketFactory<Packet, NamedNumber<?>> {
     return UnknownPacket.newPacket(rawData);
   }
 
+  public Packet newInstance(
+    byte[] rawData, int offset, int length, NamedNumber<?> number
+  ) {
+    return newInstance(rawData, offset, length);
+  }
+
+  public Packet newInstance(byte[] rawData, int offset, int length) {
+    return UnknownPacket.newPacket(rawData, offset, length);
+  }
+
 }
@@ -8,8 +8,6 @@
 package org.pcap4j.packet.namednumber;
 
 import java.lang.reflect.Field;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
  * @author Kaito Yamada
@@ -48,15 +46,20 @@ public final class ArpHardwareType extends NamedNumber<Short> {
   public static final ArpHardwareType IPSEC_TUNNEL
     = new ArpHardwareType((short)31, "IPsec tunnel");
 
-  private static final Map<Short, ArpHardwareType> registry
-    = new HashMap<Short, ArpHardwareType>();
+  private static final NamedNumberTable<ArpHardwareType> registry
+    = new NamedNumberTable<ArpHardwareType>(0x10000) {
+        @Override
+        protected ArpHardwareType newUnknown(int index) {
+          return new ArpHardwareType((short)index, "unknown");
+        }
+      };
 
   static {
     for (Field field: ArpHardwareType.class.getFields()) {
       if (ArpHardwareType.class.isAssignableFrom(field.getType())) {
         try {
           ArpHardwareType f = (ArpHardwareType)field.get(null);
-          registry.put(f.value(), f);
+          registry.put(0xFFFF & f.value(), f);
         } catch (IllegalArgumentException e) {
           throw new AssertionError(e);
         } catch (IllegalAccessException e) {
@@ -83,12 +86,18 @@ public final class ArpHardwareType extends NamedNumber<Short> {
    * @return a ArpHardwareType object.
    */
   public static ArpHardwareType getInstance(Short value) {
-    if (registry.containsKey(value)) {
-      return registry.get(value);
-    }
-    else {
-      return new ArpHardwareType(value, "unknown");
-    }
+    return registry.get(0xFFFF & value);
+  }
+
+  /**
+   * The same as {@link #getInstance(Short)} except that this takes
+   * a primitive value, which doesn't need to be boxed.
+   *
+   * @param value
+   * @return a ArpHardwareType object.
+   */
+  public static ArpHardwareType getInstance(short value) {
+    return registry.get(0xFFFF & value);
   }
 
   /**
@@ -97,7 +106,7 @@ public final class ArpHardwareType extends NamedNumber<Short> {
    * @return a ArpHardwareType object.
    */
   public static ArpHardwareType register(ArpHardwareType type) {
-    return registry.put(type.value(), type);
+    return registry.put(0xFFFF & type.value(), type);
   }
 
   @Override
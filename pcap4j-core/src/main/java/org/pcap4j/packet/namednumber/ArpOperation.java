@@ -8,8 +8,6 @@
 package org.pcap4j.packet.namednumber;
 
 import java.lang.reflect.Field;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
  * @author Kaito Yamada
@@ -36,15 +34,20 @@ public final class ArpOperation extends NamedNumber<Short> {
   public static final ArpOperation REPLY
     = new ArpOperation((short)2, "REPLY");
 
-  private static final Map<Short, ArpOperation> registry
-    = new HashMap<Short, ArpOperation>();
+  private static final NamedNumberTable<ArpOperation> registry
+    = new NamedNumberTable<ArpOperation>(0x10000) {
+        @Override
+        protected ArpOperation newUnknown(int index) {
+          return new ArpOperation((short)index, "unknown");
+        }
+      };
 
   static {
     for (Field field: ArpOperation.class.getFields()) {
       if (ArpOperation.class.isAssignableFrom(field.getType())) {
         try {
           ArpOperation f = (ArpOperation)field.get(null);
-          registry.put(f.value(), f);
+          registry.put(0xFFFF & f.value(), f);
         } catch (IllegalArgumentException e) {
           throw new AssertionError(e);
         } catch (IllegalAccessException e) {
@@ -71,12 +74,18 @@ public final class ArpOperation extends NamedNumber<Short> {
    * @return a ArpOperation object.
    */
   public static ArpOperation getInstance(Short value) {
-    if (registry.containsKey(value)) {
-      return registry.get(value);
-    }
-    else {
-      return new ArpOperation(value, "unknown");
-    }
+    return registry.get(0xFFFF & value);
+  }
+
+  /**
+   * The same as {@link #getInstance(Short)} except that this takes
+   * a primitive value, which doesn't need to be boxed.
+   *
+   * @param value
+   * @return a ArpOperation object.
+   */
+  public static ArpOperation getInstance(short value) {
+    return registry.get(0xFFFF & value);
   }
 
   /**
@@ -85,7 +94,7 @@ public final class ArpOperation extends NamedNumber<Short> {
    * @return a ArpOperation object.
    */
   public static ArpOperation register(ArpOperation operation) {
-    return registry.put(operation.value(), operation);
+    return registry.put(0xFFFF & operation.value(), operation);
   }
 
   /**
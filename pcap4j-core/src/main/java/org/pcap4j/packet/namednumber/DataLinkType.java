@@ -8,8 +8,8 @@
 package org.pcap4j.packet.namednumber;
 
 import java.lang.reflect.Field;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @author Kaito Yamada
@@ -67,7 +67,7 @@ public final class DataLinkType extends NamedNumber<Integer> {
     = new DataLinkType(143, "DOCSIS"); // DOCSIS
 
   private static final Map<Integer, DataLinkType> registry
-    = new HashMap<Integer, DataLinkType>();
+    = new ConcurrentHashMap<Integer, DataLinkType>();
 
   static {
     for (Field field: DataLinkType.class.getFields()) {
@@ -101,8 +101,9 @@ public final class DataLinkType extends NamedNumber<Integer> {
    * @return a DataLinkType object.
    */
   public static DataLinkType getInstance(Integer value) {
-    if (registry.containsKey(value)) {
-      return registry.get(value);
+    DataLinkType instance = registry.get(value);
+    if (instance != null) {
+      return instance;
     }
     else {
       return new DataLinkType(value, "unknown");
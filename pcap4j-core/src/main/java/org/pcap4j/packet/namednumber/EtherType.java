@@ -8,8 +8,6 @@
 package org.pcap4j.packet.namednumber;
 
 import java.lang.reflect.Field;
-import java.util.HashMap;
-import java.util.Map;
 import org.pcap4j.util.ByteArrays;
 
 /**
@@ -85,15 +83,20 @@ public final class EtherType extends NamedNumber<Short> {
   public static final EtherType PPPOE_SESSION_STAGE
     = new EtherType((short)0x8864, "PPPoE Session Stage");
 
-  private static final Map<Short, EtherType> registry
-    = new HashMap<Short, EtherType>();
+  private static final NamedNumberTable<EtherType> registry
+    = new NamedNumberTable<EtherType>(0x10000) {
+        @Override
+        protected EtherType newUnknown(int index) {
+          return new EtherType((short)index, "unknown");
+        }
+      };
 
   static {
     for (Field field: EtherType.class.getFields()) {
       if (EtherType.class.isAssignableFrom(field.getType())) {
         try {
           EtherType f = (EtherType)field.get(null);
-          registry.put(f.value(), f);
+          registry.put(0xFFFF & f.value(), f);
         } catch (IllegalArgumentException e) {
           throw new AssertionError(e);
         } catch (IllegalAccessException e) {
@@ -120,12 +123,18 @@ public final class EtherType extends NamedNumber<Short> {
    * @return a EtherType object.
    */
   public static EtherType getInstance(Short value) {
-    if (registry.containsKey(value)) {
-      return registry.get(value);
-    }
-    else {
-      return new EtherType(value, "unknown");
-    }
+    return registry.get(0xFFFF & value);
+  }
+
+  /**
+   * The same as {@link #getInstance(Short)} except that this takes
+   * a primitive value, which doesn't need to be boxed.
+   *
+   * @param value
+   * @return a EtherType object.
+   */
+  public static EtherType getInstance(short value) {
+    return registry.get(0xFFFF & value);
   }
 
   /**
@@ -134,7 +143,7 @@ public final class EtherType extends NamedNumber<Short> {
    * @return a EtherType object.
    */
   public static EtherType register(EtherType type) {
-    return registry.put(type.value(), type);
+    return registry.put(0xFFFF & type.value(), type);
   }
 
   /**
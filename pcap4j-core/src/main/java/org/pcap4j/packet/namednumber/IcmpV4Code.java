@@ -7,8 +7,9 @@
 
 package org.pcap4j.packet.namednumber;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * @author Kaito Yamada
@@ -203,17 +204,17 @@ public final class IcmpV4Code extends NamedNumber<Byte> {
   public static final IcmpV4Code BAD_LENGTH
     = new IcmpV4Code((byte)0x02, "Bad Length");
 
-  private static final Map<Byte, Map<Byte, IcmpV4Code>> registry
-    = new HashMap<Byte, Map<Byte, IcmpV4Code>>();
+  private static final ConcurrentMap<Byte, Map<Byte, IcmpV4Code>> registry
+    = new ConcurrentHashMap<Byte, Map<Byte, IcmpV4Code>>();
 
   static {
     Map<Byte, IcmpV4Code> map;
 
-    map = new HashMap<Byte, IcmpV4Code>();
+    map = new ConcurrentHashMap<Byte, IcmpV4Code>();
     map.put(NO_CODE.value(), NO_CODE);
     registry.put(IcmpV4Type.ECHO_REPLY.value(), map);
 
-    map = new HashMap<Byte, IcmpV4Code>();
+    map = new ConcurrentHashMap<Byte, IcmpV4Code>();
     map.put(NETWORK_UNREACHABLE.value(), NETWORK_UNREACHABLE);
     map.put(HOST_UNREACHABLE.value(), HOST_UNREACHABLE);
     map.put(PROTOCOL_UNREACHABLE.value(), PROTOCOL_UNREACHABLE);
@@ -234,11 +235,11 @@ public final class IcmpV4Code extends NamedNumber<Byte> {
     map.put(PRECEDENCE_CUTOFF_IN_EFFECT.value(), PRECEDENCE_CUTOFF_IN_EFFECT);
     registry.put(IcmpV4Type.DESTINATION_UNREACHABLE.value(), map);
 
-    map = new HashMap<Byte, IcmpV4Code>();
+    map = new ConcurrentHashMap<Byte, IcmpV4Code>();
     map.put(NO_CODE.value(), NO_CODE);
     registry.put(IcmpV4Type.SOURCE_QUENCH.value(), map);
 
-    map = new HashMap<Byte, IcmpV4Code>();
+    map = new ConcurrentHashMap<Byte, IcmpV4Code>();
     map.put(
       REDIRECT_DATAGRAMS_FOR_NETWORK.value(), REDIRECT_DATAGRAMS_FOR_NETWORK
     );
@@ -255,15 +256,15 @@ public final class IcmpV4Code extends NamedNumber<Byte> {
     );
     registry.put(IcmpV4Type.REDIRECT.value(), map);
 
-    map = new HashMap<Byte, IcmpV4Code>();
+    map = new ConcurrentHashMap<Byte, IcmpV4Code>();
     map.put(NO_CODE.value(), NO_CODE);
     registry.put(IcmpV4Type.ECHO.value(), map);
 
-    map = new HashMap<Byte, IcmpV4Code>();
+    map = new ConcurrentHashMap<Byte, IcmpV4Code>();
     map.put(NO_CODE.value(), NO_CODE);
     registry.put(IcmpV4Type.ROUTER_SOLICITATION.value(), map);
 
-    map = new HashMap<Byte, IcmpV4Code>();
+    map = new ConcurrentHashMap<Byte, IcmpV4Code>();
     map.put(TIME_TO_LIVE_EXCEEDED.value(), TIME_TO_LIVE_EXCEEDED);
     map.put(
       FRAGMENT_REASSEMBLY_TIME_EXCEEDED.value(),
@@ -271,25 +272,25 @@ public final class IcmpV4Code extends NamedNumber<Byte> {
     );
     registry.put(IcmpV4Type.TIME_EXCEEDED.value(), map);
 
-    map = new HashMap<Byte, IcmpV4Code>();
+    map = new ConcurrentHashMap<Byte, IcmpV4Code>();
     map.put(POINTER_INDICATES_ERROR.value(), POINTER_INDICATES_ERROR);
     map.put(MISSING_REQUIRED_OPTION.value(), MISSING_REQUIRED_OPTION);
     map.put(BAD_LENGTH.value(), BAD_LENGTH);
     registry.put(IcmpV4Type.PARAMETER_PROBLEM.value(), map);
 
-    map = new HashMap<Byte, IcmpV4Code>();
+    map = new ConcurrentHashMap<Byte, IcmpV4Code>();
     map.put(NO_CODE.value(), NO_CODE);
     registry.put(IcmpV4Type.TIMESTAMP.value(), map);
 
-    map = new HashMap<Byte, IcmpV4Code>();
+    map = new ConcurrentHashMap<Byte, IcmpV4Code>();
     map.put(NO_CODE.value(), NO_CODE);
     registry.put(IcmpV4Type.TIMESTAMP_REPLY.value(), map);
 
-    map = new HashMap<Byte, IcmpV4Code>();
+    map = new ConcurrentHashMap<Byte, IcmpV4Code>();
     map.put(NO_CODE.value(), NO_CODE);
     registry.put(IcmpV4Type.INFORMATION_REQUEST.value(), map);
 
-    map = new HashMap<Byte, IcmpV4Code>();
+    map = new ConcurrentHashMap<Byte, IcmpV4Code>();
     map.put(NO_CODE.value(), NO_CODE);
     registry.put(IcmpV4Type.INFORMATION_REPLY.value(), map);
   }
@@ -310,12 +311,14 @@ public final class IcmpV4Code extends NamedNumber<Byte> {
    * @return a IcmpV4Code object.
    */
   public static IcmpV4Code getInstance(Byte type, Byte value) {
-    if (registry.containsKey(type) && registry.get(type).containsKey(value)) {
-      return registry.get(type).get(value);
-    }
-    else {
-      return new IcmpV4Code(value, "unknown");
+    Map<Byte, IcmpV4Code> map = registry.get(type);
+    if (map != null) {
+      IcmpV4Code code = map.get(value);
+      if (code != null) {
+        return code;
+      }
     }
+    return new IcmpV4Code(value, "unknown");
   }
 
   /**
@@ -325,15 +328,15 @@ public final class IcmpV4Code extends NamedNumber<Byte> {
    * @return a IcmpV4Code object.
    */
   public static IcmpV4Code register(IcmpV4Type type, IcmpV4Code code) {
-    if (registry.containsKey(type.value())) {
-      return registry.get(type.value()).put(code.value(), code);
-    }
-    else {
-      Map<Byte, IcmpV4Code> map = new HashMap<Byte, IcmpV4Code>();
-      map.put(code.value(), code);
-      registry.put(type.value(), map);
-      return null;
+    Map<Byte, IcmpV4Code> map = registry.get(type.value());
+    if (map == null) {
+      map = new ConcurrentHashMap<Byte, IcmpV4Code>();
+      Map<Byte, IcmpV4Code> existing = registry.putIfAbsent(type.value(), map);
+      if (existing != null) {
+        map = existing;
+      }
     }
+    return map.put(code.value(), code);
   }
 
   @Override
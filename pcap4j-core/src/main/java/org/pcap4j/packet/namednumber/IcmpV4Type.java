@@ -8,8 +8,6 @@
 package org.pcap4j.packet.namednumber;
 
 import java.lang.reflect.Field;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
  * @author Kaito Yamada
@@ -108,15 +106,20 @@ public final class IcmpV4Type extends NamedNumber<Byte> {
   public static final IcmpV4Type INFORMATION_REPLY
     = new IcmpV4Type((byte)0x10, "Information Reply");
 
-  private static final Map<Byte, IcmpV4Type> registry
-    = new HashMap<Byte, IcmpV4Type>();
+  private static final NamedNumberTable<IcmpV4Type> registry
+    = new NamedNumberTable<IcmpV4Type>(0x100) {
+        @Override
+        protected IcmpV4Type newUnknown(int index) {
+          return new IcmpV4Type((byte)index, "unknown");
+        }
+      };
 
   static {
     for (Field field: IcmpV4Type.class.getFields()) {
       if (IcmpV4Type.class.isAssignableFrom(field.getType())) {
         try {
           IcmpV4Type f = (IcmpV4Type)field.get(null);
-          registry.put(f.value(), f);
+          registry.put(0xFF & f.value(), f);
         } catch (IllegalArgumentException e) {
           throw new AssertionError(e);
         } catch (IllegalAccessException e) {
@@ -143,12 +146,18 @@ public final class IcmpV4Type extends NamedNumber<Byte> {
    * @return a IcmpV4Type object.
    */
   public static IcmpV4Type getInstance(Byte value) {
-    if (registry.containsKey(value)) {
-      return registry.get(value);
-    }
-    else {
-      return new IcmpV4Type(value, "unknown");
-    }
+    return registry.get(0xFF & value);
+  }
+
+  /**
+   * The same as {@link #getInstance(Byte)} except that this takes
+   * a primitive value, which doesn't need to be boxed.
+   *
+   * @param value
+   * @return a IcmpV4Type object.
+   */
+  public static IcmpV4Type getInstance(byte value) {
+    return registry.get(0xFF & value);
   }
 
   /**
@@ -157,7 +166,7 @@ public final class IcmpV4Type extends NamedNumber<Byte> {
    * @return a IcmpV4Type object.
    */
   public static IcmpV4Type register(IcmpV4Type type) {
-    return registry.put(type.value(), type);
+    return registry.put(0xFF & type.value(), type);
   }
 
   @Override
@@ -7,8 +7,9 @@
 
 package org.pcap4j.packet.namednumber;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * @author Kaito Yamada
@@ -116,13 +117,13 @@ public final class IcmpV6Code extends NamedNumber<Byte> {
   public static final IcmpV6Code UNRECOGNIZED_IP_V6_OPT
     = new IcmpV6Code((byte)0x02, "unrecognized IPv6 option encountered");
 
-  private static final Map<Byte, Map<Byte, IcmpV6Code>> registry
-    = new HashMap<Byte, Map<Byte, IcmpV6Code>>();
+  private static final ConcurrentMap<Byte, Map<Byte, IcmpV6Code>> registry
+    = new ConcurrentHashMap<Byte, Map<Byte, IcmpV6Code>>();
 
   static {
     Map<Byte, IcmpV6Code> map;
 
-    map = new HashMap<Byte, IcmpV6Code>();
+    map = new ConcurrentHashMap<Byte, IcmpV6Code>();
     map.put(NO_ROUTE_TO_DST.value(), NO_ROUTE_TO_DST);
     map.put(
       COMMUNICATION_WITH_DST_PROHIBITED.value(),
@@ -136,11 +137,11 @@ public final class IcmpV6Code extends NamedNumber<Byte> {
     map.put(ERROR_IN_SRC_ROUTING_HEADER.value(), ERROR_IN_SRC_ROUTING_HEADER);
     registry.put(IcmpV6Type.DESTINATION_UNREACHABLE.value(), map);
 
-    map = new HashMap<Byte, IcmpV6Code>();
+    map = new ConcurrentHashMap<Byte, IcmpV6Code>();
     map.put(NO_CODE.value(), NO_CODE);
     registry.put(IcmpV6Type.PACKET_TOO_BIG.value(), map);
 
-    map = new HashMap<Byte, IcmpV6Code>();
+    map = new ConcurrentHashMap<Byte, IcmpV6Code>();
     map.put(HOP_LIMIT_EXCEEDED.value(), HOP_LIMIT_EXCEEDED);
     map.put(
       FRAGMENT_REASSEMBLY_TIME_EXCEEDED.value(),
@@ -148,37 +149,37 @@ public final class IcmpV6Code extends NamedNumber<Byte> {
     );
     registry.put(IcmpV6Type.TIME_EXCEEDED.value(), map);
 
-    map = new HashMap<Byte, IcmpV6Code>();
+    map = new ConcurrentHashMap<Byte, IcmpV6Code>();
     map.put(ERRONEOUS_HEADER_FIELD.value(), ERRONEOUS_HEADER_FIELD);
     map.put(UNRECOGNIZED_NEXT_HEADER_TYPE.value(), UNRECOGNIZED_NEXT_HEADER_TYPE);
     map.put(UNRECOGNIZED_IP_V6_OPT.value(), UNRECOGNIZED_IP_V6_OPT);
     registry.put(IcmpV6Type.PARAMETER_PROBLEM.value(), map);
 
-    map = new HashMap<Byte, IcmpV6Code>();
+    map = new ConcurrentHashMap<Byte, IcmpV6Code>();
     map.put(NO_CODE.value(), NO_CODE);
     registry.put(IcmpV6Type.ECHO_REQUEST.value(), map);
 
-    map = new HashMap<Byte, IcmpV6Code>();
+    map = new ConcurrentHashMap<Byte, IcmpV6Code>();
     map.put(NO_CODE.value(), NO_CODE);
     registry.put(IcmpV6Type.ECHO_REPLY.value(), map);
 
-    map = new HashMap<Byte, IcmpV6Code>();
+    map = new ConcurrentHashMap<Byte, IcmpV6Code>();
     map.put(NO_CODE.value(), NO_CODE);
     registry.put(IcmpV6Type.ROUTER_SOLICITATION.value(), map);
 
-    map = new HashMap<Byte, IcmpV6Code>();
+    map = new ConcurrentHashMap<Byte, IcmpV6Code>();
     map.put(NO_CODE.value(), NO_CODE);
     registry.put(IcmpV6Type.ROUTER_ADVERTISEMENT.value(), map);
 
-    map = new HashMap<Byte, IcmpV6Code>();
+    map = new ConcurrentHashMap<Byte, IcmpV6Code>();
     map.put(NO_CODE.value(), NO_CODE);
     registry.put(IcmpV6Type.NEIGHBOR_SOLICITATION.value(), map);
 
-    map = new HashMap<Byte, IcmpV6Code>();
+    map = new ConcurrentHashMap<Byte, IcmpV6Code>();
     map.put(NO_CODE.value(), NO_CODE);
     registry.put(IcmpV6Type.NEIGHBOR_ADVERTISEMENT.value(), map);
 
-    map = new HashMap<Byte, IcmpV6Code>();
+    map = new ConcurrentHashMap<Byte, IcmpV6Code>();
     map.put(NO_CODE.value(), NO_CODE);
     registry.put(IcmpV6Type.REDIRECT.value(), map);
   }
@@ -199,12 +200,14 @@ public final class IcmpV6Code extends NamedNumber<Byte> {
    * @return an IcmpV6Code object.
    */
   public static IcmpV6Code getInstance(Byte type, Byte value) {
-    if (registry.containsKey(type) && registry.get(type).containsKey(value)) {
-      return registry.get(type).get(value);
-    }
-    else {
-      return new IcmpV6Code(value, "unknown");
+    Map<Byte, IcmpV6Code> map = registry.get(type);
+    if (map != null) {
+      IcmpV6Code code = map.get(value);
+      if (code != null) {
+        return code;
+      }
     }
+    return new IcmpV6Code(value, "unknown");
   }
 
   /**
@@ -214,15 +217,15 @@ public final class IcmpV6Code extends NamedNumber<Byte> {
    * @return an IcmpV6Code object.
    */
   public static IcmpV6Code register(IcmpV6Type type, IcmpV6Code code) {
-    if (registry.containsKey(type.value())) {
-      return registry.get(type.value()).put(code.value(), code);
-    }
-    else {
-      Map<Byte, IcmpV6Code> map = new HashMap<Byte, IcmpV6Code>();
-      map.put(code.value(), code);
-      registry.put(type.value(), map);
-      return null;
+    Map<Byte, IcmpV6Code> map = registry.get(type.value());
+    if (map == null) {
+      map = new ConcurrentHashMap<Byte, IcmpV6Code>();
+      Map<Byte, IcmpV6Code> existing = registry.putIfAbsent(type.value(), map);
+      if (existing != null) {
+        map = existing;
+      }
     }
+    return map.put(code.value(), code);
   }
 
   @Override
@@ -8,8 +8,6 @@
 package org.pcap4j.packet.namednumber;
 
 import java.lang.reflect.Field;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
  * @author Kaito Yamada
@@ -90,15 +88,20 @@ public final class IcmpV6Type extends NamedNumber<Byte> {
   public static final IcmpV6Type REDIRECT
     = new IcmpV6Type((byte)137, "Redirect");
 
-  private static final Map<Byte, IcmpV6Type> registry
-    = new HashMap<Byte, IcmpV6Type>();
+  private static final NamedNumberTable<IcmpV6Type> registry
+    = new NamedNumberTable<IcmpV6Type>(0x100) {
+        @Override
+        protected IcmpV6Type newUnknown(int index) {
+          return new IcmpV6Type((byte)index, "unknown");
+        }
+      };
 
   static {
     for (Field field: IcmpV6Type.class.getFields()) {
       if (IcmpV6Type.class.isAssignableFrom(field.getType())) {
         try {
           IcmpV6Type f = (IcmpV6Type)field.get(null);
-          registry.put(f.value(), f);
+          registry.put(0xFF & f.value(), f);
         } catch (IllegalArgumentException e) {
           throw new AssertionError(e);
         } catch (IllegalAccessException e) {
@@ -125,12 +128,18 @@ public final class IcmpV6Type extends NamedNumber<Byte> {
    * @return a IcmpV6Type object.
    */
   public static IcmpV6Type getInstance(Byte value) {
-    if (registry.containsKey(value)) {
-      return registry.get(value);
-    }
-    else {
-      return new IcmpV6Type(value, "unknown");
-    }
+    return registry.get(0xFF & value);
+  }
+
+  /**
+   * The same as {@link #getInstance(Byte)} except that this takes
+   * a primitive value, which doesn't need to be boxed.
+   *
+   * @param value
+   * @return a IcmpV6Type object.
+   */
+  public static IcmpV6Type getInstance(byte value) {
+    return registry.get(0xFF & value);
   }
 
   /**
@@ -139,7 +148,7 @@ public final class IcmpV6Type extends NamedNumber<Byte> {
    * @return a IcmpV6Type object.
    */
   public static IcmpV6Type register(IcmpV6Type type) {
-    return registry.put(type.value(), type);
+    return registry.put(0xFF & type.value(), type);
   }
 
   @Override
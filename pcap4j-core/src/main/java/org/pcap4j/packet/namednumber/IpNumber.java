@@ -8,8 +8,6 @@
 package org.pcap4j.packet.namednumber;
 
 import java.lang.reflect.Field;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
  * @author Kaito Yamada
@@ -132,15 +130,20 @@ public final class IpNumber extends NamedNumber<Byte> {
   public static final IpNumber L2TP
     = new IpNumber((byte)115, "L2TP");
 
-  private static final Map<Byte, IpNumber> registry
-    = new HashMap<Byte, IpNumber>();
+  private static final NamedNumberTable<IpNumber> registry
+    = new NamedNumberTable<IpNumber>(0x100) {
+        @Override
+        protected IpNumber newUnknown(int index) {
+          return new IpNumber((byte)index, "unknown");
+        }
+      };
 
   static {
     for (Field field: IpNumber.class.getFields()) {
       if (IpNumber.class.isAssignableFrom(field.getType())) {
         try {
           IpNumber f = (IpNumber)field.get(null);
-          registry.put(f.value(), f);
+          registry.put(0xFF & f.value(), f);
         } catch (IllegalArgumentException e) {
           throw new AssertionError(e);
         } catch (IllegalAccessException e) {
@@ -167,12 +170,18 @@ public final class IpNumber extends NamedNumber<Byte> {
    * @return a IpNumber object.
    */
   public static IpNumber getInstance(Byte value) {
-    if (registry.containsKey(value)) {
-      return registry.get(value);
-    }
-    else {
-      return new IpNumber(value, "unknown");
-    }
+    return registry.get(0xFF & value);
+  }
+
+  /**
+   * The same as {@link #getInstance(Byte)} except that this takes
+   * a primitive value, which doesn't need to be boxed.
+   *
+   * @param value
+   * @return a IpNumber object.
+   */
+  public static IpNumber getInstance(byte value) {
+    return registry.get(0xFF & value);
   }
 
   /**
@@ -181,7 +190,7 @@ public final class IpNumber extends NamedNumber<Byte> {
    * @return a IpNumber object.
    */
   public static IpNumber register(IpNumber number) {
-    return registry.put(number.value(), number);
+    return registry.put(0xFF & number.value(), number);
   }
 
   @Override
@@ -8,8 +8,6 @@
 package org.pcap4j.packet.namednumber;
 
 import java.lang.reflect.Field;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
  * @author Kaito Yamada
@@ -48,15 +46,20 @@ public final class IpV4InternetTimestampOptionFlag extends NamedNumber<Byte> {
         (byte)3, "the internet address fields are prespecified"
       );
 
-  private static final Map<Byte, IpV4InternetTimestampOptionFlag> registry
-    = new HashMap<Byte, IpV4InternetTimestampOptionFlag>();
+  private static final NamedNumberTable<IpV4InternetTimestampOptionFlag> registry
+    = new NamedNumberTable<IpV4InternetTimestampOptionFlag>(0x100) {
+        @Override
+        protected IpV4InternetTimestampOptionFlag newUnknown(int index) {
+          return new IpV4InternetTimestampOptionFlag((byte)index, "unknown");
+        }
+      };
 
   static {
     for (Field field: IpV4InternetTimestampOptionFlag.class.getFields()) {
       if (IpV4InternetTimestampOptionFlag.class.isAssignableFrom(field.getType())) {
         try {
           IpV4InternetTimestampOptionFlag f = (IpV4InternetTimestampOptionFlag)field.get(null);
-          registry.put(f.value(), f);
+          registry.put(0xFF & f.value(), f);
         } catch (IllegalArgumentException e) {
           throw new AssertionError(e);
         } catch (IllegalAccessException e) {
@@ -88,12 +91,18 @@ public final class IpV4InternetTimestampOptionFlag extends NamedNumber<Byte> {
    * @return a IpV4InternetTimestampOptionFlag object.
    */
   public static IpV4InternetTimestampOptionFlag getInstance(Byte value) {
-    if (registry.containsKey(value)) {
-      return registry.get(value);
-    }
-    else {
-      return new IpV4InternetTimestampOptionFlag(value, "unknown");
-    }
+    return registry.get(0xFF & value);
+  }
+
+  /**
+   * The same as {@link #getInstance(Byte)} except that this takes
+   * a primitive value, which doesn't need to be boxed.
+   *
+   * @param value
+   * @return a IpV4InternetTimestampOptionFlag object.
+   */
+  public static IpV4InternetTimestampOptionFlag getInstance(byte value) {
+    return registry.get(0xFF & value);
   }
 
   /**
@@ -104,7 +113,7 @@ public final class IpV4InternetTimestampOptionFlag extends NamedNumber<Byte> {
   public static IpV4InternetTimestampOptionFlag register(
     IpV4InternetTimestampOptionFlag flag
   ) {
-    return registry.put(flag.value(), flag);
+    return registry.put(0xFF & flag.value(), flag);
   }
 
   @Override
@@ -8,8 +8,6 @@
 package org.pcap4j.packet.namednumber;
 
 import java.lang.reflect.Field;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
  * @author Kaito Yamada
@@ -72,15 +70,20 @@ public final class IpV4OptionType extends NamedNumber<Byte> {
   public static final IpV4OptionType STRICT_SOURCE_ROUTING
     = new IpV4OptionType((byte)137, "Strict Source Routing");
 
-  private static final Map<Byte, IpV4OptionType> registry
-    = new HashMap<Byte, IpV4OptionType>();
+  private static final NamedNumberTable<IpV4OptionType> registry
+    = new NamedNumberTable<IpV4OptionType>(0x100) {
+        @Override
+        protected IpV4OptionType newUnknown(int index) {
+          return new IpV4OptionType((byte)index, "unknown");
+        }
+      };
 
   static {
     for (Field field: IpV4OptionType.class.getFields()) {
       if (IpV4OptionType.class.isAssignableFrom(field.getType())) {
         try {
           IpV4OptionType f = (IpV4OptionType)field.get(null);
-          registry.put(f.value(), f);
+          registry.put(0xFF & f.value(), f);
         } catch (IllegalArgumentException e) {
           throw new AssertionError(e);
         } catch (IllegalAccessException e) {
@@ -150,12 +153,18 @@ public final class IpV4OptionType extends NamedNumber<Byte> {
    * @return a IpV4OptionType object.
    */
   public static IpV4OptionType getInstance(Byte value) {
-    if (registry.containsKey(value)) {
-      return registry.get(value);
-    }
-    else {
-      return new IpV4OptionType(value, "unknown");
-    }
+    return registry.get(0xFF & value);
+  }
+
+  /**
+   * The same as {@link #getInstance(Byte)} except that this takes
+   * a primitive value, which doesn't need to be boxed.
+   *
+   * @param value
+   * @return a IpV4OptionType object.
+   */
+  public static IpV4OptionType getInstance(byte value) {
+    return registry.get(0xFF & value);
   }
 
   /**
@@ -164,7 +173,7 @@ public final class IpV4OptionType extends NamedNumber<Byte> {
    * @return a IpV4OptionType object.
    */
   public static IpV4OptionType register(IpV4OptionType type) {
-    return registry.put(type.value(), type);
+    return registry.put(0xFF & type.value(), type);
   }
 
   @Override
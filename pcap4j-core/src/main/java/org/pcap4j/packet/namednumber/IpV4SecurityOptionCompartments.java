@@ -8,8 +8,6 @@
 package org.pcap4j.packet.namednumber;
 
 import java.lang.reflect.Field;
-import java.util.HashMap;
-import java.util.Map;
 import org.pcap4j.util.ByteArrays;
 
 /**
@@ -31,15 +29,20 @@ public final class IpV4SecurityOptionCompartments extends NamedNumber<Short> {
   public static final IpV4SecurityOptionCompartments NOT_COMPARTMENTED
     = new IpV4SecurityOptionCompartments((short)0x0000, "not compartmented");
 
-  private static final Map<Short, IpV4SecurityOptionCompartments> registry
-    = new HashMap<Short, IpV4SecurityOptionCompartments>();
+  private static final NamedNumberTable<IpV4SecurityOptionCompartments> registry
+    = new NamedNumberTable<IpV4SecurityOptionCompartments>(0x10000) {
+        @Override
+        protected IpV4SecurityOptionCompartments newUnknown(int index) {
+          return new IpV4SecurityOptionCompartments((short)index, "unknown");
+        }
+      };
 
   static {
     for (Field field: IpV4SecurityOptionCompartments.class.getFields()) {
       if (IpV4SecurityOptionCompartments.class.isAssignableFrom(field.getType())) {
         try {
           IpV4SecurityOptionCompartments f = (IpV4SecurityOptionCompartments)field.get(null);
-          registry.put(f.value(), f);
+          registry.put(0xFFFF & f.value(), f);
         } catch (IllegalArgumentException e) {
           throw new AssertionError(e);
         } catch (IllegalAccessException e) {
@@ -66,12 +69,18 @@ public final class IpV4SecurityOptionCompartments extends NamedNumber<Short> {
    * @return a IpV4SecurityOptionCompartments object.
    */
   public static IpV4SecurityOptionCompartments getInstance(Short value) {
-    if (registry.containsKey(value)) {
-      return registry.get(value);
-    }
-    else {
-      return new IpV4SecurityOptionCompartments(value, "unknown");
-    }
+    return registry.get(0xFFFF & value);
+  }
+
+  /**
+   * The same as {@link #getInstance(Short)} except that this takes
+   * a primitive value, which doesn't need to be boxed.
+   *
+   * @param value
+   * @return a IpV4SecurityOptionCompartments object.
+   */
+  public static IpV4SecurityOptionCompartments getInstance(short value) {
+    return registry.get(0xFFFF & value);
   }
 
   /**
@@ -82,7 +91,7 @@ public final class IpV4SecurityOptionCompartments extends NamedNumber<Short> {
   public static IpV4SecurityOptionCompartments register(
     IpV4SecurityOptionCompartments number
   ) {
-    return registry.put(number.value(), number);
+    return registry.put(0xFFFF & number.value(), number);
   }
 
   @Override
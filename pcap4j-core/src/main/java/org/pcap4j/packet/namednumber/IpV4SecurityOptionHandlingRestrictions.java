@@ -8,8 +8,6 @@
 package org.pcap4j.packet.namednumber;
 
 import java.lang.reflect.Field;
-import java.util.HashMap;
-import java.util.Map;
 import org.pcap4j.util.ByteArrays;
 
 /**
@@ -26,8 +24,13 @@ public final class IpV4SecurityOptionHandlingRestrictions extends NamedNumber<Sh
    */
   private static final long serialVersionUID = 3041825811304706489L;
 
-  private static final Map<Short, IpV4SecurityOptionHandlingRestrictions> registry
-    = new HashMap<Short, IpV4SecurityOptionHandlingRestrictions>();
+  private static final NamedNumberTable<IpV4SecurityOptionHandlingRestrictions> registry
+    = new NamedNumberTable<IpV4SecurityOptionHandlingRestrictions>(0x10000) {
+        @Override
+        protected IpV4SecurityOptionHandlingRestrictions newUnknown(int index) {
+          return new IpV4SecurityOptionHandlingRestrictions((short)index, "unknown");
+        }
+      };
 
   static {
     for (
@@ -40,7 +43,7 @@ public final class IpV4SecurityOptionHandlingRestrictions extends NamedNumber<Sh
         try {
           IpV4SecurityOptionHandlingRestrictions f
             = (IpV4SecurityOptionHandlingRestrictions)field.get(null);
-          registry.put(f.value(), f);
+          registry.put(0xFFFF & f.value(), f);
         } catch (IllegalArgumentException e) {
           throw new AssertionError(e);
         } catch (IllegalAccessException e) {
@@ -69,12 +72,20 @@ public final class IpV4SecurityOptionHandlingRestrictions extends NamedNumber<Sh
   public static IpV4SecurityOptionHandlingRestrictions getInstance(
     Short value
   ) {
-    if (registry.containsKey(value)) {
-      return registry.get(value);
-    }
-    else {
-      return new IpV4SecurityOptionHandlingRestrictions(value, "unknown");
-    }
+    return registry.get(0xFFFF & value);
+  }
+
+  /**
+   * The same as {@link #getInstance(Short)} except that this takes
+   * a primitive value, which doesn't need to be boxed.
+   *
+   * @param value
+   * @return a IpV4SecurityOptionHandlingRestrictions object.
+   */
+  public static IpV4SecurityOptionHandlingRestrictions getInstance(
+    short value
+  ) {
+    return registry.get(0xFFFF & value);
   }
 
   /**
@@ -85,7 +96,7 @@ public final class IpV4SecurityOptionHandlingRestrictions extends NamedNumber<Sh
   public static IpV4SecurityOptionHandlingRestrictions register(
     IpV4SecurityOptionHandlingRestrictions number
   ) {
-    return registry.put(number.value(), number);
+    return registry.put(0xFFFF & number.value(), number);
   }
 
   @Override
@@ -8,8 +8,6 @@
 package org.pcap4j.packet.namednumber;
 
 import java.lang.reflect.Field;
-import java.util.HashMap;
-import java.util.Map;
 import org.pcap4j.util.ByteArrays;
 
 /**
@@ -73,15 +71,20 @@ public final class IpV4SecurityOptionSecurity extends NamedNumber<Short> {
   public static final IpV4SecurityOptionSecurity TOP_SECRET
     = new IpV4SecurityOptionSecurity((short)0x6BC5, "Top Secret");
 
-  private static final Map<Short, IpV4SecurityOptionSecurity> registry
-    = new HashMap<Short, IpV4SecurityOptionSecurity>();
+  private static final NamedNumberTable<IpV4SecurityOptionSecurity> registry
+    = new NamedNumberTable<IpV4SecurityOptionSecurity>(0x10000) {
+        @Override
+        protected IpV4SecurityOptionSecurity newUnknown(int index) {
+          return new IpV4SecurityOptionSecurity((short)index, "unknown");
+        }
+      };
 
   static {
     for (Field field: IpV4SecurityOptionSecurity.class.getFields()) {
       if (IpV4SecurityOptionSecurity.class.isAssignableFrom(field.getType())) {
         try {
           IpV4SecurityOptionSecurity f = (IpV4SecurityOptionSecurity)field.get(null);
-          registry.put(f.value(), f);
+          registry.put(0xFFFF & f.value(), f);
         } catch (IllegalArgumentException e) {
           throw new AssertionError(e);
         } catch (IllegalAccessException e) {
@@ -108,12 +111,18 @@ public final class IpV4SecurityOptionSecurity extends NamedNumber<Short> {
    * @return a IpV4SecurityOptionSecurity object.
    */
   public static IpV4SecurityOptionSecurity getInstance(Short value) {
-    if (registry.containsKey(value)) {
-      return registry.get(value);
-    }
-    else {
-      return new IpV4SecurityOptionSecurity(value, "unknown");
-    }
+    return registry.get(0xFFFF & value);
+  }
+
+  /**
+   * The same as {@link #getInstance(Short)} except that this takes
+   * a primitive value, which doesn't need to be boxed.
+   *
+   * @param value
+   * @return a IpV4SecurityOptionSecurity object.
+   */
+  public static IpV4SecurityOptionSecurity getInstance(short value) {
+    return registry.get(0xFFFF & value);
   }
 
   /**
@@ -124,7 +133,7 @@ public final class IpV4SecurityOptionSecurity extends NamedNumber<Short> {
   public static IpV4SecurityOptionSecurity register(
     IpV4SecurityOptionSecurity number
   ) {
-    return registry.put(number.value(), number);
+    return registry.put(0xFFFF & number.value(), number);
   }
 
   @Override
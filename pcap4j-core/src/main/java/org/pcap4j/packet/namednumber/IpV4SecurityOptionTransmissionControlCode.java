@@ -8,8 +8,8 @@
 package org.pcap4j.packet.namednumber;
 
 import java.lang.reflect.Field;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import org.pcap4j.util.ByteArrays;
 
 /**
@@ -29,7 +29,7 @@ IpV4SecurityOptionTransmissionControlCode extends NamedNumber<Integer> {
 
   private static final
   Map<Integer, IpV4SecurityOptionTransmissionControlCode> registry
-    = new HashMap<Integer, IpV4SecurityOptionTransmissionControlCode>();
+    = new ConcurrentHashMap<Integer, IpV4SecurityOptionTransmissionControlCode>();
 
   static {
     for (
@@ -77,8 +77,9 @@ IpV4SecurityOptionTransmissionControlCode extends NamedNumber<Integer> {
   public static IpV4SecurityOptionTransmissionControlCode getInstance(
     Integer value
   ) {
-    if (registry.containsKey(value)) {
-      return registry.get(value);
+    IpV4SecurityOptionTransmissionControlCode instance = registry.get(value);
+    if (instance != null) {
+      return instance;
     }
     else {
       return new IpV4SecurityOptionTransmissionControlCode(value, "unknown");
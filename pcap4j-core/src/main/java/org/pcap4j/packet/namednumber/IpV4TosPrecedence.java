@@ -8,8 +8,6 @@
 package org.pcap4j.packet.namednumber;
 
 import java.lang.reflect.Field;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
  * @author Kaito Yamada
@@ -72,15 +70,20 @@ public final class IpV4TosPrecedence extends NamedNumber<Byte> {
   public static final IpV4TosPrecedence NETWORK_CONTROL
     = new IpV4TosPrecedence((byte)7, "Network Control");
 
-  private static final Map<Byte, IpV4TosPrecedence> registry
-    = new HashMap<Byte, IpV4TosPrecedence>();
+  private static final NamedNumberTable<IpV4TosPrecedence> registry
+    = new NamedNumberTable<IpV4TosPrecedence>(0x100) {
+        @Override
+        protected IpV4TosPrecedence newUnknown(int index) {
+          return new IpV4TosPrecedence((byte)index, "unknown");
+        }
+      };
 
   static {
     for (Field field: IpV4TosPrecedence.class.getFields()) {
       if (IpV4TosPrecedence.class.isAssignableFrom(field.getType())) {
         try {
           IpV4TosPrecedence f = (IpV4TosPrecedence)field.get(null);
-          registry.put(f.value(), f);
+          registry.put(0xFF & f.value(), f);
         } catch (IllegalArgumentException e) {
           throw new AssertionError(e);
         } catch (IllegalAccessException e) {
@@ -113,12 +116,18 @@ public final class IpV4TosPrecedence extends NamedNumber<Byte> {
    * @return a IpV4TosPrecedence object.
    */
   public static IpV4TosPrecedence getInstance(Byte value) {
-    if (registry.containsKey(value)) {
-      return registry.get(value);
-    }
-    else {
-      return new IpV4TosPrecedence(value, "unknown");
-    }
+    return registry.get(0xFF & value);
+  }
+
+  /**
+   * The same as {@link #getInstance(Byte)} except that this takes
+   * a primitive value, which doesn't need to be boxed.
+   *
+   * @param value
+   * @return a IpV4TosPrecedence object.
+   */
+  public static IpV4TosPrecedence getInstance(byte value) {
+    return registry.get(0xFF & value);
   }
 
   /**
@@ -127,7 +136,7 @@ public final class IpV4TosPrecedence extends NamedNumber<Byte> {
    * @return a IpV4TosPrecedence object.
    */
   public static IpV4TosPrecedence register(IpV4TosPrecedence precedence) {
-    return registry.put(precedence.value(), precedence);
+    return registry.put(0xFF & precedence.value(), precedence);
   }
 
   @Override
@@ -8,8 +8,6 @@
 package org.pcap4j.packet.namednumber;
 
 import java.lang.reflect.Field;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
  * @author Kaito Yamada
@@ -60,15 +58,20 @@ public final class IpV4TosTos extends NamedNumber<Byte> {
   public static final IpV4TosTos MAXIMIZE_SECURITY
     = new IpV4TosTos((byte)0x0F, "Maximize Security");
 
-  private static final Map<Byte, IpV4TosTos> registry
-    = new HashMap<Byte, IpV4TosTos>();
+  private static final NamedNumberTable<IpV4TosTos> registry
+    = new NamedNumberTable<IpV4TosTos>(0x100) {
+        @Override
+        protected IpV4TosTos newUnknown(int index) {
+          return new IpV4TosTos((byte)index, "unknown");
+        }
+      };
 
   static {
     for (Field field: IpV4TosTos.class.getFields()) {
       if (IpV4TosTos.class.isAssignableFrom(field.getType())) {
         try {
           IpV4TosTos f = (IpV4TosTos)field.get(null);
-          registry.put(f.value(), f);
+          registry.put(0xFF & f.value(), f);
         } catch (IllegalArgumentException e) {
           throw new AssertionError(e);
         } catch (IllegalAccessException e) {
@@ -101,12 +104,18 @@ public final class IpV4TosTos extends NamedNumber<Byte> {
    * @return a IpV4TosTos object.
    */
   public static IpV4TosTos getInstance(Byte value) {
-    if (registry.containsKey(value)) {
-      return registry.get(value);
-    }
-    else {
-      return new IpV4TosTos(value, "unknown");
-    }
+    return registry.get(0xFF & value);
+  }
+
+  /**
+   * The same as {@link #getInstance(Byte)} except that this takes
+   * a primitive value, which doesn't need to be boxed.
+   *
+   * @param value
+   * @return a IpV4TosTos object.
+   */
+  public static IpV4TosTos getInstance(byte value) {
+    return registry.get(0xFF & value);
   }
 
   /**
@@ -115,7 +124,7 @@ public final class IpV4TosTos extends NamedNumber<Byte> {
    * @return a IpV4TosTos object.
    */
   public static IpV4TosTos register(IpV4TosTos tos) {
-    return registry.put(tos.value(), tos);
+    return registry.put(0xFF & tos.value(), tos);
   }
 
   @Override
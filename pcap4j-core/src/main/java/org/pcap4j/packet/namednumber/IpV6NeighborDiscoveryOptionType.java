@@ -8,8 +8,6 @@
 package org.pcap4j.packet.namednumber;
 
 import java.lang.reflect.Field;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
  * @author Kaito Yamada
@@ -54,15 +52,20 @@ public final class IpV6NeighborDiscoveryOptionType extends NamedNumber<Byte> {
   public static final IpV6NeighborDiscoveryOptionType MTU
     = new IpV6NeighborDiscoveryOptionType((byte)5, "MTU");
 
-  private static final Map<Byte, IpV6NeighborDiscoveryOptionType> registry
-    = new HashMap<Byte, IpV6NeighborDiscoveryOptionType>();
+  private static final NamedNumberTable<IpV6NeighborDiscoveryOptionType> registry
+    = new NamedNumberTable<IpV6NeighborDiscoveryOptionType>(0x100) {
+        @Override
+        protected IpV6NeighborDiscoveryOptionType newUnknown(int index) {
+          return new IpV6NeighborDiscoveryOptionType((byte)index, "unknown");
+        }
+      };
 
   static {
     for (Field field: IpV6NeighborDiscoveryOptionType.class.getFields()) {
       if (IpV6NeighborDiscoveryOptionType.class.isAssignableFrom(field.getType())) {
         try {
           IpV6NeighborDiscoveryOptionType f = (IpV6NeighborDiscoveryOptionType)field.get(null);
-          registry.put(f.value(), f);
+          registry.put(0xFF & f.value(), f);
         } catch (IllegalArgumentException e) {
           throw new AssertionError(e);
         } catch (IllegalAccessException e) {
@@ -89,12 +92,18 @@ public final class IpV6NeighborDiscoveryOptionType extends NamedNumber<Byte> {
    * @return a IpV6NeighborDiscoveryOptionType object.
    */
   public static IpV6NeighborDiscoveryOptionType getInstance(Byte value) {
-    if (registry.containsKey(value)) {
-      return registry.get(value);
-    }
-    else {
-      return new IpV6NeighborDiscoveryOptionType(value, "unknown");
-    }
+    return registry.get(0xFF & value);
+  }
+
+  /**
+   * The same as {@link #getInstance(Byte)} except that this takes
+   * a primitive value, which doesn't need to be boxed.
+   *
+   * @param value
+   * @return a IpV6NeighborDiscoveryOptionType object.
+   */
+  public static IpV6NeighborDiscoveryOptionType getInstance(byte value) {
+    return registry.get(0xFF & value);
   }
 
   /**
@@ -103,7 +112,7 @@ public final class IpV6NeighborDiscoveryOptionType extends NamedNumber<Byte> {
    * @return a IpV6NeighborDiscoveryOptionType object.
    */
   public static IpV6NeighborDiscoveryOptionType register(IpV6NeighborDiscoveryOptionType type) {
-    return registry.put(type.value(), type);
+    return registry.put(0xFF & type.value(), type);
   }
 
   @Override
@@ -8,8 +8,6 @@
 package org.pcap4j.packet.namednumber;
 
 import java.lang.reflect.Field;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
  * @author Kaito Yamada
@@ -37,15 +35,20 @@ public final class IpV6OptionType extends NamedNumber<Byte> {
   public static final IpV6OptionType PADN
     = new IpV6OptionType((byte)1, "PadN");
 
-  private static final Map<Byte, IpV6OptionType> registry
-    = new HashMap<Byte, IpV6OptionType>();
+  private static final NamedNumberTable<IpV6OptionType> registry
+    = new NamedNumberTable<IpV6OptionType>(0x100) {
+        @Override
+        protected IpV6OptionType newUnknown(int index) {
+          return new IpV6OptionType((byte)index, "unknown");
+        }
+      };
 
   static {
     for (Field field: IpV6OptionType.class.getFields()) {
       if (IpV6OptionType.class.isAssignableFrom(field.getType())) {
         try {
           IpV6OptionType f = (IpV6OptionType)field.get(null);
-          registry.put(f.value(), f);
+          registry.put(0xFF & f.value(), f);
         } catch (IllegalArgumentException e) {
           throw new AssertionError(e);
         } catch (IllegalAccessException e) {
@@ -91,12 +94,18 @@ public final class IpV6OptionType extends NamedNumber<Byte> {
    * @return a IpV6OptionType object.
    */
   public static IpV6OptionType getInstance(Byte value) {
-    if (registry.containsKey(value)) {
-      return registry.get(value);
-    }
-    else {
-      return new IpV6OptionType(value, "unknown");
-    }
+    return registry.get(0xFF & value);
+  }
+
+  /**
+   * The same as {@link #getInstance(Byte)} except that this takes
+   * a primitive value, which doesn't need to be boxed.
+   *
+   * @param value
+   * @return a IpV6OptionType object.
+   */
+  public static IpV6OptionType getInstance(byte value) {
+    return registry.get(0xFF & value);
   }
 
   /**
@@ -105,7 +114,7 @@ public final class IpV6OptionType extends NamedNumber<Byte> {
    * @return a IpV6OptionType object.
    */
   public static IpV6OptionType register(IpV6OptionType type) {
-    return registry.put(type.value(), type);
+    return registry.put(0xFF & type.value(), type);
   }
 
   @Override
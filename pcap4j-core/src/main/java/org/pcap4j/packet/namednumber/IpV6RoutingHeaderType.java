@@ -8,8 +8,6 @@
 package org.pcap4j.packet.namednumber;
 
 import java.lang.reflect.Field;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
  * @author Kaito Yamada
@@ -43,15 +41,20 @@ public final class IpV6RoutingHeaderType extends NamedNumber<Byte> {
   public static final IpV6RoutingHeaderType RPL_SOURCE_ROUTE_HEADER
     = new IpV6RoutingHeaderType((byte)3, "RPL Source Route Header");
 
-  private static final Map<Byte, IpV6RoutingHeaderType> registry
-    = new HashMap<Byte, IpV6RoutingHeaderType>();
+  private static final NamedNumberTable<IpV6RoutingHeaderType> registry
+    = new NamedNumberTable<IpV6RoutingHeaderType>(0x100) {
+        @Override
+        protected IpV6RoutingHeaderType newUnknown(int index) {
+          return new IpV6RoutingHeaderType((byte)index, "unknown");
+        }
+      };
 
   static {
     for (Field field: IpV6RoutingHeaderType.class.getFields()) {
       if (IpV6RoutingHeaderType.class.isAssignableFrom(field.getType())) {
         try {
           IpV6RoutingHeaderType f = (IpV6RoutingHeaderType)field.get(null);
-          registry.put(f.value(), f);
+          registry.put(0xFF & f.value(), f);
         } catch (IllegalArgumentException e) {
           throw new AssertionError(e);
         } catch (IllegalAccessException e) {
@@ -78,12 +81,18 @@ public final class IpV6RoutingHeaderType extends NamedNumber<Byte> {
    * @return a IpV6RoutingHeaderType object.
    */
   public static IpV6RoutingHeaderType getInstance(Byte value) {
-    if (registry.containsKey(value)) {
-      return registry.get(value);
-    }
-    else {
-      return new IpV6RoutingHeaderType(value, "unknown");
-    }
+    return registry.get(0xFF & value);
+  }
+
+  /**
+   * The same as {@link #getInstance(Byte)} except that this takes
+   * a primitive value, which doesn't need to be boxed.
+   *
+   * @param value
+   * @return a IpV6RoutingHeaderType object.
+   */
+  public static IpV6RoutingHeaderType getInstance(byte value) {
+    return registry.get(0xFF & value);
   }
 
   /**
@@ -92,7 +101,7 @@ public final class IpV6RoutingHeaderType extends NamedNumber<Byte> {
    * @return a IpV6RoutingHeaderType object.
    */
   public static IpV6RoutingHeaderType register(IpV6RoutingHeaderType number) {
-    return registry.put(number.value(), number);
+    return registry.put(0xFF & number.value(), number);
   }
 
   @Override
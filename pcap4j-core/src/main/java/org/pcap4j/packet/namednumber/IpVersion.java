@@ -8,8 +8,6 @@
 package org.pcap4j.packet.namednumber;
 
 import java.lang.reflect.Field;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
  * @author Kaito Yamada
@@ -60,15 +58,20 @@ public final class IpVersion extends NamedNumber<Byte> {
   public static final IpVersion TUBA
     = new IpVersion((byte)9, "TUBA");
 
-  private static final Map<Byte, IpVersion> registry
-    = new HashMap<Byte, IpVersion>();
+  private static final NamedNumberTable<IpVersion> registry
+    = new NamedNumberTable<IpVersion>(0x100) {
+        @Override
+        protected IpVersion newUnknown(int index) {
+          return new IpVersion((byte)index, "unknown");
+        }
+      };
 
   static {
     for (Field field: IpVersion.class.getFields()) {
       if (IpVersion.class.isAssignableFrom(field.getType())) {
         try {
           IpVersion f = (IpVersion)field.get(null);
-          registry.put(f.value(), f);
+          registry.put(0xFF & f.value(), f);
         } catch (IllegalArgumentException e) {
           throw new AssertionError(e);
         } catch (IllegalAccessException e) {
@@ -101,12 +104,18 @@ public final class IpVersion extends NamedNumber<Byte> {
    * @return a IpVersion object.
    */
   public static IpVersion getInstance(Byte value) {
-    if (registry.containsKey(value)) {
-      return registry.get(value);
-    }
-    else {
-      return new IpVersion(value, "unknown");
-    }
+    return registry.get(0xFF & value);
+  }
+
+  /**
+   * The same as {@link #getInstance(Byte)} except that this takes
+   * a primitive value, which doesn't need to be boxed.
+   *
+   * @param value
+   * @return a IpVersion object.
+   */
+  public static IpVersion getInstance(byte value) {
+    return registry.get(0xFF & value);
   }
 
   /**
@@ -115,7 +124,7 @@ public final class IpVersion extends NamedNumber<Byte> {
    * @return a IpVersion object.
    */
   public static IpVersion register(IpVersion version) {
-    return registry.put(version.value(), version);
+    return registry.put(0xFF & version.value(), version);
   }
 
   @Override
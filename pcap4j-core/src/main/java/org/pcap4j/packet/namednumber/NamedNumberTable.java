@@ -0,0 +1,98 @@
+/*_##########################################################################
+  _##
+  _##  Copyright (C) 2013  Kaito Yamada
+  _##
+  _##########################################################################
+*/
+
+package org.pcap4j.packet.namednumber;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A registry of NamedNumber objects whose values are in a small range
+ * such as that of byte or short. A value is used as an index of an array,
+ * so a lookup neither locks nor boxes the value.
+ * A registration replaces the array with an updated copy,
+ * so concurrent readers always see a consistent array.
+ * An object for an unregistered value is made by {@link #newUnknown(int)}
+ * only once per value and reused afterwards.
+ *
+ * @author Kaito Yamada
+ * @since pcap4j 1.0.1
+ * @param <T>
+ */
+abstract class NamedNumberTable<T extends NamedNumber<?>> {
+
+  private final int size;
+  private final Object lock = new Object();
+  private volatile Object[] entries;
+  private volatile AtomicReferenceArray<T> unknowns = null;
+
+  /**
+   *
+   * @param size 0x100 for a byte value, 0x10000 for a short value.
+   */
+  NamedNumberTable(int size) {
+    this.size = size;
+    this.entries = new Object[size];
+  }
+
+  /**
+   *
+   * @param index
+   * @return a new object which represents an unregistered value.
+   */
+  protected abstract T newUnknown(int index);
+
+  /**
+   *
+   * @param index an unsigned value, e.g. (0xFF &amp; value) for a byte value.
+   * @return the registered object, or the cached unknown object if none is registered.
+   */
+  T get(int index) {
+    @SuppressWarnings("unchecked")
+    T entry = (T)entries[index];
+    if (entry != null) {
+      return entry;
+    }
+
+    AtomicReferenceArray<T> unknownsRef = unknowns;
+    if (unknownsRef == null) {
+      synchronized (lock) {
+        unknownsRef = unknowns;
+        if (unknownsRef == null) {
+          unknownsRef = new AtomicReferenceArray<T>(size);
+          unknowns = unknownsRef;
+        }
+      }
+    }
+
+    T unknown = unknownsRef.get(index);
+    if (unknown == null) {
+      unknown = newUnknown(index);
+      if (!unknownsRef.compareAndSet(index, null, unknown)) {
+        unknown = unknownsRef.get(index);
+      }
+    }
+    return unknown;
+  }
+
+  /**
+   *
+   * @param index an unsigned value, e.g. (0xFF &amp; value) for a byte value.
+   * @param entry
+   * @return the object previously registered for the index, or null if none.
+   */
+  T put(int index, T entry) {
+    synchronized (lock) {
+      Object[] copy = entries.clone();
+      @SuppressWarnings("unchecked")
+      T old = (T)copy[index];
+      copy[index] = entry;
+      entries = copy;
+      return old;
+    }
+  }
+
+}
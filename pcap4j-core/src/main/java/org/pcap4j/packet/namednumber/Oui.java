@@ -8,8 +8,8 @@
 package org.pcap4j.packet.namednumber;
 
 import java.lang.reflect.Field;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import org.pcap4j.util.ByteArrays;
 
 /**
@@ -86,7 +86,7 @@ public final class Oui extends NamedNumber<Integer> {
     = new Oui(0x004066, "Hitachi Cable");
 
   private static final Map<Integer, Oui> registry
-    = new HashMap<Integer, Oui>();
+    = new ConcurrentHashMap<Integer, Oui>();
 
   static {
     for (Field field: Oui.class.getFields()) {
@@ -126,8 +126,9 @@ public final class Oui extends NamedNumber<Integer> {
    * @return a Oui object.
    */
   public static Oui getInstance(Integer value) {
-    if (registry.containsKey(value)) {
-      return registry.get(value);
+    Oui instance = registry.get(value);
+    if (instance != null) {
+      return instance;
     }
     else {
       return new Oui(value, "unknown");
@@ -8,8 +8,8 @@
 package org.pcap4j.packet.namednumber;
 
 import java.lang.reflect.Field;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @author Kaito Yamada
@@ -115,7 +115,7 @@ public final class Ssh2DisconnectionReasonCode extends NamedNumber<Integer> {
     = new Ssh2DisconnectionReasonCode(15, "SSH_DISCONNECT_ILLEGAL_USER_NAME");
 
   private static final Map<Integer, Ssh2DisconnectionReasonCode> registry
-    = new HashMap<Integer, Ssh2DisconnectionReasonCode>();
+    = new ConcurrentHashMap<Integer, Ssh2DisconnectionReasonCode>();
 
   static {
     for (Field field: Ssh2DisconnectionReasonCode.class.getFields()) {
@@ -149,8 +149,9 @@ public final class Ssh2DisconnectionReasonCode extends NamedNumber<Integer> {
    * @return a Ssh2DisconnectionReasonCode object.
    */
   public static Ssh2DisconnectionReasonCode getInstance(Integer value) {
-    if (registry.containsKey(value)) {
-      return registry.get(value);
+    Ssh2DisconnectionReasonCode instance = registry.get(value);
+    if (instance != null) {
+      return instance;
     }
     else {
       return new Ssh2DisconnectionReasonCode(value, "unknown");
@@ -8,8 +8,6 @@
 package org.pcap4j.packet.namednumber;
 
 import java.lang.reflect.Field;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
  * @author Kaito Yamada
@@ -205,15 +203,20 @@ public final class Ssh2MessageNumber extends NamedNumber<Byte> {
   public static final Ssh2MessageNumber SSH_MSG_CHANNEL_FAILURE
     = new Ssh2MessageNumber((byte)100, "SSH_MSG_CHANNEL_FAILURE");
 
-  private static final Map<Byte, Ssh2MessageNumber> registry
-    = new HashMap<Byte, Ssh2MessageNumber>();
+  private static final NamedNumberTable<Ssh2MessageNumber> registry
+    = new NamedNumberTable<Ssh2MessageNumber>(0x100) {
+        @Override
+        protected Ssh2MessageNumber newUnknown(int index) {
+          return new Ssh2MessageNumber((byte)index, "unknown");
+        }
+      };
 
   static {
     for (Field field: Ssh2MessageNumber.class.getFields()) {
       if (Ssh2MessageNumber.class.isAssignableFrom(field.getType())) {
         try {
           Ssh2MessageNumber f = (Ssh2MessageNumber)field.get(null);
-          registry.put(f.value(), f);
+          registry.put(0xFF & f.value(), f);
         } catch (IllegalArgumentException e) {
           throw new AssertionError(e);
         } catch (IllegalAccessException e) {
@@ -240,12 +243,18 @@ public final class Ssh2MessageNumber extends NamedNumber<Byte> {
    * @return a Ssh2MessageNumber object.
    */
   public static Ssh2MessageNumber getInstance(Byte value) {
-    if (registry.containsKey(value)) {
-      return registry.get(value);
-    }
-    else {
-      return new Ssh2MessageNumber(value, "unknown");
-    }
+    return registry.get(0xFF & value);
+  }
+
+  /**
+   * The same as {@link #getInstance(Byte)} except that this takes
+   * a primitive value, which doesn't need to be boxed.
+   *
+   * @param value
+   * @return a Ssh2MessageNumber object.
+   */
+  public static Ssh2MessageNumber getInstance(byte value) {
+    return registry.get(0xFF & value);
   }
 
   /**
@@ -254,7 +263,7 @@ public final class Ssh2MessageNumber extends NamedNumber<Byte> {
    * @return a Ssh2MessageNumber object.
    */
   public static Ssh2MessageNumber register(Ssh2MessageNumber number) {
-    return registry.put(number.value(), number);
+    return registry.put(0xFF & number.value(), number);
   }
 
   @Override
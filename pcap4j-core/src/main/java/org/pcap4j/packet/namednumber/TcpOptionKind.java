@@ -8,8 +8,6 @@
 package org.pcap4j.packet.namednumber;
 
 import java.lang.reflect.Field;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
  * @author Kaito Yamada
@@ -42,15 +40,20 @@ public final class TcpOptionKind extends NamedNumber<Byte> {
   public static final TcpOptionKind MAXIMUM_SEGMENT_SIZE
     = new TcpOptionKind((byte)2, "Maximum Segment Size");
 
-  private static final Map<Byte, TcpOptionKind> registry
-    = new HashMap<Byte, TcpOptionKind>();
+  private static final NamedNumberTable<TcpOptionKind> registry
+    = new NamedNumberTable<TcpOptionKind>(0x100) {
+        @Override
+        protected TcpOptionKind newUnknown(int index) {
+          return new TcpOptionKind((byte)index, "unknown");
+        }
+      };
 
   static {
     for (Field field: TcpOptionKind.class.getFields()) {
       if (TcpOptionKind.class.isAssignableFrom(field.getType())) {
         try {
           TcpOptionKind f = (TcpOptionKind)field.get(null);
-          registry.put(f.value(), f);
+          registry.put(0xFF & f.value(), f);
         } catch (IllegalArgumentException e) {
           throw new AssertionError(e);
         } catch (IllegalAccessException e) {
@@ -77,12 +80,18 @@ public final class TcpOptionKind extends NamedNumber<Byte> {
    * @return a TcpOptionKind object.
    */
   public static TcpOptionKind getInstance(Byte value) {
-    if (registry.containsKey(value)) {
-      return registry.get(value);
-    }
-    else {
-      return new TcpOptionKind(value, "unknown");
-    }
+    return registry.get(0xFF & value);
+  }
+
+  /**
+   * The same as {@link #getInstance(Byte)} except that this takes
+   * a primitive value, which doesn't need to be boxed.
+   *
+   * @param value
+   * @return a TcpOptionKind object.
+   */
+  public static TcpOptionKind getInstance(byte value) {
+    return registry.get(0xFF & value);
   }
 
   /**
@@ -91,7 +100,7 @@ public final class TcpOptionKind extends NamedNumber<Byte> {
    * @return a TcpOptionKind object.
    */
   public static TcpOptionKind register(TcpOptionKind type) {
-    return registry.put(type.value(), type);
+    return registry.put(0xFF & type.value(), type);
   }
 
   @Override
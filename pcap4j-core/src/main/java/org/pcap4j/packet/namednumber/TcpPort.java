@@ -8,8 +8,6 @@
 package org.pcap4j.packet.namednumber;
 
 import java.lang.reflect.Field;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
  * @author Kaito Yamada
@@ -36,15 +34,20 @@ public final class TcpPort extends NamedNumber<Short> {
   public static final TcpPort SNMP_TRAP
     = new TcpPort((short)162, "SNMP Trap");
 
-  private static final Map<Short, TcpPort> registry
-    = new HashMap<Short, TcpPort>();
+  private static final NamedNumberTable<TcpPort> registry
+    = new NamedNumberTable<TcpPort>(0x10000) {
+        @Override
+        protected TcpPort newUnknown(int index) {
+          return new TcpPort((short)index, "unknown");
+        }
+      };
 
   static {
     for (Field field: TcpPort.class.getFields()) {
       if (TcpPort.class.isAssignableFrom(field.getType())) {
         try {
           TcpPort f = (TcpPort)field.get(null);
-          registry.put(f.value(), f);
+          registry.put(0xFFFF & f.value(), f);
         } catch (IllegalArgumentException e) {
           throw new AssertionError(e);
         } catch (IllegalAccessException e) {
@@ -72,12 +75,18 @@ public final class TcpPort extends NamedNumber<Short> {
    * @return a TcpPort object.
    */
   public static TcpPort getInstance(Short value) {
-    if (registry.containsKey(value)) {
-      return registry.get(value);
-    }
-    else {
-      return new TcpPort(value, "unknown");
-    }
+    return registry.get(0xFFFF & value);
+  }
+
+  /**
+   * The same as {@link #getInstance(Short)} except that this takes
+   * a primitive value, which doesn't need to be boxed.
+   *
+   * @param value
+   * @return a TcpPort object.
+   */
+  public static TcpPort getInstance(short value) {
+    return registry.get(0xFFFF & value);
   }
 
   /**
@@ -86,7 +95,7 @@ public final class TcpPort extends NamedNumber<Short> {
    * @return a TcpPort object.
    */
   public static TcpPort register(TcpPort port) {
-    return registry.put(port.value(), port);
+    return registry.put(0xFFFF & port.value(), port);
   }
 
   /**
@@ -8,8 +8,6 @@
 package org.pcap4j.packet.namednumber;
 
 import java.lang.reflect.Field;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
  * @author Kaito Yamada
@@ -36,15 +34,20 @@ public final class UdpPort extends NamedNumber<Short> {
   public static final UdpPort SNMP_TRAP
     = new UdpPort((short)162, "SNMP Trap");
 
-  private static final Map<Short, UdpPort> registry
-    = new HashMap<Short, UdpPort>();
+  private static final NamedNumberTable<UdpPort> registry
+    = new NamedNumberTable<UdpPort>(0x10000) {
+        @Override
+        protected UdpPort newUnknown(int index) {
+          return new UdpPort((short)index, "unknown");
+        }
+      };
 
   static {
     for (Field field: UdpPort.class.getFields()) {
       if (UdpPort.class.isAssignableFrom(field.getType())) {
         try {
           UdpPort f = (UdpPort)field.get(null);
-          registry.put(f.value(), f);
+          registry.put(0xFFFF & f.value(), f);
         } catch (IllegalArgumentException e) {
           throw new AssertionError(e);
         } catch (IllegalAccessException e) {
@@ -72,12 +75,18 @@ public final class UdpPort extends NamedNumber<Short> {
    * @return a UdpPort object.
    */
   public static UdpPort getInstance(Short value) {
-    if (registry.containsKey(value)) {
-      return registry.get(value);
-    }
-    else {
-      return new UdpPort(value, "unknown");
-    }
+    return registry.get(0xFFFF & value);
+  }
+
+  /**
+   * The same as {@link #getInstance(Short)} except that this takes
+   * a primitive value, which doesn't need to be boxed.
+   *
+   * @param value
+   * @return a UdpPort object.
+   */
+  public static UdpPort getInstance(short value) {
+    return registry.get(0xFFFF & value);
   }
 
   /**
@@ -86,7 +95,7 @@ public final class UdpPort extends NamedNumber<Short> {
    * @return a UdpPort object.
    */
   public static UdpPort register(UdpPort port) {
-    return registry.put(port.value(), port);
+    return registry.put(0xFFFF & port.value(), port);
   }
 
   /**
@@ -665,6 +665,28 @@ public final class ByteArrays {
     return subArray;
   }
 
+  /**
+   * Checks that the specified range is within the array.
+   *
+   * @param array
+   * @param offset
+   * @param length
+   * @throws NullPointerException if array is null.
+   * @throws ArrayIndexOutOfBoundsException if the range is out of the array.
+   */
+  public static void validateBounds(byte[] array, int offset, int length) {
+    if (array == null) {
+      throw new NullPointerException("array may not be null");
+    }
+    if (offset < 0 || length < 0 || offset + length > array.length) {
+      StringBuilder sb = new StringBuilder(50);
+      sb.append("array.length: ").append(array.length)
+        .append(" offset: ").append(offset)
+        .append(" length: ").append(length);
+      throw new ArrayIndexOutOfBoundsException(sb.toString());
+    }
+  }
+
   /**
    *
    * @param array
@@ -738,19 +760,7 @@ public final class ByteArrays {
    * @return checksum
    */
   public static short calcChecksum(byte[] data) {
-    int sum = 0;
-    for (int i = 0; i < data.length; i += SHORT_SIZE_IN_BYTES) {
-      sum += (0xFFFF) & getShort(data, i);
-    }
-
-    sum
-      = (0xFFFF & sum)
-        + ((0xFFFF0000 & sum) >> (BYTE_SIZE_IN_BITS * SHORT_SIZE_IN_BYTES));
-    sum
-      = (0xFFFF & sum)
-        + ((0xFFFF0000 & sum) >> (BYTE_SIZE_IN_BITS * SHORT_SIZE_IN_BYTES));
-
-    return (short)(0xFFFF & ~sum);
+    return new ChecksumAccumulator().update(data).getChecksum();
   }
 
   /**
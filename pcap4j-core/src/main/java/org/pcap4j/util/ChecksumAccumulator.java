@@ -0,0 +1,147 @@
+/*_##########################################################################
+  _##
+  _##  Copyright (C) 2013  Kaito Yamada
+  _##
+  _##########################################################################
+*/
+
+package org.pcap4j.util;
+
+/**
+ * Calculates an Internet checksum (RFC 1071) over data given in pieces,
+ * e.g. a pseudo header, a header, and a payload,
+ * without concatenating them into a new array.
+ * The data is treated as if all the pieces were concatenated in the order
+ * they are given and padded with a zero byte if its total length is odd.
+ * An object of this class is not thread safe.
+ *
+ * <pre>
+ * ChecksumAccumulator acc = new ChecksumAccumulator();
+ * acc.update(pseudoHeader);
+ * acc.update(header, 0, header.length);
+ * acc.update(payload, offset, length);
+ * short checksum = acc.getChecksum();
+ * </pre>
+ *
+ * @author Kaito Yamada
+ * @since pcap4j 1.0.1
+ */
+public final class ChecksumAccumulator {
+
+  // Sum of 32-bit words. It doesn't overflow unless more than 2^32 words are added.
+  private long sum = 0;
+
+  // true if the number of bytes given so far is odd.
+  private boolean odd = false;
+
+  /**
+   *
+   */
+  public ChecksumAccumulator() {}
+
+  /**
+   *
+   * @param data
+   * @return this object.
+   */
+  public ChecksumAccumulator update(byte[] data) {
+    return update(data, 0, data.length);
+  }
+
+  /**
+   *
+   * @param data
+   * @param offset
+   * @param length
+   * @return this object.
+   */
+  public ChecksumAccumulator update(byte[] data, int offset, int length) {
+    ByteArrays.validateBounds(data, offset, length);
+    if (length == 0) {
+      return this;
+    }
+
+    int pos = offset;
+    int end = offset + length;
+    long s = sum;
+
+    if (odd) {
+      // The first byte is the lower half of the word the last update left.
+      s += 0xFF & data[pos];
+      pos++;
+    }
+
+    // 8 bytes per step, which are added as two 32-bit words.
+    int end8 = pos + ((end - pos) & ~7);
+    while (pos < end8) {
+      s += 0xFFFFFFFFL & (
+               ((0xFF & data[pos    ]) << 24)
+             | ((0xFF & data[pos + 1]) << 16)
+             | ((0xFF & data[pos + 2]) <<  8)
+             | ((0xFF & data[pos + 3])      )
+           );
+      s += 0xFFFFFFFFL & (
+               ((0xFF & data[pos + 4]) << 24)
+             | ((0xFF & data[pos + 5]) << 16)
+             | ((0xFF & data[pos + 6]) <<  8)
+             | ((0xFF & data[pos + 7])      )
+           );
+      pos += 8;
+    }
+
+    while (pos + 1 < end) {
+      s += ((0xFF & data[pos]) << 8) | (0xFF & data[pos + 1]);
+      pos += 2;
+    }
+
+    if (pos < end) {
+      // The last byte is the upper half of a word.
+      s += (0xFF & data[pos]) << 8;
+    }
+
+    sum = s;
+    odd ^= (length & 1) == 1;
+    return this;
+  }
+
+  /**
+   *
+   * @param value a 16-bit word to add.
+   * @return this object.
+   */
+  public ChecksumAccumulator update(short value) {
+    if (odd) {
+      // The upper half completes the pending word.
+      sum += (0xFF & (value >> 8)) | ((0xFF & value) << 8);
+    }
+    else {
+      sum += 0xFFFF & value;
+    }
+    return this;
+  }
+
+  /**
+   * Doesn't reset this object,
+   * so more data can be added after calling this method.
+   *
+   * @return the checksum of the data given so far.
+   */
+  public short getChecksum() {
+    long s = sum;
+    s = (0xFFFFFFFFL & s) + (s >>> 32);
+    s = (0xFFFFFFFFL & s) + (s >>> 32);
+    int t = (int)s;
+    t = (0xFFFF & t) + (t >>> 16);
+    t = (0xFFFF & t) + (t >>> 16);
+    return (short)~t;
+  }
+
+  /**
+   * Clears the data given so far.
+   */
+  public void reset() {
+    sum = 0;
+    odd = false;
+  }
+
+}
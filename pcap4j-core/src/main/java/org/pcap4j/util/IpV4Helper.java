@@ -11,6 +11,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import org.pcap4j.packet.AbstractPacket;
 import org.pcap4j.packet.IpV4Packet;
 import org.pcap4j.packet.IpV4Packet.IpV4Header;
 import org.pcap4j.packet.Packet;
@@ -115,11 +116,9 @@ public final class IpV4Helper {
     int destPos = 0;
     try {
       for (IpV4Packet p: list) {
-        byte[] rawPayload = p.getPayload().getRawData();
-        System.arraycopy(
-          rawPayload, 0, defragmentedPayload, destPos, rawPayload.length
-        );
-        destPos += rawPayload.length;
+        Packet payload = p.getPayload();
+        AbstractPacket.writeRawData(payload, defragmentedPayload, destPos);
+        destPos += payload.length();
       }
     } catch (NullPointerException e) {
       throw new IllegalArgumentException("Can't defragment: " + list);
@@ -12,6 +12,9 @@ import java.io.ObjectOutputStream;
 import java.io.Serializable;
 
 /**
+ * This class is no longer used by the packet classes to cache values,
+ * but is still written in their serialized form,
+ * which is kept compatible with older versions.
  *
  * @author Kaito Yamada
  * @since pcap4j 0.9.6
@@ -11,9 +11,9 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -31,7 +31,10 @@ public class PropertiesLoader {
   private final boolean caching;
   private final Properties prop = new Properties();
 
-  private final Map<String, Object> cache = new HashMap<String, Object>();
+  // Cached values are read without locking. A null value is cached as NULL.
+  private final ConcurrentMap<String, Object> cache
+    = new ConcurrentHashMap<String, Object>();
+  private static final Object NULL = new Object();
 
   /**
    *
@@ -106,13 +109,16 @@ public class PropertiesLoader {
    * @return a string value with a specified key value.
    */
   public String getString(String key, String defaultValue) {
+    Object cached = getFromCache(key);
+    if (cached != null) {
+      String cacheValue = cached != NULL ? (String)cached : null;
+      return cacheValue;
+    }
+
     synchronized (cache) {
-      if (caching && cache.containsKey(key)) {
-        String cacheValue = ((String)cache.get(key));
-        logger.debug(
-          "[{}] Got {} from cache for {}",
-          new Object[] {resourceName, cacheValue, key}
-        );
+      cached = getFromCache(key);
+      if (cached != null) {
+        String cacheValue = cached != NULL ? (String)cached : null;
         return cacheValue;
       }
 
@@ -146,7 +152,7 @@ public class PropertiesLoader {
       }
 
       if (caching) {
-        cache.put(key, value);
+        cache.put(key, value != null ? value : NULL);
       }
 
       return value;
@@ -160,13 +166,16 @@ public class PropertiesLoader {
    * @return an int value representing a string with the specified key value.
    */
   public int getInteger(String key, Integer defaultValue) {
+    Object cached = getFromCache(key);
+    if (cached != null) {
+      Integer cacheValue = cached != NULL ? (Integer)cached : null;
+      return cacheValue;
+    }
+
     synchronized (cache) {
-      if (caching && cache.containsKey(key)) {
-        Integer cacheValue = (Integer)cache.get(key);
-        logger.debug(
-          "[{}] Got {} from cache for {}",
-          new Object[] {resourceName, cacheValue, key}
-        );
+      cached = getFromCache(key);
+      if (cached != null) {
+        Integer cacheValue = cached != NULL ? (Integer)cached : null;
         return cacheValue;
       }
 
@@ -209,7 +218,7 @@ public class PropertiesLoader {
       }
 
       if (caching) {
-        cache.put(key, value);
+        cache.put(key, value != null ? value : NULL);
       }
 
       return value;
@@ -224,13 +233,16 @@ public class PropertiesLoader {
    *         with the specified key value.
    */
   public Boolean getBoolean(String key, Boolean defaultValue) {
+    Object cached = getFromCache(key);
+    if (cached != null) {
+      Boolean cacheValue = cached != NULL ? (Boolean)cached : null;
+      return cacheValue;
+    }
+
     synchronized (cache) {
-      if (caching && cache.containsKey(key)) {
-        Boolean cacheValue = (Boolean)cache.get(key);
-        logger.debug(
-          "[{}] Got {} from cache for {}",
-          new Object[] {resourceName, cacheValue, key}
-        );
+      cached = getFromCache(key);
+      if (cached != null) {
+        Boolean cacheValue = cached != NULL ? (Boolean)cached : null;
         return cacheValue;
       }
 
@@ -268,7 +280,7 @@ public class PropertiesLoader {
       }
 
       if (caching) {
-        cache.put(key, value);
+        cache.put(key, value != null ? value : NULL);
       }
 
       return value;
@@ -284,14 +296,18 @@ public class PropertiesLoader {
   public <T> Class<? extends T> getClass(
     String key, Class<? extends T> defaultValue
   ) {
+    Object cached = getFromCache(key);
+    if (cached != null) {
+      @SuppressWarnings("unchecked")
+      Class<? extends T> cacheValue = cached != NULL ? (Class<? extends T>)cached : null;
+      return cacheValue;
+    }
+
     synchronized (cache) {
-      if (caching && cache.containsKey(key)) {
+      cached = getFromCache(key);
+      if (cached != null) {
         @SuppressWarnings("unchecked")
-        Class<? extends T> cacheValue = (Class<? extends T>)cache.get(key);
-        logger.debug(
-          "[{}] Got {} from cache for {}",
-          new Object[] {resourceName, cacheValue, key}
-        );
+        Class<? extends T> cacheValue = cached != NULL ? (Class<? extends T>)cached : null;
         return cacheValue;
       }
 
@@ -361,7 +377,7 @@ public class PropertiesLoader {
       }
 
       if (caching) {
-        cache.put(key, value);
+        cache.put(key, value != null ? value : NULL);
       }
 
       return value;
@@ -376,13 +392,16 @@ public class PropertiesLoader {
    *         with the specified key value.
    */
   public InetAddress getInetAddress(String key, InetAddress defaultValue) {
+    Object cached = getFromCache(key);
+    if (cached != null) {
+      InetAddress cacheValue = cached != NULL ? (InetAddress)cached : null;
+      return cacheValue;
+    }
+
     synchronized (cache) {
-      if (caching && cache.containsKey(key)) {
-        InetAddress cacheValue = (InetAddress)cache.get(key);
-        logger.debug(
-          "[{}] Got {} from cache for {}",
-          new Object[] {resourceName, cacheValue, key}
-        );
+      cached = getFromCache(key);
+      if (cached != null) {
+        InetAddress cacheValue = cached != NULL ? (InetAddress)cached : null;
         return cacheValue;
       }
 
@@ -437,13 +456,29 @@ public class PropertiesLoader {
       }
 
       if (caching) {
-        cache.put(key, value);
+        cache.put(key, value != null ? value : NULL);
       }
 
       return value;
     }
   }
 
+  // Returns the cached value, which is NULL for null, or null if not cached.
+  private Object getFromCache(String key) {
+    if (!caching) {
+      return null;
+    }
+
+    Object cacheValue = cache.get(key);
+    if (cacheValue != null && logger.isDebugEnabled()) {
+      logger.debug(
+        "[{}] Got {} from cache for {}",
+        new Object[] {resourceName, cacheValue != NULL ? cacheValue : null, key}
+      );
+    }
+    return cacheValue;
+  }
+
   /**
    *
    */
@@ -0,0 +1,145 @@
+package org.pcap4j.core;
+
+import static org.junit.Assert.*;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Before;
+import org.junit.Test;
+import org.pcap4j.core.BpfProgram.BpfCompileMode;
+import org.pcap4j.packet.namednumber.DataLinkType;
+
+@SuppressWarnings("javadoc")
+public class BpfProgramCacheTest {
+
+  private Inet4Address netmask;
+  private byte[] udpFrame;
+
+  @Before
+  public void setUp() throws Exception {
+    netmask = (Inet4Address)InetAddress.getByName("255.255.255.0");
+
+    // Ethernet + IPv4 + UDP from 192.0.2.1:1234 to 192.0.2.2:53
+    udpFrame = new byte[14 + 20 + 8];
+    udpFrame[12] = (byte)0x08;
+    udpFrame[13] = (byte)0x00;
+    udpFrame[14] = (byte)0x45;
+    udpFrame[17] = (byte)28;
+    udpFrame[22] = (byte)64;
+    udpFrame[23] = (byte)17;
+    udpFrame[26] = (byte)192;
+    udpFrame[28] = (byte)2;
+    udpFrame[29] = (byte)1;
+    udpFrame[30] = (byte)192;
+    udpFrame[32] = (byte)2;
+    udpFrame[33] = (byte)2;
+    udpFrame[34] = (byte)(1234 >> 8);
+    udpFrame[35] = (byte)1234;
+    udpFrame[37] = (byte)53;
+    udpFrame[39] = (byte)8;
+  }
+
+  @Test
+  public void testMatches() throws Exception {
+    BpfProgram udp
+      = Pcaps.compileFilter(
+          65536, DataLinkType.EN10MB, "udp port 53", BpfCompileMode.OPTIMIZE, netmask
+        );
+    BpfProgram tcp
+      = Pcaps.compileFilter(
+          65536, DataLinkType.EN10MB, "tcp", BpfCompileMode.OPTIMIZE, netmask
+        );
+    try {
+      assertTrue(udp.matches(udpFrame, udpFrame.length, udpFrame.length));
+      assertFalse(tcp.matches(udpFrame, udpFrame.length, udpFrame.length));
+      // The UDP header is beyond caplen.
+      assertFalse(udp.matches(udpFrame, 34, udpFrame.length));
+    } finally {
+      udp.free();
+      tcp.free();
+    }
+
+    try {
+      udp.matches(udpFrame, udpFrame.length, udpFrame.length);
+      fail();
+    } catch (IllegalStateException e) {}
+  }
+
+  @Test
+  public void testFreeWhileMatching() throws Exception {
+    final BpfProgram udp
+      = Pcaps.compileFilter(
+          65536, DataLinkType.EN10MB, "udp port 53", BpfCompileMode.OPTIMIZE, netmask
+        );
+    final CountDownLatch started = new CountDownLatch(4);
+    final AtomicInteger numMatched = new AtomicInteger();
+    final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+    Thread[] threads = new Thread[4];
+    for (int i = 0; i < threads.length; i++) {
+      threads[i] = new Thread() {
+        @Override
+        public void run() {
+          started.countDown();
+          try {
+            while (true) {
+              if (!udp.matches(udpFrame, udpFrame.length, udpFrame.length)) {
+                throw new AssertionError("Not matched.");
+              }
+              numMatched.incrementAndGet();
+            }
+          } catch (IllegalStateException e) {
+            // freed
+          } catch (Throwable e) {
+            error.set(e);
+          }
+        }
+      };
+      threads[i].start();
+    }
+
+    started.await();
+    while (numMatched.get() < 1000) {
+      Thread.yield();
+    }
+    udp.free();
+    assertTrue(udp.isFreed());
+    for (Thread t: threads) {
+      t.join(10000);
+      assertFalse(t.isAlive());
+    }
+    assertNull(error.get());
+  }
+
+  @Test
+  public void testCache() throws Exception {
+    BpfProgramCache cache = new BpfProgramCache(1);
+    BpfProgram p1
+      = cache.get("udp", BpfCompileMode.OPTIMIZE, netmask, DataLinkType.EN10MB, 65536);
+    BpfProgram p2
+      = cache.get("udp", BpfCompileMode.OPTIMIZE, netmask, DataLinkType.EN10MB, 65536);
+    assertNotSame(p1, p2);
+    assertSame(p1.getProgram(), p2.getProgram());
+    assertEquals(1, cache.size());
+
+    BpfProgram p3
+      = cache.get("udp", BpfCompileMode.OPTIMIZE, netmask, DataLinkType.EN10MB, 128);
+    assertNotSame(p1.getProgram(), p3.getProgram());
+    // Both are in use, so neither is evicted.
+    assertEquals(2, cache.size());
+
+    p1.free();
+    p1.free();
+    assertTrue(p2.matches(udpFrame, udpFrame.length, udpFrame.length));
+    p2.free();
+    // The first program is no longer used and beyond the capacity.
+    assertEquals(1, cache.size());
+
+    p3.free();
+    assertEquals(1, cache.size());
+    cache.clear();
+    assertEquals(0, cache.size());
+  }
+
+}
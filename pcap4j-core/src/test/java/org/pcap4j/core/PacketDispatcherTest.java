@@ -0,0 +1,161 @@
+package org.pcap4j.core;
+
+import static org.junit.Assert.*;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import org.pcap4j.core.PacketDispatcher.OverflowPolicy;
+import org.pcap4j.core.PcapHandle.TimestampPrecision;
+import org.pcap4j.packet.namednumber.DataLinkType;
+
+@SuppressWarnings("javadoc")
+public class PacketDispatcherTest {
+
+  private static RawPacket newPacket(byte value, long sec) {
+    RawPacket packet = new RawPacket();
+    packet.set(
+      DataLinkType.EN10MB,
+      ByteBuffer.wrap(new byte[] { value, value, value }).asReadOnlyBuffer(),
+      60,
+      sec,
+      123,
+      TimestampPrecision.NANO
+    );
+    return packet;
+  }
+
+  @Test
+  public void testDispatchSnapshot() throws Exception {
+    final byte[][] received = new byte[3][];
+    final long[] timestamps = new long[3];
+    final CountDownLatch latch = new CountDownLatch(3);
+    RawPacketListener listener
+      = new RawPacketListener() {
+          public void gotPacket(RawPacket packet) {
+            int i = (int)packet.getTimestampSec();
+            received[i] = packet.getRawData();
+            timestamps[i] = packet.getTimestampSec();
+            latch.countDown();
+          }
+        };
+
+    PacketDispatcher dispatcher
+      = new PacketDispatcher(listener, 2, 8, OverflowPolicy.BLOCK);
+
+    // The same source buffer is reused as libpcap does.
+    byte[] nativeBuf = new byte[3];
+    RawPacket reused = new RawPacket();
+    for (int i = 0; i < 3; i++) {
+      nativeBuf[0] = nativeBuf[1] = nativeBuf[2] = (byte)i;
+      reused.set(
+        DataLinkType.EN10MB,
+        ByteBuffer.wrap(nativeBuf).asReadOnlyBuffer(),
+        60,
+        i,
+        0,
+        TimestampPrecision.MICRO
+      );
+      dispatcher.gotPacket(reused);
+    }
+
+    assertTrue(latch.await(5, TimeUnit.SECONDS));
+    dispatcher.shutdown();
+    assertTrue(dispatcher.awaitTermination(5, TimeUnit.SECONDS));
+
+    for (int i = 0; i < 3; i++) {
+      assertArrayEquals(new byte[] { (byte)i, (byte)i, (byte)i }, received[i]);
+      assertEquals(i, timestamps[i]);
+    }
+    assertEquals(3L, dispatcher.getReceivedCount());
+    assertEquals(3L, dispatcher.getDispatchedCount());
+    assertEquals(0L, dispatcher.getDroppedCount());
+  }
+
+  @Test
+  public void testDropPolicies() throws Exception {
+    for (OverflowPolicy policy: new OverflowPolicy[] {
+           OverflowPolicy.DROP_NEWEST, OverflowPolicy.DROP_OLDEST
+         }) {
+      final CountDownLatch blocker = new CountDownLatch(1);
+      final CountDownLatch started = new CountDownLatch(1);
+      final long[] lastSec = new long[1];
+      RawPacketListener listener
+        = new RawPacketListener() {
+            public void gotPacket(RawPacket packet) {
+              started.countDown();
+              try {
+                blocker.await();
+              } catch (InterruptedException e) {
+                throw new AssertionError(e);
+              }
+              lastSec[0] = packet.getTimestampSec();
+            }
+          };
+
+      PacketDispatcher dispatcher
+        = new PacketDispatcher(listener, 1, 2, policy);
+      dispatcher.gotPacket(newPacket((byte)0, 0));
+      assertTrue(started.await(5, TimeUnit.SECONDS));
+
+      // The worker holds packet 0. The queue takes 2 and the rest overflow.
+      for (int i = 1; i <= 4; i++) {
+        dispatcher.gotPacket(newPacket((byte)i, i));
+      }
+      assertEquals(2L, dispatcher.getDroppedCount());
+
+      blocker.countDown();
+      dispatcher.shutdown();
+      assertTrue(dispatcher.awaitTermination(5, TimeUnit.SECONDS));
+
+      assertEquals(5L, dispatcher.getReceivedCount());
+      assertEquals(3L, dispatcher.getDispatchedCount());
+      if (policy == OverflowPolicy.DROP_NEWEST) {
+        assertEquals(2L, lastSec[0]);
+      }
+      else {
+        assertEquals(4L, lastSec[0]);
+      }
+    }
+  }
+
+  @Test
+  public void testDropOldestKeepsShutdownMarker() throws Exception {
+    final CountDownLatch blocker = new CountDownLatch(1);
+    final CountDownLatch started = new CountDownLatch(1);
+    final long[] lastSec = new long[1];
+    RawPacketListener listener
+      = new RawPacketListener() {
+          public void gotPacket(RawPacket packet) {
+            started.countDown();
+            try {
+              blocker.await();
+            } catch (InterruptedException e) {
+              throw new AssertionError(e);
+            }
+            lastSec[0] = packet.getTimestampSec();
+          }
+        };
+
+    PacketDispatcher dispatcher
+      = new PacketDispatcher(listener, 1, 2, OverflowPolicy.DROP_OLDEST);
+    dispatcher.gotPacket(newPacket((byte)0, 0));
+    assertTrue(started.await(5, TimeUnit.SECONDS));
+    dispatcher.gotPacket(newPacket((byte)1, 1));
+
+    // The queue is [1, marker] after this.
+    dispatcher.shutdown();
+
+    // Packets from a capture thread which checked the shutdown flag
+    // just before shutdown() was called.
+    dispatcher.enqueue(newPacket((byte)2, 2));
+    dispatcher.enqueue(newPacket((byte)3, 3));
+    assertEquals(2L, dispatcher.getDroppedCount());
+
+    blocker.countDown();
+    assertTrue(dispatcher.awaitTermination(5, TimeUnit.SECONDS));
+    assertEquals(2L, dispatcher.getDispatchedCount());
+    assertEquals(2L, lastSec[0]);
+  }
+
+}
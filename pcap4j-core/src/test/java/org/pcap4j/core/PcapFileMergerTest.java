@@ -0,0 +1,120 @@
+package org.pcap4j.core;
+
+import static org.junit.Assert.*;
+import java.io.File;
+import java.io.IOException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.pcap4j.core.PcapHandle.TimestampPrecision;
+import org.pcap4j.packet.namednumber.DataLinkType;
+
+@SuppressWarnings("javadoc")
+public class PcapFileMergerTest {
+
+  private static final String TMP_DIR_PROP
+    = PcapFileMergerTest.class.getName() + ".tmpDir";
+
+  private File tmpDir;
+  private File[] inputs;
+  private File output;
+
+  @Before
+  public void setUp() throws Exception {
+    String tmpDirPath = System.getProperty(TMP_DIR_PROP, "testdata");
+    tmpDir = new File(tmpDirPath);
+    if (!tmpDir.exists()) {
+      if (!tmpDir.mkdirs()) {
+        throw new IOException("Failed to make a test diectory: " + tmpDirPath);
+      }
+    }
+    output = new File(tmpDir, "PcapFileMergerTest.pcap");
+
+    // Input i has records at i, i + 3, i + 6, ... in units of 250 microseconds,
+    // and input 2 has nanosecond timestamps.
+    inputs = new File[3];
+    for (int i = 0; i < inputs.length; i++) {
+      inputs[i] = new File(tmpDir, "PcapFileMergerTest" + i + ".pcap");
+      PcapFileWriter writer
+        = new PcapFileWriter.Builder(inputs[i], DataLinkType.EN10MB)
+            .snapshot(100 + i)
+            .timestampPrecision(
+               i == 2 ? TimestampPrecision.NANO : TimestampPrecision.MICRO
+             )
+            .build();
+      try {
+        for (int t = i; t < 300; t += 3) {
+          byte[] data = new byte[20 + t % 50];
+          data[0] = (byte)i;
+          data[1] = (byte)t;
+          writer.write(data, 0, data.length, data.length, t / 4000, t % 4000 * 250000);
+        }
+      } finally {
+        writer.close();
+      }
+    }
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    for (File input: inputs) {
+      input.delete();
+    }
+    output.delete();
+  }
+
+  @Test
+  public void testMerge() throws Exception {
+    PcapFileMerger.Builder builder = new PcapFileMerger.Builder(output);
+    for (File input: inputs) {
+      builder.addInput(input);
+    }
+    assertEquals(300, builder.build().merge());
+
+    PcapFileReader reader = new PcapFileReader(output);
+    try {
+      assertEquals(DataLinkType.EN10MB, reader.getDlt());
+      assertEquals(102, reader.getSnapshot());
+      assertEquals(TimestampPrecision.NANO, reader.getTimestampPrecision());
+      for (int t = 0; t < 300; t++) {
+        RawPacket packet = reader.getNextRawPacket();
+        assertEquals(t / 4000, packet.getTimestampSec());
+        assertEquals(t % 4000 * 250000, packet.getTimestampNanos());
+        assertEquals(20 + t % 50, packet.getCaptureLength());
+        assertEquals((byte)(t % 3), packet.getData().get(0));
+        assertEquals((byte)t, packet.getData().get(1));
+      }
+      assertNull(reader.getNextRawPacket());
+    } finally {
+      reader.close();
+    }
+  }
+
+  @Test
+  public void testDltMismatch() throws Exception {
+    File other = new File(tmpDir, "PcapFileMergerTestPpp.pcap");
+    new PcapFileWriter.Builder(other, DataLinkType.PPP).build().close();
+    try {
+      new PcapFileMerger.Builder(output)
+        .addInput(inputs[0])
+        .addInput(other)
+        .build()
+        .merge();
+      fail();
+    } catch (IOException e) {
+      assertTrue(e.getMessage().contains(other.toString()));
+    } finally {
+      other.delete();
+    }
+
+    try {
+      new PcapFileMerger.Builder(output)
+        .addInput(inputs[0])
+        .dlt(DataLinkType.PPP)
+        .build()
+        .merge();
+      fail();
+    } catch (IOException e) {}
+  }
+
+}
@@ -0,0 +1,175 @@
+package org.pcap4j.core;
+
+import static org.junit.Assert.*;
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.pcap4j.packet.namednumber.DataLinkType;
+
+@SuppressWarnings("javadoc")
+public class PcapFileSorterTest {
+
+  private static final String TMP_DIR_PROP
+    = PcapFileSorterTest.class.getName() + ".tmpDir";
+
+  private static final int NUM_PACKETS = 2000;
+
+  private File tmpDir;
+  private File input;
+  private File output;
+
+  @Before
+  public void setUp() throws Exception {
+    String tmpDirPath = System.getProperty(TMP_DIR_PROP, "testdata");
+    tmpDir = new File(tmpDirPath);
+    if (!tmpDir.exists()) {
+      if (!tmpDir.mkdirs()) {
+        throw new IOException("Failed to make a test diectory: " + tmpDirPath);
+      }
+    }
+    input = new File(tmpDir, "PcapFileSorterTest.pcap");
+    output = new File(tmpDir, "PcapFileSorterTestSorted.pcap");
+
+    // Many records share a timestamp to check the sort is stable.
+    // Bytes 1-2 of the data have the index of the record.
+    Random random = new Random(12345);
+    PcapFileWriter writer
+      = new PcapFileWriter.Builder(input, DataLinkType.EN10MB).build();
+    try {
+      for (int i = 0; i < NUM_PACKETS; i++) {
+        byte[] data = new byte[20 + random.nextInt(100)];
+        data[0] = (byte)random.nextInt(200);
+        data[1] = (byte)(i >> 8);
+        data[2] = (byte)i;
+        writer.write(data, 0, data.length, data.length, data[0] & 0xFF, 1000);
+      }
+      // A record larger than a run buffer.
+      byte[] data = new byte[5000];
+      data[0] = (byte)100;
+      data[1] = (byte)(NUM_PACKETS >> 8);
+      data[2] = (byte)NUM_PACKETS;
+      writer.write(data, 0, data.length, data.length, 100, 1000);
+    } finally {
+      writer.close();
+    }
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    input.delete();
+    output.delete();
+  }
+
+  @Test
+  public void testSort() throws Exception {
+    long count
+      = new PcapFileSorter.Builder(input, output)
+          .tempDir(tmpDir)
+          .memoryBudget(4 * 1024)
+          .numThreads(3)
+          .build()
+          .sort();
+    assertSorted(count);
+  }
+
+  @Test
+  public void testSortInMultiplePasses() throws Exception {
+    // More than a hundred runs are merged 3 at a time in several passes.
+    long count
+      = new PcapFileSorter.Builder(input, output)
+          .tempDir(tmpDir)
+          .memoryBudget(4 * 1024)
+          .numThreads(3)
+          .maxMergeWidth(3)
+          .build()
+          .sort();
+    assertSorted(count);
+  }
+
+  @Test
+  public void testSortByNanos() throws Exception {
+    long[][] timestamps = {
+      { 0xFFFFFFFFL, 999999999 },
+      { 0xFFFFFFFFL, 0 },
+      { 1, 999999999 },
+      { 2, 0 },
+      { 1, 1 },
+      { 0, 0 }
+    };
+    PcapFileWriter writer
+      = new PcapFileWriter.Builder(input, DataLinkType.EN10MB)
+          .timestampPrecision(PcapHandle.TimestampPrecision.NANO)
+          .build();
+    try {
+      for (int i = 0; i < timestamps.length; i++) {
+        byte[] data = { (byte)i };
+        writer.write(data, 0, 1, 1, timestamps[i][0], (int)timestamps[i][1]);
+      }
+    } finally {
+      writer.close();
+    }
+
+    long count
+      = new PcapFileSorter.Builder(input, output)
+          .tempDir(tmpDir)
+          .memoryBudget(PcapFileSorter.RECORD_OVERHEAD * 4)
+          .numThreads(1)
+          .build()
+          .sort();
+    assertEquals(timestamps.length, count);
+
+    int[] expected = { 5, 4, 2, 3, 1, 0 };
+    PcapFileReader reader = new PcapFileReader(output);
+    try {
+      for (int i: expected) {
+        RawPacket packet = reader.getNextRawPacket();
+        assertEquals(i, packet.getRawData()[0]);
+        assertEquals(timestamps[i][0], packet.getTimestampSec());
+        assertEquals(timestamps[i][1], packet.getTimestampNanos());
+      }
+      assertNull(reader.getNextRawPacket());
+    } finally {
+      reader.close();
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testTooNarrowMerge() throws Exception {
+    new PcapFileSorter.Builder(input, output).maxMergeWidth(1).build();
+  }
+
+  private void assertSorted(long count) throws Exception {
+    assertEquals(NUM_PACKETS + 1, count);
+
+    PcapFileReader reader = new PcapFileReader(output);
+    try {
+      long lastSec = -1;
+      int lastIndex = -1;
+      for (int i = 0; i <= NUM_PACKETS; i++) {
+        RawPacket packet = reader.getNextRawPacket();
+        byte[] data = packet.getRawData();
+        int index = ((data[1] & 0xFF) << 8) | (data[2] & 0xFF);
+        assertEquals(data[0] & 0xFF, packet.getTimestampSec());
+        assertEquals(1000, packet.getTimestampNanos());
+        assertTrue(lastSec <= packet.getTimestampSec());
+        if (lastSec == packet.getTimestampSec()) {
+          assertTrue(lastIndex < index);
+        }
+        lastSec = packet.getTimestampSec();
+        lastIndex = index;
+      }
+      assertNull(reader.getNextRawPacket());
+    } finally {
+      reader.close();
+    }
+
+    String[] names = tmpDir.list();
+    for (String name: names) {
+      assertFalse(name, name.startsWith("pcap4j-sort-"));
+    }
+  }
+
+}
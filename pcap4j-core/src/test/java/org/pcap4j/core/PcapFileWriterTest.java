@@ -0,0 +1,260 @@
+package org.pcap4j.core;
+
+import static org.junit.Assert.*;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.pcap4j.core.PcapFileWriter.SyncPolicy;
+import org.pcap4j.core.PcapHandle.TimestampPrecision;
+import org.pcap4j.packet.UnknownPacket;
+import org.pcap4j.packet.namednumber.DataLinkType;
+
+@SuppressWarnings("javadoc")
+public class PcapFileWriterTest {
+
+  private static final String TMP_DIR_PROP
+    = PcapFileWriterTest.class.getName() + ".tmpDir";
+
+  private File file;
+  private byte[][] data;
+
+  @Before
+  public void setUp() throws Exception {
+    String tmpDirPath = System.getProperty(TMP_DIR_PROP, "testdata");
+    File tmpDir = new File(tmpDirPath);
+    if (!tmpDir.exists()) {
+      if (!tmpDir.mkdirs()) {
+        throw new IOException("Failed to make a test diectory: " + tmpDirPath);
+      }
+    }
+    file = new File(tmpDir, "PcapFileWriterTest.pcap");
+
+    data = new byte[3][];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = new byte[60 + i * 7];
+      for (int j = 0; j < data[i].length; j++) {
+        data[i][j] = (byte)(i + j);
+      }
+    }
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    file.delete();
+  }
+
+  private byte[] readFile() throws IOException {
+    byte[] bytes = new byte[(int)file.length()];
+    FileInputStream in = new FileInputStream(file);
+    try {
+      int pos = 0;
+      while (pos < bytes.length) {
+        pos += in.read(bytes, pos, bytes.length - pos);
+      }
+    } finally {
+      in.close();
+    }
+    return bytes;
+  }
+
+  @Test
+  public void testPcapDumpLayout() throws Exception {
+    PcapFileWriter writer
+      = new PcapFileWriter.Builder(file, DataLinkType.EN10MB).build();
+    try {
+      writer.write(data[0], 0, data[0].length, data[0].length, 1000000000L, 123456000);
+      writer.write(ByteBuffer.wrap(data[1]), 100, 1000000001L, 999999999);
+      writer.write(
+        new UnknownPacket.Builder().rawData(data[2]).build(), 1000000002L, 0
+      );
+    } finally {
+      writer.close();
+    }
+
+    ByteBuffer expected = ByteBuffer.allocate(1000).order(ByteOrder.nativeOrder());
+    expected.putInt(0xA1B2C3D4)
+            .putShort((short)2)
+            .putShort((short)4)
+            .putInt(0)
+            .putInt(0)
+            .putInt(65535)
+            .putInt(1);
+    expected.putInt(1000000000).putInt(123456)
+            .putInt(data[0].length).putInt(data[0].length).put(data[0]);
+    expected.putInt(1000000001).putInt(999999)
+            .putInt(data[1].length).putInt(100).put(data[1]);
+    expected.putInt(1000000002).putInt(0)
+            .putInt(data[2].length).putInt(data[2].length).put(data[2]);
+
+    byte[] expectedBytes = new byte[expected.position()];
+    expected.flip();
+    expected.get(expectedBytes);
+    assertArrayEquals(expectedBytes, readFile());
+  }
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    // A small buffer, gathering writes, and auto flush exercise all the paths.
+    PcapFileWriter writer
+      = new PcapFileWriter.Builder(file, DataLinkType.EN10MB)
+          .snapshot(64)
+          .timestampPrecision(TimestampPrecision.NANO)
+          .byteOrder(ByteOrder.BIG_ENDIAN)
+          .bufferSize(40)
+          .gatheringWriteThreshold(62)
+          .autoFlushInterval(2)
+          .syncPolicy(SyncPolicy.ON_FLUSH)
+          .build();
+    try {
+      for (int i = 0; i < 10; i++) {
+        byte[] d = data[i % data.length];
+        if (i % 2 == 0) {
+          writer.write(d, 0, d.length, d.length, i, i * 1000 + 1);
+        }
+        else {
+          ByteBuffer buf = ByteBuffer.allocateDirect(d.length + 3);
+          buf.position(3);
+          buf.put(d);
+          buf.position(3);
+          writer.write(buf, d.length, i, i * 1000 + 1);
+          assertEquals(3, buf.position());
+        }
+      }
+      writer.flush();
+      assertEquals(file.length(), writer.getPosition());
+    } finally {
+      writer.close();
+    }
+
+    PcapFileReader reader = new PcapFileReader(file);
+    try {
+      assertEquals(ByteOrder.BIG_ENDIAN, reader.getByteOrder());
+      assertEquals(TimestampPrecision.NANO, reader.getTimestampPrecision());
+      assertEquals(64, reader.getSnapshot());
+
+      for (int i = 0; i < 10; i++) {
+        byte[] d = data[i % data.length];
+        RawPacket packet = reader.getNextRawPacket();
+        assertEquals(i, packet.getTimestampSec());
+        assertEquals(i * 1000 + 1, packet.getTimestampNanos());
+        assertEquals(d.length, packet.getOriginalLength());
+        assertEquals(Math.min(d.length, 64), packet.getCaptureLength());
+        byte[] expected = new byte[packet.getCaptureLength()];
+        System.arraycopy(d, 0, expected, 0, expected.length);
+        assertArrayEquals(expected, packet.getRawData());
+      }
+      assertNull(reader.getNextRawPacket());
+    } finally {
+      reader.close();
+    }
+  }
+
+  @Test
+  public void testLinkType() throws Exception {
+    // DLT_RAW is 12 but LINKTYPE_RAW, which pcap_dump() writes, is 101.
+    DataLinkType raw = DataLinkType.getInstance(12);
+    PcapFileWriter writer = new PcapFileWriter.Builder(file, raw).build();
+    try {
+      writer.write(data[0], 0, data[0].length, data[0].length, 0, 0);
+    } finally {
+      writer.close();
+    }
+
+    ByteBuffer bytes = ByteBuffer.wrap(readFile()).order(ByteOrder.nativeOrder());
+    assertEquals(101, bytes.getInt(20));
+
+    PcapFileReader reader = new PcapFileReader(file);
+    try {
+      assertEquals(raw, reader.getDlt());
+    } finally {
+      reader.close();
+    }
+  }
+
+  @Test
+  public void testSameAsPcapDump() throws Exception {
+    DataLinkType[] dlts = { DataLinkType.EN10MB, DataLinkType.getInstance(12) };
+    for (DataLinkType dlt: dlts) {
+      PcapHandle handle = Pcaps.openDead(dlt, 65535);
+      PcapDumper dumper;
+      try {
+        dumper = handle.dumpOpen(file.getAbsolutePath());
+        try {
+          for (int i = 0; i < data.length; i++) {
+            dumper.dump(new UnknownPacket.Builder().rawData(data[i]).build(), i, i);
+          }
+        } finally {
+          dumper.close();
+        }
+      } finally {
+        handle.close();
+      }
+      byte[] dumped = readFile();
+
+      PcapFileWriter writer = new PcapFileWriter.Builder(file, dlt).build();
+      try {
+        for (int i = 0; i < data.length; i++) {
+          writer.write(data[i], 0, data[i].length, data[i].length, i, i * 1000);
+        }
+      } finally {
+        writer.close();
+      }
+      assertArrayEquals(dlt.toString(), dumped, readFile());
+    }
+  }
+
+  @Test
+  public void testRawPacketBufferRestored() throws Exception {
+    ByteBuffer buf = ByteBuffer.wrap(data[1]).asReadOnlyBuffer();
+    RawPacket packet = new RawPacket();
+    packet.set(DataLinkType.EN10MB, buf, 100, 1, 2000, TimestampPrecision.NANO);
+    buf.position(5).limit(10);
+
+    PcapFileWriter writer
+      = new PcapFileWriter.Builder(file, DataLinkType.EN10MB)
+          .timestampPrecision(TimestampPrecision.NANO)
+          .build();
+    try {
+      writer.write(packet);
+      assertEquals(5, buf.position());
+      assertEquals(10, buf.limit());
+      writer.write(buf, 20, 3, 4000);
+      assertEquals(5, buf.position());
+      assertEquals(10, buf.limit());
+    } finally {
+      writer.close();
+    }
+
+    PcapFileReader reader = new PcapFileReader(file);
+    try {
+      RawPacket read = reader.getNextRawPacket();
+      assertEquals(100, read.getOriginalLength());
+      assertArrayEquals(data[1], read.getRawData());
+      read = reader.getNextRawPacket();
+      assertEquals(3, read.getTimestampSec());
+      assertEquals(4000, read.getTimestampNanos());
+      byte[] expected = new byte[5];
+      System.arraycopy(data[1], 5, expected, 0, expected.length);
+      assertArrayEquals(expected, read.getRawData());
+    } finally {
+      reader.close();
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidTimestamp() throws Exception {
+    PcapFileWriter writer
+      = new PcapFileWriter.Builder(file, DataLinkType.EN10MB).build();
+    try {
+      writer.write(data[0], 0, data[0].length, data[0].length, 0, 1000000000);
+    } finally {
+      writer.close();
+    }
+  }
+
+}
@@ -0,0 +1,92 @@
+package org.pcap4j.core;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+import org.pcap4j.core.PcapHandle.ActivationStatus;
+import org.pcap4j.core.PcapNetworkInterface.PromiscuousMode;
+
+@SuppressWarnings("javadoc")
+public class PcapHandleBuilderTest {
+
+  private static final String NO_SUCH_DEVICE = "pcap4j-no-such-device";
+
+  @Test
+  public void testActivationStatusGetInstance() throws Exception {
+    for (ActivationStatus status: ActivationStatus.values()) {
+      assertSame(status, ActivationStatus.getInstance(status.getValue()));
+    }
+    assertSame(ActivationStatus.SUCCESS, ActivationStatus.getInstance(0));
+    assertSame(ActivationStatus.WARNING_PROMISC_NOTSUP, ActivationStatus.getInstance(2));
+    assertSame(ActivationStatus.ERROR_NO_SUCH_DEVICE, ActivationStatus.getInstance(-5));
+    assertSame(ActivationStatus.ERROR_PERM_DENIED, ActivationStatus.getInstance(-8));
+    assertSame(
+      ActivationStatus.ERROR_TSTAMP_PRECISION_NOTSUP, ActivationStatus.getInstance(-12)
+    );
+
+    // Unknown values fall back to the generic ones.
+    assertSame(ActivationStatus.WARNING, ActivationStatus.getInstance(100));
+    assertSame(ActivationStatus.WARNING, ActivationStatus.getInstance(Integer.MAX_VALUE));
+    assertSame(ActivationStatus.ERROR, ActivationStatus.getInstance(-100));
+    assertSame(ActivationStatus.ERROR, ActivationStatus.getInstance(Integer.MIN_VALUE));
+  }
+
+  @Test
+  public void testActivationStatusType() throws Exception {
+    assertFalse(ActivationStatus.SUCCESS.isWarning());
+    assertFalse(ActivationStatus.SUCCESS.isError());
+    for (ActivationStatus status: ActivationStatus.values()) {
+      assertEquals(status.name(), status.getValue() > 0, status.isWarning());
+      assertEquals(status.name(), status.getValue() < 0, status.isError());
+      assertEquals(status.name(), status.name().startsWith("WARNING"), status.isWarning());
+      assertEquals(status.name(), status.name().startsWith("ERROR"), status.isError());
+    }
+  }
+
+  @Test
+  public void testNullDeviceName() throws Exception {
+    try {
+      new PcapHandle.Builder(null).snaplen(65536).build();
+      fail();
+    } catch (NullPointerException e) {}
+  }
+
+  @Test
+  public void testIllegalArguments() throws Exception {
+    PcapHandle.Builder[] builders = {
+      new PcapHandle.Builder(NO_SUCH_DEVICE).snaplen(0),
+      new PcapHandle.Builder(NO_SUCH_DEVICE).snaplen(-1),
+      new PcapHandle.Builder(NO_SUCH_DEVICE).timeoutMillis(-1),
+      new PcapHandle.Builder(NO_SUCH_DEVICE).bufferSize(0),
+      new PcapHandle.Builder(NO_SUCH_DEVICE).bufferSize(-1),
+      new PcapHandle.Builder(NO_SUCH_DEVICE)
+        .snaplen(65536).timeoutMillis(10).bufferSize(-1024)
+    };
+    for (int i = 0; i < builders.length; i++) {
+      try {
+        builders[i].build();
+        fail("builders[" + i + "]");
+      } catch (IllegalArgumentException e) {}
+    }
+  }
+
+  @Test
+  public void testActivationError() throws Exception {
+    PcapHandle.Builder builder
+      = new PcapHandle.Builder(NO_SUCH_DEVICE)
+          .snaplen(65536)
+          .promiscuousMode(PromiscuousMode.NONPROMISCUOUS)
+          .timeoutMillis(0)
+          .bufferSize(1024 * 1024);
+    try {
+      builder.build().close();
+      fail();
+    } catch (PcapNativeException e) {
+      assertNotNull(e.getReturnCode());
+      ActivationStatus status = ActivationStatus.getInstance(e.getReturnCode());
+      assertTrue(status.isError());
+      assertEquals(status.getValue(), e.getReturnCode().intValue());
+      assertTrue(e.getMessage(), e.getMessage().contains(status.toString()));
+    }
+  }
+
+}
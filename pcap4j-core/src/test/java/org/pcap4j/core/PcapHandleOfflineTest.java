@@ -0,0 +1,429 @@
+package org.pcap4j.core;
+
+import static org.junit.Assert.*;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.pcap4j.core.PcapHandle.SendResult;
+import org.pcap4j.core.PcapHandle.TimestampPrecision;
+import org.pcap4j.packet.namednumber.DataLinkType;
+
+@SuppressWarnings("javadoc")
+public class PcapHandleOfflineTest {
+
+  private static final String TMP_DIR_PROP
+    = PcapHandleOfflineTest.class.getName() + ".tmpDir";
+
+  private File file;
+  private byte[][] data;
+  private PcapHandle ph;
+
+  @Before
+  public void setUp() throws Exception {
+    String tmpDirPath = System.getProperty(TMP_DIR_PROP, "testdata");
+    File tmpDir = new File(tmpDirPath);
+    if (!tmpDir.exists()) {
+      if (!tmpDir.mkdirs()) {
+        throw new IOException("Failed to make a test diectory: " + tmpDirPath);
+      }
+    }
+    file = new File(tmpDir, "PcapHandleOfflineTest.pcap");
+
+    data = new byte[3][];
+    PcapFileWriter writer
+      = new PcapFileWriter.Builder(file, DataLinkType.EN10MB).build();
+    try {
+      for (int i = 0; i < data.length; i++) {
+        data[i] = new byte[60 + i * 7];
+        for (int j = 0; j < data[i].length; j++) {
+          data[i][j] = (byte)(i + j);
+        }
+        // The last packet is truncated.
+        int caplen = i == data.length - 1 ? data[i].length - 10 : data[i].length;
+        writer.write(data[i], 0, caplen, data[i].length, 100 + i, i * 1000);
+      }
+    } finally {
+      writer.close();
+    }
+
+    ph = Pcaps.openOffline(file.getPath());
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    if (ph != null) {
+      ph.close();
+    }
+    file.delete();
+  }
+
+  private void assertPacket(int i, RawPacket packet) {
+    int caplen = i == data.length - 1 ? data[i].length - 10 : data[i].length;
+    assertEquals(DataLinkType.EN10MB, packet.getDlt());
+    assertEquals(caplen, packet.getCaptureLength());
+    assertEquals(data[i].length, packet.getOriginalLength());
+    assertEquals(100 + i, packet.getTimestampSec());
+    assertEquals(i * 1000, packet.getTimestampNanos());
+    assertEquals(i, packet.getTimestampMicros());
+
+    ByteBuffer buf = packet.getData();
+    assertEquals(0, buf.position());
+    assertEquals(caplen, buf.limit());
+    assertTrue(buf.isReadOnly());
+    byte[] expected = new byte[caplen];
+    System.arraycopy(data[i], 0, expected, 0, caplen);
+    assertArrayEquals(expected, packet.getRawData());
+  }
+
+  @Test
+  public void testLoopRaw() throws Exception {
+    final List<RawPacket> given = new ArrayList<RawPacket>();
+    final List<RawPacket> copies = new ArrayList<RawPacket>();
+    ph.loop(
+      -1,
+      new RawPacketListener() {
+        public void gotPacket(RawPacket packet) {
+          assertFalse(packet.isDetached());
+          given.add(packet);
+          copies.add(packet.copy());
+        }
+      }
+    );
+
+    assertEquals(data.length, copies.size());
+    // The listener is given the same object for every packet.
+    for (RawPacket packet: given) {
+      assertSame(given.get(0), packet);
+    }
+    for (int i = 0; i < copies.size(); i++) {
+      RawPacket copy = copies.get(i);
+      assertTrue(copy.isDetached());
+      assertPacket(i, copy);
+    }
+  }
+
+  @Test
+  public void testLoopRawReusesView() throws Exception {
+    final List<ByteBuffer> views = new ArrayList<ByteBuffer>();
+    final List<RawPacket> copies = new ArrayList<RawPacket>();
+    ph.loop(
+      -1,
+      new RawPacketListener() {
+        public void gotPacket(RawPacket packet) {
+          views.add(packet.getData());
+          // Moving the position doesn't affect the next packet.
+          packet.getData().position(packet.getCaptureLength());
+          copies.add(packet.copy());
+        }
+      }
+    );
+
+    // libpcap reads the records of a savefile into one buffer, and the view
+    // is re-pointed unless the packet is larger than any before.
+    assertEquals(data.length, views.size());
+    assertSame(views.get(1), views.get(2));
+    for (int i = 0; i < copies.size(); i++) {
+      assertPacket(i, copies.get(i));
+    }
+  }
+
+  @Test
+  public void testDispatchRaw() throws Exception {
+    final List<RawPacket> copies = new ArrayList<RawPacket>();
+    RawPacketListener listener
+      = new RawPacketListener() {
+          public void gotPacket(RawPacket packet) {
+            copies.add(packet.copy());
+          }
+        };
+
+    assertEquals(2, ph.dispatch(2, listener));
+    assertEquals(1, ph.dispatch(2, listener));
+    assertEquals(0, ph.dispatch(2, listener));
+
+    assertEquals(data.length, copies.size());
+    for (int i = 0; i < copies.size(); i++) {
+      assertPacket(i, copies.get(i));
+    }
+  }
+
+  @Test
+  public void testLoopRawWithCount() throws Exception {
+    final List<RawPacket> copies = new ArrayList<RawPacket>();
+    RawPacketListener listener
+      = new RawPacketListener() {
+          public void gotPacket(RawPacket packet) {
+            copies.add(packet.copy());
+          }
+        };
+
+    ph.loop(1, listener);
+    assertEquals(1, copies.size());
+    assertPacket(0, copies.get(0));
+
+    ph.loop(-1, listener);
+    assertEquals(data.length, copies.size());
+    assertPacket(data.length - 1, copies.get(data.length - 1));
+  }
+
+  @Test
+  public void testLoopRawWithNullListener() throws Exception {
+    try {
+      ph.loop(-1, (RawPacketListener)null);
+      fail();
+    } catch (NullPointerException e) {}
+    try {
+      ph.dispatch(-1, (RawPacketListener)null);
+      fail();
+    } catch (NullPointerException e) {}
+  }
+
+  @Test
+  public void testLoopRawAfterClose() throws Exception {
+    ph.close();
+    try {
+      ph.loop(
+        -1,
+        new RawPacketListener() {
+          public void gotPacket(RawPacket packet) {}
+        }
+      );
+      fail();
+    } catch (NotOpenException e) {}
+  }
+
+  @Test
+  public void testTimestampPrecision() throws Exception {
+    assertEquals(TimestampPrecision.MICRO, ph.getTimestampPrecision());
+    ph.close();
+
+    ph = Pcaps.openOffline(file.getPath(), TimestampPrecision.NANO);
+    assertEquals(TimestampPrecision.NANO, ph.getTimestampPrecision());
+
+    final List<RawPacket> copies = new ArrayList<RawPacket>();
+    ph.loop(
+      -1,
+      new RawPacketListener() {
+        public void gotPacket(RawPacket packet) {
+          copies.add(packet.copy());
+        }
+      }
+    );
+    assertEquals(data.length, copies.size());
+    for (int i = 0; i < copies.size(); i++) {
+      RawPacket packet = copies.get(i);
+      assertEquals(TimestampPrecision.NANO, packet.getTimestampPrecision());
+      // The microsecond timestamps in the file are scaled.
+      assertEquals(i * 1000, packet.getTimestampNanos());
+    }
+    assertTrue(copies.get(1).toString().contains("[101.000001000]"));
+  }
+
+
+  @Test
+  public void testCloseWhileLooping() throws Exception {
+    final List<RawPacket> copies = new ArrayList<RawPacket>();
+    final Thread[] closer = new Thread[1];
+    try {
+      ph.loop(
+        -1,
+        new RawPacketListener() {
+          public void gotPacket(RawPacket packet) {
+            copies.add(packet.copy());
+            if (closer[0] != null) {
+              return;
+            }
+
+            closer[0] = new Thread() {
+              @Override
+              public void run() {
+                ph.close();
+              }
+            };
+            closer[0].start();
+            // Waits for close() to break the loop and block until it returns.
+            long deadline = System.currentTimeMillis() + 5000;
+            while (
+                 closer[0].getState() != Thread.State.WAITING
+              && System.currentTimeMillis() < deadline
+            ) {
+              Thread.yield();
+            }
+            assertTrue(ph.isOpen());
+          }
+        }
+      );
+      fail();
+    } catch (InterruptedException e) {}
+
+    closer[0].join(5000);
+    assertFalse(closer[0].isAlive());
+    assertFalse(ph.isOpen());
+    assertEquals(1, copies.size());
+    assertPacket(0, copies.get(0));
+
+    try {
+      ph.loop(-1, new RawPacketListener() { public void gotPacket(RawPacket p) {} });
+      fail();
+    } catch (NotOpenException e) {}
+  }
+
+  @Test
+  public void testCloseInListener() throws Exception {
+    final List<IllegalStateException> errors = new ArrayList<IllegalStateException>();
+    ph.loop(
+      -1,
+      new RawPacketListener() {
+        public void gotPacket(RawPacket packet) {
+          try {
+            ph.close();
+          } catch (IllegalStateException e) {
+            errors.add(e);
+          }
+        }
+      }
+    );
+
+    // Every call was rejected and the loop read all the packets.
+    assertEquals(data.length, errors.size());
+    assertTrue(ph.isOpen());
+    ph.close();
+    assertFalse(ph.isOpen());
+  }
+
+  // Savefile handles reject sending, so these check the arguments are
+  // validated before pcap_sendpacket() and failures are reported.
+
+  @Test
+  public void testSendPacketBytesArguments() throws Exception {
+    byte[] bytes = new byte[60];
+    try {
+      ph.sendPacket((byte[])null, 0, 0);
+      fail();
+    } catch (NullPointerException e) {}
+
+    int[][] invalids = {{-1, 10}, {0, -1}, {0, 61}, {51, 10}, {61, 0}};
+    for (int[] invalid: invalids) {
+      try {
+        ph.sendPacket(bytes, invalid[0], invalid[1]);
+        fail(invalid[0] + ", " + invalid[1]);
+      } catch (ArrayIndexOutOfBoundsException e) {}
+    }
+
+    // Valid ranges, including an empty one at the end, reach pcap_sendpacket().
+    int[][] valids = {{0, 60}, {50, 10}, {60, 0}};
+    for (int[] valid: valids) {
+      try {
+        ph.sendPacket(bytes, valid[0], valid[1]);
+        fail(valid[0] + ", " + valid[1]);
+      } catch (PcapNativeException e) {
+        assertTrue(e.getMessage().startsWith("Error occured in pcap_sendpacket()"));
+      }
+    }
+  }
+
+  @Test
+  public void testSendPacketBuffer() throws Exception {
+    try {
+      ph.sendPacket((ByteBuffer)null);
+      fail();
+    } catch (NullPointerException e) {}
+
+    ByteBuffer[] buffers = {
+      ByteBuffer.allocate(60),
+      ByteBuffer.allocateDirect(60),
+      ByteBuffer.allocate(60).asReadOnlyBuffer()
+    };
+    for (ByteBuffer buffer: buffers) {
+      buffer.position(10).limit(50);
+      try {
+        ph.sendPacket(buffer);
+        fail(buffer.toString());
+      } catch (PcapNativeException e) {}
+      assertEquals(10, buffer.position());
+      assertEquals(50, buffer.limit());
+    }
+  }
+
+  @Test
+  public void testSendPacketsArguments() throws Exception {
+    try {
+      ph.sendPackets((ByteBuffer[])null);
+      fail();
+    } catch (NullPointerException e) {}
+    try {
+      ph.sendPackets(null, 0, 0);
+      fail();
+    } catch (NullPointerException e) {}
+
+    ByteBuffer[] buffers = new ByteBuffer[3];
+    int[][] invalids = {{-1, 1}, {0, -1}, {0, 4}, {2, 2}, {4, 0}};
+    for (int[] invalid: invalids) {
+      try {
+        ph.sendPackets(buffers, invalid[0], invalid[1]);
+        fail(invalid[0] + ", " + invalid[1]);
+      } catch (ArrayIndexOutOfBoundsException e) {}
+    }
+
+    // A null buffer in the range is rejected before any packet is sent,
+    // but one out of it is ignored.
+    buffers[1] = ByteBuffer.allocate(60);
+    String error = ph.getError();
+    try {
+      ph.sendPackets(buffers, 1, 2);
+      fail();
+    } catch (NullPointerException e) {}
+    assertEquals(error, ph.getError());
+    SendResult result = ph.sendPackets(buffers, 1, 1);
+    assertEquals(0, result.getNumSent());
+    assertEquals(1, result.getNumFailed());
+
+    result = ph.sendPackets(buffers, 3, 0);
+    assertEquals(0, result.getNumSent());
+    assertEquals(0, result.getNumFailed());
+    assertNull(result.getLastError());
+  }
+
+  @Test
+  public void testSendPacketsFailures() throws Exception {
+    ByteBuffer[] buffers = new ByteBuffer[5];
+    for (int i = 0; i < buffers.length; i++) {
+      buffers[i] = i % 2 == 0 ? ByteBuffer.allocate(60) : ByteBuffer.allocateDirect(60);
+      buffers[i].position(i);
+    }
+
+    // A failure doesn't stop sending the following buffers in the range.
+    SendResult result = ph.sendPackets(buffers, 1, 3);
+    assertEquals(0, result.getNumSent());
+    assertEquals(3, result.getNumFailed());
+    assertNotNull(result.getLastError());
+    assertEquals(ph.getError(), result.getLastError());
+    for (int i = 0; i < buffers.length; i++) {
+      assertEquals(i, buffers[i].position());
+    }
+
+    result = ph.sendPackets(buffers);
+    assertEquals(0, result.getNumSent());
+    assertEquals(buffers.length, result.getNumFailed());
+    assertTrue(result.toString().contains("Failed: [5]"));
+  }
+
+  @Test
+  public void testSendAfterClose() throws Exception {
+    ph.close();
+    try {
+      ph.sendPacket(new byte[60], 0, 60);
+      fail();
+    } catch (NotOpenException e) {}
+    try {
+      ph.sendPackets(new ByteBuffer[] {ByteBuffer.allocate(60)});
+      fail();
+    } catch (NotOpenException e) {}
+  }
+
+}
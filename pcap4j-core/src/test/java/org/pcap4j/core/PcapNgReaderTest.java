@@ -0,0 +1,186 @@
+package org.pcap4j.core;
+
+import static org.junit.Assert.*;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ReadableByteChannel;
+import org.junit.Before;
+import org.junit.Test;
+import org.pcap4j.core.PcapHandle.TimestampPrecision;
+import org.pcap4j.packet.namednumber.DataLinkType;
+
+@SuppressWarnings("javadoc")
+public class PcapNgReaderTest {
+
+  private static final int NUM_PACKETS_PER_SECTION = 5;
+
+  private byte[][] data;
+  private byte[] stream;
+
+  @Before
+  public void setUp() throws Exception {
+    data = new byte[NUM_PACKETS_PER_SECTION][];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = new byte[40 + i * 9];
+      for (int j = 0; j < data[i].length; j++) {
+        data[i][j] = (byte)(i * 3 + j);
+      }
+    }
+
+    // A little-endian section with an Ethernet interface in microseconds,
+    // and then a big-endian section with two interfaces in nanoseconds.
+    ByteBuffer buf = ByteBuffer.allocate(4096);
+    putSection(buf, ByteOrder.LITTLE_ENDIAN, DataLinkType.EN10MB, 6, 1);
+    putSection(buf, ByteOrder.BIG_ENDIAN, DataLinkType.PPP, 9, 2);
+    stream = new byte[buf.position()];
+    System.arraycopy(buf.array(), 0, stream, 0, stream.length);
+  }
+
+  private void putSection(
+    ByteBuffer buf, ByteOrder order, DataLinkType dlt, int tsresol, int numIfs
+  ) {
+    buf.order(order);
+    // Section Header Block
+    buf.putInt(0x0A0D0D0A).putInt(28).putInt(0x1A2B3C4D)
+       .putShort((short)1).putShort((short)0).putLong(-1L)
+       .putInt(28);
+    // Interface Description Blocks with if_tsresol
+    for (int i = 0; i < numIfs; i++) {
+      buf.putInt(1).putInt(32)
+         .putShort(dlt.value().shortValue()).putShort((short)0).putInt(0)
+         .putShort((short)9).putShort((short)1).put((byte)tsresol).put(new byte[3])
+         .putInt(0)
+         .putInt(32);
+    }
+    // Enhanced Packet Blocks
+    long unitsPerSec = tsresol == 6 ? 1000000L : 1000000000L;
+    for (int i = 0; i < data.length; i++) {
+      byte[] d = data[i];
+      int padded = (d.length + 3) & ~3;
+      long ts = (100 + i) * unitsPerSec + i;
+      buf.putInt(6).putInt(32 + padded).putInt(i % numIfs)
+         .putInt((int)(ts >>> 32)).putInt((int)ts)
+         .putInt(d.length).putInt(d.length + 1)
+         .put(d).put(new byte[padded - d.length])
+         .putInt(32 + padded);
+    }
+  }
+
+  private void assertStream(PcapNgReader reader) throws IOException {
+    try {
+      for (int s = 0; s < 2; s++) {
+        for (int i = 0; i < data.length; i++) {
+          RawPacket packet = reader.getNextRawPacket();
+          assertNotNull(packet);
+          byte[] d = data[i];
+          if (s == 0) {
+            assertEquals(ByteOrder.LITTLE_ENDIAN, reader.getByteOrder());
+            assertEquals(0, reader.getInterfaceId());
+            assertEquals(1, reader.getInterfaces().size());
+            assertEquals(DataLinkType.EN10MB, packet.getDlt());
+            assertEquals(i * 1000, packet.getTimestampNanos());
+            assertEquals(TimestampPrecision.MICRO, packet.getTimestampPrecision());
+          }
+          else {
+            assertEquals(ByteOrder.BIG_ENDIAN, reader.getByteOrder());
+            assertEquals(i % 2, reader.getInterfaceId());
+            assertEquals(2, reader.getInterfaces().size());
+            assertEquals(DataLinkType.PPP, packet.getDlt());
+            assertEquals(i, packet.getTimestampNanos());
+            assertEquals(TimestampPrecision.NANO, packet.getTimestampPrecision());
+          }
+          assertEquals(100 + i, packet.getTimestampSec());
+          assertEquals(d.length, packet.getCaptureLength());
+          assertEquals(d.length + 1, packet.getOriginalLength());
+          assertArrayEquals(d, packet.getRawData());
+        }
+      }
+      assertNull(reader.getNextRawPacket());
+    } finally {
+      reader.close();
+    }
+  }
+
+  @Test
+  public void testSections() throws Exception {
+    assertStream(new PcapNgReader(new ChunkedChannel(stream, stream.length)));
+  }
+
+  @Test
+  public void testSmallBuffer() throws Exception {
+    // Every block is larger than the buffer, which grows to hold it.
+    assertStream(new PcapNgReader(new ChunkedChannel(stream, stream.length), 8));
+  }
+
+  @Test
+  public void testBlockStraddlingBuffer() throws Exception {
+    // Short reads and a buffer smaller than the stream make blocks,
+    // including the Section Header Blocks, start at various positions
+    // in the buffer and end beyond it.
+    for (int bufferSize: new int[] {64, 100, 128}) {
+      for (int chunkSize = 1; chunkSize <= 64; chunkSize++) {
+        String params = "bufferSize: " + bufferSize + " chunkSize: " + chunkSize;
+        try {
+          assertStream(
+            new PcapNgReader(new ChunkedChannel(stream, chunkSize), bufferSize)
+          );
+        } catch (AssertionError e) {
+          throw new AssertionError(params + " " + e.getMessage());
+        } catch (IOException e) {
+          throw new AssertionError(params + " " + e);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testTruncatedStream() throws Exception {
+    byte[] truncated = new byte[stream.length - 6];
+    System.arraycopy(stream, 0, truncated, 0, truncated.length);
+    PcapNgReader reader
+      = new PcapNgReader(new ChunkedChannel(truncated, 7), 64);
+    try {
+      for (int i = 0; i < NUM_PACKETS_PER_SECTION * 2 - 1; i++) {
+        assertNotNull(reader.getNextRawPacket());
+      }
+      reader.getNextRawPacket();
+      fail();
+    } catch (EOFException e) {
+    } finally {
+      reader.close();
+    }
+  }
+
+  // Returns at most chunkSize bytes per read.
+  private static final class ChunkedChannel implements ReadableByteChannel {
+
+    private final ByteBuffer src;
+    private final int chunkSize;
+    private boolean open = true;
+
+    private ChunkedChannel(byte[] src, int chunkSize) {
+      this.src = ByteBuffer.wrap(src);
+      this.chunkSize = chunkSize;
+    }
+
+    public int read(ByteBuffer dst) throws IOException {
+      if (!src.hasRemaining()) {
+        return -1;
+      }
+      int n = Math.min(Math.min(chunkSize, src.remaining()), dst.remaining());
+      ByteBuffer chunk = src.duplicate();
+      chunk.limit(chunk.position() + n);
+      dst.put(chunk);
+      src.position(src.position() + n);
+      return n;
+    }
+
+    public boolean isOpen() { return open; }
+
+    public void close() { open = false; }
+
+  }
+
+}
@@ -0,0 +1,195 @@
+package org.pcap4j.core;
+
+import static org.junit.Assert.*;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.pcap4j.core.NativeMappings.pcap_stat;
+import org.pcap4j.core.PcapHandle.TimestampPrecision;
+import org.pcap4j.core.PcapNgReader.InterfaceDescription;
+import org.pcap4j.core.PcapNgReader.InterfaceStatistics;
+import org.pcap4j.packet.namednumber.DataLinkType;
+
+@SuppressWarnings("javadoc")
+public class PcapNgWriterTest {
+
+  private static final String TMP_DIR_PROP
+    = PcapNgWriterTest.class.getName() + ".tmpDir";
+
+  private File file;
+  private byte[][] data;
+
+  @Before
+  public void setUp() throws Exception {
+    String tmpDirPath = System.getProperty(TMP_DIR_PROP, "testdata");
+    File tmpDir = new File(tmpDirPath);
+    if (!tmpDir.exists()) {
+      if (!tmpDir.mkdirs()) {
+        throw new IOException("Failed to make a test diectory: " + tmpDirPath);
+      }
+    }
+    file = new File(tmpDir, "PcapNgWriterTest.pcapng");
+
+    data = new byte[3][];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = new byte[60 + i * 7];
+      for (int j = 0; j < data[i].length; j++) {
+        data[i][j] = (byte)(i + j);
+      }
+    }
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    file.delete();
+  }
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    pcap_stat ps = new pcap_stat();
+    ps.ps_recv = 100;
+    ps.ps_drop = 2;
+    ps.ps_ifdrop = 1;
+
+    // A small buffer makes blocks span over several writes.
+    PcapNgWriter writer = new PcapNgWriter(file, 64);
+    try {
+      int eth = writer.addInterface(
+                  DataLinkType.EN10MB, 64, TimestampPrecision.MICRO, "eth0"
+                );
+      int raw = writer.addInterface(
+                  DataLinkType.PPP, 65535, TimestampPrecision.NANO, null
+                );
+      assertEquals(0, eth);
+      assertEquals(1, raw);
+
+      for (int i = 0; i < 10; i++) {
+        byte[] d = data[i % data.length];
+        if (i % 2 == 0) {
+          writer.write(eth, d, 0, d.length, d.length, i, i * 1000 + 1);
+        }
+        else {
+          ByteBuffer buf = ByteBuffer.allocate(d.length + 3);
+          buf.position(3);
+          buf.put(d);
+          buf.position(3);
+          writer.write(raw, buf, d.length + 5, i, i * 1000 + 1);
+          assertEquals(3, buf.position());
+        }
+      }
+      writer.writeStatistics(raw, new PcapStat(ps), 20, 123456789);
+      writer.flush();
+      assertEquals(file.length(), writer.getPosition());
+    } finally {
+      writer.close();
+    }
+
+    PcapNgReader reader = new PcapNgReader(file);
+    try {
+      for (int i = 0; i < 10; i++) {
+        byte[] d = data[i % data.length];
+        RawPacket packet = reader.getNextRawPacket();
+        if (i % 2 == 0) {
+          assertEquals(0, reader.getInterfaceId());
+          assertEquals(DataLinkType.EN10MB, packet.getDlt());
+          assertEquals(i, packet.getTimestampSec());
+          assertEquals(i * 1000, packet.getTimestampNanos());
+          assertEquals(d.length, packet.getOriginalLength());
+          assertEquals(Math.min(d.length, 64), packet.getCaptureLength());
+        }
+        else {
+          assertEquals(1, reader.getInterfaceId());
+          assertEquals(DataLinkType.PPP, packet.getDlt());
+          assertEquals(i, packet.getTimestampSec());
+          assertEquals(i * 1000 + 1, packet.getTimestampNanos());
+          assertEquals(d.length + 5, packet.getOriginalLength());
+          assertEquals(d.length, packet.getCaptureLength());
+        }
+        byte[] expected = new byte[packet.getCaptureLength()];
+        System.arraycopy(d, 0, expected, 0, expected.length);
+        assertArrayEquals(expected, packet.getRawData());
+      }
+      assertNull(reader.getNextRawPacket());
+
+      assertEquals(ByteOrder.nativeOrder(), reader.getByteOrder());
+      List<InterfaceDescription> ifs = reader.getInterfaces();
+      assertEquals(2, ifs.size());
+      assertEquals("eth0", ifs.get(0).getName());
+      assertEquals(64, ifs.get(0).getSnapshot());
+      assertEquals(6, ifs.get(0).getTimestampResolution());
+      assertNull(ifs.get(1).getName());
+      assertEquals(9, ifs.get(1).getTimestampResolution());
+
+      assertNull(reader.getStatistics(0));
+      InterfaceStatistics stat = reader.getStatistics(1);
+      assertEquals(20, stat.getTimestampSec());
+      assertEquals(123456789, stat.getTimestampNanos());
+      assertEquals(100, stat.getNumPacketsReceived());
+      assertEquals(1, stat.getNumPacketsDroppedByIf());
+      assertEquals(2, stat.getNumPacketsDroppedByOs());
+    } finally {
+      reader.close();
+    }
+  }
+
+  @Test
+  public void testReadBigEndianWithSimplePackets() throws Exception {
+    ByteBuffer buf = ByteBuffer.allocate(1000).order(ByteOrder.BIG_ENDIAN);
+    // Section Header Block with an option
+    buf.putInt(0x0A0D0D0A).putInt(36).putInt(0x1A2B3C4D)
+       .putShort((short)1).putShort((short)0).putLong(-1L)
+       .putShort((short)1).putShort((short)3).putInt(0x61626300)
+       .putInt(36);
+    // Interface Description Block with if_tsresol = 2^-10 and if_tsoffset
+    buf.putInt(1).putInt(44).putShort((short)1).putShort((short)0).putInt(62)
+       .putShort((short)9).putShort((short)1).putInt(0x8A000000)
+       .putShort((short)14).putShort((short)8).putLong(1000L)
+       .putInt(0)
+       .putInt(44);
+    // An unknown block
+    buf.putInt(0x0BAD).putInt(16).putInt(0).putInt(16);
+    // Enhanced Packet Block
+    buf.putInt(6).putInt(32 + 60).putInt(0)
+       .putInt(0).putInt(5 * 1024 + 512).putInt(data[0].length).putInt(60)
+       .put(data[0]).putInt(32 + 60);
+    // Simple Packet Block truncated to the snapshot length
+    buf.putInt(3).putInt(16 + 64).putInt(data[1].length)
+       .put(data[1], 0, 64).putInt(16 + 64);
+
+    FileOutputStream out = new FileOutputStream(file);
+    try {
+      out.write(buf.array(), 0, buf.position());
+    } finally {
+      out.close();
+    }
+
+    PcapNgReader reader = new PcapNgReader(file);
+    try {
+      RawPacket packet = reader.getNextRawPacket();
+      assertEquals(ByteOrder.BIG_ENDIAN, reader.getByteOrder());
+      assertEquals(DataLinkType.EN10MB, packet.getDlt());
+      assertEquals(1005, packet.getTimestampSec());
+      assertEquals(500000000, packet.getTimestampNanos());
+      assertArrayEquals(data[0], packet.getRawData());
+
+      packet = reader.getNextRawPacket();
+      assertEquals(0, reader.getInterfaceId());
+      assertEquals(data[1].length, packet.getOriginalLength());
+      assertEquals(62, packet.getCaptureLength());
+      byte[] expected = new byte[62];
+      System.arraycopy(data[1], 0, expected, 0, expected.length);
+      assertArrayEquals(expected, packet.getRawData());
+
+      assertNull(reader.getNextRawPacket());
+    } finally {
+      reader.close();
+    }
+  }
+
+}
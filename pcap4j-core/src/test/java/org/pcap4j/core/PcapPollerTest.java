@@ -0,0 +1,125 @@
+package org.pcap4j.core;
+
+import static org.junit.Assert.*;
+import java.io.File;
+import java.io.IOException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.pcap4j.packet.namednumber.DataLinkType;
+
+@SuppressWarnings("javadoc")
+public class PcapPollerTest {
+
+  private static final String TMP_DIR_PROP
+    = PcapPollerTest.class.getName() + ".tmpDir";
+
+  private static final int NUM_PACKETS = 10;
+
+  private File[] files;
+  private PcapHandle[] handles;
+
+  @Before
+  public void setUp() throws Exception {
+    String tmpDirPath = System.getProperty(TMP_DIR_PROP, "testdata");
+    File tmpDir = new File(tmpDirPath);
+    if (!tmpDir.exists()) {
+      if (!tmpDir.mkdirs()) {
+        throw new IOException("Failed to make a test diectory: " + tmpDirPath);
+      }
+    }
+
+    // A savefile is always readable, which is enough to drive the poller.
+    files = new File[2];
+    handles = new PcapHandle[files.length];
+    for (int i = 0; i < files.length; i++) {
+      files[i] = new File(tmpDir, "PcapPollerTest" + i + ".pcap");
+      PcapFileWriter writer
+        = new PcapFileWriter.Builder(files[i], DataLinkType.EN10MB).build();
+      try {
+        for (int j = 0; j < NUM_PACKETS; j++) {
+          byte[] data = new byte[60];
+          data[0] = (byte)i;
+          writer.write(data, 0, data.length, data.length, j, 0);
+        }
+      } finally {
+        writer.close();
+      }
+      handles[i] = Pcaps.openOffline(files[i].getPath());
+    }
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    for (int i = 0; i < files.length; i++) {
+      if (handles[i] != null) {
+        handles[i].close();
+      }
+      if (files[i] != null) {
+        files[i].delete();
+      }
+    }
+  }
+
+  @Test
+  public void testPoll() throws Exception {
+    final int[] counts = new int[handles.length];
+    RawPacketListener listener
+      = new RawPacketListener() {
+          public void gotPacket(RawPacket packet) {
+            counts[packet.getData().get(0)]++;
+          }
+        };
+
+    PcapPoller poller = new PcapPoller();
+    PcapPoller.Registration reg0 = poller.register(handles[0], listener);
+    PcapPoller.Registration reg1 = poller.register(handles[1], listener);
+
+    int total = 0;
+    for (int i = 0; i < 100 && total < NUM_PACKETS * handles.length; i++) {
+      int n = poller.poll(1000, 3);
+      assertTrue(n >= 0);
+      total += n;
+    }
+    assertEquals(NUM_PACKETS * handles.length, total);
+    assertEquals(NUM_PACKETS, counts[0]);
+    assertEquals(NUM_PACKETS, counts[1]);
+
+    reg0.cancel();
+    assertEquals(PcapPoller.CANCELLED, reg0.getStatus());
+    handles[1].close();
+    handles[1] = null;
+    poller.poll(1000, 3);
+    assertEquals(PcapPoller.CLOSED, reg1.getStatus());
+    assertTrue(poller.getRegistrations().isEmpty());
+  }
+
+  @Test
+  public void testEof() throws Exception {
+    final int[] counts = new int[handles.length];
+    RawPacketListener listener
+      = new RawPacketListener() {
+          public void gotPacket(RawPacket packet) {
+            counts[packet.getData().get(0)]++;
+          }
+        };
+
+    PcapPoller poller = new PcapPoller();
+    PcapPoller.Registration reg0 = poller.register(handles[0], listener);
+    PcapPoller.Registration reg1 = poller.register(handles[1], listener);
+
+    int total = 0;
+    for (int i = 0; i < 100 && !poller.getRegistrations().isEmpty(); i++) {
+      total += poller.poll(1000, 4);
+    }
+    assertTrue(poller.getRegistrations().isEmpty());
+    assertEquals(NUM_PACKETS * handles.length, total);
+    assertEquals(NUM_PACKETS, counts[0]);
+    assertEquals(NUM_PACKETS, counts[1]);
+    assertEquals(PcapPoller.EOF, reg0.getStatus());
+    assertEquals(PcapPoller.EOF, reg1.getStatus());
+    assertTrue(handles[0].isOpen());
+    assertEquals(0, poller.poll(0, 4));
+  }
+
+}
@@ -0,0 +1,73 @@
+package org.pcap4j.core;
+
+import static org.junit.Assert.*;
+import java.nio.ByteBuffer;
+import org.junit.Test;
+import org.pcap4j.core.PcapHandle.TimestampPrecision;
+import org.pcap4j.packet.UnknownPacket;
+import org.pcap4j.packet.namednumber.DataLinkType;
+
+@SuppressWarnings("javadoc")
+public class RawPacketTest {
+
+  private static RawPacket newPacket(int nanos, TimestampPrecision precision) {
+    RawPacket packet = new RawPacket();
+    packet.set(
+      DataLinkType.EN10MB,
+      ByteBuffer.wrap(new byte[] { 1, 2, 3 }).asReadOnlyBuffer(),
+      60,
+      1234L,
+      nanos,
+      precision
+    );
+    return packet;
+  }
+
+  @Test
+  public void testToStringPadsNanos() throws Exception {
+    RawPacket packet = newPacket(5, TimestampPrecision.NANO);
+    assertTrue(packet.toString(), packet.toString().contains("[1234.000000005]"));
+
+    packet = newPacket(123456789, TimestampPrecision.NANO);
+    assertTrue(packet.toString(), packet.toString().contains("[1234.123456789]"));
+  }
+
+  @Test
+  public void testToStringPadsMicros() throws Exception {
+    RawPacket packet = newPacket(5000, TimestampPrecision.MICRO);
+    assertTrue(packet.toString(), packet.toString().contains("[1234.000005]"));
+
+    packet = newPacket(0, TimestampPrecision.MICRO);
+    assertTrue(packet.toString(), packet.toString().contains("[1234.000000]"));
+  }
+
+  @Test
+  public void testCopyKeepsPrecision() throws Exception {
+    RawPacket packet = newPacket(5000, TimestampPrecision.MICRO);
+    RawPacket copy = packet.copy();
+    assertEquals(TimestampPrecision.MICRO, copy.getTimestampPrecision());
+    assertEquals(5000, copy.getTimestampNanos());
+    assertEquals(5, copy.getTimestampMicros());
+
+    RawPacket pooled = new RawPacket();
+    pooled.fill(newPacket(7, TimestampPrecision.NANO));
+    assertEquals(TimestampPrecision.NANO, pooled.getTimestampPrecision());
+    assertEquals(7, pooled.getTimestampNanos());
+  }
+
+  @Test
+  public void testPcapPacketToString() throws Exception {
+    UnknownPacket data
+      = new UnknownPacket.Builder().rawData(new byte[] { 1, 2, 3 }).build();
+
+    PcapPacket packet
+      = new PcapPacket(data, 1234L, 42000, 3, 60, TimestampPrecision.MICRO);
+    assertEquals(TimestampPrecision.MICRO, packet.getTimestampPrecision());
+    assertTrue(packet.toString(), packet.toString().startsWith("Timestamp: [1234.000042]"));
+
+    packet = new PcapPacket(data, 1234L, 42, 3, 60);
+    assertEquals(TimestampPrecision.NANO, packet.getTimestampPrecision());
+    assertTrue(packet.toString(), packet.toString().startsWith("Timestamp: [1234.000000042]"));
+  }
+
+}
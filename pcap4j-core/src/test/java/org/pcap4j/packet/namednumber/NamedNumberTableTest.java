@@ -0,0 +1,43 @@
+package org.pcap4j.packet.namednumber;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class NamedNumberTableTest {
+
+  @Test
+  public void testGetInstance() {
+    assertSame(TcpPort.SNMP, TcpPort.getInstance((short)161));
+    assertSame(EtherType.IPV4, EtherType.getInstance((short)0x0800));
+    assertSame(IpNumber.TCP, IpNumber.getInstance((byte)6));
+  }
+
+  @Test
+  public void testUnknownIsCached() {
+    TcpPort unknown = TcpPort.getInstance((short)0xFFF0);
+    assertEquals("unknown", unknown.name());
+    assertEquals(Short.valueOf((short)0xFFF0), unknown.value());
+    assertSame(unknown, TcpPort.getInstance((short)0xFFF0));
+
+    IpNumber unknownNumber = IpNumber.getInstance((byte)0xFE);
+    assertEquals("unknown", unknownNumber.name());
+    assertSame(unknownNumber, IpNumber.getInstance((byte)0xFE));
+  }
+
+  @Test
+  public void testRegister() {
+    short value = (short)0xFFF1;
+    TcpPort unknown = TcpPort.getInstance(value);
+    TcpPort port = new TcpPort(value, "test");
+
+    assertNull(TcpPort.register(port));
+    assertSame(port, TcpPort.getInstance(value));
+    assertNotSame(unknown, TcpPort.getInstance(value));
+
+    TcpPort port2 = new TcpPort(value, "test2");
+    assertSame(port, TcpPort.register(port2));
+    assertSame(port2, TcpPort.getInstance(value));
+  }
+
+}
@@ -0,0 +1,64 @@
+package org.pcap4j.util;
+
+import static org.junit.Assert.*;
+import java.util.Random;
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class ChecksumAccumulatorTest {
+
+  // RFC 1071, straightforwardly.
+  private static short naiveChecksum(byte[] data) {
+    int sum = 0;
+    for (int i = 0; i < data.length; i += 2) {
+      int word = (0xFF & data[i]) << 8;
+      if (i + 1 < data.length) {
+        word |= 0xFF & data[i + 1];
+      }
+      sum += word;
+      sum = (0xFFFF & sum) + (sum >>> 16);
+    }
+    return (short)~sum;
+  }
+
+  @Test
+  public void testRfc1071Example() {
+    byte[] data = new byte[] {
+      (byte)0x00, (byte)0x01, (byte)0xf2, (byte)0x03,
+      (byte)0xf4, (byte)0xf5, (byte)0xf6, (byte)0xf7
+    };
+    // The sum is 0xddf2.
+    assertEquals((short)~0xddf2, new ChecksumAccumulator().update(data).getChecksum());
+  }
+
+  @Test
+  public void testPieces() {
+    Random random = new Random(12345L);
+    for (int n = 0; n < 200; n++) {
+      byte[] data = new byte[random.nextInt(300)];
+      random.nextBytes(data);
+      short expected = naiveChecksum(data);
+
+      assertEquals(expected, ByteArrays.calcChecksum(data));
+
+      ChecksumAccumulator acc = new ChecksumAccumulator();
+      int pos = 0;
+      while (pos < data.length) {
+        int len = Math.min(random.nextInt(20), data.length - pos);
+        if (len == 2 && random.nextBoolean()) {
+          acc.update(ByteArrays.getShort(data, pos));
+        }
+        else {
+          acc.update(data, pos, len);
+        }
+        pos += len;
+      }
+      assertEquals(expected, acc.getChecksum());
+
+      acc.reset();
+      acc.update(data);
+      assertEquals(expected, acc.getChecksum());
+    }
+  }
+
+}
@@ -0,0 +1,50 @@
+/*_##########################################################################
+  _##
+  _##  Copyright (C) 2013  Kaito Yamada
+  _##
+  _##########################################################################
+*/
+
+package org.pcap4j.packet.factory;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Caches the static newInstance methods of the classes which a factory
+ * instantiates, so that they are looked up only once for each class.
+ *
+ * @author Kaito Yamada
+ * @since pcap4j 1.0.1
+ */
+final class NewInstanceMethodCache {
+
+  private final Class<?> parameterType;
+  private final ConcurrentMap<Class<?>, Method> methods
+    = new ConcurrentHashMap<Class<?>, Method>();
+
+  /**
+   *
+   * @param parameterType the type of the parameter of the newInstance methods.
+   */
+  NewInstanceMethodCache(Class<?> parameterType) {
+    this.parameterType = parameterType;
+  }
+
+  /**
+   *
+   * @param clazz
+   * @return the newInstance method of clazz.
+   * @throws NoSuchMethodException
+   */
+  Method get(Class<?> clazz) throws NoSuchMethodException {
+    Method method = methods.get(clazz);
+    if (method == null) {
+      method = clazz.getMethod("newInstance", parameterType);
+      methods.putIfAbsent(clazz, method);
+    }
+    return method;
+  }
+
+}
@@ -25,6 +25,9 @@ implements PacketFactory<IpV4InternetTimestampOptionData, IpV4InternetTimestampO
   private static final PropertiesBasedIpV4InternetTimestampOptionDataFactory INSTANCE
     = new PropertiesBasedIpV4InternetTimestampOptionDataFactory();
 
+  private final NewInstanceMethodCache newInstanceMethods
+    = new NewInstanceMethodCache(byte[].class);
+
   private PropertiesBasedIpV4InternetTimestampOptionDataFactory() {}
 
   /**
@@ -72,7 +75,7 @@ implements PacketFactory<IpV4InternetTimestampOptionData, IpV4InternetTimestampO
     }
 
     try {
-      Method newInstance = dataClass.getMethod("newInstance", byte[].class);
+      Method newInstance = newInstanceMethods.get(dataClass);
       return (IpV4InternetTimestampOptionData)newInstance.invoke(null, rawData);
     } catch (SecurityException e) {
       throw new IllegalStateException(e);
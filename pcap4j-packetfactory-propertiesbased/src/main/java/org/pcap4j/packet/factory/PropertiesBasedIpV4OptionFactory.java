@@ -25,6 +25,9 @@ implements PacketFactory<IpV4Option, IpV4OptionType> {
   private static final PropertiesBasedIpV4OptionFactory INSTANCE
     = new PropertiesBasedIpV4OptionFactory();
 
+  private final NewInstanceMethodCache newInstanceMethods
+    = new NewInstanceMethodCache(byte[].class);
+
   private PropertiesBasedIpV4OptionFactory() {}
 
   /**
@@ -66,7 +69,7 @@ implements PacketFactory<IpV4Option, IpV4OptionType> {
     }
 
     try {
-      Method newInstance = dataClass.getMethod("newInstance", byte[].class);
+      Method newInstance = newInstanceMethods.get(dataClass);
       return (IpV4Option)newInstance.invoke(null, rawData);
     } catch (SecurityException e) {
       throw new IllegalStateException(e);
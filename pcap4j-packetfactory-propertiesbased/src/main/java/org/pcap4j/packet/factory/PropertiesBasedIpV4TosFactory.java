@@ -25,6 +25,9 @@ implements PacketFactory<IpV4Tos, NA> {
   private static final PropertiesBasedIpV4TosFactory INSTANCE
     = new PropertiesBasedIpV4TosFactory();
 
+  private final NewInstanceMethodCache newInstanceMethods
+    = new NewInstanceMethodCache(byte.class);
+
   private PropertiesBasedIpV4TosFactory() {}
 
   /**
@@ -65,7 +68,7 @@ implements PacketFactory<IpV4Tos, NA> {
     }
 
     try {
-      Method newInstance = tosClass.getMethod("newInstance", byte.class);
+      Method newInstance = newInstanceMethods.get(tosClass);
       return (IpV4Tos)newInstance.invoke(null, rawData[0]);
     } catch (SecurityException e) {
       throw new IllegalStateException(e);
@@ -25,6 +25,9 @@ implements PacketFactory<IpV6FlowLabel, NA> {
   private static final PropertiesBasedIpV6FlowLabelFactory INSTANCE
     = new PropertiesBasedIpV6FlowLabelFactory();
 
+  private final NewInstanceMethodCache newInstanceMethods
+    = new NewInstanceMethodCache(int.class);
+
   private PropertiesBasedIpV6FlowLabelFactory() {}
 
   /**
@@ -67,7 +70,7 @@ implements PacketFactory<IpV6FlowLabel, NA> {
     }
 
     try {
-      Method newInstance = clazz.getMethod("newInstance", int.class);
+      Method newInstance = newInstanceMethods.get(clazz);
       return (IpV6FlowLabel)newInstance.invoke(null, ByteArrays.getInt(rawData, 0));
     } catch (SecurityException e) {
       throw new IllegalStateException(e);
@@ -25,6 +25,9 @@ implements PacketFactory<IpV6NeighborDiscoveryOption, IpV6NeighborDiscoveryOptio
   private static final PropertiesBasedIpV6NeighborDiscoveryOptionFactory INSTANCE
     = new PropertiesBasedIpV6NeighborDiscoveryOptionFactory();
 
+  private final NewInstanceMethodCache newInstanceMethods
+    = new NewInstanceMethodCache(byte[].class);
+
   private PropertiesBasedIpV6NeighborDiscoveryOptionFactory() {}
 
   /**
@@ -72,7 +75,7 @@ implements PacketFactory<IpV6NeighborDiscoveryOption, IpV6NeighborDiscoveryOptio
     }
 
     try {
-      Method newInstance = dataClass.getMethod("newInstance", byte[].class);
+      Method newInstance = newInstanceMethods.get(dataClass);
       return (IpV6NeighborDiscoveryOption)newInstance.invoke(null, rawData);
     } catch (SecurityException e) {
       throw new IllegalStateException(e);
@@ -25,6 +25,9 @@ implements PacketFactory<IpV6Option, IpV6OptionType> {
   private static final PropertiesBasedIpV6OptionFactory INSTANCE
     = new PropertiesBasedIpV6OptionFactory();
 
+  private final NewInstanceMethodCache newInstanceMethods
+    = new NewInstanceMethodCache(byte[].class);
+
   private PropertiesBasedIpV6OptionFactory() {}
 
   /**
@@ -66,7 +69,7 @@ implements PacketFactory<IpV6Option, IpV6OptionType> {
     }
 
     try {
-      Method newInstance = dataClass.getMethod("newInstance", byte[].class);
+      Method newInstance = newInstanceMethods.get(dataClass);
       return (IpV6Option)newInstance.invoke(null, rawData);
     } catch (SecurityException e) {
       throw new IllegalStateException(e);
@@ -25,6 +25,9 @@ implements PacketFactory<IpV6RoutingData, IpV6RoutingHeaderType> {
   private static final PropertiesBasedIpV6RoutingDataFactory INSTANCE
     = new PropertiesBasedIpV6RoutingDataFactory();
 
+  private final NewInstanceMethodCache newInstanceMethods
+    = new NewInstanceMethodCache(byte[].class);
+
   private PropertiesBasedIpV6RoutingDataFactory() {}
 
   /**
@@ -72,7 +75,7 @@ implements PacketFactory<IpV6RoutingData, IpV6RoutingHeaderType> {
     }
 
     try {
-      Method newInstance = dataClass.getMethod("newInstance", byte[].class);
+      Method newInstance = newInstanceMethods.get(dataClass);
       return (IpV6RoutingData)newInstance.invoke(null, rawData);
     } catch (SecurityException e) {
       throw new IllegalStateException(e);
@@ -25,6 +25,9 @@ implements PacketFactory<IpV6TrafficClass, NA> {
   private static final PropertiesBasedIpV6TrafficClassFactory INSTANCE
     = new PropertiesBasedIpV6TrafficClassFactory();
 
+  private final NewInstanceMethodCache newInstanceMethods
+    = new NewInstanceMethodCache(byte.class);
+
   private PropertiesBasedIpV6TrafficClassFactory() {}
 
   /**
@@ -67,7 +70,7 @@ implements PacketFactory<IpV6TrafficClass, NA> {
     }
 
     try {
-      Method newInstance = clazz.getMethod("newInstance", byte.class);
+      Method newInstance = newInstanceMethods.get(clazz);
       return (IpV6TrafficClass)newInstance.invoke(null, rawData[0]);
     } catch (SecurityException e) {
       throw new IllegalStateException(e);
@@ -9,21 +9,33 @@ package org.pcap4j.packet.factory;
 
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import org.pcap4j.packet.IllegalPacket;
 import org.pcap4j.packet.IllegalRawDataException;
 import org.pcap4j.packet.Packet;
 import org.pcap4j.packet.namednumber.NamedNumber;
+import org.pcap4j.util.ByteArrays;
 
 /**
  * @author Kaito Yamada
  * @since pcap4j 0.9.14
  */
 public final class PropertiesBasedPacketFactory
-implements PacketFactory<Packet, NamedNumber<?>> {
+implements RangedPacketFactory<Packet, NamedNumber<?>> {
 
   private static final PropertiesBasedPacketFactory INSTANCE
     = new PropertiesBasedPacketFactory();
 
+  // Packet classes are looked up in the properties only once for each number
+  // and their newPacket methods only once for each class.
+  // Since the properties are never reloaded, what's cached here never changes.
+  private final ConcurrentMap<NamedNumber<?>, Instantiater> instantiaters
+    = new ConcurrentHashMap<NamedNumber<?>, Instantiater>();
+  private final ConcurrentMap<Class<? extends Packet>, Instantiater> instantiatersByClass
+    = new ConcurrentHashMap<Class<? extends Packet>, Instantiater>();
+  private volatile Instantiater unknownInstantiater = null;
+
   private PropertiesBasedPacketFactory() {};
 
   /**
@@ -37,16 +49,40 @@ implements PacketFactory<Packet, NamedNumber<?>> {
     if (number == null) {
       throw new NullPointerException(" number: " + number);
     }
+    if (rawData == null) {
+      throw new NullPointerException("rawData: " + rawData);
+    }
 
-    Class<? extends Packet> packetClass
-      = PacketFactoryPropertiesLoader.getInstance().getPacketClass(number);
-    return newInstance(rawData, packetClass);
+    return getInstantiater(number).newInstance(rawData);
   }
 
   public Packet newInstance(byte[] rawData) {
-    Class<? extends Packet> packetClass
-      = PacketFactoryPropertiesLoader.getInstance().getUnknownPacketClass();
-    return newInstance(rawData, packetClass);
+    if (rawData == null) {
+      throw new NullPointerException("rawData: " + rawData);
+    }
+
+    return getUnknownInstantiater().newInstance(rawData);
+  }
+
+  public Packet newInstance(
+    byte[] rawData, int offset, int length, NamedNumber<?> number
+  ) {
+    if (number == null) {
+      throw new NullPointerException(" number: " + number);
+    }
+    if (rawData == null) {
+      throw new NullPointerException("rawData: " + rawData);
+    }
+
+    return getInstantiater(number).newInstance(rawData, offset, length);
+  }
+
+  public Packet newInstance(byte[] rawData, int offset, int length) {
+    if (rawData == null) {
+      throw new NullPointerException("rawData: " + rawData);
+    }
+
+    return getUnknownInstantiater().newInstance(rawData, offset, length);
   }
 
   /**
@@ -67,23 +103,134 @@ implements PacketFactory<Packet, NamedNumber<?>> {
       throw new NullPointerException(sb.toString());
     }
 
-    try {
-      Method newPacket = packetClass.getMethod("newPacket", byte[].class);
-      return (Packet)newPacket.invoke(null, rawData);
-    } catch (SecurityException e) {
-      throw new IllegalStateException(e);
-    } catch (NoSuchMethodException e) {
-      throw new IllegalStateException(e);
-    } catch (IllegalArgumentException e) {
-      throw new IllegalStateException(e);
-    } catch (IllegalAccessException e) {
-      throw new IllegalStateException(e);
-    } catch (InvocationTargetException e) {
-      if (e.getTargetException() instanceof IllegalRawDataException) {
-        return IllegalPacket.newPacket(rawData);
+    return getInstantiater(packetClass).newInstance(rawData);
+  }
+
+  /**
+   * If packetClass doesn't have newPacket(byte[], int, int),
+   * the specified range of rawData is copied and passed to newPacket(byte[]).
+   *
+   * @param rawData
+   * @param offset
+   * @param length
+   * @param packetClass
+   * @return a new Packet object.
+   */
+  public Packet newInstance(
+    byte[] rawData, int offset, int length, Class<? extends Packet> packetClass
+  ) {
+    if (rawData == null || packetClass == null) {
+      StringBuilder sb = new StringBuilder(50);
+      sb.append("rawData: ")
+        .append(rawData)
+        .append(" packetClass: ")
+        .append(packetClass);
+      throw new NullPointerException(sb.toString());
+    }
+
+    return getInstantiater(packetClass).newInstance(rawData, offset, length);
+  }
+
+  private Instantiater getInstantiater(NamedNumber<?> number) {
+    Instantiater instantiater = instantiaters.get(number);
+    if (instantiater == null) {
+      instantiater
+        = getInstantiater(
+            PacketFactoryPropertiesLoader.getInstance().getPacketClass(number)
+          );
+      instantiaters.putIfAbsent(number, instantiater);
+    }
+    return instantiater;
+  }
+
+  private Instantiater getUnknownInstantiater() {
+    Instantiater instantiater = unknownInstantiater;
+    if (instantiater == null) {
+      instantiater
+        = getInstantiater(
+            PacketFactoryPropertiesLoader.getInstance().getUnknownPacketClass()
+          );
+      unknownInstantiater = instantiater;
+    }
+    return instantiater;
+  }
+
+  private Instantiater getInstantiater(Class<? extends Packet> packetClass) {
+    Instantiater instantiater = instantiatersByClass.get(packetClass);
+    if (instantiater == null) {
+      instantiater = new Instantiater(packetClass);
+      Instantiater existing
+        = instantiatersByClass.putIfAbsent(packetClass, instantiater);
+      if (existing != null) {
+        instantiater = existing;
       }
-      throw new IllegalStateException(e);
     }
+    return instantiater;
+  }
+
+  private static final class Instantiater {
+
+    private final Method newPacket;
+
+    // null if the class doesn't have newPacket(byte[], int, int)
+    private final Method newPacketWithOffset;
+
+    private Instantiater(Class<? extends Packet> packetClass) {
+      try {
+        this.newPacket = packetClass.getMethod("newPacket", byte[].class);
+      } catch (SecurityException e) {
+        throw new IllegalStateException(e);
+      } catch (NoSuchMethodException e) {
+        throw new IllegalStateException(e);
+      }
+
+      Method m;
+      try {
+        m = packetClass.getMethod(
+              "newPacket", byte[].class, int.class, int.class
+            );
+      } catch (SecurityException e) {
+        throw new IllegalStateException(e);
+      } catch (NoSuchMethodException e) {
+        m = null;
+      }
+      this.newPacketWithOffset = m;
+    }
+
+    private Packet newInstance(byte[] rawData) {
+      try {
+        return (Packet)newPacket.invoke(null, rawData);
+      } catch (IllegalArgumentException e) {
+        throw new IllegalStateException(e);
+      } catch (IllegalAccessException e) {
+        throw new IllegalStateException(e);
+      } catch (InvocationTargetException e) {
+        if (e.getTargetException() instanceof IllegalRawDataException) {
+          return IllegalPacket.newPacket(rawData);
+        }
+        throw new IllegalStateException(e);
+      }
+    }
+
+    private Packet newInstance(byte[] rawData, int offset, int length) {
+      if (newPacketWithOffset == null) {
+        return newInstance(ByteArrays.getSubArray(rawData, offset, length));
+      }
+
+      try {
+        return (Packet)newPacketWithOffset.invoke(null, rawData, offset, length);
+      } catch (IllegalArgumentException e) {
+        throw new IllegalStateException(e);
+      } catch (IllegalAccessException e) {
+        throw new IllegalStateException(e);
+      } catch (InvocationTargetException e) {
+        if (e.getTargetException() instanceof IllegalRawDataException) {
+          return IllegalPacket.newPacket(rawData, offset, length);
+        }
+        throw new IllegalStateException(e);
+      }
+    }
+
   }
 
 }
@@ -25,6 +25,9 @@ implements PacketFactory<TcpOption, TcpOptionKind> {
   private static final PropertiesBasedTcpOptionFactory INSTANCE
     = new PropertiesBasedTcpOptionFactory();
 
+  private final NewInstanceMethodCache newInstanceMethods
+    = new NewInstanceMethodCache(byte[].class);
+
   private PropertiesBasedTcpOptionFactory() {}
 
   /**
@@ -66,7 +69,7 @@ implements PacketFactory<TcpOption, TcpOptionKind> {
     }
 
     try {
-      Method newInstance = dataClass.getMethod("newInstance", byte[].class);
+      Method newInstance = newInstanceMethods.get(dataClass);
       return (TcpOption)newInstance.invoke(null, rawData);
     } catch (SecurityException e) {
       throw new IllegalStateException(e);
@@ -20,7 +20,7 @@ import org.pcap4j.packet.namednumber.NamedNumber;
  * @since pcap4j 0.9.16
  */
 public abstract class AbstractStaticPacketFactory<N extends NamedNumber<?>>
-implements PacketFactory<Packet, N> {
+implements RangedPacketFactory<Packet, N> {
 
   protected final Map<N, PacketInstantiater> instantiaters
     = new HashMap<N, PacketInstantiater>();
@@ -51,4 +51,30 @@ implements PacketFactory<Packet, N> {
     return UnknownPacket.newPacket(rawData);
   }
 
+  public Packet newInstance(byte[] rawData, int offset, int length, N number) {
+    if (rawData == null || number == null) {
+      StringBuilder sb = new StringBuilder(40);
+      sb.append("rawData: ")
+        .append(rawData)
+        .append(" number: ")
+        .append(number);
+      throw new NullPointerException(sb.toString());
+    }
+
+    try {
+      PacketInstantiater instantiater = instantiaters.get(number);
+      if (instantiater != null) {
+        return instantiater.newInstance(rawData, offset, length);
+      }
+    } catch (IllegalRawDataException e) {
+      return IllegalPacket.newPacket(rawData, offset, length);
+    }
+
+    return UnknownPacket.newPacket(rawData, offset, length);
+  }
+
+  public Packet newInstance(byte[] rawData, int offset, int length) {
+    return UnknownPacket.newPacket(rawData, offset, length);
+  }
+
 }
@@ -8,9 +8,15 @@
 package org.pcap4j.packet.factory;
 
 import org.pcap4j.packet.Packet;
+import org.pcap4j.util.ByteArrays;
 
 abstract class PacketInstantiater {
 
   public abstract Packet newInstance(byte [] rawData);
 
+  // Overridden for packet classes which can be built from a part of an array.
+  public Packet newInstance(byte [] rawData, int offset, int length) {
+    return newInstance(ByteArrays.getSubArray(rawData, offset, length));
+  }
+
 }
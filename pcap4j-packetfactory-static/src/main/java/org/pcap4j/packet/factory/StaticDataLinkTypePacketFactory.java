@@ -28,6 +28,10 @@ extends AbstractStaticPacketFactory<DataLinkType> {
         public Packet newInstance(byte[] rawData) {
           return EthernetPacket.newPacket(rawData);
         }
+        @Override
+        public Packet newInstance(byte[] rawData, int offset, int length) {
+          return EthernetPacket.newPacket(rawData, offset, length);
+        }
       }
     );
   };
@@ -31,6 +31,10 @@ extends AbstractStaticPacketFactory<EtherType> {
         public Packet newInstance(byte[] rawData) {
           return IpV4Packet.newPacket(rawData);
         }
+        @Override
+        public Packet newInstance(byte[] rawData, int offset, int length) {
+          return IpV4Packet.newPacket(rawData, offset, length);
+        }
       }
     );
     instantiaters.put(
@@ -47,6 +51,10 @@ extends AbstractStaticPacketFactory<EtherType> {
         public Packet newInstance(byte[] rawData) {
           return Dot1qVlanTagPacket.newPacket(rawData);
         }
+        @Override
+        public Packet newInstance(byte[] rawData, int offset, int length) {
+          return Dot1qVlanTagPacket.newPacket(rawData, offset, length);
+        }
       }
     );
     instantiaters.put(
@@ -55,6 +63,10 @@ extends AbstractStaticPacketFactory<EtherType> {
         public Packet newInstance(byte[] rawData) {
           return IpV6Packet.newPacket(rawData);
         }
+        @Override
+        public Packet newInstance(byte[] rawData, int offset, int length) {
+          return IpV6Packet.newPacket(rawData, offset, length);
+        }
       }
     );
   };
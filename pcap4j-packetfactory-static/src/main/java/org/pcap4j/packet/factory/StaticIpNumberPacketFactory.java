@@ -36,6 +36,10 @@ extends AbstractStaticPacketFactory<IpNumber> {
         public Packet newInstance(byte[] rawData) {
           return UdpPacket.newPacket(rawData);
         }
+        @Override
+        public Packet newInstance(byte[] rawData, int offset, int length) {
+          return UdpPacket.newPacket(rawData, offset, length);
+        }
       }
     );
     instantiaters.put(
@@ -60,6 +64,10 @@ extends AbstractStaticPacketFactory<IpNumber> {
         public Packet newInstance(byte[] rawData) {
           return TcpPacket.newPacket(rawData);
         }
+        @Override
+        public Packet newInstance(byte[] rawData, int offset, int length) {
+          return TcpPacket.newPacket(rawData, offset, length);
+        }
       }
     );
     instantiaters.put(
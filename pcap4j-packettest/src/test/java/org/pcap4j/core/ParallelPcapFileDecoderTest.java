@@ -0,0 +1,135 @@
+/*_##########################################################################
+  _##
+  _##  Copyright (C) 2013  Kaito Yamada
+  _##
+  _##########################################################################
+*/
+
+package org.pcap4j.core;
+
+import static org.junit.Assert.*;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.pcap4j.core.ParallelPcapFileDecoder.Range;
+import org.pcap4j.packet.EthernetPacket;
+import org.pcap4j.packet.namednumber.DataLinkType;
+
+@SuppressWarnings("javadoc")
+public class ParallelPcapFileDecoderTest {
+
+  private static final String TMP_DIR_PROP
+    = ParallelPcapFileDecoderTest.class.getName() + ".tmpDir";
+
+  private static final int NUM_PACKETS = 3000;
+
+  private File file;
+  private Set<Long> offsets;
+  private ExecutorService pool;
+
+  @Before
+  public void setUp() throws Exception {
+    String tmpDirPath = System.getProperty(TMP_DIR_PROP, "testdata");
+    File tmpDir = new File(tmpDirPath);
+    if (!tmpDir.exists()) {
+      if (!tmpDir.mkdirs()) {
+        throw new IOException("Failed to make a test diectory: " + tmpDirPath);
+      }
+    }
+    file = new File(tmpDir, "ParallelPcapFileDecoderTest.pcap");
+
+    // Packet data full of bytes which look like record headers
+    // make finding record boundaries harder.
+    offsets = new HashSet<Long>();
+    PcapFileWriter writer
+      = new PcapFileWriter.Builder(file, DataLinkType.EN10MB).build();
+    try {
+      for (int i = 0; i < NUM_PACKETS; i++) {
+        byte[] data = new byte[14 + (i * 37) % 300];
+        for (int j = 14; j + 4 <= data.length; j += 4) {
+          data[j + 3] = (byte)(j % 64);
+        }
+        offsets.add(writer.getPosition());
+        writer.write(data, 0, data.length, data.length, i, 0);
+      }
+    } finally {
+      writer.close();
+    }
+
+    pool = Executors.newFixedThreadPool(3);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    pool.shutdownNow();
+    file.delete();
+  }
+
+  @Test
+  public void testSplit() throws Exception {
+    ParallelPcapFileDecoder decoder = new ParallelPcapFileDecoder(file);
+    List<Range> ranges = decoder.split(16);
+    assertEquals(16, ranges.size());
+
+    long start = PcapFileReader.FILE_HEADER_SIZE;
+    for (Range range: ranges) {
+      assertEquals(start, range.getStart());
+      assertTrue(offsets.contains(range.getStart()));
+      start = range.getEnd();
+    }
+    assertEquals(file.length(), start);
+
+    assertEquals(1, decoder.split(1).size());
+  }
+
+  @Test
+  public void testDecode() throws Exception {
+    ParallelPcapFileDecoder decoder = new ParallelPcapFileDecoder(file);
+    final Set<Long> timestamps = new HashSet<Long>();
+    decoder.decode(
+      pool,
+      10,
+      new PcapPacketListener() {
+        public void gotPacket(PcapPacket packet) {
+          assertTrue(packet.getPacket() instanceof EthernetPacket);
+          synchronized (timestamps) {
+            assertTrue(timestamps.add(packet.getTimestampSec()));
+          }
+        }
+      }
+    );
+    assertEquals(NUM_PACKETS, timestamps.size());
+  }
+
+  @Test
+  public void testDecodeInOrder() throws Exception {
+    ParallelPcapFileDecoder decoder = new ParallelPcapFileDecoder(file);
+    final List<Long> timestamps = new ArrayList<Long>();
+
+    // More ranges than threads and a small queue
+    // make the tasks wait for the current thread.
+    decoder.decodeInOrder(
+      pool,
+      10,
+      5,
+      new PcapPacketListener() {
+        public void gotPacket(PcapPacket packet) {
+          timestamps.add(packet.getTimestampSec());
+        }
+      }
+    );
+    assertEquals(NUM_PACKETS, timestamps.size());
+    for (int i = 0; i < NUM_PACKETS; i++) {
+      assertEquals(Long.valueOf(i), timestamps.get(i));
+    }
+  }
+
+}
@@ -0,0 +1,219 @@
+/*_##########################################################################
+  _##
+  _##  Copyright (C) 2013  Kaito Yamada
+  _##
+  _##########################################################################
+*/
+
+package org.pcap4j.core;
+
+import static org.junit.Assert.*;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.pcap4j.core.PcapHandle.TimestampPrecision;
+import org.pcap4j.packet.ArpPacket;
+import org.pcap4j.packet.EthernetPacket;
+import org.pcap4j.packet.Packet;
+import org.pcap4j.packet.namednumber.ArpHardwareType;
+import org.pcap4j.packet.namednumber.ArpOperation;
+import org.pcap4j.packet.namednumber.DataLinkType;
+import org.pcap4j.packet.namednumber.EtherType;
+import org.pcap4j.util.ByteArrays;
+import org.pcap4j.util.MacAddress;
+
+@SuppressWarnings("javadoc")
+public class PcapFileReaderTest {
+
+  private static final String TMP_DIR_PROP
+    = PcapFileReaderTest.class.getName() + ".tmpDir";
+
+  private static final int NUM_PACKETS = 5;
+
+  private File file;
+  private Packet[] packets;
+
+  @Before
+  public void setUp() throws Exception {
+    String tmpDirPath = System.getProperty(TMP_DIR_PROP, "testdata");
+    File tmpDir = new File(tmpDirPath);
+    if (!tmpDir.exists()) {
+      if (!tmpDir.mkdirs()) {
+        throw new IOException("Failed to make a test diectory: " + tmpDirPath);
+      }
+    }
+    file = new File(tmpDir, "PcapFileReaderTest.pcap");
+
+    packets = new Packet[NUM_PACKETS];
+    for (int i = 0; i < NUM_PACKETS; i++) {
+      ArpPacket.Builder ab = new ArpPacket.Builder();
+      ab.hardwareType(ArpHardwareType.ETHERNET)
+        .protocolType(EtherType.IPV4)
+        .hardwareLength((byte)MacAddress.SIZE_IN_BYTES)
+        .protocolLength((byte)ByteArrays.INET4_ADDRESS_SIZE_IN_BYTES)
+        .srcHardwareAddr(MacAddress.getByName("fe:00:00:00:00:01"))
+        .dstHardwareAddr(MacAddress.ETHER_BROADCAST_ADDRESS)
+        .srcProtocolAddr(InetAddress.getByName("192.0.2.1"))
+        .dstProtocolAddr(InetAddress.getByName("192.0.2." + (i + 2)))
+        .operation(ArpOperation.REQUEST);
+      EthernetPacket.Builder eb = new EthernetPacket.Builder();
+      eb.dstAddr(MacAddress.ETHER_BROADCAST_ADDRESS)
+        .srcAddr(MacAddress.getByName("fe:00:00:00:00:01"))
+        .type(EtherType.ARP)
+        .payloadBuilder(ab)
+        .paddingAtBuild(true);
+      packets[i] = eb.build();
+    }
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    file.delete();
+  }
+
+  private void writeFile(
+    ByteOrder order, int magic, int count, int truncate
+  ) throws IOException {
+    ByteBuffer buf = ByteBuffer.allocate(64 * 1024).order(order);
+    buf.putInt(magic)
+       .putShort((short)2)
+       .putShort((short)4)
+       .putInt(0)
+       .putInt(0)
+       .putInt(65535)
+       .putInt(DataLinkType.EN10MB.value());
+    for (int i = 0; i < count; i++) {
+      byte[] rawData = packets[i].getRawData();
+      buf.putInt(1000000000 + i)
+         .putInt(i * 1001)
+         .putInt(rawData.length)
+         .putInt(rawData.length + i)
+         .put(rawData);
+    }
+
+    FileOutputStream out = new FileOutputStream(file);
+    try {
+      out.write(buf.array(), 0, buf.position() - truncate);
+    } finally {
+      out.close();
+    }
+  }
+
+  @Test
+  public void testReadRawPacketsLittleEndianMicro() throws Exception {
+    writeFile(ByteOrder.LITTLE_ENDIAN, PcapFileReader.MAGIC_MICRO, NUM_PACKETS, 0);
+
+    // A small window makes the reader remap and enlarge it.
+    PcapFileReader reader = new PcapFileReader(file, 50);
+    try {
+      assertEquals(DataLinkType.EN10MB, reader.getDlt());
+      assertEquals(TimestampPrecision.MICRO, reader.getTimestampPrecision());
+      assertEquals(ByteOrder.LITTLE_ENDIAN, reader.getByteOrder());
+      assertEquals(2, reader.getMajorVersion());
+      assertEquals(4, reader.getMinorVersion());
+      assertEquals(65535, reader.getSnapshot());
+
+      for (int i = 0; i < NUM_PACKETS; i++) {
+        RawPacket raw = reader.getNextRawPacket();
+        assertNotNull(raw);
+        assertEquals(DataLinkType.EN10MB, raw.getDlt());
+        assertEquals(1000000000L + i, raw.getTimestampSec());
+        assertEquals(i * 1001 * 1000, raw.getTimestampNanos());
+        assertEquals(packets[i].length(), raw.getCaptureLength());
+        assertEquals(packets[i].length() + i, raw.getOriginalLength());
+        assertEquals(0, raw.getData().position());
+        assertEquals(raw.getCaptureLength(), raw.getData().limit());
+        assertArrayEquals(packets[i].getRawData(), raw.getRawData());
+        assertEquals(packets[i], raw.decode());
+      }
+      assertNull(reader.getNextRawPacket());
+      assertEquals(file.length(), reader.getPosition());
+    } finally {
+      reader.close();
+    }
+  }
+
+  @Test
+  public void testReadPcapPacketsBigEndianNano() throws Exception {
+    writeFile(ByteOrder.BIG_ENDIAN, PcapFileReader.MAGIC_NANO, NUM_PACKETS, 0);
+
+    PcapFileReader reader = new PcapFileReader(file);
+    try {
+      assertEquals(TimestampPrecision.NANO, reader.getTimestampPrecision());
+      assertEquals(ByteOrder.BIG_ENDIAN, reader.getByteOrder());
+
+      for (int i = 0; i < NUM_PACKETS; i++) {
+        PcapPacket packet = reader.getNextPcapPacket();
+        assertEquals(packets[i], packet.getPacket());
+        assertEquals(1000000000L + i, packet.getTimestampSec());
+        assertEquals(i * 1001, packet.getTimestampNanos());
+      }
+      assertNull(reader.getNextPcapPacket());
+    } finally {
+      reader.close();
+    }
+  }
+
+  @Test
+  public void testReadAhead() throws Exception {
+    writeFile(ByteOrder.LITTLE_ENDIAN, PcapFileReader.MAGIC_MICRO, NUM_PACKETS, 0);
+
+    PcapFileReader reader = new PcapFileReader(file);
+    try {
+      assertEquals(packets[0], reader.getNextPcapPacket().getPacket());
+      reader.startReadAhead(2);
+      for (int i = 1; i < NUM_PACKETS; i++) {
+        assertEquals(packets[i], reader.getNextPcapPacket().getPacket());
+      }
+      assertNull(reader.getNextPcapPacket());
+      assertNull(reader.getNextPcapPacket());
+
+      try {
+        reader.getNextRawPacket();
+        fail();
+      } catch (IllegalStateException e) {}
+    } finally {
+      reader.close();
+    }
+  }
+
+  @Test
+  public void testTruncatedRecord() throws Exception {
+    writeFile(ByteOrder.LITTLE_ENDIAN, PcapFileReader.MAGIC_MICRO, 2, 10);
+
+    PcapFileReader reader = new PcapFileReader(file);
+    try {
+      assertNotNull(reader.getNextRawPacket());
+      reader.getNextRawPacket();
+      fail();
+    } catch (EOFException e) {
+    } finally {
+      reader.close();
+    }
+
+    reader = new PcapFileReader(file);
+    try {
+      reader.startReadAhead(10);
+      assertNotNull(reader.getNextPcapPacket());
+      reader.getNextPcapPacket();
+      fail();
+    } catch (EOFException e) {
+    } finally {
+      reader.close();
+    }
+  }
+
+  @Test(expected = IOException.class)
+  public void testUnknownMagic() throws Exception {
+    writeFile(ByteOrder.LITTLE_ENDIAN, 0x12345678, 1, 0);
+    new PcapFileReader(file);
+  }
+
+}
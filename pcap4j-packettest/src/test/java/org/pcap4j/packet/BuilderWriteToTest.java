@@ -0,0 +1,296 @@
+/*_##########################################################################
+  _##
+  _##  Copyright (C) 2013  Kaito Yamada
+  _##
+  _##########################################################################
+*/
+
+package org.pcap4j.packet;
+
+import static org.junit.Assert.*;
+import java.net.Inet4Address;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Iterator;
+import org.junit.Test;
+import org.pcap4j.packet.AbstractPacket.AbstractBuilder;
+import org.pcap4j.packet.namednumber.EtherType;
+import org.pcap4j.packet.namednumber.IcmpV4Code;
+import org.pcap4j.packet.namednumber.IcmpV4Type;
+import org.pcap4j.packet.namednumber.IcmpV6Code;
+import org.pcap4j.packet.namednumber.IcmpV6Type;
+import org.pcap4j.packet.namednumber.IpNumber;
+import org.pcap4j.packet.namednumber.IpVersion;
+import org.pcap4j.packet.namednumber.TcpPort;
+import org.pcap4j.packet.namednumber.UdpPort;
+import org.pcap4j.util.ByteArrays;
+import org.pcap4j.util.MacAddress;
+
+@SuppressWarnings("javadoc")
+public class BuilderWriteToTest {
+
+  private static UnknownPacket.Builder payload(int length) {
+    byte[] data = new byte[length];
+    for (int i = 0; i < length; i++) {
+      data[i] = (byte)(i * 13 + 1);
+    }
+    return new UnknownPacket.Builder().rawData(data);
+  }
+
+  private static IpV4Packet.Builder ipV4(
+    Inet4Address srcAddr, Inet4Address dstAddr,
+    IpNumber protocol, Packet.Builder payloadBuilder
+  ) {
+    IpV4Packet.Builder ipb = new IpV4Packet.Builder();
+    ipb.version(IpVersion.IPV4)
+       .tos(IpV4Rfc791Tos.newInstance((byte)0))
+       .identification((short)100)
+       .ttl((byte)100)
+       .protocol(protocol)
+       .srcAddr(srcAddr)
+       .dstAddr(dstAddr)
+       .payloadBuilder(payloadBuilder)
+       .correctChecksumAtBuild(true)
+       .correctLengthAtBuild(true);
+    return ipb;
+  }
+
+  private static EthernetPacket.Builder ethernet(
+    EtherType type, Packet.Builder payloadBuilder
+  ) {
+    EthernetPacket.Builder eb = new EthernetPacket.Builder();
+    eb.dstAddr(MacAddress.getByName("fe:00:00:00:00:02"))
+      .srcAddr(MacAddress.getByName("fe:00:00:00:00:01"))
+      .type(type)
+      .payloadBuilder(payloadBuilder)
+      .paddingAtBuild(true);
+    return eb;
+  }
+
+  private static void assertWriteTo(Packet.Builder builder) {
+    byte[] expected = builder.build().getRawData();
+
+    byte[] dst = new byte[expected.length + 10];
+    Arrays.fill(dst, (byte)0xA5);
+    assertEquals(expected.length, AbstractBuilder.writeTo(builder, dst, 3));
+    assertArrayEquals(
+      expected, ByteArrays.getSubArray(dst, 3, expected.length)
+    );
+    assertEquals((byte)0xA5, dst[2]);
+    assertEquals((byte)0xA5, dst[3 + expected.length]);
+
+    ByteBuffer buffer = ByteBuffer.allocate(expected.length + 5);
+    buffer.position(5);
+    assertEquals(expected.length, AbstractBuilder.buildInto(builder, buffer));
+    assertEquals(buffer.capacity(), buffer.position());
+    assertArrayEquals(
+      expected,
+      ByteArrays.getSubArray(buffer.array(), 5, expected.length)
+    );
+
+    if (builder instanceof AbstractBuilder) {
+      assertEquals(expected.length, ((AbstractBuilder)builder).calcLength());
+    }
+
+    // A buffer one byte short is left untouched, including beyond its limit.
+    byte[] backing = new byte[expected.length + 8];
+    Arrays.fill(backing, (byte)0xA5);
+    ByteBuffer small = ByteBuffer.wrap(backing, 4, expected.length - 1).slice();
+    try {
+      AbstractBuilder.buildInto(builder, small);
+      fail();
+    } catch (BufferOverflowException e) {}
+    assertEquals(0, small.position());
+    for (byte b: backing) {
+      assertEquals((byte)0xA5, b);
+    }
+
+    ByteBuffer direct = ByteBuffer.allocateDirect(expected.length);
+    assertEquals(expected.length, AbstractBuilder.buildInto(builder, direct));
+    direct.flip();
+    byte[] actual = new byte[direct.remaining()];
+    direct.get(actual);
+    assertArrayEquals(expected, actual);
+  }
+
+  @Test
+  public void testIpV4Tcp() throws Exception {
+    Inet4Address srcAddr = (Inet4Address)InetAddress.getByName("192.0.2.1");
+    Inet4Address dstAddr = (Inet4Address)InetAddress.getByName("192.0.2.2");
+
+    TcpPacket.Builder tcpb = new TcpPacket.Builder();
+    tcpb.srcPort(TcpPort.SNMP)
+        .dstPort(TcpPort.getInstance((short)40000))
+        .sequenceNumber(1234567)
+        .acknowledgmentNumber(7654321)
+        .ack(true)
+        .window((short)9999)
+        .srcAddr(srcAddr)
+        .dstAddr(dstAddr)
+        .correctChecksumAtBuild(true)
+        .correctLengthAtBuild(true)
+        .paddingAtBuild(true)
+        .payloadBuilder(payload(101));
+
+    EthernetPacket.Builder eb
+      = ethernet(EtherType.IPV4, ipV4(srcAddr, dstAddr, IpNumber.TCP, tcpb));
+    assertWriteTo(eb);
+
+    byte[] rawData = new byte[200];
+    int length = eb.writeTo(rawData, 0);
+    EthernetPacket packet
+      = EthernetPacket.newPacket(ByteArrays.getSubArray(rawData, 0, length));
+    assertTrue(packet.get(IpV4Packet.class).getHeader().hasValidChecksum(false));
+    assertTrue(
+      packet.get(TcpPacket.class).hasValidChecksum(srcAddr, dstAddr, false)
+    );
+  }
+
+  @Test
+  public void testIpV4UdpPadded() throws Exception {
+    Inet4Address srcAddr = (Inet4Address)InetAddress.getByName("192.0.2.1");
+    Inet4Address dstAddr = (Inet4Address)InetAddress.getByName("192.0.2.2");
+
+    UdpPacket.Builder udpb = new UdpPacket.Builder();
+    udpb.srcPort(UdpPort.SNMP)
+        .dstPort(UdpPort.getInstance((short)50000))
+        .srcAddr(srcAddr)
+        .dstAddr(dstAddr)
+        .correctChecksumAtBuild(true)
+        .correctLengthAtBuild(true)
+        .payloadBuilder(payload(3));
+
+    // The Ethernet payload is shorter than the minimum and so is padded.
+    assertWriteTo(
+      ethernet(EtherType.IPV4, ipV4(srcAddr, dstAddr, IpNumber.UDP, udpb))
+    );
+  }
+
+  @Test
+  public void testIpV4Icmp() throws Exception {
+    Inet4Address srcAddr = (Inet4Address)InetAddress.getByName("192.0.2.1");
+    Inet4Address dstAddr = (Inet4Address)InetAddress.getByName("192.0.2.2");
+
+    IcmpV4CommonPacket.Builder icmpb = new IcmpV4CommonPacket.Builder();
+    icmpb.type(IcmpV4Type.ECHO)
+         .code(IcmpV4Code.NO_CODE)
+         .correctChecksumAtBuild(true)
+         .payloadBuilder(payload(57));
+
+    assertWriteTo(
+      ethernet(EtherType.IPV4, ipV4(srcAddr, dstAddr, IpNumber.ICMPV4, icmpb))
+    );
+  }
+
+  @Test
+  public void testIpV6Udp() throws Exception {
+    Inet6Address srcAddr = (Inet6Address)InetAddress.getByName("2001:db8::1");
+    Inet6Address dstAddr = (Inet6Address)InetAddress.getByName("2001:db8::2");
+
+    UdpPacket.Builder udpb = new UdpPacket.Builder();
+    udpb.srcPort(UdpPort.SNMP)
+        .dstPort(UdpPort.getInstance((short)50000))
+        .srcAddr(srcAddr)
+        .dstAddr(dstAddr)
+        .correctChecksumAtBuild(true)
+        .correctLengthAtBuild(true)
+        .payloadBuilder(payload(33));
+
+    IcmpV6CommonPacket.Builder icmpb = new IcmpV6CommonPacket.Builder();
+    icmpb.type(IcmpV6Type.ECHO_REQUEST)
+         .code(IcmpV6Code.NO_CODE)
+         .srcAddr(srcAddr)
+         .dstAddr(dstAddr)
+         .correctChecksumAtBuild(true)
+         .payloadBuilder(payload(20));
+
+    IpV6Packet.Builder ipb = new IpV6Packet.Builder();
+    ipb.version(IpVersion.IPV6)
+       .trafficClass(IpV6SimpleTrafficClass.newInstance((byte)0x03))
+       .flowLabel(IpV6SimpleFlowLabel.newInstance(0x12345))
+       .nextHeader(IpNumber.UDP)
+       .hopLimit((byte)64)
+       .srcAddr(srcAddr)
+       .dstAddr(dstAddr)
+       .payloadBuilder(udpb)
+       .correctLengthAtBuild(true);
+
+    assertWriteTo(udpb);
+    assertWriteTo(icmpb);
+    assertWriteTo(ethernet(EtherType.IPV6, ipb));
+  }
+
+  @Test
+  public void testOtherBuilder() throws Exception {
+    // A Builder which doesn't extend AbstractBuilder is built and copied.
+    final UnknownPacket.Builder delegate = payload(30);
+    Packet.Builder builder
+      = new Packet.Builder() {
+          public Iterator<Packet.Builder> iterator() {
+            return delegate.iterator();
+          }
+          public <T extends Packet.Builder> T get(Class<T> clazz) {
+            return delegate.get(clazz);
+          }
+          public Packet.Builder getOuterOf(Class<? extends Packet.Builder> clazz) {
+            return delegate.getOuterOf(clazz);
+          }
+          public Packet.Builder payloadBuilder(Packet.Builder payloadBuilder) {
+            throw new UnsupportedOperationException();
+          }
+          public Packet.Builder getPayloadBuilder() { return null; }
+          public Packet build() { return delegate.build(); }
+        };
+    assertWriteTo(builder);
+  }
+
+  @Test
+  public void testBuildIntoOverflow() throws Exception {
+    UdpPacket.Builder udpb = new UdpPacket.Builder();
+    udpb.srcPort(UdpPort.SNMP)
+        .dstPort(UdpPort.SNMP_TRAP)
+        .payloadBuilder(payload(10));
+    ByteBuffer buffer = ByteBuffer.allocate(20);
+    buffer.position(2).limit(19);
+    try {
+      udpb.buildInto(buffer);
+      fail();
+    } catch (BufferOverflowException e) {}
+    assertEquals(2, buffer.position());
+    assertArrayEquals(new byte[20], buffer.array());
+  }
+
+  @Test
+  public void testReset() throws Exception {
+    Inet4Address srcAddr = (Inet4Address)InetAddress.getByName("192.0.2.1");
+    Inet4Address dstAddr = (Inet4Address)InetAddress.getByName("192.0.2.2");
+
+    UdpPacket.Builder udpb = new UdpPacket.Builder();
+    udpb.srcPort(UdpPort.SNMP)
+        .dstPort(UdpPort.SNMP_TRAP)
+        .srcAddr(srcAddr)
+        .dstAddr(dstAddr)
+        .correctChecksumAtBuild(true)
+        .correctLengthAtBuild(true)
+        .payloadBuilder(payload(10));
+    UdpPacket.Builder fresh = new UdpPacket.Builder();
+    fresh.srcPort(UdpPort.SNMP)
+         .dstPort(UdpPort.SNMP_TRAP)
+         .payloadBuilder(payload(10));
+
+    udpb.reset()
+        .srcPort(UdpPort.SNMP)
+        .dstPort(UdpPort.SNMP_TRAP)
+        .payloadBuilder(payload(10));
+    assertEquals(fresh.build(), udpb.build());
+
+    try {
+      new TcpPacket.Builder().srcPort(TcpPort.SNMP).reset().build();
+      fail();
+    } catch (NullPointerException e) {}
+  }
+
+}
@@ -107,6 +107,23 @@ public class EthernetPacketTest extends AbstractPacketTest {
     assertEquals(packet, p);
   }
 
+  @Test
+  public void testNewPacketWithOffset() {
+    byte[] rawData = packet.getRawData();
+    byte[] buf = new byte[rawData.length + 20];
+    System.arraycopy(rawData, 0, buf, 10, rawData.length);
+    EthernetPacket p = EthernetPacket.newPacket(buf, 10, rawData.length);
+    assertEquals(packet, p);
+  }
+
+  @Test
+  public void testWriteTo() {
+    byte[] rawData = packet.getRawData();
+    byte[] buf = new byte[rawData.length + 20];
+    packet.writeTo(buf, 10);
+    assertArrayEquals(rawData, ByteArrays.getSubArray(buf, 10, rawData.length));
+  }
+
   @Test
   public void testGetHeader() {
     EthernetHeader h = packet.getHeader();
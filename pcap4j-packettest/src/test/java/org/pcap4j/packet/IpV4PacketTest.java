@@ -9,6 +9,7 @@ import java.net.Inet4Address;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import org.junit.AfterClass;
@@ -178,6 +179,23 @@ public class IpV4PacketTest extends AbstractPacketTest {
     assertEquals(packet1, p);
   }
 
+  @Test
+  public void testNewPacketWithOffset() {
+    byte[] rawData = packet1.getRawData();
+    byte[] buf = new byte[rawData.length + 20];
+    // Bytes around the range must not be read.
+    Arrays.fill(buf, (byte)0xFF);
+    System.arraycopy(rawData, 0, buf, 10, rawData.length);
+    IpV4Packet p = IpV4Packet.newPacket(buf, 10, rawData.length);
+    assertEquals(packet1, p);
+    assertArrayEquals(rawData, p.getRawData());
+
+    try {
+      IpV4Packet.newPacket(buf, 21, rawData.length);
+      fail();
+    } catch (ArrayIndexOutOfBoundsException e) {}
+  }
+
   @Test
   public void testGetHeader() {
     IpV4Header h = packet1.getHeader();
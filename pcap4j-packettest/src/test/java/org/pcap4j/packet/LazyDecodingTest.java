@@ -0,0 +1,233 @@
+/*_##########################################################################
+  _##
+  _##  Copyright (C) 2013  Kaito Yamada
+  _##
+  _##########################################################################
+*/
+
+package org.pcap4j.packet;
+
+import static org.junit.Assert.*;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.reflect.Field;
+import java.net.Inet4Address;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.pcap4j.packet.namednumber.EtherType;
+import org.pcap4j.packet.namednumber.IpNumber;
+import org.pcap4j.packet.namednumber.IpVersion;
+import org.pcap4j.packet.namednumber.TcpPort;
+import org.pcap4j.packet.namednumber.UdpPort;
+import org.pcap4j.util.MacAddress;
+
+@SuppressWarnings("javadoc")
+public class LazyDecodingTest {
+
+  private Field lazyDecodingField;
+  private Object originalLazyDecoding;
+  private byte[] tcpFrame;
+  private byte[] udpFrame;
+
+  @Before
+  public void setUp() throws Exception {
+    // The property is read only once, so the cached value is switched directly.
+    lazyDecodingField
+      = PacketPropertiesLoader.class.getDeclaredField("lazyDecoding");
+    lazyDecodingField.setAccessible(true);
+    originalLazyDecoding
+      = lazyDecodingField.get(PacketPropertiesLoader.getInstance());
+
+    setLazyDecoding(false);
+    tcpFrame = buildTcpFrame();
+    udpFrame = buildUdpFrame();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    lazyDecodingField.set(PacketPropertiesLoader.getInstance(), originalLazyDecoding);
+  }
+
+  private void setLazyDecoding(boolean lazy) throws Exception {
+    lazyDecodingField.set(PacketPropertiesLoader.getInstance(), Boolean.valueOf(lazy));
+    assertEquals(lazy, PacketPropertiesLoader.getInstance().lazyDecoding());
+  }
+
+  private static UnknownPacket.Builder payload(int length) {
+    byte[] data = new byte[length];
+    for (int i = 0; i < length; i++) {
+      data[i] = (byte)(i * 7);
+    }
+    return new UnknownPacket.Builder().rawData(data);
+  }
+
+  private static byte[] buildTcpFrame() throws Exception {
+    Inet4Address srcAddr = (Inet4Address)InetAddress.getByName("192.0.2.1");
+    Inet4Address dstAddr = (Inet4Address)InetAddress.getByName("192.0.2.2");
+
+    TcpPacket.Builder tcpb = new TcpPacket.Builder();
+    tcpb.srcPort(TcpPort.SNMP)
+        .dstPort(TcpPort.getInstance((short)40000))
+        .sequenceNumber(1234567)
+        .acknowledgmentNumber(7654321)
+        .window((short)9999)
+        .srcAddr(srcAddr)
+        .dstAddr(dstAddr)
+        .correctChecksumAtBuild(true)
+        .correctLengthAtBuild(true)
+        .payloadBuilder(payload(101));
+
+    IpV4Packet.Builder ipb = new IpV4Packet.Builder();
+    ipb.version(IpVersion.IPV4)
+       .tos(IpV4Rfc791Tos.newInstance((byte)0))
+       .identification((short)100)
+       .ttl((byte)100)
+       .protocol(IpNumber.TCP)
+       .srcAddr(srcAddr)
+       .dstAddr(dstAddr)
+       .payloadBuilder(tcpb)
+       .correctChecksumAtBuild(true)
+       .correctLengthAtBuild(true);
+
+    EthernetPacket.Builder eb = new EthernetPacket.Builder();
+    eb.dstAddr(MacAddress.getByName("fe:00:00:00:00:02"))
+      .srcAddr(MacAddress.getByName("fe:00:00:00:00:01"))
+      .type(EtherType.IPV4)
+      .payloadBuilder(ipb)
+      .paddingAtBuild(true);
+
+    return eb.build().getRawData();
+  }
+
+  private static byte[] buildUdpFrame() throws Exception {
+    Inet6Address srcAddr = (Inet6Address)InetAddress.getByName("2001:db8::1");
+    Inet6Address dstAddr = (Inet6Address)InetAddress.getByName("2001:db8::2");
+
+    UdpPacket.Builder udpb = new UdpPacket.Builder();
+    udpb.srcPort(UdpPort.SNMP)
+        .dstPort(UdpPort.getInstance((short)50000))
+        .srcAddr(srcAddr)
+        .dstAddr(dstAddr)
+        .correctChecksumAtBuild(true)
+        .correctLengthAtBuild(true)
+        .payloadBuilder(payload(33));
+
+    IpV6Packet.Builder ipb = new IpV6Packet.Builder();
+    ipb.version(IpVersion.IPV6)
+       .trafficClass(IpV6SimpleTrafficClass.newInstance((byte)0x03))
+       .flowLabel(IpV6SimpleFlowLabel.newInstance(0x12345))
+       .nextHeader(IpNumber.UDP)
+       .hopLimit((byte)64)
+       .srcAddr(srcAddr)
+       .dstAddr(dstAddr)
+       .payloadBuilder(udpb)
+       .correctLengthAtBuild(true);
+
+    Dot1qVlanTagPacket.Builder db = new Dot1qVlanTagPacket.Builder();
+    db.priority((byte)5)
+      .cfi(false)
+      .vid((short)123)
+      .type(EtherType.IPV6)
+      .payloadBuilder(ipb);
+
+    EthernetPacket.Builder eb = new EthernetPacket.Builder();
+    eb.dstAddr(MacAddress.getByName("fe:00:00:00:00:02"))
+      .srcAddr(MacAddress.getByName("fe:00:00:00:00:01"))
+      .type(EtherType.DOT1Q_VLAN_TAGGED_FRAMES)
+      .payloadBuilder(db)
+      .paddingAtBuild(true);
+
+    return eb.build().getRawData();
+  }
+
+  // The last byte of the frames is in the application data.
+  private byte lastDataByteAfterModification(byte[] frame) {
+    byte[] rawData = frame.clone();
+    EthernetPacket packet = EthernetPacket.newPacket(rawData);
+    rawData[rawData.length - 1] = (byte)0xEE;
+    byte[] data = packet.get(UnknownPacket.class).getRawData();
+    return data[data.length - 1];
+  }
+
+  @Test
+  public void testDecodingIsDeferred() throws Exception {
+    byte tcpOriginal = tcpFrame[tcpFrame.length - 1];
+    byte udpOriginal = udpFrame[udpFrame.length - 1];
+
+    // An eager packet has copied its payloads before the array is modified.
+    setLazyDecoding(false);
+    assertEquals(tcpOriginal, lastDataByteAfterModification(tcpFrame));
+    assertEquals(udpOriginal, lastDataByteAfterModification(udpFrame));
+
+    // A lazy packet reads them from the array on the first access.
+    setLazyDecoding(true);
+    assertEquals((byte)0xEE, lastDataByteAfterModification(tcpFrame));
+    assertEquals((byte)0xEE, lastDataByteAfterModification(udpFrame));
+  }
+
+  @Test
+  public void testSameResultsAsEager() throws Exception {
+    for (byte[] frame: new byte[][] { tcpFrame, udpFrame }) {
+      setLazyDecoding(false);
+      EthernetPacket eager = EthernetPacket.newPacket(frame.clone());
+      setLazyDecoding(true);
+      EthernetPacket lazy = EthernetPacket.newPacket(frame.clone());
+
+      assertEquals(eager.length(), lazy.length());
+      assertArrayEquals(eager.getRawData(), lazy.getRawData());
+      assertEquals(eager, lazy);
+      assertEquals(eager.hashCode(), lazy.hashCode());
+      assertEquals(eager.toString(), lazy.toString());
+      assertArrayEquals(eager.getPad(), lazy.getPad());
+    }
+
+    setLazyDecoding(false);
+    EthernetPacket eager = EthernetPacket.newPacket(tcpFrame.clone());
+    setLazyDecoding(true);
+    EthernetPacket lazy = EthernetPacket.newPacket(tcpFrame.clone());
+    assertEquals(
+      eager.get(TcpPacket.class).getHeader(), lazy.get(TcpPacket.class).getHeader()
+    );
+    assertEquals(
+      eager.get(IpV4Packet.class).getHeader(), lazy.get(IpV4Packet.class).getHeader()
+    );
+
+    setLazyDecoding(false);
+    eager = EthernetPacket.newPacket(udpFrame.clone());
+    setLazyDecoding(true);
+    lazy = EthernetPacket.newPacket(udpFrame.clone());
+    assertEquals(
+      eager.get(Dot1qVlanTagPacket.class).getHeader(),
+      lazy.get(Dot1qVlanTagPacket.class).getHeader()
+    );
+    assertEquals(
+      eager.get(UdpPacket.class).getHeader(), lazy.get(UdpPacket.class).getHeader()
+    );
+  }
+
+  @Test
+  public void testSerializeUndecoded() throws Exception {
+    setLazyDecoding(true);
+    EthernetPacket lazy = EthernetPacket.newPacket(tcpFrame.clone());
+
+    ByteArrayOutputStream bout = new ByteArrayOutputStream();
+    ObjectOutputStream out = new ObjectOutputStream(bout);
+    out.writeObject(lazy);
+    out.close();
+
+    setLazyDecoding(false);
+    ObjectInputStream in
+      = new ObjectInputStream(new ByteArrayInputStream(bout.toByteArray()));
+    EthernetPacket deserialized = (EthernetPacket)in.readObject();
+    in.close();
+
+    assertEquals(EthernetPacket.newPacket(tcpFrame.clone()), deserialized);
+    assertNotNull(deserialized.get(TcpPacket.class));
+  }
+
+}
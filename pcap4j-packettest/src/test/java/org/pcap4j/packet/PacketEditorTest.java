@@ -0,0 +1,170 @@
+/*_##########################################################################
+  _##
+  _##  Copyright (C) 2013  Kaito Yamada
+  _##
+  _##########################################################################
+*/
+
+package org.pcap4j.packet;
+
+import static org.junit.Assert.*;
+import java.net.Inet4Address;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import org.junit.Test;
+import org.pcap4j.packet.namednumber.EtherType;
+import org.pcap4j.packet.namednumber.IpNumber;
+import org.pcap4j.packet.namednumber.IpVersion;
+import org.pcap4j.packet.namednumber.TcpPort;
+import org.pcap4j.packet.namednumber.UdpPort;
+import org.pcap4j.util.MacAddress;
+
+@SuppressWarnings("javadoc")
+public class PacketEditorTest {
+
+  private static UnknownPacket.Builder payload(int length) {
+    byte[] data = new byte[length];
+    for (int i = 0; i < length; i++) {
+      data[i] = (byte)(i * 7);
+    }
+    return new UnknownPacket.Builder().rawData(data);
+  }
+
+  @Test
+  public void testIpV4Tcp() throws Exception {
+    Inet4Address srcAddr = (Inet4Address)InetAddress.getByName("192.0.2.1");
+    Inet4Address dstAddr = (Inet4Address)InetAddress.getByName("192.0.2.2");
+
+    TcpPacket.Builder tcpb = new TcpPacket.Builder();
+    tcpb.srcPort(TcpPort.SNMP)
+        .dstPort(TcpPort.getInstance((short)40000))
+        .sequenceNumber(1234567)
+        .acknowledgmentNumber(7654321)
+        .window((short)9999)
+        .srcAddr(srcAddr)
+        .dstAddr(dstAddr)
+        .correctChecksumAtBuild(true)
+        .correctLengthAtBuild(true)
+        .payloadBuilder(payload(101));
+
+    IpV4Packet.Builder ipb = new IpV4Packet.Builder();
+    ipb.version(IpVersion.IPV4)
+       .tos(IpV4Rfc791Tos.newInstance((byte)0))
+       .identification((short)100)
+       .ttl((byte)100)
+       .protocol(IpNumber.TCP)
+       .srcAddr(srcAddr)
+       .dstAddr(dstAddr)
+       .payloadBuilder(tcpb)
+       .correctChecksumAtBuild(true)
+       .correctLengthAtBuild(true);
+
+    EthernetPacket.Builder eb = new EthernetPacket.Builder();
+    eb.dstAddr(MacAddress.getByName("fe:00:00:00:00:02"))
+      .srcAddr(MacAddress.getByName("fe:00:00:00:00:01"))
+      .type(EtherType.IPV4)
+      .payloadBuilder(ipb)
+      .paddingAtBuild(true);
+
+    byte[] rawData = eb.build().getRawData();
+    Inet4Address newSrcAddr = (Inet4Address)InetAddress.getByName("10.1.2.3");
+    Inet4Address newDstAddr = (Inet4Address)InetAddress.getByName("172.16.254.1");
+
+    PacketEditor editor = new PacketEditor(rawData);
+    assertTrue(editor.hasIpV4());
+    assertTrue(editor.hasTcp());
+    assertFalse(editor.hasUdp());
+    editor.srcAddr(newSrcAddr)
+          .dstAddr(newDstAddr)
+          .srcPort((short)10000)
+          .dstPort((short)0xFFFF)
+          .ttl((byte)1)
+          .dscp((byte)0x2E);
+
+    EthernetPacket edited = EthernetPacket.newPacket(rawData);
+    IpV4Packet ip = edited.get(IpV4Packet.class);
+    TcpPacket tcp = edited.get(TcpPacket.class);
+    assertEquals(newSrcAddr, ip.getHeader().getSrcAddr());
+    assertEquals(newDstAddr, ip.getHeader().getDstAddr());
+    assertEquals((byte)1, ip.getHeader().getTtl());
+    assertEquals((byte)(0x2E << 2), ip.getHeader().getTos().value());
+    assertEquals((short)10000, tcp.getHeader().getSrcPort().value().shortValue());
+    assertEquals((short)0xFFFF, tcp.getHeader().getDstPort().value().shortValue());
+    assertTrue(ip.getHeader().hasValidChecksum(false));
+    assertTrue(tcp.hasValidChecksum(newSrcAddr, newDstAddr, false));
+  }
+
+  @Test
+  public void testDot1qIpV6Udp() throws Exception {
+    Inet6Address srcAddr = (Inet6Address)InetAddress.getByName("2001:db8::1");
+    Inet6Address dstAddr = (Inet6Address)InetAddress.getByName("2001:db8::2");
+
+    UdpPacket.Builder udpb = new UdpPacket.Builder();
+    udpb.srcPort(UdpPort.SNMP)
+        .dstPort(UdpPort.getInstance((short)50000))
+        .srcAddr(srcAddr)
+        .dstAddr(dstAddr)
+        .correctChecksumAtBuild(true)
+        .correctLengthAtBuild(true)
+        .payloadBuilder(payload(33));
+
+    IpV6Packet.Builder ipb = new IpV6Packet.Builder();
+    ipb.version(IpVersion.IPV6)
+       .trafficClass(IpV6SimpleTrafficClass.newInstance((byte)0x03))
+       .flowLabel(IpV6SimpleFlowLabel.newInstance(0x12345))
+       .nextHeader(IpNumber.UDP)
+       .hopLimit((byte)64)
+       .srcAddr(srcAddr)
+       .dstAddr(dstAddr)
+       .payloadBuilder(udpb)
+       .correctLengthAtBuild(true);
+
+    Dot1qVlanTagPacket.Builder db = new Dot1qVlanTagPacket.Builder();
+    db.priority((byte)5)
+      .cfi(false)
+      .vid((short)123)
+      .type(EtherType.IPV6)
+      .payloadBuilder(ipb);
+
+    EthernetPacket.Builder eb = new EthernetPacket.Builder();
+    eb.dstAddr(MacAddress.getByName("fe:00:00:00:00:02"))
+      .srcAddr(MacAddress.getByName("fe:00:00:00:00:01"))
+      .type(EtherType.DOT1Q_VLAN_TAGGED_FRAMES)
+      .payloadBuilder(db)
+      .paddingAtBuild(true);
+
+    byte[] rawData = eb.build().getRawData();
+    Inet6Address newSrcAddr
+      = (Inet6Address)InetAddress.getByName("fd00:1234:5678::abcd");
+
+    PacketEditor editor = new PacketEditor(rawData);
+    assertTrue(editor.hasDot1qVlanTag());
+    assertTrue(editor.hasIpV6());
+    assertTrue(editor.hasUdp());
+    editor.srcAddr(newSrcAddr)
+          .dstPort((short)53)
+          .hopLimit((byte)2)
+          .dscp((byte)0x0A)
+          .vid((short)4000);
+
+    EthernetPacket edited = EthernetPacket.newPacket(rawData);
+    Dot1qVlanTagPacket dot1q = edited.get(Dot1qVlanTagPacket.class);
+    IpV6Packet ip = edited.get(IpV6Packet.class);
+    UdpPacket udp = edited.get(UdpPacket.class);
+    assertEquals((short)4000, dot1q.getHeader().getVid());
+    assertEquals((byte)5, dot1q.getHeader().getPriority());
+    assertEquals(newSrcAddr, ip.getHeader().getSrcAddr());
+    assertEquals((byte)2, ip.getHeader().getHopLimit());
+    assertEquals((byte)((0x0A << 2) | 0x03), ip.getHeader().getTrafficClass().value());
+    assertEquals(0x12345, ip.getHeader().getFlowLabel().value());
+    assertEquals((short)53, udp.getHeader().getDstPort().value().shortValue());
+    assertTrue(udp.hasValidChecksum(newSrcAddr, dstAddr, false));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testMissingLayer() throws Exception {
+    byte[] rawData = new byte[60];
+    new PacketEditor(rawData).ttl((byte)1);
+  }
+
+}
@@ -0,0 +1,151 @@
+/*_##########################################################################
+  _##
+  _##  Copyright (C) 2013  Kaito Yamada
+  _##
+  _##########################################################################
+*/
+
+package org.pcap4j.packet;
+
+import static org.junit.Assert.*;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.pcap4j.packet.namednumber.EtherType;
+import org.pcap4j.packet.namednumber.IpNumber;
+import org.pcap4j.packet.namednumber.IpVersion;
+import org.pcap4j.packet.namednumber.UdpPort;
+import org.pcap4j.util.LazyValue;
+import org.pcap4j.util.MacAddress;
+
+@SuppressWarnings("javadoc")
+public class SerializedFormTest {
+
+  private static final String[] CACHE_FIELDS = {
+    "lengthCache", "rawDataCache", "hexStringCache", "stringCache", "hashCodeCache"
+  };
+
+  private EthernetPacket packet;
+
+  @Before
+  public void setUp() throws Exception {
+    Inet4Address srcAddr = (Inet4Address)InetAddress.getByName("192.0.2.1");
+    Inet4Address dstAddr = (Inet4Address)InetAddress.getByName("192.0.2.2");
+
+    UdpPacket.Builder udpb = new UdpPacket.Builder();
+    udpb.srcPort(UdpPort.SNMP)
+        .dstPort(UdpPort.getInstance((short)50000))
+        .srcAddr(srcAddr)
+        .dstAddr(dstAddr)
+        .correctChecksumAtBuild(true)
+        .correctLengthAtBuild(true)
+        .payloadBuilder(new UnknownPacket.Builder().rawData(new byte[] {1, 2, 3}));
+
+    IpV4Packet.Builder ipb = new IpV4Packet.Builder();
+    ipb.version(IpVersion.IPV4)
+       .tos(IpV4Rfc791Tos.newInstance((byte)0))
+       .identification((short)100)
+       .ttl((byte)100)
+       .protocol(IpNumber.UDP)
+       .srcAddr(srcAddr)
+       .dstAddr(dstAddr)
+       .payloadBuilder(udpb)
+       .correctChecksumAtBuild(true)
+       .correctLengthAtBuild(true);
+
+    EthernetPacket.Builder eb = new EthernetPacket.Builder();
+    eb.dstAddr(MacAddress.getByName("fe:00:00:00:00:02"))
+      .srcAddr(MacAddress.getByName("fe:00:00:00:00:01"))
+      .type(EtherType.IPV4)
+      .payloadBuilder(ipb)
+      .paddingAtBuild(true);
+    packet = eb.build();
+  }
+
+  @Test
+  public void testCacheFieldsAreKept() throws Exception {
+    ObjectStreamClass[] descs = {
+      ObjectStreamClass.lookup(AbstractPacket.class),
+      ObjectStreamClass.lookup(AbstractPacket.AbstractHeader.class)
+    };
+    for (ObjectStreamClass desc: descs) {
+      assertEquals(CACHE_FIELDS.length, desc.getFields().length);
+      for (String name: CACHE_FIELDS) {
+        assertNotNull(name, desc.getField(name));
+        assertEquals(name, LazyValue.class, desc.getField(name).getType());
+      }
+    }
+  }
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    ObjectOutputStream oos = new ObjectOutputStream(baos);
+    oos.writeObject(packet);
+    oos.close();
+
+    // Collects the LazyValues an older version would set to its cache fields.
+    CapturingInputStream in
+      = new CapturingInputStream(new ByteArrayInputStream(baos.toByteArray()));
+    EthernetPacket deserialized = (EthernetPacket)in.readObject();
+    in.close();
+
+    assertEquals(packet, deserialized);
+    assertEquals(packet.hashCode(), deserialized.hashCode());
+    assertEquals(packet.length(), deserialized.length());
+    assertEquals(packet.toString(), deserialized.toString());
+    assertEquals(packet.toHexString(), deserialized.toHexString());
+    assertArrayEquals(packet.getRawData(), deserialized.getRawData());
+
+    // Four packets (the last one has no header) and three headers,
+    // each of which has all the caches built.
+    assertEquals(7 * CACHE_FIELDS.length, in.values.size());
+    for (int i = 0; i < in.values.size(); i += CACHE_FIELDS.length) {
+      for (int j = 0; j < CACHE_FIELDS.length; j++) {
+        assertNotNull(in.values.get(i + j));
+      }
+    }
+    assertTrue(in.values.contains(Integer.valueOf(packet.length())));
+    assertTrue(in.values.contains(packet.toString()));
+    assertTrue(in.values.contains(packet.toHexString()));
+    assertTrue(in.values.contains(Integer.valueOf(packet.hashCode())));
+    boolean rawDataFound = false;
+    for (Object value: in.values) {
+      if (value instanceof byte[] && Arrays.equals(packet.getRawData(), (byte[])value)) {
+        rawDataFound = true;
+      }
+    }
+    assertTrue(rawDataFound);
+  }
+
+  private static final class CapturingInputStream extends ObjectInputStream {
+
+    private final List<Object> values = new ArrayList<Object>();
+
+    private CapturingInputStream(InputStream in) throws IOException {
+      super(in);
+      enableResolveObject(true);
+    }
+
+    @Override
+    protected Object resolveObject(Object obj) throws IOException {
+      if (obj instanceof LazyValue) {
+        values.add(((LazyValue<?>)obj).getValue());
+      }
+      return obj;
+    }
+
+  }
+
+}
@@ -5,6 +5,7 @@ import java.net.Inet4Address;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import org.junit.AfterClass;
@@ -170,6 +171,23 @@ public class TcpPacketTest extends AbstractPacketTest {
     assertEquals(packet, p);
   }
 
+  @Test
+  public void testNewPacketWithOffset() {
+    byte[] rawData = packet.getRawData();
+    byte[] buf = new byte[rawData.length + 20];
+    // Bytes around the range must not be read.
+    Arrays.fill(buf, (byte)0xFF);
+    System.arraycopy(rawData, 0, buf, 10, rawData.length);
+    TcpPacket p = TcpPacket.newPacket(buf, 10, rawData.length);
+    assertEquals(packet, p);
+    assertArrayEquals(rawData, p.getRawData());
+
+    try {
+      TcpPacket.newPacket(buf, 21, rawData.length);
+      fail();
+    } catch (ArrayIndexOutOfBoundsException e) {}
+  }
+
   @Test
   public void testGetHeader() {
     TcpHeader h = packet.getHeader();
@@ -4,6 +4,7 @@ import static org.junit.Assert.*;
 import java.net.Inet6Address;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.util.Arrays;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -111,6 +112,23 @@ public class UdpPacketTest extends AbstractPacketTest {
     assertEquals(packet, p);
   }
 
+  @Test
+  public void testNewPacketWithOffset() {
+    byte[] rawData = packet.getRawData();
+    byte[] buf = new byte[rawData.length + 20];
+    // Bytes around the range must not be read.
+    Arrays.fill(buf, (byte)0xFF);
+    System.arraycopy(rawData, 0, buf, 10, rawData.length);
+    UdpPacket p = UdpPacket.newPacket(buf, 10, rawData.length);
+    assertEquals(packet, p);
+    assertArrayEquals(rawData, p.getRawData());
+
+    try {
+      UdpPacket.newPacket(buf, 21, rawData.length);
+      fail();
+    } catch (ArrayIndexOutOfBoundsException e) {}
+  }
+
   @Test
   public void testGetHeader() {
     UdpHeader h = packet.getHeader();
@@ -2,14 +2,16 @@ package org.pcap4j.sample;
 
 import java.io.IOException;
 import java.sql.Timestamp;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import org.pcap4j.core.NotOpenException;
-import org.pcap4j.core.PacketListener;
+import org.pcap4j.core.PacketDispatcher;
+import org.pcap4j.core.PacketDispatcher.OverflowPolicy;
 import org.pcap4j.core.PcapHandle;
 import org.pcap4j.core.PcapNativeException;
 import org.pcap4j.core.PcapNetworkInterface;
 import org.pcap4j.core.PcapNetworkInterface.PromiscuousMode;
+import org.pcap4j.core.RawPacket;
+import org.pcap4j.core.RawPacketListener;
 import org.pcap4j.packet.Packet;
 import org.pcap4j.util.NifSelector;
 
@@ -34,13 +36,15 @@ public class HeavyLoop {
     final PcapHandle handle
       = nif.openLive(65536, PromiscuousMode.PROMISCUOUS, 10);
 
-    PacketListener listener
-      = new PacketListener() {
-          public void gotPacket(Packet packet) {
-            Timestamp ts = new Timestamp(handle.getTimestampInts() * 1000L);
-            ts.setNanos(handle.getTimestampMicros() * 1000);
+    RawPacketListener listener
+      = new RawPacketListener() {
+          public void gotPacket(RawPacket rawPacket) {
+            Timestamp ts = new Timestamp(rawPacket.getTimestampSec() * 1000L);
+            ts.setNanos(rawPacket.getTimestampMicros() * 1000);
+            Packet packet = rawPacket.decode();
 
             System.out.println(ts);
+            System.out.println(packet);
 
             System.out.println("start a heavy task");
             try {
@@ -52,14 +56,20 @@ public class HeavyLoop {
           }
         };
 
+    // The dispatcher copies each packet on the capture thread
+    // and decodes it on one of its worker threads.
+    PacketDispatcher dispatcher
+      = new PacketDispatcher(listener, 4, 64, OverflowPolicy.BLOCK);
     try {
-      ExecutorService pool = Executors.newCachedThreadPool();
-      handle.loop(5, listener, pool); // This is better than handle.loop(5, listener);
-      pool.shutdown();
+      handle.loop(5, dispatcher);
+      dispatcher.shutdown();
+      dispatcher.awaitTermination(30, TimeUnit.SECONDS);
     } catch (InterruptedException e) {
       e.printStackTrace();
     }
 
+    System.out.println(dispatcher);
+
     handle.close();
   }
 
@@ -1,40 +1,25 @@
 package org.pcap4j.sample;
 
-import org.pcap4j.core.NotOpenException;
-import org.pcap4j.core.PcapDumper;
-import org.pcap4j.core.PcapHandle;
+import java.io.File;
+import java.io.IOException;
 import org.pcap4j.core.PcapNativeException;
-import org.pcap4j.core.Pcaps;
-import org.pcap4j.packet.Packet;
 
 @SuppressWarnings("javadoc")
 public class PcapFileMerger {
 
-  public static void main(String[] args) throws PcapNativeException, NotOpenException {
+  public static void main(String[] args) throws IOException, PcapNativeException {
     // args: pcap file list
 
-    PcapDumper dumper = null;
-    for (String pcapFile: args) {
-      PcapHandle handle = Pcaps.openOffline(pcapFile);
-
-      if (dumper == null) {
-        dumper = handle.dumpOpen(PcapFileMerger.class.getSimpleName() + ".pcap");
-      }
-
-      Packet packet;
-      while ((packet = handle.getNextPacket()) != null) {
-        dumper.dump(
-          packet, handle.getTimestampInts(), handle.getTimestampMicros()
+    org.pcap4j.core.PcapFileMerger.Builder builder
+      = new org.pcap4j.core.PcapFileMerger.Builder(
+          new File(PcapFileMerger.class.getSimpleName() + ".pcap")
         );
-      }
-
-      handle.close();
-    }
-
-    if (dumper != null) {
-      dumper.close();
+    for (String pcapFile: args) {
+      builder.addInput(new File(pcapFile));
     }
 
+    long count = builder.build().merge();
+    System.out.println("Merged " + count + " packets.");
   }
 
 }